@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.plugin.nitf;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Admits jobs while the sum of their memory estimates fits within a budget. Jobs are admitted in
+ * the order they ask, so a large job is not starved by a stream of small ones. A job that is larger
+ * than the whole budget is admitted once every other job has finished, so it runs alone instead of
+ * never running.
+ *
+ * <p>A job that only knows a provisional estimate when it starts can {@link Reservation#resize(long)
+ * resize} its reservation once it knows more. Jobs waiting to grow are served before new jobs are
+ * admitted.
+ */
+public class MemoryBudget {
+
+  private long capacity;
+
+  private long available;
+
+  private long nextTicket = 0;
+
+  private long servingTicket = 0;
+
+  private final Set<Long> abandonedTickets = new HashSet<>();
+
+  private int openReservations = 0;
+
+  private int growingReservations = 0;
+
+  /** @param capacity the budget in bytes, must be &gt;0 */
+  public MemoryBudget(long capacity) {
+    isTrue(capacity > 0, "capacity must be >0");
+    this.capacity = capacity;
+    this.available = capacity;
+  }
+
+  public synchronized long getCapacity() {
+    return capacity;
+  }
+
+  /** @return the number of bytes that have not been reserved */
+  public synchronized long getAvailable() {
+    return available;
+  }
+
+  /**
+   * Change the budget. Reservations that have already been admitted are kept, so the available
+   * memory may be negative until they are released.
+   *
+   * @param capacity the budget in bytes, must be &gt;0
+   */
+  public synchronized void setCapacity(long capacity) {
+    isTrue(capacity > 0, "capacity must be >0");
+    available += capacity - this.capacity;
+    this.capacity = capacity;
+    notifyAll();
+  }
+
+  /**
+   * Block until the memory is available and reserve it.
+   *
+   * @param bytes the estimated memory needed by the job, must be &gt;=0
+   * @return the reservation, which must be closed when the job is finished
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public synchronized Reservation reserve(long bytes) throws InterruptedException {
+    isTrue(bytes >= 0, "bytes must be >=0");
+
+    long ticket = nextTicket++;
+    try {
+      while (ticket != servingTicket
+          || growingReservations > 0
+          || available < Math.min(bytes, capacity)) {
+        wait();
+      }
+    } catch (InterruptedException e) {
+      abandonTicket(ticket);
+      throw e;
+    }
+
+    long amount = Math.min(bytes, capacity);
+    available -= amount;
+    openReservations++;
+    serveNextTicket();
+    return new Reservation(amount);
+  }
+
+  /**
+   * Change the amount of a reservation. Shrinking releases memory right away. Growing waits until
+   * the extra memory is available. If every open reservation is waiting to grow, one of them is
+   * allowed to exceed the budget, so the jobs do not wait for each other forever.
+   */
+  private synchronized void resize(Reservation reservation, long bytes)
+      throws InterruptedException {
+    isTrue(bytes >= 0, "bytes must be >=0");
+
+    long amount = Math.min(bytes, capacity);
+    if (amount > reservation.amount) {
+      growingReservations++;
+      try {
+        while (available < amount - reservation.amount
+            && growingReservations < openReservations) {
+          wait();
+        }
+      } finally {
+        growingReservations--;
+        notifyAll();
+      }
+    }
+
+    available -= amount - reservation.amount;
+    reservation.amount = amount;
+    notifyAll();
+  }
+
+  /**
+   * An interrupted job gives up its place in line. If it was at the front, the next job moves up;
+   * otherwise it is skipped when its turn comes.
+   */
+  private void abandonTicket(long ticket) {
+    if (ticket == servingTicket) {
+      serveNextTicket();
+    } else {
+      abandonedTickets.add(ticket);
+    }
+  }
+
+  private void serveNextTicket() {
+    servingTicket++;
+    while (abandonedTickets.remove(servingTicket)) {
+      servingTicket++;
+    }
+    notifyAll();
+  }
+
+  private synchronized void release(Reservation reservation) {
+    available += reservation.amount;
+    openReservations--;
+    notifyAll();
+  }
+
+  /** Memory reserved for one job. Closing the reservation more than once has no effect. */
+  public final class Reservation implements AutoCloseable {
+
+    private long amount;
+
+    private boolean closed = false;
+
+    private Reservation(long amount) {
+      this.amount = amount;
+    }
+
+    public long getAmount() {
+      synchronized (MemoryBudget.this) {
+        return amount;
+      }
+    }
+
+    /**
+     * Change the reserved memory, for example once the size of the job is known. The reservation is
+     * limited to the budget, as with {@link MemoryBudget#reserve(long)}.
+     *
+     * @param bytes the estimated memory needed by the job, must be &gt;=0
+     * @throws InterruptedException if interrupted while waiting for more memory, in which case the
+     *     reservation is unchanged
+     */
+    public void resize(long bytes) throws InterruptedException {
+      synchronized (MemoryBudget.this) {
+        isTrue(!closed, "the reservation is closed");
+        MemoryBudget.this.resize(this, bytes);
+      }
+    }
+
+    @Override
+    public void close() {
+      synchronized (MemoryBudget.this) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        release(this);
+      }
+    }
+  }
+}
@@ -20,20 +20,29 @@ import com.github.jaiimageio.jpeg2000.impl.J2KImageReaderSpi;
 import com.github.jaiimageio.jpeg2000.impl.J2KImageWriter;
 import com.github.jaiimageio.jpeg2000.impl.J2KImageWriterSpi;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.io.ByteSource;
 import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.impl.AttributeImpl;
 import ddf.catalog.data.types.Core;
 import java.awt.Graphics2D;
+import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -44,8 +53,8 @@ import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.spi.IIORegistry;
+import javax.imageio.stream.FileImageOutputStream;
 import javax.imageio.stream.ImageOutputStream;
-import javax.imageio.stream.MemoryCacheImageOutputStream;
 import net.coobird.thumbnailator.Thumbnails;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
@@ -64,7 +73,6 @@ import org.codice.ddf.catalog.async.data.impl.ProcessCreateItemImpl;
 import org.codice.ddf.catalog.async.data.impl.ProcessResourceImpl;
 import org.codice.ddf.catalog.async.data.impl.ProcessUpdateItemImpl;
 import org.codice.ddf.catalog.async.plugin.api.internal.PostProcessPlugin;
-import org.codice.ddf.platform.util.TemporaryFileBackedOutputStream;
 import org.codice.imaging.nitf.core.common.NitfFormatException;
 import org.codice.imaging.nitf.core.image.ImageSegment;
 import org.codice.imaging.nitf.fluent.NitfParserInputFlow;
@@ -77,6 +85,22 @@ import org.slf4j.LoggerFactory;
  * This {@link PostProcessPlugin} creates and stores the NITF thumbnail, overview, and original
  * images. The thumbnail is stored in the metacard, and the overview and original are stored as
  * derived resources in the content store.
+ *
+ * <p>The NITF is parsed once and only one full resolution image is held at a time. The overview is
+ * scaled from the rendered image, and the thumbnail is scaled from the overview. When the original
+ * is stored, the overview is scaled from the image rendered for the original; grey and RGB images
+ * with more than 8 bits per band are mapped to 8 bits first. Only images that cannot be mapped,
+ * such as multispectral images, are rendered a second time for display.
+ *
+ * <p>Rendering is admitted by a {@link MemoryBudget} rather than a fixed number of threads. The size
+ * of the NITF is reserved from the budget before it is parsed, since the parser buffers the image
+ * data. Once the image subheader is known, the reservation is changed to an estimate of the image
+ * data, decode and render memory, so many small images can be rendered at once while large images
+ * wait for memory.
+ *
+ * <p>The original image is encoded as JPEG 2000 tiles straight to a temporary file, which is
+ * streamed to the content store and deleted when the stream is closed. If no overview can be
+ * created, the original is not stored and its stream is closed right away.
  */
 public class NitfPostProcessPlugin implements PostProcessPlugin {
 
@@ -124,16 +148,17 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
 
   private static final int ARGB_COMPONENT_COUNT = 4;
 
+  private static final int JPEG2K_TILE_SIZE = 1024;
+
   private static final int DEFAULT_MAX_NITF_SIZE_MB = 120;
 
-  private static final int BYTES_PER_KILOBYTE = 1024;
+  private static final long DEFAULT_RENDER_MEMORY = Runtime.getRuntime().maxMemory() / 2;
 
-  private static final int DEFAULT_FILE_BACKED_OUTPUT_STREAM_THRESHOLD = 32 * BYTES_PER_KILOBYTE;
+  private static final int ARGB_BYTES_PER_PIXEL = 4;
 
-  private static final int MAX_THREAD_COUNT =
-      Integer.parseInt(System.getProperty("default.nitf.thread.count", "3"));
+  private static final int BITS_PER_BYTE = 8;
 
-  private Semaphore lock = new Semaphore(MAX_THREAD_COUNT, true);
+  private static final int MAX_DISPLAY_SAMPLE = 0xFF;
 
   private volatile boolean createOverview = true;
 
@@ -143,7 +168,7 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
 
   private volatile double maxSideLength = DEFAULT_MAX_SIDE_LENGTH;
 
-  private final Semaphore available = new Semaphore(2, true);
+  private final MemoryBudget memoryBudget;
 
   private Supplier<NitfRenderer> nitfRendererSupplier;
   private Supplier<NitfParserInputFlow> nitfParserSupplier;
@@ -155,17 +180,16 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
   public NitfPostProcessPlugin(
       Supplier<NitfRenderer> nitfRendererSupplier,
       Supplier<NitfParserInputFlow> nitfParserSupplier) {
-    this.nitfRendererSupplier = nitfRendererSupplier;
-    this.nitfParserSupplier = nitfParserSupplier;
+    this(new MemoryBudget(DEFAULT_RENDER_MEMORY), nitfRendererSupplier, nitfParserSupplier);
   }
 
   public NitfPostProcessPlugin(
-      Semaphore lock,
+      MemoryBudget memoryBudget,
       Supplier<NitfRenderer> nitfRendererSupplier,
       Supplier<NitfParserInputFlow> nitfParserSupplier) {
     this.nitfRendererSupplier = nitfRendererSupplier;
     this.nitfParserSupplier = nitfParserSupplier;
-    this.lock = lock;
+    this.memoryBudget = memoryBudget;
   }
 
   @Override
@@ -211,6 +235,15 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
     }
   }
 
+  /**
+   * @param maxRenderMemoryMB the memory that can be used to render images at the same time, 0 or
+   *     less uses half of the maximum heap
+   */
+  public void setMaxRenderMemoryMB(int maxRenderMemoryMB) {
+    memoryBudget.setCapacity(
+        maxRenderMemoryMB > 0 ? maxRenderMemoryMB * BYTES_PER_MEGABYTE : DEFAULT_RENDER_MEMORY);
+  }
+
   public void setMaxNitfSizeMB(int maxNitfSizeMB) {
     this.maxNitfSizeMB = maxNitfSizeMB;
   }
@@ -238,26 +271,15 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
     ProcessResource processResource = processCreateItem.getProcessResource();
 
     if (shouldProcess(processResource)) {
-
-      try {
-        lock.acquire();
-        try {
-          createdItems =
-              process(
-                  processCreateItem,
-                  metacard,
-                  null,
-                  processResource,
-                  constructorTriple ->
-                      new ProcessCreateItemImpl(
-                          constructorTriple.getLeft(), constructorTriple.getMiddle()));
-        } finally {
-          lock.release();
-        }
-      } catch (InterruptedException e) {
-        LOGGER.debug("Interrupt received while doing image processing.", e);
-        Thread.currentThread().interrupt();
-      }
+      createdItems =
+          process(
+              processCreateItem,
+              metacard,
+              null,
+              processResource,
+              constructorTriple ->
+                  new ProcessCreateItemImpl(
+                      constructorTriple.getLeft(), constructorTriple.getMiddle()));
     }
 
     if (createdItems == null) {
@@ -273,33 +295,38 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
       ProcessResource processResource,
       Function<Triple<ProcessResource, Metacard, Metacard>, T> constructor) {
     List<T> items = new ArrayList<>();
-    try (TemporaryFileBackedOutputStream fbos =
-        new TemporaryFileBackedOutputStream(DEFAULT_FILE_BACKED_OUTPUT_STREAM_THRESHOLD)) {
-
-      // TODO: 06/21/2018 oconnormi - can probably get rid of this once
-      // ProcessResourceImpl.getInputStream can be called multiple times
-      fbos.write(IOUtils.toByteArray(processResource.getInputStream()));
-      ByteSource byteSource = fbos.asByteSource();
-      BufferedImage renderedImage = renderImage(byteSource.openStream());
-
-      if (renderedImage != null) {
-        addThumbnailToMetacard(metacard, renderedImage);
+    AtomicReference<OriginalImage> originalImage = new AtomicReference<>();
+    // The parser buffers the image data, so the size of the NITF is reserved before it is parsed.
+    try (MemoryBudget.Reservation reservation =
+        memoryBudget.reserve(Math.max(processResource.getSize(), 0))) {
+
+      // The resource is only parsed once, so it is streamed straight into the parser instead of
+      // being copied first.
+      boolean storeOriginal = storeOriginalImage;
+      BufferedImage overviewImage =
+          renderOverviewImage(
+              processResource.getInputStream(),
+              storeOriginal,
+              metacard,
+              originalImage,
+              reservation);
+
+      if (overviewImage != null) {
+        addThumbnailToMetacard(metacard, overviewImage);
         processResourceItem.markMetacardAsModified();
         if (createOverview) {
-          ProcessResource overviewProcessResource = createOverviewResource(renderedImage, metacard);
+          ProcessResource overviewProcessResource = createOverviewResource(overviewImage, metacard);
           items.add(
               constructor.apply(
                   new ImmutableTriple<>(overviewProcessResource, metacard, originalMetacard)));
         }
 
-        if (storeOriginalImage) {
-          ProcessResource originalImageProcessResource =
-              createOriginalImage(
-                  renderImageUsingOriginalDataModel(byteSource.openStream()), metacard);
-
+        OriginalImage original = originalImage.getAndSet(null);
+        if (original != null) {
+          addDerivedResourceAttribute(metacard, original.processResource);
           items.add(
               constructor.apply(
-                  new ImmutableTriple<>(originalImageProcessResource, metacard, originalMetacard)));
+                  new ImmutableTriple<>(original.processResource, metacard, originalMetacard)));
         }
       }
     } catch (IOException | NitfFormatException | RuntimeException e) {
@@ -309,6 +336,9 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
       Thread.currentThread().interrupt();
       throw new RuntimeException(
           String.format("Rendering failed for %s", processResource.getName()));
+    } finally {
+      // The original is only passed on with the overview, otherwise its temporary file is deleted.
+      IOUtils.closeQuietly(originalImage.get());
     }
     return items;
   }
@@ -329,48 +359,54 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
     ProcessResource processResource = processUpdateItem.getProcessResource();
 
     if (shouldProcess(processResource)) {
-      try {
-        lock.acquire();
-        try {
-          updatedItems =
-              process(
-                  processUpdateItem,
-                  metacard,
-                  originalMetacard,
-                  processResource,
-                  constructorTriple ->
-                      new ProcessUpdateItemImpl(
-                          constructorTriple.getLeft(),
-                          constructorTriple.getMiddle(),
-                          constructorTriple.getRight()));
-        } finally {
-          lock.release();
-        }
-      } catch (InterruptedException e) {
-        LOGGER.debug("Interrupt received while doing image processing.", e);
-        Thread.currentThread().interrupt();
-      }
+      updatedItems =
+          process(
+              processUpdateItem,
+              metacard,
+              originalMetacard,
+              processResource,
+              constructorTriple ->
+                  new ProcessUpdateItemImpl(
+                      constructorTriple.getLeft(),
+                      constructorTriple.getMiddle(),
+                      constructorTriple.getRight()));
     }
     return updatedItems.stream();
   }
 
-  private ProcessResource createOverviewResource(BufferedImage renderedImage, Metacard metacard) {
-    return createDerivedImage(
-        OVERVIEW,
-        renderedImage,
-        metacard,
-        calculateOverviewWidth(renderedImage),
-        calculateOverviewHeight(renderedImage));
+  private ProcessResource createOverviewResource(BufferedImage overviewImage, Metacard metacard) {
+    return createDerivedImage(OVERVIEW, overviewImage, metacard);
   }
 
-  private BufferedImage renderImage(InputStream inputStream)
+  /**
+   * Render the first image segment of the NITF and scale it to the overview size. When the original
+   * image is stored, the image is rendered to the data model closest to the NITF's and the original
+   * is encoded from it and the overview is scaled from the same image. The image is only rendered
+   * again for display when it cannot be mapped to a display image.
+   */
+  private BufferedImage renderOverviewImage(
+      InputStream inputStream,
+      boolean storeOriginal,
+      Metacard metacard,
+      AtomicReference<OriginalImage> originalImage,
+      MemoryBudget.Reservation reservation)
       throws NitfFormatException, InterruptedException {
 
     return render(
         inputStream,
+        reservation,
         input -> {
           try {
-            return input.getRight().render(input.getLeft());
+            if (storeOriginal) {
+              BufferedImage overviewImage =
+                  storeOriginalImage(
+                      input.getLeft(), input.getRight(), metacard, originalImage);
+              if (overviewImage != null) {
+                return overviewImage;
+              }
+              input.getLeft().getData().seek(0);
+            }
+            return scaleToOverview(input.getRight().render(input.getLeft()));
           } catch (IOException e) {
             LOGGER.debug("An error occurred when rendering a nitf", e.getMessage(), e);
           }
@@ -378,23 +414,129 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
         });
   }
 
-  private BufferedImage renderImageUsingOriginalDataModel(InputStream inputStream)
-      throws NitfFormatException, InterruptedException {
+  /**
+   * Render the image to its closest data model and encode the original from it.
+   *
+   * @return the overview scaled from the rendered image, or null if it cannot be mapped to a display
+   *     image
+   */
+  private BufferedImage storeOriginalImage(
+      ImageSegment segment,
+      NitfRenderer renderer,
+      Metacard metacard,
+      AtomicReference<OriginalImage> originalImageReference)
+      throws IOException {
+    BufferedImage originalImage = renderer.renderToClosestDataModel(segment);
+    // An original encoded from an earlier image segment that could not be rendered is discarded.
+    IOUtils.closeQuietly(
+        originalImageReference.getAndSet(createOriginalImage(originalImage, metacard)));
 
-    return render(
-        inputStream,
-        input -> {
-          try {
-            return input.getRight().renderToClosestDataModel(input.getLeft());
-          } catch (IOException e) {
-            LOGGER.debug("An error occurred when rendering a nitf", e.getMessage(), e);
-          }
-          return null;
-        });
+    if (isDisplayImage(originalImage)) {
+      return scaleToOverview(originalImage);
+    }
+
+    BufferedImage displayImage =
+        toDisplayImage(
+            originalImage,
+            segment.getActualBitsPerPixelPerBand(),
+            calculateOverviewWidth(originalImage),
+            calculateOverviewHeight(originalImage));
+    return displayImage != null ? scaleToOverview(displayImage) : null;
+  }
+
+  /**
+   * Images with more than 8 bits per band, or with more bands than a display image, need to be
+   * mapped for display before they are scaled to a JPEG.
+   */
+  @VisibleForTesting
+  static boolean isDisplayImage(BufferedImage image) {
+    switch (image.getType()) {
+      case BufferedImage.TYPE_INT_RGB:
+      case BufferedImage.TYPE_INT_ARGB:
+      case BufferedImage.TYPE_INT_ARGB_PRE:
+      case BufferedImage.TYPE_INT_BGR:
+      case BufferedImage.TYPE_3BYTE_BGR:
+      case BufferedImage.TYPE_4BYTE_ABGR:
+      case BufferedImage.TYPE_4BYTE_ABGR_PRE:
+      case BufferedImage.TYPE_BYTE_GRAY:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Map a grey or RGB image with more than 8 bits per band to an 8-bit display image by keeping the
+   * most significant bits of each sample. The image is subsampled while it is mapped, down to no
+   * less than the given size, so the display image is about the size of the overview instead of a
+   * second full resolution image.
+   *
+   * @return the display image, or null if the image is not a grey or RGB image with integer samples
+   */
+  @VisibleForTesting
+  static BufferedImage toDisplayImage(
+      BufferedImage image, int bitsPerBand, int minWidth, int minHeight) {
+    ColorModel colorModel = image.getColorModel();
+    Raster raster = image.getRaster();
+    int bands = raster.getNumBands();
+
+    if (!(colorModel instanceof ComponentColorModel)
+        || colorModel.hasAlpha()
+        || !isIntegerSample(raster.getDataBuffer().getDataType())) {
+      return null;
+    }
+
+    int displayType;
+    if (bands == 1 && colorModel.getColorSpace().getType() == ColorSpace.TYPE_GRAY) {
+      displayType = BufferedImage.TYPE_BYTE_GRAY;
+    } else if (bands == 3 && colorModel.getColorSpace().getType() == ColorSpace.TYPE_RGB) {
+      displayType = BufferedImage.TYPE_3BYTE_BGR;
+    } else {
+      return null;
+    }
+
+    int step =
+        Math.max(
+            Math.min(
+                image.getWidth() / Math.max(minWidth, 1),
+                image.getHeight() / Math.max(minHeight, 1)),
+            1);
+    int shift = Math.max(bitsPerBand - BITS_PER_BYTE, 0);
+
+    BufferedImage displayImage =
+        new BufferedImage(
+            (image.getWidth() + step - 1) / step,
+            (image.getHeight() + step - 1) / step,
+            displayType);
+    WritableRaster displayRaster = displayImage.getRaster();
+
+    int[] pixel = new int[bands];
+    for (int y = 0; y < displayImage.getHeight(); y++) {
+      for (int x = 0; x < displayImage.getWidth(); x++) {
+        raster.getPixel(x * step, y * step, pixel);
+        for (int band = 0; band < bands; band++) {
+          pixel[band] = Math.min(pixel[band] >>> shift, MAX_DISPLAY_SAMPLE);
+        }
+        displayRaster.setPixel(x, y, pixel);
+      }
+    }
+
+    return displayImage;
+  }
+
+  private static boolean isIntegerSample(int dataType) {
+    return dataType == DataBuffer.TYPE_BYTE
+        || dataType == DataBuffer.TYPE_USHORT
+        || dataType == DataBuffer.TYPE_INT;
+  }
+
+  private BufferedImage scaleToOverview(BufferedImage image) throws IOException {
+    return scaleImage(image, calculateOverviewWidth(image), calculateOverviewHeight(image));
   }
 
   private BufferedImage render(
       InputStream inputStream,
+      MemoryBudget.Reservation reservation,
       Function<Pair<ImageSegment, NitfRenderer>, BufferedImage> imageSegmentFunction)
       throws InterruptedException, NitfFormatException {
 
@@ -402,7 +544,6 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
 
     if (inputStream != null) {
       try {
-        available.acquire();
         NitfRenderer renderer = nitfRendererSupplier.get();
         NitfParserInputFlow parserInputFlow = nitfParserSupplier.get();
 
@@ -411,7 +552,7 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
             .allData()
             .forEachImageSegment(
                 segment -> {
-                  if (bufferedImage.get() == null) {
+                  if (bufferedImage.get() == null && reserveMemory(segment, reservation)) {
                     BufferedImage bi =
                         imageSegmentFunction.apply(new ImmutablePair<>(segment, renderer));
                     if (bi != null) {
@@ -422,18 +563,55 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
             .end();
       } finally {
         IOUtils.closeQuietly(inputStream);
-        available.release();
       }
     }
 
     BufferedImage image = bufferedImage.get();
     bufferedImage.remove();
+
+    if (Thread.interrupted()) {
+      throw new InterruptedException("interrupted while waiting for memory to render the nitf");
+    }
+
     return image;
   }
 
-  private void addThumbnailToMetacard(Metacard metacard, BufferedImage bufferedImage) {
+  /**
+   * Change the reservation made for the NITF to the memory needed to render the image segment,
+   * waiting if more memory is needed.
+   *
+   * @return false if interrupted while waiting
+   */
+  private boolean reserveMemory(ImageSegment segment, MemoryBudget.Reservation reservation) {
+    try {
+      reservation.resize(estimateRenderMemory(segment));
+      return true;
+    } catch (InterruptedException e) {
+      LOGGER.debug("Interrupt received while waiting for memory to render a nitf.", e);
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Estimate the memory needed to render an image segment and create its derived images from the
+   * image subheader: the image data buffered by the parser, the decoded raster, the rendered image,
+   * and the copy of the rendered image that may be made while encoding the original.
+   */
+  @VisibleForTesting
+  static long estimateRenderMemory(ImageSegment segment) {
+    long pixels = segment.getNumberOfRows() * segment.getNumberOfColumns();
+    long bytesPerBand =
+        Math.max((segment.getActualBitsPerPixelPerBand() + BITS_PER_BYTE - 1) / BITS_PER_BYTE, 1);
+    long decodedBytesPerPixel = Math.max(segment.getNumBands(), 1) * bytesPerBand;
+    long renderedBytesPerPixel = Math.max(decodedBytesPerPixel, ARGB_BYTES_PER_PIXEL);
+    return Math.max(segment.getDataLength(), 0)
+        + pixels * (decodedBytesPerPixel + 2 * renderedBytesPerPixel);
+  }
+
+  private void addThumbnailToMetacard(Metacard metacard, BufferedImage overviewImage) {
     try {
-      byte[] thumbnailImage = scaleImage(bufferedImage, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+      byte[] thumbnailImage = toJpeg(scaleImage(overviewImage, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT));
 
       if (thumbnailImage.length > 0) {
         metacard.setAttribute(new AttributeImpl(Core.THUMBNAIL, thumbnailImage));
@@ -444,9 +622,9 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
   }
 
   private ProcessResource createDerivedImage(
-      String qualifier, BufferedImage image, Metacard metacard, int maxWidth, int maxHeight) {
+      String qualifier, BufferedImage image, Metacard metacard) {
     try {
-      byte[] overviewBytes = scaleImage(image, maxWidth, maxHeight);
+      byte[] overviewBytes = toJpeg(image);
       InputStream overviewBytesInputStream = new ByteArrayInputStream(overviewBytes);
 
       ProcessResource processResource =
@@ -469,35 +647,50 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
     return null;
   }
 
-  private ProcessResource createOriginalImage(BufferedImage image, Metacard metacard) {
+  private OriginalImage createOriginalImage(BufferedImage image, Metacard metacard) {
 
+    Path originalFile = null;
     try {
-      byte[] originalBytes = renderToJpeg2k(image);
+      originalFile = renderToJpeg2k(image);
+      long size = Files.size(originalFile);
 
-      InputStream originalBytesInputStream = new ByteArrayInputStream(originalBytes);
+      // The stream deletes the encoded file when the content store closes it, so the original is
+      // stored without another copy.
+      InputStream originalInputStream =
+          Files.newInputStream(originalFile, StandardOpenOption.DELETE_ON_CLOSE);
 
       ProcessResource processResource =
           new ProcessResourceImpl(
               metacard.getId(),
-              originalBytesInputStream,
+              originalInputStream,
               IMAGE_JPEG2K,
               buildDerivedImageTitle(metacard.getTitle(), ORIGINAL, JP2),
-              originalBytes.length,
+              size,
               ORIGINAL);
 
       ((ProcessResourceImpl) processResource).markAsModified();
 
-      addDerivedResourceAttribute(metacard, processResource);
-
-      return processResource;
+      return new OriginalImage(processResource, originalInputStream);
 
     } catch (IOException e) {
       LOGGER.debug(e.getMessage(), e);
+      deleteQuietly(originalFile);
     }
 
     return null;
   }
 
+  private void deleteQuietly(Path path) {
+    if (path == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      LOGGER.debug("Unable to delete {}", path, e);
+    }
+  }
+
   @VisibleForTesting
   static String buildDerivedImageTitle(String title, String qualifier, String extension) {
     String rootFileName = FilenameUtils.getBaseName(title);
@@ -513,24 +706,31 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
     return String.format("%s.%s", qualifier, JPG).toLowerCase();
   }
 
-  private byte[] scaleImage(final BufferedImage bufferedImage, int width, int height)
+  private BufferedImage scaleImage(final BufferedImage bufferedImage, int width, int height)
       throws IOException {
-    BufferedImage thumbnail =
-        Thumbnails.of(bufferedImage)
-            .size(width, height)
-            .outputFormat(JPG)
-            .imageType(BufferedImage.TYPE_3BYTE_BGR)
-            .asBufferedImage();
+    return Thumbnails.of(bufferedImage)
+        .size(width, height)
+        .outputFormat(JPG)
+        .imageType(BufferedImage.TYPE_3BYTE_BGR)
+        .asBufferedImage();
+  }
 
+  private byte[] toJpeg(final BufferedImage image) throws IOException {
     ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-    ImageIO.write(thumbnail, JPG, outputStream);
+    ImageIO.write(image, JPG, outputStream);
     outputStream.flush();
-    byte[] thumbnailBytes = outputStream.toByteArray();
+    byte[] jpegBytes = outputStream.toByteArray();
     outputStream.close();
-    return thumbnailBytes;
+    return jpegBytes;
   }
 
-  private byte[] renderToJpeg2k(final BufferedImage bufferedImage) throws IOException {
+  /**
+   * Encode the image as JPEG 2000 tiles and write the codestream directly to a temporary file, so
+   * neither the encoded image nor an in-memory cache of it is held on the heap.
+   *
+   * @return the temporary file, which the caller is responsible for deleting
+   */
+  private Path renderToJpeg2k(final BufferedImage bufferedImage) throws IOException {
 
     BufferedImage imageToCompress = bufferedImage;
 
@@ -543,24 +743,34 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
       Graphics2D g = imageToCompress.createGraphics();
 
       g.drawImage(bufferedImage, 0, 0, null);
+      g.dispose();
     }
 
-    ByteArrayOutputStream os = new ByteArrayOutputStream();
-
     J2KImageWriter writer = new J2KImageWriter(new J2KImageWriterSpi());
     J2KImageWriteParam writeParams = (J2KImageWriteParam) writer.getDefaultWriteParam();
     writeParams.setLossless(false);
     writeParams.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
     writeParams.setCompressionType("JPEG2000");
     writeParams.setCompressionQuality(0.0f);
+    writeParams.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+    writeParams.setTiling(
+        Math.min(JPEG2K_TILE_SIZE, imageToCompress.getWidth()),
+        Math.min(JPEG2K_TILE_SIZE, imageToCompress.getHeight()),
+        0,
+        0);
+
+    Path originalFile = Files.createTempFile(ORIGINAL + "-", "." + JP2);
+    try (ImageOutputStream ios = new FileImageOutputStream(originalFile.toFile())) {
+      writer.setOutput(ios);
+      writer.write(null, new IIOImage(imageToCompress, null, null), writeParams);
+    } catch (IOException | RuntimeException e) {
+      deleteQuietly(originalFile);
+      throw e;
+    } finally {
+      writer.dispose();
+    }
 
-    ImageOutputStream ios = new MemoryCacheImageOutputStream(os);
-    writer.setOutput(ios);
-    writer.write(null, new IIOImage(imageToCompress, null, null), writeParams);
-    writer.dispose();
-    ios.close();
-
-    return os.toByteArray();
+    return originalFile;
   }
 
   private void addDerivedResourceAttribute(Metacard metacard, ProcessResource processResource) {
@@ -616,4 +826,25 @@ public class NitfPostProcessPlugin implements PostProcessPlugin {
     }
     return true;
   }
+
+  /**
+   * The encoded original image. Closing it closes the stream of the resource, which deletes the
+   * temporary file, so it must be closed if the resource is not passed on to the content store.
+   */
+  private static class OriginalImage implements Closeable {
+
+    private final ProcessResource processResource;
+
+    private final InputStream inputStream;
+
+    private OriginalImage(ProcessResource processResource, InputStream inputStream) {
+      this.processResource = processResource;
+      this.inputStream = inputStream;
+    }
+
+    @Override
+    public void close() {
+      IOUtils.closeQuietly(inputStream);
+    }
+  }
 }
@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.plugin.nitf
+
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class MemoryBudgetSpec extends Specification {
+
+    private MemoryBudget memoryBudget = new MemoryBudget(100)
+
+    def "reserving and releasing memory"() {
+        when:
+            def reservation = memoryBudget.reserve(60)
+        then:
+            memoryBudget.available == 40
+        when: "the reservation is closed twice"
+            reservation.close()
+            reservation.close()
+        then: "the memory is only released once"
+            memoryBudget.available == 100
+    }
+
+    def "admitting a job larger than the budget when nothing else is running"() {
+        when:
+            def reservation = memoryBudget.reserve(500)
+        then:
+            reservation.amount == 100
+            memoryBudget.available == 0
+        cleanup:
+            reservation.close()
+    }
+
+    def "admitting jobs in the order they ask"() {
+        setup:
+            def reservation = memoryBudget.reserve(60)
+            def admitted = Collections.synchronizedList([])
+            def largeJob = Thread.start {
+                memoryBudget.reserve(80).withCloseable { admitted << 80 }
+            }
+            waitForWaitingThread(largeJob)
+            def smallJob = Thread.start {
+                memoryBudget.reserve(10).withCloseable { admitted << 10 }
+            }
+            waitForWaitingThread(smallJob)
+        expect: "the small job waits behind the large job even though it would fit"
+            admitted.isEmpty()
+        when:
+            reservation.close()
+            largeJob.join(TimeUnit.SECONDS.toMillis(5))
+            smallJob.join(TimeUnit.SECONDS.toMillis(5))
+        then:
+            admitted == [80, 10]
+            memoryBudget.available == 100
+    }
+
+    def "skipping a job that was interrupted while waiting"() {
+        setup:
+            def reservation = memoryBudget.reserve(100)
+            def interrupted = new CountDownLatch(1)
+            def interruptedJob = Thread.start {
+                try {
+                    memoryBudget.reserve(50)
+                } catch (InterruptedException e) {
+                    interrupted.countDown()
+                }
+            }
+            waitForWaitingThread(interruptedJob)
+            def nextJob = Thread.start {
+                memoryBudget.reserve(50).close()
+            }
+            waitForWaitingThread(nextJob)
+        when:
+            interruptedJob.interrupt()
+            reservation.close()
+            nextJob.join(TimeUnit.SECONDS.toMillis(5))
+        then:
+            interrupted.await(5, TimeUnit.SECONDS)
+            !nextJob.alive
+            memoryBudget.available == 100
+    }
+
+    def "changing the budget"() {
+        setup:
+            def reservation = memoryBudget.reserve(60)
+        when:
+            memoryBudget.capacity = 50
+        then:
+            memoryBudget.available == -10
+        when:
+            reservation.close()
+        then:
+            memoryBudget.available == 50
+    }
+
+    def "resizing a reservation"() {
+        setup:
+            def reservation = memoryBudget.reserve(60)
+        when:
+            reservation.resize(20)
+        then:
+            reservation.amount == 20
+            memoryBudget.available == 80
+        when:
+            reservation.resize(90)
+        then:
+            reservation.amount == 90
+            memoryBudget.available == 10
+        when:
+            reservation.close()
+        then:
+            memoryBudget.available == 100
+    }
+
+    def "growing a reservation ahead of new jobs"() {
+        setup:
+            def reservation = memoryBudget.reserve(50)
+            def other = memoryBudget.reserve(30)
+            def admitted = Collections.synchronizedList([])
+            def growingJob = Thread.start {
+                reservation.resize(90)
+                admitted << "grown"
+            }
+            waitForWaitingThread(growingJob)
+            def newJob = Thread.start {
+                memoryBudget.reserve(20).withCloseable { admitted << "new" }
+            }
+            waitForWaitingThread(newJob)
+        expect: "the new job waits behind the growing reservation even though it would fit"
+            admitted.isEmpty()
+        when:
+            other.close()
+            growingJob.join(TimeUnit.SECONDS.toMillis(5))
+            reservation.close()
+            newJob.join(TimeUnit.SECONDS.toMillis(5))
+        then:
+            admitted == ["grown", "new"]
+            memoryBudget.available == 100
+    }
+
+    def "growing past the budget when every reservation is waiting to grow"() {
+        setup:
+            def first = memoryBudget.reserve(50)
+            def second = memoryBudget.reserve(50)
+            def firstJob = Thread.start {
+                first.resize(100)
+            }
+            waitForWaitingThread(firstJob)
+        when: "the second reservation also needs to grow"
+            second.resize(60)
+        then: "it exceeds the budget instead of both waiting forever"
+            second.amount == 60
+            memoryBudget.available == -10
+            firstJob.alive
+        when:
+            second.close()
+            firstJob.join(TimeUnit.SECONDS.toMillis(5))
+        then:
+            !firstJob.alive
+            first.amount == 100
+            memoryBudget.available == 0
+        cleanup:
+            first.close()
+    }
+
+    def "resizing a closed reservation"() {
+        setup:
+            def reservation = memoryBudget.reserve(60)
+            reservation.close()
+        when:
+            reservation.resize(10)
+        then:
+            thrown(IllegalArgumentException)
+            memoryBudget.available == 100
+    }
+
+    def "rejecting an invalid budget"() {
+        when:
+            new MemoryBudget(0)
+        then:
+            thrown(IllegalArgumentException)
+    }
+
+    private static void waitForWaitingThread(Thread thread) {
+        while (thread.state != Thread.State.WAITING) {
+            Thread.sleep(10)
+        }
+    }
+}
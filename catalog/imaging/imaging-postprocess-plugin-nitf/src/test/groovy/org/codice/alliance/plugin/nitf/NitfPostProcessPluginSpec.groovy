@@ -28,8 +28,14 @@ import org.codice.imaging.nitf.render.NitfRenderer
 import spock.lang.Specification
 import spock.lang.Unroll
 
+import java.awt.Transparency
+import java.awt.color.ColorSpace
 import java.awt.image.BufferedImage
-import java.util.concurrent.Semaphore
+import java.awt.image.ComponentColorModel
+import java.awt.image.DataBuffer
+import java.awt.image.Raster
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
 import java.util.function.Supplier
 
 class NitfPostProcessPluginSpec extends Specification {
@@ -41,6 +47,8 @@ class NitfPostProcessPluginSpec extends Specification {
 
     private static final double DEFAULT_MAX_SIDE_LENGTH = 1024.0
 
+    private static final long RENDER_MEMORY = 64L * 1024L * 1024L
+
     private NitfPostProcessPlugin nitfPostProcessPlugin = null
 
     private ProcessRequest<ProcessCreateItem> createProcessRequest
@@ -67,12 +75,12 @@ class NitfPostProcessPluginSpec extends Specification {
 
     private ProcessUpdateItem processUpdateItem1
 
-    private Semaphore lock;
+    private MemoryBudget memoryBudget
 
     def setup() {
-        lock = Mock(Semaphore)
+        memoryBudget = new MemoryBudget(RENDER_MEMORY)
 
-        nitfPostProcessPlugin = new NitfPostProcessPlugin(lock, {
+        nitfPostProcessPlugin = new NitfPostProcessPlugin(memoryBudget, {
             return Mock(NitfRenderer) {
                 final BufferedImage bufferedImage = Mock(BufferedImage)
 
@@ -200,8 +208,7 @@ class NitfPostProcessPluginSpec extends Specification {
             1 * processCreateItem.markMetacardAsModified()
             result == createProcessRequest
             result.processItems.size() == 3
-        1 * lock.acquire()
-        1 * lock.release()
+            memoryBudget.available == RENDER_MEMORY
     }
 
     def "handling basic update requests"() {
@@ -213,8 +220,227 @@ class NitfPostProcessPluginSpec extends Specification {
             1 * processUpdateItem.markMetacardAsModified()
             result == updateProcessRequest
             result.processItems.size() == 3
-        1 * lock.acquire()
-        1 * lock.release()
+            memoryBudget.available == RENDER_MEMORY
+    }
+
+    def "decoding each nitf image once"() {
+        setup:
+            NitfRenderer nitfRenderer = Mock(NitfRenderer)
+            NitfPostProcessPlugin plugin = new NitfPostProcessPlugin(memoryBudget, { nitfRenderer }, {
+                return new NitfParserInputFlowImpl()
+            })
+        when: "a valid process create request is submitted"
+            def result = plugin.processCreate(createProcessRequest)
+        then: "the image is rendered once for the original, overview and thumbnail"
+            1 * nitfRenderer.renderToClosestDataModel(_ as ImageSegment) >>
+                    new BufferedImage(2048, 1024, BufferedImage.TYPE_3BYTE_BGR)
+            0 * nitfRenderer.render(_)
+            1 * metacard.setAttribute({it.name == Core.THUMBNAIL; it.value != null})
+            result.processItems.size() == 3
+    }
+
+    def "decoding each nitf image once when the original has more than 8 bits per band"() {
+        setup:
+            NitfRenderer nitfRenderer = Mock(NitfRenderer)
+            NitfPostProcessPlugin plugin = new NitfPostProcessPlugin(memoryBudget, { nitfRenderer }, {
+                return new NitfParserInputFlowImpl()
+            })
+        when: "a valid process create request is submitted"
+            def result = plugin.processCreate(createProcessRequest)
+        then: "the original keeps the 16-bit data and the overview is mapped from the same image"
+            1 * nitfRenderer.renderToClosestDataModel(_ as ImageSegment) >>
+                    new BufferedImage(2048, 1024, BufferedImage.TYPE_USHORT_GRAY)
+            0 * nitfRenderer.render(_)
+            1 * metacard.setAttribute({it.name == Core.THUMBNAIL; it.value != null})
+            result.processItems.size() == 3
+            result.processItems.collect { it.processResource.qualifier }.containsAll(["overview", "original"])
+    }
+
+    def "rendering the overview for display when the original cannot be mapped to a display image"() {
+        setup:
+            NitfRenderer nitfRenderer = Mock(NitfRenderer)
+            NitfPostProcessPlugin plugin = new NitfPostProcessPlugin(memoryBudget, { nitfRenderer }, {
+                return new NitfParserInputFlowImpl()
+            })
+        when: "a valid process create request is submitted"
+            def result = plugin.processCreate(createProcessRequest)
+        then: "the original is encoded from the palette image and the overview uses the display rendering"
+            1 * nitfRenderer.renderToClosestDataModel(_ as ImageSegment) >>
+                    new BufferedImage(2048, 1024, BufferedImage.TYPE_BYTE_INDEXED)
+        then:
+            1 * nitfRenderer.render(_ as ImageSegment) >>
+                    new BufferedImage(2048, 1024, BufferedImage.TYPE_3BYTE_BGR)
+            1 * metacard.setAttribute({it.name == Core.THUMBNAIL; it.value != null})
+            result.processItems.size() == 3
+            result.processItems.collect { it.processResource.qualifier }.containsAll(["overview", "original"])
+    }
+
+    def "mapping a 12-bit grey image to a display image"() {
+        setup:
+            BufferedImage image = new BufferedImage(4, 2, BufferedImage.TYPE_USHORT_GRAY)
+            image.raster.setSamples(0, 0, 4, 2, 0, [0x000, 0x010, 0x800, 0xFFF, 0xFFFF, 0x7F0, 0x0F0, 0x100] as int[])
+        when:
+            BufferedImage displayImage = NitfPostProcessPlugin.toDisplayImage(image, 12, 4, 2)
+        then: "the most significant bits of each sample are kept"
+            displayImage.type == BufferedImage.TYPE_BYTE_GRAY
+            displayImage.raster.getSamples(0, 0, 4, 2, 0, new int[8]) ==
+                    [0x00, 0x01, 0x80, 0xFF, 0xFF, 0x7F, 0x0F, 0x10] as int[]
+    }
+
+    def "subsampling a 16-bit RGB image down to the overview size while mapping it"() {
+        setup:
+            ComponentColorModel colorModel = new ComponentColorModel(
+                    ColorSpace.getInstance(ColorSpace.CS_sRGB), false, false, Transparency.OPAQUE, DataBuffer.TYPE_USHORT)
+            BufferedImage image = new BufferedImage(colorModel,
+                    Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, 100, 50, 3, null), false, null)
+            image.raster.setPixel(10, 10, [0xFFFF, 0x8000, 0x0100] as int[])
+        when:
+            BufferedImage displayImage = NitfPostProcessPlugin.toDisplayImage(image, 16, 10, 5)
+        then:
+            displayImage.type == BufferedImage.TYPE_3BYTE_BGR
+            displayImage.width == 10
+            displayImage.height == 5
+            displayImage.raster.getPixel(1, 1, new int[3]) == [0xFF, 0x80, 0x01] as int[]
+    }
+
+    @Unroll
+    def "image type #imageType cannot be mapped to a display image"() {
+        expect:
+            NitfPostProcessPlugin.toDisplayImage(new BufferedImage(4, 4, imageType), 16, 4, 4) == null
+
+        where:
+            imageType << [BufferedImage.TYPE_BYTE_INDEXED, BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_INT_ARGB]
+    }
+
+    @Unroll
+    def "image type #imageType is a display image: #expected"() {
+        expect:
+            NitfPostProcessPlugin.isDisplayImage(new BufferedImage(4, 4, imageType)) == expected
+
+        where:
+            imageType                         || expected
+            BufferedImage.TYPE_3BYTE_BGR      || true
+            BufferedImage.TYPE_INT_ARGB       || true
+            BufferedImage.TYPE_BYTE_GRAY      || true
+            BufferedImage.TYPE_USHORT_GRAY    || false
+            BufferedImage.TYPE_USHORT_565_RGB || false
+    }
+
+    def "decoding each nitf image once without the original"() {
+        setup:
+            NitfRenderer nitfRenderer = Mock(NitfRenderer)
+            NitfPostProcessPlugin plugin = new NitfPostProcessPlugin(memoryBudget, { nitfRenderer }, {
+                return new NitfParserInputFlowImpl()
+            })
+            plugin.setStoreOriginalImage(false)
+        when: "a valid process create request is submitted"
+            def result = plugin.processCreate(createProcessRequest)
+        then: "the image is rendered once for display"
+            1 * nitfRenderer.render(_ as ImageSegment) >>
+                    new BufferedImage(2048, 1024, BufferedImage.TYPE_3BYTE_BGR)
+            0 * nitfRenderer.renderToClosestDataModel(_)
+            1 * metacard.setAttribute({it.name == Core.THUMBNAIL; it.value != null})
+            result.processItems.size() == 2
+    }
+
+    def "streaming the tiled original image from a temporary file"() {
+        setup:
+            NitfRenderer nitfRenderer = Mock {
+                renderToClosestDataModel(_ as ImageSegment) >>
+                        new BufferedImage(1500, 1100, BufferedImage.TYPE_INT_ARGB)
+            }
+            NitfPostProcessPlugin plugin = new NitfPostProcessPlugin(memoryBudget, { nitfRenderer }, {
+                return new NitfParserInputFlowImpl()
+            })
+        when: "a valid process create request is submitted"
+            def result = plugin.processCreate(createProcessRequest)
+            def original = result.processItems
+                    .collect { it.processResource }
+                    .find { it.qualifier == "original" }
+            def originalBytes = original.inputStream.withStream { it.bytes }
+        then: "the size of the original matches the encoded file"
+            original.mimeType == "image/jp2"
+            originalBytes.length > 0
+            original.size == originalBytes.length
+    }
+
+    def "deleting the encoded original when the overview cannot be rendered"() {
+        setup:
+            NitfRenderer nitfRenderer = Mock {
+                renderToClosestDataModel(_ as ImageSegment) >>
+                        new BufferedImage(64, 64, BufferedImage.TYPE_BYTE_INDEXED)
+                render(_ as ImageSegment) >> { throw new IOException() }
+            }
+            NitfPostProcessPlugin plugin = new NitfPostProcessPlugin(memoryBudget, { nitfRenderer }, {
+                return new NitfParserInputFlowImpl()
+            })
+            def originalFiles = {
+                new File(System.getProperty("java.io.tmpdir")).list().findAll { it ==~ /original-.*\.jp2/ } as Set
+            }
+            def existingOriginalFiles = originalFiles()
+        when: "the original is encoded but the overview fails"
+            def result = plugin.processCreate(createProcessRequest)
+        then: "the original is not stored and its temporary file is deleted"
+            result.processItems.size() == 1
+            0 * metacard.setAttribute({it.name == Core.DERIVED_RESOURCE_URI})
+            originalFiles() == existingOriginalFiles
+    }
+
+    def "releasing the render memory when rendering fails"() {
+        setup:
+            NitfRenderer nitfRenderer = Mock {
+                renderToClosestDataModel(_ as ImageSegment) >> { throw new IOException() }
+            }
+            NitfPostProcessPlugin plugin = new NitfPostProcessPlugin(memoryBudget, { nitfRenderer }, {
+                return new NitfParserInputFlowImpl()
+            })
+        when: "the nitf renderer fails"
+            plugin.processCreate(createProcessRequest)
+        then: "the memory reserved for the image is released"
+            memoryBudget.available == RENDER_MEMORY
+    }
+
+    def "estimating render memory from the image subheader"() {
+        setup:
+            ImageSegment imageSegment = Mock {
+                getNumberOfRows() >> 1000L
+                getNumberOfColumns() >> 2000L
+                getNumBands() >> bands
+                getActualBitsPerPixelPerBand() >> bits
+                getDataLength() >> dataLength
+            }
+        expect: "the image data is counted along with the decoded and rendered images"
+            NitfPostProcessPlugin.estimateRenderMemory(imageSegment) == dataLength + 2000000L * bytesPerPixel
+
+        where:
+            bands | bits | dataLength || bytesPerPixel
+            1     | 8    | 2000000L   || 1 + 2 * 4
+            1     | 11   | 2750000L   || 2 + 2 * 4
+            3     | 8    | 6000000L   || 3 + 2 * 4
+            8     | 16   | 1000000L   || 16 + 2 * 16
+    }
+
+    def "reserving the size of the nitf before it is parsed"() {
+        setup:
+            def parsed = new CountDownLatch(1)
+            NitfRenderer nitfRenderer = Mock(NitfRenderer)
+            NitfPostProcessPlugin plugin = new NitfPostProcessPlugin(memoryBudget, { nitfRenderer }, {
+                parsed.countDown()
+                return new NitfParserInputFlowImpl()
+            })
+            def reservation = memoryBudget.reserve(RENDER_MEMORY)
+            def job = Thread.start {
+                plugin.processCreate(createProcessRequest)
+            }
+            waitForWaitingThread(job)
+        expect: "the nitf is not parsed while its size does not fit in the budget"
+            parsed.count == 1
+        when:
+            reservation.close()
+            job.join(TimeUnit.SECONDS.toMillis(5))
+        then:
+            parsed.count == 0
+            memoryBudget.available == RENDER_MEMORY
     }
 
     def "handling delete requests"() {
@@ -474,4 +700,10 @@ class NitfPostProcessPluginSpec extends Specification {
     def generateSizeLimit() {
        return Math.round(TEST_SIZE / 1024 / 1024 / 2) as int
     }
+
+    private static void waitForWaitingThread(Thread thread) {
+        while (thread.state != Thread.State.WAITING) {
+            Thread.sleep(10)
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.junit.Assume.assumeThat;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.stream.FileImageInputStream;
+import org.codice.imaging.nitf.core.common.NitfFormatException;
+import org.codice.imaging.nitf.core.image.ImageSegment;
+import org.codice.imaging.nitf.fluent.NitfSegmentsFlow;
+import org.codice.imaging.nitf.fluent.impl.NitfCreationFlowImpl;
+import org.codice.imaging.nitf.fluent.impl.NitfParserInputFlowImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares parsing a large NITF the way the transform-nitf route does (headers only) with parsing
+ * the NITF and its image data.
+ */
+public class NitfParsingThroughputTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(NitfParsingThroughputTest.class);
+
+  private static final String BENCHMARK_IMAGE_SIZE_PROPERTY = "nitf.benchmark.imageSize";
+
+  private static final int IMAGE_SIZE = 1024;
+
+  private static final int BLOCK_SIZE = 512;
+
+  private static final int BANDS = 3;
+
+  private static final int ITERATIONS = 5;
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testHeaderOnlyParsingReadsImageSubheader() throws Exception {
+    File nitfFile = createLargeNitf(IMAGE_SIZE);
+
+    try (InputStream inputStream = new FileInputStream(nitfFile)) {
+      NitfSegmentsFlow nitfSegmentsFlow =
+          new NitfParserInputFlowImpl().inputStream(inputStream).headerOnly();
+      try {
+        assertThat(new RoutingSlip().channel(nitfSegmentsFlow), is(RoutingSlip.IMAGE_ROUTE));
+
+        AtomicLong rows = new AtomicLong();
+        nitfSegmentsFlow.forEachImageSegment(
+            imageSegment -> {
+              assertThat(imageSegment.getDataLength(), is(getImageDataLength(IMAGE_SIZE)));
+              rows.set(imageSegment.getNumberOfRows());
+            });
+        assertThat(rows.get(), is((long) IMAGE_SIZE));
+      } finally {
+        nitfSegmentsFlow.end();
+      }
+    }
+  }
+
+  /**
+   * The benchmark only runs when the {@value #BENCHMARK_IMAGE_SIZE_PROPERTY} system property is set
+   * to the width and height of the image, for example {@code -Dnitf.benchmark.imageSize=5800} for
+   * a NITF of about 100 MB.
+   */
+  @Test
+  public void testHeaderOnlyParsingThroughput() throws Exception {
+    Integer imageSize = Integer.getInteger(BENCHMARK_IMAGE_SIZE_PROPERTY);
+    assumeThat(imageSize, notNullValue());
+
+    File nitfFile = createLargeNitf(imageSize);
+
+    long headerOnlyNanos = 0;
+    long allDataNanos = 0;
+
+    for (int i = 0; i < ITERATIONS; i++) {
+      headerOnlyNanos += parse(nitfFile, false);
+      allDataNanos += parse(nitfFile, true);
+    }
+
+    LOGGER.info(
+        "parsed {} byte nitf: headerOnlyNitfsPerSecond={} allDataNitfsPerSecond={}",
+        nitfFile.length(),
+        ITERATIONS * TimeUnit.SECONDS.toNanos(1) / Math.max(headerOnlyNanos, 1),
+        ITERATIONS * TimeUnit.SECONDS.toNanos(1) / Math.max(allDataNanos, 1));
+  }
+
+  private long parse(File nitfFile, boolean allData) throws IOException, NitfFormatException {
+    long start = System.nanoTime();
+    try (InputStream inputStream = new FileInputStream(nitfFile)) {
+      NitfParserInputFlowImpl parserInputFlow = new NitfParserInputFlowImpl();
+      NitfSegmentsFlow nitfSegmentsFlow =
+          allData
+              ? parserInputFlow.inputStream(inputStream).allData()
+              : parserInputFlow.inputStream(inputStream).headerOnly();
+      nitfSegmentsFlow.forEachImageSegment(ImageSegment::getIdentifier).end();
+    }
+    return System.nanoTime() - start;
+  }
+
+  private static long getImageDataLength(int imageSize) {
+    return (long) imageSize * imageSize * BANDS;
+  }
+
+  /**
+   * Write a NITF with a single uncompressed image segment of {@code imageSize} by {@code imageSize}
+   * pixels. The pixel data is read from a sparse file, so generating a large NITF is cheap.
+   */
+  private File createLargeNitf(int imageSize) throws IOException {
+    File imageDataFile = temporaryFolder.newFile("image.dat");
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(imageDataFile, "rw")) {
+      randomAccessFile.setLength(getImageDataLength(imageSize));
+    }
+
+    int blocks = (imageSize + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    ImageSegment imageSegment = TreUtilityTest.createImageSegment();
+    when(imageSegment.getNumberOfRows()).thenReturn((long) imageSize);
+    when(imageSegment.getNumberOfColumns()).thenReturn((long) imageSize);
+    when(imageSegment.getNumberOfBlocksPerRow()).thenReturn(blocks);
+    when(imageSegment.getNumberOfBlocksPerColumn()).thenReturn(blocks);
+    when(imageSegment.getDataLength()).thenReturn(getImageDataLength(imageSize));
+
+    File nitfFile = temporaryFolder.newFile("large.ntf");
+    try (FileImageInputStream imageData = new FileImageInputStream(imageDataFile)) {
+      when(imageSegment.getData()).thenReturn(imageData);
+      new NitfCreationFlowImpl()
+          .fileHeader(TreUtilityTest::createFileHeader)
+          .imageSegment(() -> imageSegment)
+          .write(nitfFile.getAbsolutePath());
+    }
+    return nitfFile;
+  }
+}
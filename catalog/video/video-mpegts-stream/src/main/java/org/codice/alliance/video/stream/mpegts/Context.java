@@ -16,10 +16,15 @@ package org.codice.alliance.video.stream.mpegts;
 import static org.apache.commons.lang3.Validate.notNull;
 
 import ddf.catalog.data.Metacard;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import org.codice.alliance.libs.klv.GeometryOperator;
+import org.codice.alliance.video.stream.mpegts.framework.CatalogIngestQueue;
 import org.codice.alliance.video.stream.mpegts.netty.UdpStreamProcessor;
 
 /** This class supplies data used by different parts of the stream processor. */
@@ -49,6 +54,14 @@ public class Context {
 
   private final GeometryOperator.Context geometryOperatorContext = new GeometryOperator.Context();
 
+  private final CatalogIngestQueue catalogIngestQueue = new CatalogIngestQueue();
+
+  /**
+   * The state of the parent metacard updaters. The state belongs to the current parent metacard,
+   * so it is discarded when a parent with a different id is set.
+   */
+  private final Map<Object, Object> parentUpdateStates = new HashMap<>();
+
   /** @param udpStreamProcessor must be non-null */
   public Context(UdpStreamProcessor udpStreamProcessor) {
     notNull(udpStreamProcessor, "udpStreamProcessor must be non-null");
@@ -64,8 +77,14 @@ public class Context {
   }
 
   /** @param parentMetacard must be non-null */
-  public void setParentMetacard(Metacard parentMetacard) {
+  public synchronized void setParentMetacard(Metacard parentMetacard) {
     notNull(parentMetacard, "parentMetacard must be non-null");
+    if (!this.parentMetacard
+        .map(Metacard::getId)
+        .filter(id -> Objects.equals(id, parentMetacard.getId()))
+        .isPresent()) {
+      parentUpdateStates.clear();
+    }
     this.parentMetacard = Optional.of(parentMetacard);
   }
 
@@ -73,6 +92,32 @@ public class Context {
     return geometryOperatorContext;
   }
 
+  /**
+   * Return the state that a parent metacard updater keeps for this stream, such as the geometry
+   * accumulated from the children. The state is discarded when the stream gets a new parent
+   * metacard. Callers should use the state within {@link #modifyParentOrChild(Function)}.
+   *
+   * @param key identifies the state, must be non-null
+   * @param stateSupplier creates the state the first time it is requested, must be non-null
+   * @param <T> the type of the state
+   * @return the state
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized <T> T getParentUpdateState(Object key, Supplier<T> stateSupplier) {
+    notNull(key, "key must be non-null");
+    notNull(stateSupplier, "stateSupplier must be non-null");
+    return (T) parentUpdateStates.computeIfAbsent(key, k -> stateSupplier.get());
+  }
+
+  /**
+   * The catalog work for the video chunks of this stream. Code that needs every ingested chunk to
+   * be in the catalog, such as the stream-end hooks, should call {@link
+   * CatalogIngestQueue#awaitIdle()} first.
+   */
+  public CatalogIngestQueue getCatalogIngestQueue() {
+    return catalogIngestQueue;
+  }
+
   /**
    * Callers that wish to modify the parent or child metacards should perform their actions with the
    * {@link Function} passed into this method. The function will be passed an {@link AtomicBoolean}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Netty event loops shared by the UDP stream monitors. Each monitor registers its channel with the
+ * shared event loops and only closes its own channel when it stops, so the monitors start and stop
+ * independently while the number of threads and selectors stays bounded.
+ *
+ * <p>When the native transport is enabled and available (Linux), unicast streams use epoll.
+ * Multicast streams always use NIO because the epoll datagram channel in the bundled version of
+ * Netty cannot join multicast groups. The event loops for each transport are created the first time
+ * they are needed.
+ */
+public class UdpEventLoopGroup {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(UdpEventLoopGroup.class);
+
+  private static final String THREAD_POOL_NAME = "udp-stream-monitor";
+
+  private final int threadCount;
+
+  private final boolean nativeTransport;
+
+  private EventLoopGroup nioEventLoopGroup;
+
+  private EventLoopGroup epollEventLoopGroup;
+
+  /** Use one thread per available processor and the NIO transport. */
+  public UdpEventLoopGroup() {
+    this(0, false);
+  }
+
+  /**
+   * @param threadCount maximum number of event loop threads per transport, must be &gt;=0, 0 means
+   *     the number of available processors
+   * @param nativeTransport use the native epoll transport for unicast streams when it is available
+   */
+  public UdpEventLoopGroup(int threadCount, boolean nativeTransport) {
+    isTrue(threadCount >= 0, "threadCount must be >=0");
+    this.threadCount = threadCount == 0 ? Runtime.getRuntime().availableProcessors() : threadCount;
+    this.nativeTransport = nativeTransport && isEpollAvailable();
+    LOGGER.debug(
+        "udp event loop group: threadCount={} nativeTransport={}",
+        this.threadCount,
+        this.nativeTransport);
+  }
+
+  private static boolean isEpollAvailable() {
+    if (Epoll.isAvailable()) {
+      return true;
+    }
+    LOGGER.debug("native epoll transport is unavailable", Epoll.unavailabilityCause());
+    return false;
+  }
+
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  public boolean isNativeTransport() {
+    return nativeTransport;
+  }
+
+  /** @return the event loops used by unicast channels */
+  public synchronized EventLoopGroup getUnicastEventLoopGroup() {
+    if (nativeTransport) {
+      if (epollEventLoopGroup == null) {
+        epollEventLoopGroup =
+            new EpollEventLoopGroup(threadCount, new DefaultThreadFactory(THREAD_POOL_NAME));
+      }
+      return epollEventLoopGroup;
+    }
+    return getMulticastEventLoopGroup();
+  }
+
+  /** @return the channel class that must be used with {@link #getUnicastEventLoopGroup()} */
+  public Class<? extends DatagramChannel> getUnicastChannelClass() {
+    return nativeTransport ? EpollDatagramChannel.class : NioDatagramChannel.class;
+  }
+
+  /** @return the event loops used by multicast channels, which are always NIO channels */
+  public synchronized EventLoopGroup getMulticastEventLoopGroup() {
+    if (nioEventLoopGroup == null) {
+      nioEventLoopGroup =
+          new NioEventLoopGroup(threadCount, new DefaultThreadFactory(THREAD_POOL_NAME));
+    }
+    return nioEventLoopGroup;
+  }
+
+  /** Shutdown the event loops. Called when the bundle is stopped. */
+  public synchronized void shutdown() {
+    shutdown(epollEventLoopGroup);
+    shutdown(nioEventLoopGroup);
+    epollEventLoopGroup = null;
+    nioEventLoopGroup = null;
+  }
+
+  private void shutdown(EventLoopGroup eventLoopGroup) {
+    if (eventLoopGroup != null) {
+      try {
+        eventLoopGroup.shutdownGracefully().sync();
+      } catch (InterruptedException e) {
+        LOGGER.debug("Graceful shutdown of event loop group interrupted", e);
+      }
+    }
+  }
+}
@@ -23,8 +23,7 @@ import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
 import io.netty.channel.socket.InternetProtocolFamily;
 import io.netty.channel.socket.nio.NioDatagramChannel;
 import java.net.Inet4Address;
@@ -123,9 +122,14 @@ public class UdpStreamMonitor implements StreamMonitor {
 
   private Integer monitoredPort;
 
-  private EventLoopGroup eventLoopGroup;
+  /** Event loops shared with the other monitors. */
+  private UdpEventLoopGroup udpEventLoopGroup;
 
-  private Thread serverThread;
+  /**
+   * Event loops created by this monitor when no shared event loops were set. They are shutdown
+   * with the monitor.
+   */
+  private UdpEventLoopGroup ownedEventLoopGroup;
 
   private String parentTitle;
 
@@ -153,6 +157,17 @@ public class UdpStreamMonitor implements StreamMonitor {
     this.udpStreamProcessor = udpStreamProcessor;
   }
 
+  /**
+   * Set the event loops shared by the stream monitors. If this is never called, then the monitor
+   * creates its own event loops when it starts.
+   *
+   * @param udpEventLoopGroup must be non-null
+   */
+  public void setUdpEventLoopGroup(UdpEventLoopGroup udpEventLoopGroup) {
+    notNull(udpEventLoopGroup, "udpEventLoopGroup must be non-null");
+    this.udpEventLoopGroup = udpEventLoopGroup;
+  }
+
   public void setStreamCreationPlugin(StreamCreationPlugin streamCreationPlugin) {
     udpStreamProcessor.setStreamCreationPlugin(streamCreationPlugin);
   }
@@ -258,8 +273,7 @@ public class UdpStreamMonitor implements StreamMonitor {
     shutdown();
     if (isReady()) {
       udpStreamProcessor.init();
-      serverThread = new Thread(new Server());
-      serverThread.start();
+      startServer();
       monitoring = true;
       startTime = new Date();
     } else {
@@ -319,7 +333,8 @@ public class UdpStreamMonitor implements StreamMonitor {
   }
 
   /**
-   * Called by osgi to destroy the monitor.
+   * Called by osgi to destroy the monitor. The stream processor is shutdown and then destroyed
+   * after the queued video chunks have been ingested.
    *
    * @param arg osgi destroy argument
    */
@@ -328,29 +343,28 @@ public class UdpStreamMonitor implements StreamMonitor {
     LOGGER.debug("--destroy-- : arg={}", arg);
 
     shutdown();
-  }
 
-  private void shutdown() {
-    if (eventLoopGroup != null) {
-      try {
-        eventLoopGroup.shutdownGracefully().sync();
-      } catch (InterruptedException e) {
-        LOGGER.debug("Graceful shutdown of channel interrupted", e);
-      }
+    if (udpStreamProcessor != null) {
+      udpStreamProcessor.destroy();
     }
+  }
 
+  private void shutdown() {
     if (channelFuture != null) {
       try {
-        channelFuture.channel().closeFuture().sync();
+        channelFuture.channel().close().sync();
       } catch (InterruptedException e) {
-        LOGGER.debug("Graceful shutdown of channel future interrupted", e);
+        LOGGER.debug("Graceful shutdown of channel interrupted", e);
+      } finally {
+        monitoring = false;
+        startTime = null;
       }
     }
 
-    if (serverThread != null) {
-      LOGGER.debug("shutting down monitor server thread");
-      joinServerThread();
-      serverThread = null;
+    if (ownedEventLoopGroup != null) {
+      LOGGER.debug("shutting down monitor event loop group");
+      ownedEventLoopGroup.shutdown();
+      ownedEventLoopGroup = null;
     }
 
     if (udpStreamProcessor != null) {
@@ -360,17 +374,6 @@ public class UdpStreamMonitor implements StreamMonitor {
     channelFuture = null;
   }
 
-  private void joinServerThread() {
-    try {
-      serverThread.join();
-    } catch (InterruptedException e) {
-      LOGGER.debug("interrupted while waiting for server thread to join", e);
-    } finally {
-      monitoring = false;
-      startTime = null;
-    }
-  }
-
   /**
    * The StreamEndPlugin gets called when a stream ends by either being stopped or timed-out.
    *
@@ -555,7 +558,7 @@ public class UdpStreamMonitor implements StreamMonitor {
       Bootstrap bootstrap, NetworkInterface networkInterface, InetAddress inetAddress) {
 
     bootstrap
-        .group(eventLoopGroup)
+        .group(getEventLoopGroup().getMulticastEventLoopGroup())
         .channelFactory(() -> new NioDatagramChannel(InternetProtocolFamily.IPv4))
         .handler(new Pipeline(udpStreamProcessor))
         .localAddress(inetAddress, monitoredPort)
@@ -564,7 +567,7 @@ public class UdpStreamMonitor implements StreamMonitor {
 
     try {
       channelFuture = bootstrap.bind(monitoredPort).sync();
-      NioDatagramChannel ch = (NioDatagramChannel) channelFuture.channel();
+      DatagramChannel ch = (DatagramChannel) channelFuture.channel();
 
       ch.joinGroup(new InetSocketAddress(monitoredAddress, monitoredPort), networkInterface).sync();
     } catch (InterruptedException e) {
@@ -573,9 +576,10 @@ public class UdpStreamMonitor implements StreamMonitor {
   }
 
   private void runUnicastServer(Bootstrap bootstrap) {
+    UdpEventLoopGroup eventLoopGroup = getEventLoopGroup();
     bootstrap
-        .group(eventLoopGroup)
-        .channel(NioDatagramChannel.class)
+        .group(eventLoopGroup.getUnicastEventLoopGroup())
+        .channel(eventLoopGroup.getUnicastChannelClass())
         .handler(new Pipeline(udpStreamProcessor));
     try {
       channelFuture = bootstrap.bind(monitoredAddress, monitoredPort).sync();
@@ -584,7 +588,17 @@ public class UdpStreamMonitor implements StreamMonitor {
     }
   }
 
-  private static class Pipeline extends ChannelInitializer<NioDatagramChannel> {
+  private UdpEventLoopGroup getEventLoopGroup() {
+    if (udpEventLoopGroup != null) {
+      return udpEventLoopGroup;
+    }
+    if (ownedEventLoopGroup == null) {
+      ownedEventLoopGroup = new UdpEventLoopGroup();
+    }
+    return ownedEventLoopGroup;
+  }
+
+  private static class Pipeline extends ChannelInitializer<DatagramChannel> {
 
     private final UdpStreamProcessor udpStreamProcessor;
 
@@ -593,40 +607,38 @@ public class UdpStreamMonitor implements StreamMonitor {
     }
 
     @Override
-    protected void initChannel(NioDatagramChannel nioDatagramChannel) throws Exception {
-      nioDatagramChannel.pipeline().addLast(udpStreamProcessor.createChannelHandlers());
+    protected void initChannel(DatagramChannel datagramChannel) throws Exception {
+      datagramChannel.pipeline().addLast(udpStreamProcessor.createChannelHandlers());
     }
   }
 
-  private class Server implements Runnable {
-
-    @Override
-    public void run() {
-
-      LOGGER.debug(
-          "starting udp listening thread: address={} port={}", monitoredAddress, monitoredPort);
-
-      Bootstrap bootstrap = new Bootstrap();
+  /**
+   * Bind the channel on the event loops. The monitor does not need a thread of its own because the
+   * channel is serviced by the event loops.
+   */
+  private void startServer() {
 
-      eventLoopGroup = new NioEventLoopGroup();
+    LOGGER.debug(
+        "starting udp listening channel: address={} port={}", monitoredAddress, monitoredPort);
 
-      if (isMulticast(monitoredAddress)) {
+    Bootstrap bootstrap = new Bootstrap();
 
-        Optional<Pair<NetworkInterface, InetAddress>> networkPair =
-            findLocalAddress(networkInterface);
+    if (isMulticast(monitoredAddress)) {
 
-        if (networkPair.isPresent()) {
+      Optional<Pair<NetworkInterface, InetAddress>> networkPair =
+          findLocalAddress(networkInterface);
 
-          runMulticastServer(bootstrap, networkPair.get().getKey(), networkPair.get().getValue());
-        } else {
-          LOGGER.debug(
-              "cannot start multicast server because the IPv4 address for interface '{}' cannot be found",
-              networkInterface);
-        }
+      if (networkPair.isPresent()) {
 
+        runMulticastServer(bootstrap, networkPair.get().getKey(), networkPair.get().getValue());
       } else {
-        runUnicastServer(bootstrap);
+        LOGGER.debug(
+            "cannot start multicast server because the IPv4 address for interface '{}' cannot be found",
+            networkInterface);
       }
+
+    } else {
+      runUnicastServer(bootstrap);
     }
   }
 }
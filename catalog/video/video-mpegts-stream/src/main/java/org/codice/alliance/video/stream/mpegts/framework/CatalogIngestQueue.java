@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.framework;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the catalog work for the video chunks of a single stream on a background thread so that a
+ * slow catalog does not hold up the rollover path. The chunks are processed one at a time in the
+ * order they were submitted. At most {@link #getCapacity()} chunks wait in the queue; once the
+ * queue is full, {@link #submit(Runnable)} blocks until there is room.
+ *
+ * <p>The drain task is run after the last queued chunk has been processed, so work that only
+ * needs to happen once per batch of chunks (such as updating the parent metacard) is done once for
+ * all of the chunks that were queued while the catalog was busy.
+ *
+ * <p>Catalog updates that a chunk starts but that finish later, such as updates waiting to be
+ * retried, are registered with {@link #track(CompletableFuture)} so that {@link #awaitIdle()} also
+ * waits for them.
+ */
+public class CatalogIngestQueue {
+
+  public static final int DEFAULT_CAPACITY = 16;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CatalogIngestQueue.class);
+
+  private static final String THREAD_POOL_NAME = "video-catalog-ingest";
+
+  private static final long KEEP_ALIVE_SECONDS = 30;
+
+  private final ThreadPoolExecutor executor;
+
+  private final int capacity;
+
+  private Runnable drainTask = () -> {};
+
+  private int pendingCount = 0;
+
+  private int trackedCount = 0;
+
+  public CatalogIngestQueue() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /** @param capacity maximum number of chunks waiting to be processed, must be &gt;0 */
+  public CatalogIngestQueue(int capacity) {
+    isTrue(capacity > 0, "capacity must be >0");
+    this.capacity = capacity;
+    executor =
+        new ThreadPoolExecutor(
+            1,
+            1,
+            KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(capacity),
+            new DefaultThreadFactory(THREAD_POOL_NAME, true),
+            CatalogIngestQueue::waitForRoom);
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  private static void waitForRoom(Runnable runnable, ThreadPoolExecutor threadPoolExecutor) {
+    if (threadPoolExecutor.isShutdown()) {
+      throw new RejectedExecutionException("catalog ingest queue has been shutdown");
+    }
+    try {
+      threadPoolExecutor.getQueue().put(runnable);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RejectedExecutionException("interrupted while waiting for catalog ingest queue", e);
+    }
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /** @param drainTask run after the queue has been emptied, must be non-null */
+  public synchronized void setDrainTask(Runnable drainTask) {
+    notNull(drainTask, "drainTask must be non-null");
+    this.drainTask = drainTask;
+  }
+
+  /**
+   * Queue the catalog work for one video chunk. Blocks while the queue is full.
+   *
+   * @param chunkTask must be non-null
+   * @throws RejectedExecutionException if the queue has been shutdown or the caller was interrupted
+   */
+  public void submit(Runnable chunkTask) {
+    notNull(chunkTask, "chunkTask must be non-null");
+
+    synchronized (this) {
+      pendingCount++;
+    }
+
+    try {
+      executor.execute(() -> runChunkTask(chunkTask));
+    } catch (RejectedExecutionException e) {
+      completeChunkTask();
+      throw e;
+    }
+  }
+
+  private void runChunkTask(Runnable chunkTask) {
+    try {
+      chunkTask.run();
+    } catch (RuntimeException e) {
+      LOGGER.debug("unable to process video chunk", e);
+    }
+
+    Runnable task = null;
+    synchronized (this) {
+      if (pendingCount == 1) {
+        task = drainTask;
+      }
+    }
+
+    if (task != null) {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        LOGGER.debug("unable to run catalog ingest drain task", e);
+      }
+    }
+
+    completeChunkTask();
+  }
+
+  private synchronized void completeChunkTask() {
+    pendingCount--;
+    notifyIfIdle();
+  }
+
+  /**
+   * Register work started by a chunk that completes after the chunk has been processed.
+   *
+   * @param future must be non-null
+   */
+  public void track(CompletableFuture<?> future) {
+    notNull(future, "future must be non-null");
+
+    synchronized (this) {
+      trackedCount++;
+    }
+
+    future.whenComplete((result, throwable) -> completeTracked());
+  }
+
+  private synchronized void completeTracked() {
+    trackedCount--;
+    notifyIfIdle();
+  }
+
+  private void notifyIfIdle() {
+    if (pendingCount == 0 && trackedCount == 0) {
+      notifyAll();
+    }
+  }
+
+  /** @return the number of chunks that have been submitted but not completely processed */
+  public synchronized int getPendingCount() {
+    return pendingCount;
+  }
+
+  /** @return the number of tracked catalog updates that have not completed */
+  public synchronized int getTrackedCount() {
+    return trackedCount;
+  }
+
+  /**
+   * Wait until every submitted chunk, the drain task and the tracked updates have completed.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public synchronized void awaitIdle() throws InterruptedException {
+    while (pendingCount > 0 || trackedCount > 0) {
+      wait();
+    }
+  }
+
+  /** Stop accepting chunks. Chunks that are already queued will still be processed. */
+  public void shutdown() {
+    executor.shutdown();
+  }
+}
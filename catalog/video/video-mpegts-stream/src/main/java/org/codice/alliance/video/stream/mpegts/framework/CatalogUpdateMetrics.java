@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.framework;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counters for the catalog updates submitted through {@link CatalogUpdateRetry}. An update is
+ * counted once when it is submitted, each call to the catalog framework is counted as an attempt,
+ * and the latency is measured from submission until the update either succeeds or fails without
+ * being retried.
+ *
+ * <p>The metrics shared by all the video streams are registered as an MBean when the bundle starts,
+ * and are logged when it stops.
+ */
+public class CatalogUpdateMetrics implements CatalogUpdateMetricsMBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CatalogUpdateMetrics.class);
+
+  private ObjectName objectName;
+
+  private MBeanServer mBeanServer;
+
+  private final AtomicLong updateCount = new AtomicLong();
+
+  private final AtomicLong attemptCount = new AtomicLong();
+
+  private final AtomicLong failedAttemptCount = new AtomicLong();
+
+  private final AtomicLong successCount = new AtomicLong();
+
+  private final AtomicLong failureCount = new AtomicLong();
+
+  private final AtomicLong totalLatencyNanos = new AtomicLong();
+
+  private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+  void updateSubmitted() {
+    updateCount.incrementAndGet();
+  }
+
+  void attemptStarted() {
+    attemptCount.incrementAndGet();
+  }
+
+  void attemptFailed() {
+    failedAttemptCount.incrementAndGet();
+  }
+
+  void updateSucceeded(long latencyNanos) {
+    successCount.incrementAndGet();
+    recordLatency(latencyNanos);
+  }
+
+  void updateFailed(long latencyNanos) {
+    failureCount.incrementAndGet();
+    recordLatency(latencyNanos);
+  }
+
+  private void recordLatency(long latencyNanos) {
+    totalLatencyNanos.addAndGet(latencyNanos);
+    maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+  }
+
+  /** @return number of updates submitted */
+  @Override
+  public long getUpdateCount() {
+    return updateCount.get();
+  }
+
+  /** @return number of calls made to the catalog framework, including retries */
+  @Override
+  public long getAttemptCount() {
+    return attemptCount.get();
+  }
+
+  /** @return number of calls to the catalog framework that failed and were retried */
+  @Override
+  public long getFailedAttemptCount() {
+    return failedAttemptCount.get();
+  }
+
+  /** @return number of updates that succeeded */
+  @Override
+  public long getSuccessCount() {
+    return successCount.get();
+  }
+
+  /** @return number of updates that failed with an error that is not retried */
+  @Override
+  public long getFailureCount() {
+    return failureCount.get();
+  }
+
+  /** @return number of updates that have been submitted but have not completed */
+  @Override
+  public long getInProgressCount() {
+    return updateCount.get() - successCount.get() - failureCount.get();
+  }
+
+  /** @return average milliseconds from submission to completion of the completed updates */
+  @Override
+  public double getAverageLatencyMilliseconds() {
+    long completed = successCount.get() + failureCount.get();
+    return completed == 0
+        ? 0
+        : (double) TimeUnit.NANOSECONDS.toMicros(totalLatencyNanos.get()) / completed / 1000;
+  }
+
+  /** @return maximum milliseconds from submission to completion of a completed update */
+  @Override
+  public long getMaxLatencyMilliseconds() {
+    return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+  }
+
+  /** Register the metrics with the platform MBean server. */
+  public void registerMbean() {
+    try {
+      objectName = new ObjectName(CatalogUpdateMetrics.class.getName() + ":service=video");
+      mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    } catch (MalformedObjectNameException e) {
+      LOGGER.info("Unable to create video catalog update metrics MBean.", e);
+    }
+    if (mBeanServer == null) {
+      return;
+    }
+    try {
+      try {
+        mBeanServer.registerMBean(this, objectName);
+        LOGGER.debug(
+            "Registered video catalog update metrics MBean under object name: {}", objectName);
+      } catch (InstanceAlreadyExistsException e) {
+        mBeanServer.unregisterMBean(objectName);
+        mBeanServer.registerMBean(this, objectName);
+        LOGGER.debug("Re-registered video catalog update metrics MBean", e);
+      }
+    } catch (MBeanRegistrationException
+        | InstanceNotFoundException
+        | InstanceAlreadyExistsException
+        | NotCompliantMBeanException e) {
+      LOGGER.info("Could not register MBean [{}].", objectName, e);
+    }
+  }
+
+  /** Unregister the MBean and log the metrics. */
+  public void destroy() {
+    LOGGER.info("video catalog update metrics: {}", this);
+    try {
+      if (objectName != null && mBeanServer != null) {
+        mBeanServer.unregisterMBean(objectName);
+      }
+    } catch (Exception e) {
+      LOGGER.info("Exception unregistering MBean: ", e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "CatalogUpdateMetrics{"
+        + "updateCount="
+        + getUpdateCount()
+        + ", attemptCount="
+        + getAttemptCount()
+        + ", failedAttemptCount="
+        + getFailedAttemptCount()
+        + ", successCount="
+        + getSuccessCount()
+        + ", failureCount="
+        + getFailureCount()
+        + ", averageLatencyMilliseconds="
+        + getAverageLatencyMilliseconds()
+        + ", maxLatencyMilliseconds="
+        + getMaxLatencyMilliseconds()
+        + '}';
+  }
+}
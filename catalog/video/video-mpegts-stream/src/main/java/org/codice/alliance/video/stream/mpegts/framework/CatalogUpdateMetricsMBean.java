@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.framework;
+
+/** Exposes the {@link CatalogUpdateMetrics} of the video stream catalog updates over JMX. */
+public interface CatalogUpdateMetricsMBean {
+
+  /** @return number of updates submitted */
+  long getUpdateCount();
+
+  /** @return number of calls made to the catalog framework, including retries */
+  long getAttemptCount();
+
+  /** @return number of calls to the catalog framework that failed and were retried */
+  long getFailedAttemptCount();
+
+  /** @return number of updates that succeeded */
+  long getSuccessCount();
+
+  /** @return number of updates that failed with an error that is not retried */
+  long getFailureCount();
+
+  /** @return number of updates that have been submitted but have not completed */
+  long getInProgressCount();
+
+  /** @return average milliseconds from submission to completion of the completed updates */
+  double getAverageLatencyMilliseconds();
+
+  /** @return maximum milliseconds from submission to completion of a completed update */
+  long getMaxLatencyMilliseconds();
+}
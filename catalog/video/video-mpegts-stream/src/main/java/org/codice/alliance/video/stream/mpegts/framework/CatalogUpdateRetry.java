@@ -13,62 +13,214 @@
  */
 package org.codice.alliance.video.stream.mpegts.framework;
 
+import static org.apache.commons.lang3.Validate.notNull;
+
 import ddf.catalog.CatalogFramework;
 import ddf.catalog.operation.Update;
 import ddf.catalog.operation.UpdateRequest;
 import ddf.catalog.source.IngestException;
 import ddf.catalog.source.SourceUnavailableException;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
-import net.jodah.failsafe.Failsafe;
-import net.jodah.failsafe.RetryPolicy;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Submits catalog update requests and retries them with an exponential backoff when the catalog is
+ * unavailable. The initial delay and the retries are scheduled, so no thread is held while an
+ * update waits for its next attempt. The update is made as the security subject of the thread that
+ * submitted it.
+ *
+ * <p>The instance shared by all the video streams is created by the bundle, which calls {@link
+ * #init()} when it starts and {@link #destroy()} when it stops.
+ */
 public class CatalogUpdateRetry {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(CatalogUpdateRetry.class);
 
-  public void submitUpdateRequestWithRetry(
+  private static final String THREAD_POOL_NAME = "video-catalog-update";
+
+  private static final long KEEP_ALIVE_SECONDS = 30;
+
+  private static final int BACKOFF_FACTOR = 2;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final CatalogUpdateMetrics metrics;
+
+  private final boolean isSchedulerOwned;
+
+  /** Create a scheduler and metrics that are released by {@link #destroy()}. */
+  public CatalogUpdateRetry() {
+    this(createScheduler(), new CatalogUpdateMetrics(), true);
+  }
+
+  /**
+   * @param scheduler runs the update attempts, must be non-null
+   * @param metrics must be non-null
+   */
+  public CatalogUpdateRetry(ScheduledExecutorService scheduler, CatalogUpdateMetrics metrics) {
+    this(scheduler, metrics, false);
+  }
+
+  private CatalogUpdateRetry(
+      ScheduledExecutorService scheduler, CatalogUpdateMetrics metrics, boolean isSchedulerOwned) {
+    notNull(scheduler, "scheduler must be non-null");
+    notNull(metrics, "metrics must be non-null");
+    this.scheduler = scheduler;
+    this.metrics = metrics;
+    this.isSchedulerOwned = isSchedulerOwned;
+  }
+
+  private static ScheduledExecutorService createScheduler() {
+    ScheduledThreadPoolExecutor executor =
+        new ScheduledThreadPoolExecutor(
+            Math.max(2, Runtime.getRuntime().availableProcessors()),
+            new DefaultThreadFactory(THREAD_POOL_NAME, true));
+    executor.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+    executor.allowCoreThreadTimeOut(true);
+    executor.setRemoveOnCancelPolicy(true);
+    return executor;
+  }
+
+  public CatalogUpdateMetrics getMetrics() {
+    return metrics;
+  }
+
+  /** Register the metrics as an MBean. */
+  public void init() {
+    metrics.registerMbean();
+  }
+
+  /**
+   * Shutdown the scheduler if it was created by this object and unregister the metrics. Attempts
+   * that are already scheduled still run, but their retries are rejected and the updates fail.
+   */
+  public void destroy() {
+    if (isSchedulerOwned) {
+      scheduler.shutdown();
+    }
+    metrics.destroy();
+  }
+
+  /**
+   * Submit an update request. The request is retried when the catalog framework throws an {@link
+   * IngestException} or a {@link SourceUnavailableException}. The first retry waits {@code
+   * initialRetryWaitMilliseconds} and each retry after that waits twice as long as the one before,
+   * up to {@code maxRetryMilliseconds}. Cancelling the returned future stops any further retries.
+   *
+   * @param catalogFramework must be non-null
+   * @param updateRequest must be non-null
+   * @param initialSleepSeconds seconds to wait before the first attempt
+   * @param initialRetryWaitMilliseconds milliseconds to wait before the first retry
+   * @param maxRetryMilliseconds maximum milliseconds to wait between retries
+   * @param updateConsumer called with each updated metacard, must be non-null
+   * @return completes when the update succeeds, or completes exceptionally when the update fails
+   *     with an error that is not retried
+   */
+  public CompletableFuture<Void> submitUpdateRequestWithRetry(
       CatalogFramework catalogFramework,
       UpdateRequest updateRequest,
       long initialSleepSeconds,
       long initialRetryWaitMilliseconds,
       long maxRetryMilliseconds,
       Consumer<Update> updateConsumer) {
+    notNull(catalogFramework, "catalogFramework must be non-null");
+    notNull(updateRequest, "updateRequest must be non-null");
+    notNull(updateConsumer, "updateConsumer must be non-null");
 
-    if (sleep(TimeUnit.SECONDS.toMillis(initialSleepSeconds))) {
-      return;
-    }
+    metrics.updateSubmitted();
 
-    RetryPolicy retryPolicy =
-        new RetryPolicy()
-            .retryOn(IngestException.class, SourceUnavailableException.class)
-            .withBackoff(initialRetryWaitMilliseconds, maxRetryMilliseconds, TimeUnit.MILLISECONDS);
-
-    Failsafe.with(retryPolicy)
-        .onFailedAttempt(
-            throwable ->
-                LOGGER.debug(
-                    "failed to update catalog, will retry: updateRequest={}", updateRequest))
-        .onFailure(
-            throwable -> LOGGER.debug("failed to update catalog: updateRequest={}", updateRequest))
-        .run(
-            () ->
-                catalogFramework
-                    .update(updateRequest)
-                    .getUpdatedMetacards()
-                    .forEach(updateConsumer));
+    Attempt attempt =
+        new Attempt(
+            catalogFramework,
+            updateRequest,
+            maxRetryMilliseconds,
+            updateConsumer,
+            ThreadContext.getSubject());
+
+    attempt.schedule(TimeUnit.SECONDS.toMillis(initialSleepSeconds), initialRetryWaitMilliseconds);
+
+    return attempt.future;
   }
 
-  private boolean sleep(long sleep) {
-    try {
-      Thread.sleep(sleep);
-    } catch (InterruptedException e) {
-      LOGGER.trace("interrupted while waiting to attempt update request", e);
-      Thread.interrupted();
-      return true;
+  private class Attempt {
+
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    private final long startNanos = System.nanoTime();
+
+    private final CatalogFramework catalogFramework;
+
+    private final UpdateRequest updateRequest;
+
+    private final long maxRetryMilliseconds;
+
+    private final Consumer<Update> updateConsumer;
+
+    private final Subject subject;
+
+    private Attempt(
+        CatalogFramework catalogFramework,
+        UpdateRequest updateRequest,
+        long maxRetryMilliseconds,
+        Consumer<Update> updateConsumer,
+        Subject subject) {
+      this.catalogFramework = catalogFramework;
+      this.updateRequest = updateRequest;
+      this.maxRetryMilliseconds = maxRetryMilliseconds;
+      this.updateConsumer = updateConsumer;
+      this.subject = subject;
+    }
+
+    private void schedule(long delayMilliseconds, long nextRetryWaitMilliseconds) {
+      Runnable runnable = () -> run(nextRetryWaitMilliseconds);
+      try {
+        scheduler.schedule(
+            subject == null ? runnable : subject.associateWith(runnable),
+            delayMilliseconds,
+            TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        fail(e);
+      }
+    }
+
+    private void run(long retryWaitMilliseconds) {
+      if (future.isDone()) {
+        return;
+      }
+
+      metrics.attemptStarted();
+
+      try {
+        catalogFramework.update(updateRequest).getUpdatedMetacards().forEach(updateConsumer);
+      } catch (IngestException | SourceUnavailableException e) {
+        metrics.attemptFailed();
+        LOGGER.debug("failed to update catalog, will retry: updateRequest={}", updateRequest, e);
+        schedule(
+            retryWaitMilliseconds,
+            Math.min(retryWaitMilliseconds * BACKOFF_FACTOR, maxRetryMilliseconds));
+        return;
+      } catch (RuntimeException e) {
+        fail(e);
+        return;
+      }
+
+      metrics.updateSucceeded(System.nanoTime() - startNanos);
+      future.complete(null);
+    }
+
+    private void fail(Exception e) {
+      LOGGER.debug("failed to update catalog: updateRequest={}", updateRequest, e);
+      metrics.updateFailed(System.nanoTime() - startNanos);
+      future.completeExceptionally(e);
     }
-    return false;
   }
 }
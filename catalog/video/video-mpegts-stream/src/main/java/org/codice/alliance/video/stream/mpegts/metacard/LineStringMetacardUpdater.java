@@ -13,24 +13,30 @@
  */
 package org.codice.alliance.video.stream.mpegts.metacard;
 
-import com.vividsolutions.jts.geom.Coordinate;
-import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
-import com.vividsolutions.jts.geom.LineString;
 import com.vividsolutions.jts.io.WKTReader;
 import com.vividsolutions.jts.io.WKTWriter;
 import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.impl.AttributeImpl;
 import java.io.Serializable;
-import java.util.Optional;
-import org.apache.commons.lang3.ArrayUtils;
 import org.codice.alliance.libs.klv.GeometryOperator;
 import org.codice.alliance.libs.klv.GeometryUtility;
+import org.codice.alliance.libs.klv.LinestringGeometryAccumulator;
 import org.codice.alliance.video.stream.mpegts.Context;
 
+/**
+ * Concatenates the child linestrings into the parent linestring. The coordinates are accumulated in
+ * memory for each stream and subsampled once there are more than {@link #MAX_COORDINATE_COUNT}, so
+ * each child linestring is parsed once and the parent linestring is only converted to WKT when the
+ * parent is flushed.
+ */
 public class LineStringMetacardUpdater implements MetacardUpdater {
 
+  public static final int MAX_COORDINATE_COUNT = 5000;
+
+  private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
   private final String attributeName;
 
   private final GeometryOperator geometryOperator;
@@ -50,21 +56,55 @@ public class LineStringMetacardUpdater implements MetacardUpdater {
 
   @Override
   public void update(Metacard parent, Metacard child, Context context) {
-    if (!hasFrameCenter(parent) && hasFrameCenter(child)) {
-      setAttribute(parent, child);
-    } else if (hasFrameCenter(parent) && hasFrameCenter(child)) {
-      WKTReader wktReader = new WKTReader();
-
-      Optional<Geometry> parentGeo = GeometryUtility.wktToGeometry(getValue(parent), wktReader);
-      Optional<Geometry> childGeo = GeometryUtility.wktToGeometry(getValue(child), wktReader);
-
-      if (parentGeo.isPresent() && childGeo.isPresent()) {
-        Coordinate[] coordinates = getMergedCoordinates(parentGeo, childGeo);
-        LineString lineString = convertCoordinatesToLineString(coordinates);
-        setAttribute(
-            parent, geometryOperator.apply(lineString, context.getGeometryOperatorContext()));
-      }
+    if (!hasLineString(child)) {
+      return;
+    }
+
+    Track track = context.getParentUpdateState(this, Track::new);
+
+    if (track.isEmpty() && !hasLineString(parent)) {
+      track.wkt = getValue(child);
+      track.isDirty = true;
+      return;
+    }
+
+    WKTReader wktReader = new WKTReader();
+
+    if (track.accumulator.isEmpty()) {
+      String parentWkt = track.wkt != null ? track.wkt : getValue(parent);
+      GeometryUtility.wktToGeometry(parentWkt, wktReader).ifPresent(track.accumulator::add);
+    }
+
+    GeometryUtility.wktToGeometry(getValue(child), wktReader).ifPresent(track.accumulator::add);
+
+    if (!track.accumulator.isEmpty()) {
+      track.wkt = null;
+      track.isDirty = true;
+    }
+  }
+
+  @Override
+  public void flush(Metacard parent, Context context) {
+    Track track = context.getParentUpdateState(this, Track::new);
+
+    if (!track.isDirty) {
+      return;
+    }
+
+    if (track.wkt == null) {
+      track
+          .accumulator
+          .getGeometry(GEOMETRY_FACTORY)
+          .map(geometry -> geometryOperator.apply(geometry, context.getGeometryOperatorContext()))
+          .map(new WKTWriter()::write)
+          .ifPresent(wkt -> track.wkt = wkt);
+    }
+
+    if (track.wkt != null) {
+      parent.setAttribute(createAttribute(track.wkt));
     }
+
+    track.isDirty = false;
   }
 
   @Override
@@ -82,30 +122,28 @@ public class LineStringMetacardUpdater implements MetacardUpdater {
     return new AttributeImpl(attributeName, value);
   }
 
-  private void setAttribute(Metacard parent, Metacard child) {
-    parent.setAttribute(createAttribute(child.getAttribute(attributeName).getValue()));
-  }
-
-  private void setAttribute(Metacard parent, Geometry lineString) {
-    WKTWriter wktWriter = new WKTWriter();
-    parent.setAttribute(createAttribute(wktWriter.write(lineString)));
-  }
-
-  private Coordinate[] getMergedCoordinates(
-      Optional<Geometry> parentGeo, Optional<Geometry> childGeo) {
-    return ArrayUtils.addAll(parentGeo.get().getCoordinates(), childGeo.get().getCoordinates());
-  }
-
   private String getValue(Metacard metacard) {
     return (String) metacard.getAttribute(attributeName).getValue();
   }
 
-  private boolean hasFrameCenter(Metacard metacard) {
+  private boolean hasLineString(Metacard metacard) {
     return metacard.getAttribute(attributeName) != null
         && metacard.getAttribute(attributeName).getValue() instanceof String;
   }
 
-  private LineString convertCoordinatesToLineString(Coordinate[] coordinates) {
-    return new GeometryFactory().createLineString(coordinates);
+  /** The parent linestring of a single stream. */
+  private static class Track {
+
+    private final LinestringGeometryAccumulator accumulator =
+        new LinestringGeometryAccumulator(MAX_COORDINATE_COUNT);
+
+    /** The WKT of the parent linestring, or null if it must be created from the accumulator. */
+    private String wkt;
+
+    private boolean isDirty = false;
+
+    private boolean isEmpty() {
+      return wkt == null && accumulator.isEmpty();
+    }
   }
 }
@@ -31,6 +31,11 @@ public class ListMetacardUpdater implements MetacardUpdater {
     metacardUpdaterList.forEach(metacardUpdater -> metacardUpdater.update(parent, child, context));
   }
 
+  @Override
+  public void flush(Metacard parent, Context context) {
+    metacardUpdaterList.forEach(metacardUpdater -> metacardUpdater.flush(parent, context));
+  }
+
   @Override
   public String toString() {
     return "ListMetacardUpdater{" + "metacardUpdaterList=" + metacardUpdaterList + '}';
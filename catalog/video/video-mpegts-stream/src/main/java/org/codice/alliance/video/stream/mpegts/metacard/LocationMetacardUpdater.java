@@ -18,12 +18,16 @@ import com.vividsolutions.jts.io.WKTReader;
 import com.vividsolutions.jts.io.WKTWriter;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.impl.AttributeImpl;
-import java.util.Optional;
-import java.util.stream.Stream;
 import org.codice.alliance.libs.klv.GeometryOperator;
 import org.codice.alliance.libs.klv.GeometryUtility;
+import org.codice.alliance.libs.klv.UnionGeometryAccumulator;
 import org.codice.alliance.video.stream.mpegts.Context;
 
+/**
+ * Updates the parent location with the union of the child locations. The union is accumulated in
+ * memory for each stream, so each child location is parsed once and the parent location is only
+ * converted to WKT when the parent is flushed.
+ */
 public class LocationMetacardUpdater implements MetacardUpdater {
 
   private final GeometryOperator preUnionGeometryOperator;
@@ -52,36 +56,66 @@ public class LocationMetacardUpdater implements MetacardUpdater {
 
   @Override
   public void update(Metacard parent, Metacard child, Context context) {
-    if (parent.getLocation() == null) {
-      setParentLocation(parent, child.getLocation());
-    } else if (child.getLocation() != null) {
-      locationUnion(parent, child, context.getGeometryOperatorContext())
-          .ifPresent(wkt -> setParentLocation(parent, wkt));
+    if (child.getLocation() == null) {
+      return;
+    }
+
+    Location location = context.getParentUpdateState(this, this::createLocation);
+
+    if (location.isEmpty() && parent.getLocation() == null) {
+      location.wkt = child.getLocation();
+      location.isDirty = true;
+      return;
+    }
+
+    WKTReader wktReader = new WKTReader();
+
+    if (location.accumulator.isEmpty()) {
+      String parentWkt = location.wkt != null ? location.wkt : parent.getLocation();
+      GeometryUtility.wktToGeometry(parentWkt, wktReader)
+          .ifPresent(geometry -> addGeometry(location, geometry, context));
+    }
+
+    GeometryUtility.wktToGeometry(child.getLocation(), wktReader)
+        .ifPresent(geometry -> addGeometry(location, geometry, context));
+
+    if (!location.accumulator.isEmpty()) {
+      location.wkt = null;
+      location.isDirty = true;
     }
   }
 
-  private void setParentLocation(Metacard parent, String location) {
-    parent.setAttribute(new AttributeImpl(Metacard.GEOGRAPHY, location));
+  @Override
+  public void flush(Metacard parent, Context context) {
+    Location location = context.getParentUpdateState(this, this::createLocation);
+
+    if (!location.isDirty) {
+      return;
+    }
+
+    if (location.wkt == null) {
+      location
+          .accumulator
+          .getGeometry(context.getGeometryOperatorContext())
+          .map(new WKTWriter()::write)
+          .ifPresent(wkt -> location.wkt = wkt);
+    }
+
+    if (location.wkt != null) {
+      parent.setAttribute(new AttributeImpl(Metacard.GEOGRAPHY, location.wkt));
+    }
+
+    location.isDirty = false;
   }
 
-  private Optional<String> locationUnion(
-      Metacard metacard1, Metacard metacard2, GeometryOperator.Context geometryOperatorContext) {
+  private void addGeometry(Location location, Geometry geometry, Context context) {
+    location.accumulator.add(
+        preUnionGeometryOperator.apply(geometry, context.getGeometryOperatorContext()),
+        context.getGeometryOperatorContext());
+  }
 
-    WKTReader wktReader = new WKTReader();
-    WKTWriter wktWriter = new WKTWriter();
-
-    Optional<Geometry> parentGeometry =
-        GeometryUtility.wktToGeometry(metacard1.getLocation(), wktReader);
-    Optional<Geometry> childGeometry =
-        GeometryUtility.wktToGeometry(metacard2.getLocation(), wktReader);
-
-    return Stream.of(parentGeometry, childGeometry)
-        .filter(Optional::isPresent)
-        .map(Optional::get)
-        .map(geometry -> preUnionGeometryOperator.apply(geometry, geometryOperatorContext))
-        .reduce(Geometry::union)
-        .map(geometry -> postUnionGeometryOperator.apply(geometry, geometryOperatorContext))
-        .map(wktWriter::write);
+  private Location createLocation() {
+    return new Location(new UnionGeometryAccumulator(postUnionGeometryOperator));
   }
 
   public GeometryOperator getPreUnionGeometryOperator() {
@@ -91,4 +125,23 @@ public class LocationMetacardUpdater implements MetacardUpdater {
   public GeometryOperator getPostUnionGeometryOperator() {
     return postUnionGeometryOperator;
   }
+
+  /** The parent location of a single stream. */
+  private static class Location {
+
+    private final UnionGeometryAccumulator accumulator;
+
+    /** The WKT of the parent location, or null if it must be created from the accumulator. */
+    private String wkt;
+
+    private boolean isDirty = false;
+
+    private Location(UnionGeometryAccumulator accumulator) {
+      this.accumulator = accumulator;
+    }
+
+    private boolean isEmpty() {
+      return wkt == null && accumulator.isEmpty();
+    }
+  }
 }
@@ -19,4 +19,11 @@ import org.codice.alliance.video.stream.mpegts.Context;
 public interface MetacardUpdater {
 
   void update(Metacard parent, Metacard child, Context context);
+
+  /**
+   * Called just before the parent is stored in the catalog. Updaters that accumulate the child
+   * values in memory during {@link #update(Metacard, Metacard, Context)} should set the parent
+   * attributes here.
+   */
+  default void flush(Metacard parent, Context context) {}
 }
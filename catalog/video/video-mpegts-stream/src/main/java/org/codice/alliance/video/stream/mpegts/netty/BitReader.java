@@ -17,32 +17,33 @@ import io.netty.buffer.ByteBuf;
 import java.io.EOFException;
 import java.util.Optional;
 import org.apache.commons.lang3.Validate;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * The BitReader wraps a ByteBuf and provides bit-level tools for reading bits, skipping bits, and
  * searching for MPEG-2 (h.262) start codes.
+ *
+ * <p>Bits are loaded from the ByteBuf up to 32 at a time into a cache, so reading a field costs a
+ * shift and a mask instead of a loop over its bits. Start codes are always byte-aligned, so {@link
+ * #nextStartCode()} scans the bytes directly and skips ahead three bytes whenever the current byte
+ * cannot be part of a start code prefix.
  */
 public class BitReader {
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(BitReader.class);
+  /** Returned by {@link #nextStartCode()} when there are no more start codes. */
+  public static final int NO_START_CODE = -1;
 
-  private static final int BYTE_BUF_EOF = -1;
+  private static final int BITS_PER_BYTE = 8;
 
-  private static final int MAX_BIT_INDEX = 7;
+  private static final int BITS_PER_INT = 32;
 
   private static final int START_CODE_PREFIX_SIZE = 3;
 
-  private static final int START_CODE_BIT_SIZE = 32;
-
   private final ByteBuf byteBuf;
 
-  private Byte currentByte;
+  /** The low {@link #cachedBits} bits hold the next bits of the stream, most significant first. */
+  private long bitCache;
 
-  private int currentIndex;
-
-  private StartCode startCode = new StartCode();
+  private int cachedBits;
 
   /** @param byteBuf must be non-null */
   public BitReader(ByteBuf byteBuf) {
@@ -50,141 +51,133 @@ public class BitReader {
   }
 
   /**
-   * Get the next bit's value, but do not actually consume the bit.
+   * Make sure that at least {@code numberOfBits} bits are in the cache.
    *
-   * @return true if the next bit is 1, false if the next bit is 0
+   * @param numberOfBits must be [0,32]
    */
-  public boolean testBit() throws EOFException {
-    if (currentByte == null) {
-      if (byteBuf.readableBytes() < 1) {
+  private void fill(int numberOfBits) throws EOFException {
+    while (cachedBits < numberOfBits) {
+      if (cachedBits <= BITS_PER_INT && byteBuf.readableBytes() >= Integer.BYTES) {
+        bitCache = (bitCache << BITS_PER_INT) | byteBuf.readUnsignedInt();
+        cachedBits += BITS_PER_INT;
+      } else if (byteBuf.isReadable()) {
+        bitCache = (bitCache << BITS_PER_BYTE) | byteBuf.readUnsignedByte();
+        cachedBits += BITS_PER_BYTE;
+      } else {
         throw new EOFException("read past end-of-file");
       }
-      currentByte = byteBuf.readByte();
-      currentIndex = MAX_BIT_INDEX;
     }
-
-    byte result = (byte) ((currentByte >> currentIndex) & 0b1);
-
-    return result == 0b1;
   }
 
   /**
-   * Get the number of bits that can be read.
+   * Get the next bit's value, but do not actually consume the bit.
    *
-   * @return number of readable bits
+   * @return true if the next bit is 1, false if the next bit is 0
    */
-  public long readableBits() {
-    return (long) byteBuf.readableBytes() * 8 + (currentByte != null ? currentIndex + 1 : 0);
+  public boolean testBit() throws EOFException {
+    fill(1);
+    return ((bitCache >>> (cachedBits - 1)) & 0b1) == 0b1;
   }
 
   /**
-   * Only call this method if we are at a byte boundary. Negative values are handled correctly.
+   * Get the number of bits that can be read.
    *
-   * @param numberOfBytes the number of bytes to skip
+   * @return number of readable bits
    */
-  private void skipBytes(int numberOfBytes) {
-    int remaining = numberOfBytes;
-    if (remaining > 0 && currentByte != null) {
-      currentByte = null;
-      remaining--;
-    }
-    if (remaining > 0) {
-      byteBuf.skipBytes(remaining);
-    }
+  public long readableBits() {
+    return (long) byteBuf.readableBytes() * BITS_PER_BYTE + cachedBits;
   }
 
   public void skipBits(int numberOfBits) throws EOFException {
 
     Validate.inclusiveBetween(0, Integer.MAX_VALUE, numberOfBits, "numberOfBits must >=0");
 
-    if (isByteBoundary() && numberOfBits % 8 == 0) {
-      skipBytes(numberOfBits / 8);
+    if (numberOfBits <= cachedBits) {
+      cachedBits -= numberOfBits;
       return;
     }
 
-    int tmp = numberOfBits;
-    while (tmp >= 32) {
-      readBits(32);
-      tmp -= 32;
-    }
-    if (tmp > 0) {
-      readBits(tmp);
+    int remaining = numberOfBits - cachedBits;
+    int bytes = remaining / BITS_PER_BYTE;
+    if (byteBuf.readableBytes() < bytes) {
+      throw new EOFException("skipped past end-of-file");
     }
-  }
-
-  public byte readBit() throws EOFException {
 
-    byte result = testBit() ? (byte) 1 : (byte) 0;
+    cachedBits = 0;
+    byteBuf.skipBytes(bytes);
 
-    consumeBit();
-
-    return result;
+    int bits = remaining % BITS_PER_BYTE;
+    if (bits > 0) {
+      readBits(bits);
+    }
   }
 
-  private void consumeBit() {
-    if (currentIndex > 0) {
-      currentIndex--;
-    } else if (currentIndex == 0) {
-      currentByte = null;
-    }
+  public byte readBit() throws EOFException {
+    return (byte) readBits(1);
   }
 
   public long readBits(int numberOfBits) throws EOFException {
 
     Validate.inclusiveBetween(1, 32, numberOfBits, "numberOfBits must be [1,32]");
 
-    if (numberOfBits == 1) {
-      return readBit();
-    }
-
-    long result = 0;
+    fill(numberOfBits);
 
-    for (int i = 0; i < numberOfBits; i++) {
-      result |= readBit() << (numberOfBits - i - 1);
-    }
+    cachedBits -= numberOfBits;
 
-    return result;
+    return (bitCache >>> cachedBits) & ((1L << numberOfBits) - 1);
   }
 
   public boolean isByteBoundary() {
-    return currentByte == null || currentIndex == MAX_BIT_INDEX;
+    return cachedBits % BITS_PER_BYTE == 0;
   }
 
-  private void discardCurrentByte() {
-    currentByte = null;
+  /**
+   * Discard the bits of a partially read byte and return the whole bytes that are still in the
+   * cache to the ByteBuf, so that the ByteBuf's reader index is the next byte of the stream.
+   */
+  private void alignToByteBuf() {
+    byteBuf.readerIndex(byteBuf.readerIndex() - cachedBits / BITS_PER_BYTE);
+    cachedBits = 0;
   }
 
-  public Optional<Long> findStart() {
-
-    if (!isByteBoundary()) {
-      discardCurrentByte();
-    }
-
-    int startPos = byteBuf.readerIndex();
-
-    startCode.init();
-
-    int position = byteBuf.forEachByte(startCode);
-
-    if (position == BYTE_BUF_EOF) {
-      return Optional.empty();
-    }
-
-    skipBytes(position - startPos - START_CODE_PREFIX_SIZE);
-
-    long startCodeSequence;
-    try {
-      startCodeSequence = readBits(START_CODE_BIT_SIZE);
-    } catch (EOFException e) {
-      LOGGER.debug(
-          "read past end of file, but should never happen because the code already determined that the bytes exist",
-          e);
-      return Optional.empty();
+  /**
+   * Find the next start code (0x00 0x00 0x01 0xXX) at or after the next byte boundary and consume
+   * it. If the reader is within a byte, then the rest of that byte is skipped first.
+   *
+   * @return the value of the start code (0xXX), or {@link #NO_START_CODE} if there are no more
+   *     start codes
+   */
+  public int nextStartCode() {
+
+    alignToByteBuf();
+
+    int end = byteBuf.writerIndex() - 1;
+    int position = byteBuf.readerIndex() + START_CODE_PREFIX_SIZE - 1;
+
+    while (position < end) {
+      byte value = byteBuf.getByte(position);
+      if (value == 0) {
+        position++;
+      } else if (value == 1
+          && byteBuf.getByte(position - 1) == 0
+          && byteBuf.getByte(position - 2) == 0) {
+        byteBuf.readerIndex(position + 2);
+        return byteBuf.getUnsignedByte(position + 1);
+      } else {
+        position += START_CODE_PREFIX_SIZE;
+      }
     }
 
-    assert (startCodeSequence & 0xffffff00) == 0x00000100
-        : "start code does not follow the expected format";
+    return NO_START_CODE;
+  }
 
-    return Optional.of(startCodeSequence & 0xFF);
+  /**
+   * Same as {@link #nextStartCode()}, but boxes the result.
+   *
+   * @return the value of the start code, or empty if there are no more start codes
+   */
+  public Optional<Long> findStart() {
+    int startCode = nextStartCode();
+    return startCode == NO_START_CODE ? Optional.empty() : Optional.of((long) startCode);
   }
 }
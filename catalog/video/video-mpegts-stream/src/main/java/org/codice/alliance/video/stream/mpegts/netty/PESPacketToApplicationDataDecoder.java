@@ -36,7 +36,7 @@ class PESPacketToApplicationDataDecoder extends MessageToMessageDecoder<PESPacke
   private static final Logger LOGGER =
       LoggerFactory.getLogger(PESPacketToApplicationDataDecoder.class);
 
-  private static final long PICTURE_START_CODE = 0;
+  private static final int PICTURE_START_CODE = 0;
 
   private static final int MPEG2_TEMPORAL_BITS = 10;
 
@@ -105,10 +105,8 @@ class PESPacketToApplicationDataDecoder extends MessageToMessageDecoder<PESPacke
 
     BitReader bitReader = new BitReader(Unpooled.wrappedBuffer(pesPacket.getPayload()));
 
-    Optional<Long> startCodeOpt;
-    while ((startCodeOpt = bitReader.findStart()).isPresent()) {
-
-      long startCode = startCodeOpt.get();
+    int startCode;
+    while ((startCode = bitReader.nextStartCode()) != BitReader.NO_START_CODE) {
       if (startCode == PICTURE_START_CODE) {
         decodePicture(bitReader).ifPresent(mpeg2PictureTypeList::add);
       }
@@ -19,9 +19,10 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.List;
+import java.util.EnumSet;
 import java.util.Optional;
 import java.util.Set;
 import java.util.Timer;
@@ -30,7 +31,6 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 import org.codice.alliance.video.stream.mpegts.OutputStreamFactory;
 import org.codice.alliance.video.stream.mpegts.filename.TempFileGenerator;
 import org.codice.alliance.video.stream.mpegts.filename.TempFileGeneratorImpl;
@@ -43,8 +43,12 @@ import org.slf4j.LoggerFactory;
  * is on a clean IDR boundary. If an IDR boundary cannot be found, the data will be eventually flush
  * on a arbitrary point to avoid memory exhaustion. This implementation is thread-safe.
  *
- * <p>NOTE: This implementation could probably be improved by using some kind of circular buffer
- * with read and write pointers
+ * <p>The raw packet data is stored in a single contiguous ring of bytes. Frames are recorded as the
+ * stream position of their last byte, so buffering a frameset does not create an object per packet
+ * or per frame. The ring is allocated by the first write and grows geometrically when the buffered
+ * data does not fit. It is released when the buffer is reset or when an idle stream has been
+ * flushed, so streams that are not receiving data do not hold on to it. The amount of buffered
+ * data is bounded by the frameset size limit and the incomplete frame byte limit.
  */
 public class PacketBuffer {
 
@@ -69,6 +73,12 @@ public class PacketBuffer {
    */
   private static final long DEFAULT_MAX_INCOMPLETE_FRAME_BYTES = 50000000;
 
+  /** The number of bytes in the packet ring when it is allocated. */
+  private static final int INITIAL_RING_CAPACITY = 1024 * 1024;
+
+  /** The initial number of frame boundaries that can be recorded before growing. */
+  private static final int INITIAL_FRAME_CAPACITY = 64;
+
   /** This is a RolloverCondition that always indicates that the rollover is ready. */
   private static final RolloverCondition ALWAYS_TRUE =
       new RolloverCondition() {
@@ -85,11 +95,30 @@ public class PacketBuffer {
 
   private static final long ACTIVITY_LOG_PERIOD = TimeUnit.SECONDS.toMillis(10);
 
+  private static final byte[] EMPTY_RING = new byte[0];
+
   private final Timer timer = new Timer();
 
-  private List<Frame> frames = new ArrayList<>();
+  /**
+   * Raw packet data. The stream position {@link #ringBase} is stored at index 0. Empty until data
+   * is written.
+   */
+  private byte[] ring = EMPTY_RING;
+
+  private long ringBase = 0;
+
+  /** Stream position of the first byte that has not been flushed to disk. */
+  private long headPosition = 0;
+
+  /** Stream position of the next byte to be written. */
+  private long tailPosition = 0;
+
+  /** Stream position just past the last byte of each complete frame, in stream order. */
+  private long[] frameEndPositions = new long[INITIAL_FRAME_CAPACITY];
 
-  private List<byte[]> incompleteFrame = new ArrayList<>();
+  private FrameType[] frameTypes = new FrameType[INITIAL_FRAME_CAPACITY];
+
+  private int frameCount = 0;
 
   private Lock lock = new ReentrantLock();
 
@@ -97,6 +126,12 @@ public class PacketBuffer {
 
   private File currentTempFile = null;
 
+  /**
+   * Stays open for appending while {@link #currentTempFile} is being filled and is closed when the
+   * file is rotated.
+   */
+  private OutputStream currentOutputStream = null;
+
   private Long tempFileCreateTime = null;
 
   private long bytesWrittenToTempFile = 0;
@@ -173,8 +208,14 @@ public class PacketBuffer {
   public void reset() {
     lock.lock();
     try {
-      frames.clear();
-      incompleteFrame.clear();
+      ring = EMPTY_RING;
+      ringBase = 0;
+      headPosition = 0;
+      tailPosition = 0;
+      frameEndPositions = new long[INITIAL_FRAME_CAPACITY];
+      frameTypes = new FrameType[INITIAL_FRAME_CAPACITY];
+      frameCount = 0;
+      closeOutputStream();
       currentTempFile = null;
       tempFileCreateTime = null;
       bytesWrittenToTempFile = 0;
@@ -216,20 +257,34 @@ public class PacketBuffer {
    * @param rawPacket may be null or empty
    */
   public void write(byte[] rawPacket) {
+    if (rawPacket == null) {
+      return;
+    }
+    write(ByteBuffer.wrap(rawPacket));
+  }
+
+  /**
+   * Write the remaining bytes of a buffer into the packet buffer. The bytes are copied, so the
+   * caller may reuse the buffer after this method returns.
+   *
+   * @param rawPacket may be null or empty
+   * @see #write(byte[])
+   */
+  public void write(ByteBuffer rawPacket) {
 
-    if (rawPacket == null || rawPacket.length == 0) {
+    if (rawPacket == null || !rawPacket.hasRemaining()) {
       return;
     }
     lock.lock();
     try {
+      int length = rawPacket.remaining();
       lastActivity = System.currentTimeMillis();
-      incompleteFrame.add(rawPacket);
-      incompleteFrameBytes += rawPacket.length;
-      bytesReceived += rawPacket.length;
+      copyIntoRing(rawPacket, length);
+      incompleteFrameBytes += length;
+      bytesReceived += length;
       packetsReceived++;
       if (incompleteFrameBytes > maxIncompleteFrameBytes) {
-        frames.add(new Frame(FrameType.UNKNOWN, incompleteFrame));
-        incompleteFrame = new ArrayList<>();
+        addFrame(FrameType.UNKNOWN);
         incompleteFrameBytes = 0;
         flushIfDataAvailable();
       }
@@ -248,8 +303,7 @@ public class PacketBuffer {
     notNull(frameType, "frameType must be non-null");
     lock.lock();
     try {
-      frames.add(new Frame(frameType, incompleteFrame));
-      incompleteFrame = new ArrayList<>();
+      addFrame(frameType);
 
       flushIfDataAvailable();
 
@@ -272,7 +326,7 @@ public class PacketBuffer {
   }
 
   private void flushAllData() throws IOException {
-    flushFrameset(frames.size() - 1);
+    flushFrameset(frameCount - 1);
   }
 
   /**
@@ -281,22 +335,25 @@ public class PacketBuffer {
    */
   private void flushFrameset(int index) throws IOException {
 
-    try (OutputStream os = outputStreamFactory.create(getTempFile(), true)) {
+    OutputStream os = getOutputStream();
 
-      List<byte[]> outgoingPackets =
-          frames
-              .subList(0, index + 1)
-              .stream()
-              .flatMap(frame -> frame.packets.stream())
-              .collect(Collectors.toList());
-      frames = new ArrayList<>(frames.subList(index + 1, frames.size()));
+    long end = index < 0 ? headPosition : frameEndPositions[index];
+    int length = (int) (end - headPosition);
 
-      for (byte[] outgoingPacket : outgoingPackets) {
-        os.write(outgoingPacket);
-        bytesWrittenToTempFile += outgoingPacket.length;
-        bytesWritten += outgoingPacket.length;
+    // the frameset stays buffered until it has been written, so a failed flush is retried
+    if (length > 0) {
+      int startIndex = ringIndex(headPosition);
+      int firstLength = Math.min(length, ring.length - startIndex);
+      os.write(ring, startIndex, firstLength);
+      if (length > firstLength) {
+        os.write(ring, 0, length - firstLength);
       }
     }
+
+    headPosition = end;
+    removeFrames(index + 1);
+    bytesWrittenToTempFile += length;
+    bytesWritten += length;
   }
 
   /**
@@ -313,10 +370,11 @@ public class PacketBuffer {
     try {
       if (isActivityTimeout()) {
         LOGGER.debug("activity timeout detected, flushing data and rolling over file");
-        if (!incompleteFrame.isEmpty()) {
+        if (hasIncompleteFrame()) {
           flushIncompleteFrames();
         }
         flushIfDataAvailable();
+        releaseRingIfEmpty();
         return new RotateResult(getFile().orElse(null), true);
       }
 
@@ -335,6 +393,7 @@ public class PacketBuffer {
   }
 
   private Optional<File> getFile() {
+    closeOutputStream();
     File tempFile = currentTempFile;
     currentTempFile = null;
     bytesWrittenToTempFile = 0;
@@ -342,8 +401,7 @@ public class PacketBuffer {
   }
 
   private void flushIncompleteFrames() {
-    frames.add(new Frame(FrameType.UNKNOWN, incompleteFrame));
-    incompleteFrame = new ArrayList<>();
+    addFrame(FrameType.UNKNOWN);
   }
 
   /**
@@ -357,11 +415,11 @@ public class PacketBuffer {
     lock.lock();
     try {
 
-      if (!incompleteFrame.isEmpty()) {
+      if (hasIncompleteFrame()) {
         flushIncompleteFrames();
       }
 
-      if (!frames.isEmpty()) {
+      if (frameCount > 0) {
         flushAllData();
       }
 
@@ -389,8 +447,30 @@ public class PacketBuffer {
     return currentTempFile;
   }
 
+  private OutputStream getOutputStream() throws IOException {
+    if (currentOutputStream == null) {
+      currentOutputStream = outputStreamFactory.create(getTempFile(), true);
+    }
+    return currentOutputStream;
+  }
+
+  private void closeOutputStream() {
+    if (currentOutputStream != null) {
+      try {
+        currentOutputStream.close();
+      } catch (IOException e) {
+        LOGGER.debug("unable to close temp file: filename={}", currentTempFile, e);
+      }
+      currentOutputStream = null;
+    }
+  }
+
   private Set<FrameType> summarizeFrameTypes() {
-    return frames.stream().map(frame -> frame.frameType).collect(Collectors.toSet());
+    Set<FrameType> frameTypeSummary = EnumSet.noneOf(FrameType.class);
+    for (int i = 0; i < frameCount; i++) {
+      frameTypeSummary.add(frameTypes[i]);
+    }
+    return frameTypeSummary;
   }
 
   private long millisSinceLastActivity() {
@@ -402,11 +482,11 @@ public class PacketBuffer {
   }
 
   private Optional<Integer> allFrames() {
-    return Optional.of(frames.size() - 1);
+    return Optional.of(frameCount - 1);
   }
 
   private boolean isMaxFramesetSizeExceeded() {
-    return frames.size() > DEFAULT_MAX_FRAMESET_SIZE;
+    return frameCount > DEFAULT_MAX_FRAMESET_SIZE;
   }
 
   private boolean isAllUnknownFrameType(Set<FrameType> frameTypeSummary) {
@@ -440,37 +520,104 @@ public class PacketBuffer {
       return Optional.empty();
     }
 
-    for (int i = frames.size() - 1; i > 0; i--) {
-      if (frames.get(i).frameType == FrameType.IDR) {
+    for (int i = frameCount - 1; i > 0; i--) {
+      if (frameTypes[i] == FrameType.IDR) {
         return Optional.of(i - 1);
       }
     }
     return Optional.empty();
   }
 
-  private void resetLastActivity() {
-    lastActivity = 0;
+  /** Stream position of the first byte of the incomplete frame. */
+  private long incompleteFramePosition() {
+    return frameCount == 0 ? headPosition : frameEndPositions[frameCount - 1];
   }
 
-  public enum FrameType {
-    IDR,
-    NON_IDR,
-    UNKNOWN
+  private boolean hasIncompleteFrame() {
+    return tailPosition > incompleteFramePosition();
+  }
+
+  /** Record the data written since the last frame boundary as a complete frame. */
+  private void addFrame(FrameType frameType) {
+    if (frameCount == frameEndPositions.length) {
+      frameEndPositions = Arrays.copyOf(frameEndPositions, frameCount * 2);
+      frameTypes = Arrays.copyOf(frameTypes, frameCount * 2);
+    }
+    frameEndPositions[frameCount] = tailPosition;
+    frameTypes[frameCount] = frameType;
+    frameCount++;
+  }
+
+  /** Remove the first {@code count} frames, which must already have been flushed. */
+  private void removeFrames(int count) {
+    System.arraycopy(frameEndPositions, count, frameEndPositions, 0, frameCount - count);
+    System.arraycopy(frameTypes, count, frameTypes, 0, frameCount - count);
+    Arrays.fill(frameTypes, frameCount - count, frameCount, null);
+    frameCount -= count;
+  }
+
+  private int ringIndex(long position) {
+    return (int) ((position - ringBase) % ring.length);
+  }
+
+  private void copyIntoRing(ByteBuffer rawPacket, int length) {
+    ensureRingCapacity(length);
+    int tailIndex = ringIndex(tailPosition);
+    int firstLength = Math.min(length, ring.length - tailIndex);
+    rawPacket.get(ring, tailIndex, firstLength);
+    if (length > firstLength) {
+      rawPacket.get(ring, 0, length - firstLength);
+    }
+    tailPosition += length;
   }
 
   /**
-   * Contains all of the raw packets associated with a video frame. May contain non-video data that
-   * was intermixed with the video data.
+   * Grow the ring if the buffered data plus {@code length} bytes does not fit. The buffered data is
+   * copied to the start of the new ring.
    */
-  private static class Frame {
-
-    private List<byte[]> packets;
+  private void ensureRingCapacity(int length) {
+    int bufferedBytes = (int) (tailPosition - headPosition);
+    if (bufferedBytes + length <= ring.length) {
+      return;
+    }
+    if (ring.length == 0) {
+      ring = new byte[Math.max(INITIAL_RING_CAPACITY, length)];
+      ringBase = headPosition;
+      return;
+    }
+    byte[] newRing = new byte[Math.max(ring.length * 2, bufferedBytes + length)];
+    int headIndex = ringIndex(headPosition);
+    int firstLength = Math.min(bufferedBytes, ring.length - headIndex);
+    System.arraycopy(ring, headIndex, newRing, 0, firstLength);
+    System.arraycopy(ring, 0, newRing, firstLength, bufferedBytes - firstLength);
+    ring = newRing;
+    ringBase = headPosition;
+  }
 
-    private FrameType frameType;
+  /** Release the ring if all of the buffered data has been flushed. */
+  private void releaseRingIfEmpty() {
+    if (headPosition == tailPosition) {
+      ring = EMPTY_RING;
+    }
+  }
 
-    public Frame(FrameType frameType, List<byte[]> packets) {
-      this.frameType = frameType;
-      this.packets = packets;
+  /** @return the number of bytes in the packet ring, which is 0 until data is buffered */
+  int getRingCapacity() {
+    lock.lock();
+    try {
+      return ring.length;
+    } finally {
+      lock.unlock();
     }
   }
+
+  private void resetLastActivity() {
+    lastActivity = 0;
+  }
+
+  public enum FrameType {
+    IDR,
+    NON_IDR,
+    UNKNOWN
+  }
 }
@@ -15,7 +15,6 @@ package org.codice.alliance.video.stream.mpegts.netty;
 
 import static org.apache.commons.lang3.Validate.notNull;
 
-import com.google.common.io.ByteSource;
 import ddf.security.Subject;
 import ddf.security.service.SecurityManager;
 import ddf.security.service.SecurityServiceException;
@@ -24,6 +23,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.handler.codec.MessageToMessageDecoder;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
@@ -39,12 +39,16 @@ import org.osgi.framework.ServiceReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.taktik.mpegts.MTSPacket;
-import org.taktik.mpegts.sources.MTSSources;
-import org.taktik.mpegts.sources.ResettableMTSSource;
 
 /**
  * Converts datagrams to a series of MTSPackets. Will discard data while looking for the MPEG-TS
- * sync byte.
+ * sync byte. Each instance holds the decode state for a single stream, so instances belonging to
+ * different streams do not contend with each other.
+ *
+ * <p>The MTSPackets are parsed directly from the receive buffer and their payloads are views into
+ * that buffer, so no bytes are copied per packet. A packet is only valid until the next datagram
+ * is decoded. Downstream handlers run synchronously on the channel and must copy any bytes they
+ * need to keep.
  */
 class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacket> {
 
@@ -59,13 +63,14 @@ class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacke
 
   private static final Logger LOGGER = LoggerFactory.getLogger(RawUdpDataToMTSPacketDecoder.class);
 
-  private static final Lock LOCK = new ReentrantLock();
+  /** Guards the decode state of this stream only. */
+  private final Lock lock = new ReentrantLock();
 
   private ByteBuf byteBuf;
 
   private PacketBuffer packetBuffer;
 
-  private MTSParser mtsParser = MTSSources::from;
+  private MTSParser mtsParser = MTSPacket::new;
 
   private UdpStreamProcessor udpStreamProcessor;
 
@@ -139,10 +144,14 @@ class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacke
     notNull(msg, "msg must be non-null");
     notNull(outputList, "outputList must be non-null");
 
-    LOCK.lock();
+    lock.lock();
     try {
       checkSecuritySubject(msg);
 
+      // The packets from the previous datagram have been consumed by the pipeline, so the bytes
+      // they viewed can now be reclaimed.
+      byteBuf.discardReadBytes();
+
       byteBuf.writeBytes(msg.content());
 
       skipToSyncByte();
@@ -150,45 +159,36 @@ class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacke
       while (byteBuf.readableBytes() >= TS_PACKET_SIZE) {
         parseMpegTsPacket(outputList);
       }
-
-      byteBuf.discardReadBytes();
     } finally {
-      LOCK.unlock();
+      lock.unlock();
     }
   }
 
   /**
    * Attempt to parse the first {@link #TS_PACKET_SIZE} bytes from the ByteBuf. If the parsing
    * succeeds, then add the new mpeg-ts packet to the output list and add the raw bytes to the
-   * packet buffer. If parsing fails, then rewind the read operation on the ByteBuf and discard the
-   * first byte of the ByteBuf, which was a potential sync byte. In either case, skip to the next
-   * sync byte.
+   * packet buffer. If parsing fails, then discard the first byte of the ByteBuf, which was a
+   * potential sync byte. In either case, skip to the next sync byte.
    *
-   * <p>Note: {@link ResettableMTSSource#nextPacket()} can throw unchecked exceptions when parsing
-   * fails.
+   * <p>Note: the {@link MTSParser} can throw unchecked exceptions when parsing fails.
    *
    * @param outputList write parsed mpeg-ts packets to this list
    */
   private void parseMpegTsPacket(List<Object> outputList) {
 
-    byte[] payload = new byte[TS_PACKET_SIZE];
-
-    byteBuf.markReaderIndex();
-
-    byteBuf.readBytes(payload);
+    int packetIndex = byteBuf.readerIndex();
 
     MTSPacket packet = null;
     try {
-      ResettableMTSSource src = mtsParser.parse(ByteSource.wrap(payload));
-      packet = src.nextPacket();
+      packet = mtsParser.parse(byteBuf.nioBuffer(packetIndex, TS_PACKET_SIZE));
     } catch (Exception e) {
       LOGGER.debug("unable to parse mpeg-ts packet", e);
-      byteBuf.resetReaderIndex();
       byteBuf.skipBytes(1);
     }
 
     if (packet != null) {
-      packetBuffer.write(payload);
+      packetBuffer.write(byteBuf.nioBuffer(packetIndex, TS_PACKET_SIZE));
+      byteBuf.skipBytes(TS_PACKET_SIZE);
       outputList.add(packet);
     }
 
@@ -227,6 +227,13 @@ class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacke
   }
 
   public interface MTSParser {
-    ResettableMTSSource parse(ByteSource byteSource) throws IOException;
+    /**
+     * Parse a single MPEG-TS packet. The returned packet may keep references to {@code rawPacket}.
+     *
+     * @param rawPacket a view of exactly {@link #TS_PACKET_SIZE} bytes
+     * @return the parsed packet
+     * @throws IOException
+     */
+    MTSPacket parse(ByteBuffer rawPacket) throws IOException;
   }
 }
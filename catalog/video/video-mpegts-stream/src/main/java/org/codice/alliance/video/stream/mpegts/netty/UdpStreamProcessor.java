@@ -34,6 +34,7 @@ import org.codice.alliance.video.stream.mpegts.Context;
 import org.codice.alliance.video.stream.mpegts.StreamMonitor;
 import org.codice.alliance.video.stream.mpegts.UdpStreamMonitor;
 import org.codice.alliance.video.stream.mpegts.filename.FilenameGenerator;
+import org.codice.alliance.video.stream.mpegts.framework.CatalogIngestQueue;
 import org.codice.alliance.video.stream.mpegts.metacard.MetacardUpdater;
 import org.codice.alliance.video.stream.mpegts.plugins.StreamCreationException;
 import org.codice.alliance.video.stream.mpegts.plugins.StreamCreationPlugin;
@@ -263,6 +264,23 @@ public class UdpStreamProcessor implements StreamProcessor {
         });
   }
 
+  /**
+   * Release the resources of the stream processor once it will not be started again. Waits for the
+   * video chunks that are queued for catalog ingest to be stored, and then stops the catalog ingest
+   * queue. Call {@link #shutdown()} first so that the partial stream data is queued too.
+   */
+  public void destroy() {
+    CatalogIngestQueue catalogIngestQueue = context.getCatalogIngestQueue();
+    try {
+      catalogIngestQueue.awaitIdle();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.debug("interrupted while waiting for the video chunks to be ingested", e);
+    } finally {
+      catalogIngestQueue.shutdown();
+    }
+  }
+
   public void setStreamEndPlugin(StreamEndPlugin streamEndPlugin) {
     this.streamEndPlugin = streamEndPlugin;
   }
@@ -282,7 +300,7 @@ public class UdpStreamProcessor implements StreamProcessor {
     } catch (RolloverActionException e) {
       LOGGER.debug("unable handle rollover file: tempFile={}", tempFile, e);
     } finally {
-      if (!tempFile.delete()) {
+      if (tempFile.exists() && !tempFile.delete()) {
         LOGGER.debug("unable to delete temp file: filename={}", tempFile);
       }
     }
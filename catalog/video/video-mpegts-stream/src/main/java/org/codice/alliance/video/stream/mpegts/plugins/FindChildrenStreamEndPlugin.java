@@ -40,7 +40,8 @@ import org.slf4j.LoggerFactory;
  * Find the children of the parent metacard and process the children in batches. The children will
  * be processed in the order in which they were originally created. If an exception occurs during
  * when a batch is being retrieved from the CatalogFramework or from a batch handler, then the
- * {@link Handler#end(Context, Metacard)} will not be called.
+ * {@link Handler#end(Context, Metacard)} will not be called. The children are not searched for
+ * until the video chunks queued for catalog ingest have been stored.
  */
 public class FindChildrenStreamEndPlugin implements StreamEndPlugin {
 
@@ -66,6 +67,14 @@ public class FindChildrenStreamEndPlugin implements StreamEndPlugin {
   @Override
   public void streamEnded(Context context) {
 
+    try {
+      context.getCatalogIngestQueue().awaitIdle();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.debug("interrupted while waiting for the video chunks to be ingested", e);
+      return;
+    }
+
     context.modifyParentOrChild(
         new Function<AtomicBoolean, Void>() {
           @Override
@@ -22,25 +22,25 @@ import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.impl.AttributeImpl;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import javax.annotation.concurrent.NotThreadSafe;
 import org.apache.commons.lang.StringUtils;
 import org.codice.alliance.libs.klv.AttributeNameConstants;
 import org.codice.alliance.libs.klv.GeometryOperator;
 import org.codice.alliance.libs.klv.GeometryOperatorList;
 import org.codice.alliance.libs.klv.GeometryUtility;
+import org.codice.alliance.libs.klv.LinestringGeometryAccumulator;
 import org.codice.alliance.libs.klv.LinestringGeometrySubsampler;
 import org.codice.alliance.video.stream.mpegts.Context;
 
 /**
  * Update the frame-center field based on the frame-center data in the children. The coordinates of
  * the child frame-center linestrings are concatenated into a single linestring and saved to the
- * parent.
+ * parent. The coordinates are accumulated as the batches arrive and are subsampled once there are
+ * more than {@link #MAX_SIZE} * 2 of them.
  *
  * <p>This is not thread-safe.
  */
@@ -53,7 +53,10 @@ public class FrameCenterUpdateField extends UpdateParent.BaseUpdateField {
 
   private final GeometryFactory geometryFactory;
 
-  private Geometry intermediateGeometry;
+  private final LinestringGeometryAccumulator accumulator =
+      new LinestringGeometryAccumulator(MAX_SIZE);
+
+  private boolean isUpdated = false;
 
   /**
    * @param geometryOperator applied to the final linestring before it is saved to the parent
@@ -69,7 +72,11 @@ public class FrameCenterUpdateField extends UpdateParent.BaseUpdateField {
 
   @Override
   protected void doEnd(Metacard parent, Context context) {
-    if (intermediateGeometry != null) {
+    if (isUpdated) {
+      Geometry intermediateGeometry =
+          accumulator
+              .getGeometry(geometryFactory)
+              .orElseGet(() -> geometryFactory.createLineString(new Coordinate[0]));
       Integer originSubsampleCount = context.getGeometryOperatorContext().getSubsampleCount();
       try {
         context.getGeometryOperatorContext().setSubsampleCount(MAX_SIZE);
@@ -86,30 +93,14 @@ public class FrameCenterUpdateField extends UpdateParent.BaseUpdateField {
   protected void doUpdateField(Metacard parent, List<Metacard> children, Context context) {
     WKTReader wktReader = new WKTReader();
 
-    List<String> childLocations = extractChildFrameCenters(children);
-
-    List<Geometry> geometries = new LinkedList<>();
-
-    if (intermediateGeometry != null) {
-      geometries.add(intermediateGeometry);
-    }
-
-    geometries.addAll(
-        childLocations
-            .stream()
-            .map(s -> GeometryUtility.wktToGeometry(s, wktReader))
-            .filter(Optional::isPresent)
-            .map(Optional::get)
-            .collect(Collectors.toList()));
-
-    List<Coordinate> coordinates =
-        geometries
-            .stream()
-            .flatMap(geometry -> Stream.of(geometry.getCoordinates()))
-            .collect(Collectors.toList());
+    extractChildFrameCenters(children)
+        .stream()
+        .map(s -> GeometryUtility.wktToGeometry(s, wktReader))
+        .filter(Optional::isPresent)
+        .map(Optional::get)
+        .forEach(accumulator::add);
 
-    intermediateGeometry =
-        geometryFactory.createLineString(coordinates.toArray(new Coordinate[coordinates.size()]));
+    isUpdated = true;
   }
 
   private void setFrameCenter(Metacard parentMetacard, Geometry geometry) {
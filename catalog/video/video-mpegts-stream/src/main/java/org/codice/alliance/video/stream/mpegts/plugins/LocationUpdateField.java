@@ -80,10 +80,7 @@ public class LocationUpdateField extends UpdateParent.BaseUpdateField {
       geometries.add(intermediateGeometry);
     }
 
-    geometries
-        .stream()
-        .reduce(Geometry::union)
-        .ifPresent(geometry -> intermediateGeometry = geometry);
+    GeometryUtility.union(geometries).ifPresent(geometry -> intermediateGeometry = geometry);
   }
 
   private List<String> extractChildLocations(List<Metacard> children) {
@@ -13,8 +13,11 @@
  */
 package org.codice.alliance.video.stream.mpegts.plugins;
 
+import static org.apache.commons.lang3.Validate.notNull;
+
 import java.util.Arrays;
 import org.codice.alliance.video.stream.mpegts.Context;
+import org.codice.alliance.video.stream.mpegts.framework.CatalogUpdateRetry;
 import org.codice.alliance.video.stream.mpegts.netty.UdpStreamProcessor;
 import org.codice.alliance.video.stream.mpegts.rollover.CatalogRolloverAction;
 import org.codice.alliance.video.stream.mpegts.rollover.CreateMetacardRolloverAction;
@@ -22,6 +25,14 @@ import org.codice.alliance.video.stream.mpegts.rollover.ListRolloverAction;
 
 public class RolloverStreamCreationPlugin extends BaseStreamCreationPlugin {
 
+  private final CatalogUpdateRetry catalogUpdateRetry;
+
+  /** @param catalogUpdateRetry shared by the catalog rollover actions, must be non-null */
+  public RolloverStreamCreationPlugin(CatalogUpdateRetry catalogUpdateRetry) {
+    notNull(catalogUpdateRetry, "catalogUpdateRetry must be non-null");
+    this.catalogUpdateRetry = catalogUpdateRetry;
+  }
+
   @Override
   protected void doOnCreate(Context context) throws StreamCreationException {
     UdpStreamProcessor udpStreamProcessor = context.getUdpStreamProcessor();
@@ -35,6 +46,7 @@ public class RolloverStreamCreationPlugin extends BaseStreamCreationPlugin {
                     udpStreamProcessor.getCatalogFramework(),
                     context,
                     udpStreamProcessor.getParentMetacardUpdater(),
-                    udpStreamProcessor.getUuidGenerator()))));
+                    udpStreamProcessor.getUuidGenerator(),
+                    catalogUpdateRetry))));
   }
 }
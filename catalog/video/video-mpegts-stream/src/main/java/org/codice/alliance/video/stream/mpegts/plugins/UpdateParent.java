@@ -13,10 +13,13 @@
  */
 package org.codice.alliance.video.stream.mpegts.plugins;
 
+import static org.apache.commons.lang3.Validate.notNull;
+
 import ddf.catalog.data.Metacard;
 import ddf.catalog.operation.UpdateRequest;
 import ddf.catalog.operation.impl.UpdateRequestImpl;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import org.codice.alliance.video.stream.mpegts.Context;
 import org.codice.alliance.video.stream.mpegts.framework.CatalogUpdateRetry;
@@ -37,13 +40,22 @@ public class UpdateParent implements FindChildrenStreamEndPlugin.Handler {
 
   private final UpdateField updateField;
 
-  private CatalogUpdateRetry catalogUpdateRetry = new CatalogUpdateRetry();
+  private CatalogUpdateRetry catalogUpdateRetry;
 
-  public UpdateParent(UpdateField updateField) {
+  /**
+   * @param updateField must be non-null
+   * @param catalogUpdateRetry submits the parent update, must be non-null
+   */
+  public UpdateParent(UpdateField updateField, CatalogUpdateRetry catalogUpdateRetry) {
+    notNull(updateField, "updateField must be non-null");
+    notNull(catalogUpdateRetry, "catalogUpdateRetry must be non-null");
     this.updateField = updateField;
+    this.catalogUpdateRetry = catalogUpdateRetry;
   }
 
+  /** @param catalogUpdateRetry must be non-null */
   public void setCatalogUpdateRetry(CatalogUpdateRetry catalogUpdateRetry) {
+    notNull(catalogUpdateRetry, "catalogUpdateRetry must be non-null");
     this.catalogUpdateRetry = catalogUpdateRetry;
   }
 
@@ -62,17 +74,36 @@ public class UpdateParent implements FindChildrenStreamEndPlugin.Handler {
     update(context, parentMetacard, updateRequest);
   }
 
+  /**
+   * The update is tracked by the catalog ingest queue of the stream, so code that waits for the
+   * stream's catalog work to finish, such as a later parent update, also waits for this update and
+   * its retries.
+   */
   private void update(Context context, Metacard parentMetacard, UpdateRequest updateRequest) {
-    catalogUpdateRetry.submitUpdateRequestWithRetry(
-        context.getUdpStreamProcessor().getCatalogFramework(),
-        updateRequest,
-        context.getUdpStreamProcessor().getMetacardUpdateInitialDelay(),
-        INITIAL_RETRY_MILLISECONDS,
-        MAX_RETRY_MILLISECONDS,
-        update -> {
-          LOGGER.debug("updated parent metacard: newMetacard={}", update.getNewMetacard().getId());
-          context.setParentMetacard(update.getNewMetacard());
-        });
+    CompletableFuture<Void> parentUpdate =
+        catalogUpdateRetry
+            .submitUpdateRequestWithRetry(
+                context.getUdpStreamProcessor().getCatalogFramework(),
+                updateRequest,
+                context.getUdpStreamProcessor().getMetacardUpdateInitialDelay(),
+                INITIAL_RETRY_MILLISECONDS,
+                MAX_RETRY_MILLISECONDS,
+                update -> {
+                  LOGGER.debug(
+                      "updated parent metacard: newMetacard={}", update.getNewMetacard().getId());
+                  context.setParentMetacard(update.getNewMetacard());
+                })
+            .whenComplete(
+                (result, throwable) -> {
+                  if (throwable != null) {
+                    LOGGER.info(
+                        "unable to update parent metacard at stream end: parentMetacard={}",
+                        parentMetacard.getId(),
+                        throwable);
+                  }
+                });
+
+    context.getCatalogIngestQueue().track(parentUpdate);
   }
 
   private UpdateRequest createUpdateRequest(Metacard parentMetacard) {
@@ -13,14 +13,25 @@
  */
 package org.codice.alliance.video.stream.mpegts.plugins;
 
+import static org.apache.commons.lang3.Validate.notNull;
+
+import org.codice.alliance.video.stream.mpegts.framework.CatalogUpdateRetry;
+
 /** Build a {@link UpdateParent}. */
 public class UpdateParentFactory implements FindChildrenStreamEndPlugin.Factory {
 
   private final Factory factory;
 
-  /** @param factory must be not-null, the */
-  public UpdateParentFactory(Factory factory) {
+  private final CatalogUpdateRetry catalogUpdateRetry;
+
+  /**
+   * @param factory must be not-null, the
+   * @param catalogUpdateRetry shared by the parent updates, must be non-null
+   */
+  public UpdateParentFactory(Factory factory, CatalogUpdateRetry catalogUpdateRetry) {
+    notNull(catalogUpdateRetry, "catalogUpdateRetry must be non-null");
     this.factory = factory;
+    this.catalogUpdateRetry = catalogUpdateRetry;
   }
 
   public Factory getFactory() {
@@ -29,7 +40,7 @@ public class UpdateParentFactory implements FindChildrenStreamEndPlugin.Factory
 
   @Override
   public FindChildrenStreamEndPlugin.Handler build() {
-    return new UpdateParent(factory.build());
+    return new UpdateParent(factory.build(), catalogUpdateRetry);
   }
 
   /** Build a {@link UpdateParent.UpdateField}. */
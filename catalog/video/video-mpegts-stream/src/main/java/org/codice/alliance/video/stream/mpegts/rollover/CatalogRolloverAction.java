@@ -33,9 +33,13 @@ import ddf.catalog.source.SourceUnavailableException;
 import ddf.security.Subject;
 import ddf.security.SubjectUtils;
 import java.io.File;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.StringUtils;
 import org.codice.alliance.video.stream.mpegts.Constants;
@@ -49,7 +53,9 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Stores the child content, links the child to the parent, and updates the parent's location with
- * the union of the child's location.
+ * the union of the child's location. The catalog requests are made on the stream's {@link
+ * org.codice.alliance.video.stream.mpegts.framework.CatalogIngestQueue} so a slow catalog does not
+ * hold up the rollover path, and the parent is updated once for each batch of queued chunks.
  */
 public class CatalogRolloverAction extends BaseRolloverAction {
 
@@ -59,6 +65,10 @@ public class CatalogRolloverAction extends BaseRolloverAction {
 
   private static final long INITIAL_RETRY_WAIT_MILLISECONDS = TimeUnit.MILLISECONDS.toMillis(500);
 
+  private static final String CHUNK_FILE_PREFIX = "mpegts-chunk";
+
+  private static final String CHUNK_FILE_SUFFIX = ".ts";
+
   private final FilenameGenerator filenameGenerator;
 
   private final CatalogFramework catalogFramework;
@@ -69,16 +79,21 @@ public class CatalogRolloverAction extends BaseRolloverAction {
 
   private final UuidGenerator uuidGenerator;
 
-  private CatalogUpdateRetry catalogUpdateRetry = new CatalogUpdateRetry();
+  private CatalogUpdateRetry catalogUpdateRetry;
 
   private String filenameTemplate;
 
+  /** The most recent parent update. Only accessed on the catalog ingest queue. */
+  private CompletableFuture<Void> parentUpdate = CompletableFuture.completedFuture(null);
+
   /**
    * @param filenameGenerator must be non-null
    * @param filenameTemplate must be non-null
    * @param catalogFramework must be non-null
    * @param context must be non-null
    * @param parentMetacardUpdater must be non-null
+   * @param uuidGenerator must be non-null
+   * @param catalogUpdateRetry submits the child and parent updates, must be non-null
    */
   public CatalogRolloverAction(
       FilenameGenerator filenameGenerator,
@@ -86,13 +101,15 @@ public class CatalogRolloverAction extends BaseRolloverAction {
       CatalogFramework catalogFramework,
       Context context,
       MetacardUpdater parentMetacardUpdater,
-      UuidGenerator uuidGenerator) {
+      UuidGenerator uuidGenerator,
+      CatalogUpdateRetry catalogUpdateRetry) {
     notNull(filenameGenerator, "filenameGenerator must be non-null");
     notNull(filenameTemplate, "filenameTemplate must be non-null");
     notNull(catalogFramework, "catalogFramework must be non-null");
     notNull(context, "context must be non-null");
     notNull(parentMetacardUpdater, "parentMetacardUpdater must be non-null");
     notNull(uuidGenerator, "uuidGenerator must be non-null");
+    notNull(catalogUpdateRetry, "catalogUpdateRetry must be non-null");
 
     this.filenameGenerator = filenameGenerator;
     this.filenameTemplate = filenameTemplate;
@@ -100,9 +117,14 @@ public class CatalogRolloverAction extends BaseRolloverAction {
     this.context = context;
     this.parentMetacardUpdater = parentMetacardUpdater;
     this.uuidGenerator = uuidGenerator;
+    this.catalogUpdateRetry = catalogUpdateRetry;
+
+    context.getCatalogIngestQueue().setDrainTask(this::updateParent);
   }
 
+  /** @param catalogUpdateRetry must be non-null */
   public void setCatalogUpdateRetry(CatalogUpdateRetry catalogUpdateRetry) {
+    notNull(catalogUpdateRetry, "catalogUpdateRetry must be non-null");
     this.catalogUpdateRetry = catalogUpdateRetry;
   }
 
@@ -125,74 +147,159 @@ public class CatalogRolloverAction extends BaseRolloverAction {
   public MetacardImpl doAction(MetacardImpl metacard, File tempFile)
       throws RolloverActionException {
 
-    return context.modifyParentOrChild(
-        isParentDirty -> {
-          Subject subject = context.getUdpStreamProcessor().getSubject();
+    Subject subject = context.getUdpStreamProcessor().getSubject();
 
-          if (subject == null) {
-            LOGGER.debug("no security subject available, cannot upload video chunk");
-            return metacard;
-          }
+    if (subject == null) {
+      LOGGER.debug("no security subject available, cannot upload video chunk");
+      return metacard;
+    }
 
-          return subject.execute(
-              () -> {
-                String fileName = generateFilename();
+    String fileName = generateFilename();
 
-                enforceRequiredMetacardFields(metacard, fileName);
+    enforceRequiredMetacardFields(metacard, fileName);
 
-                ContentItem contentItem =
-                    createContentItem(metacard, fileName, Files.asByteSource(tempFile));
+    File chunkFile = takeChunkFile(tempFile);
 
-                CreateStorageRequest createStorageRequest = createStorageRequest(contentItem);
+    try {
+      context
+          .getCatalogIngestQueue()
+          .submit(() -> ingestChunk(subject, metacard, fileName, chunkFile));
+    } catch (RejectedExecutionException e) {
+      deleteChunkFile(chunkFile);
+      throw new RolloverActionException(
+          String.format("unable to queue video chunk for catalog ingest: %s", fileName), e);
+    }
 
-                CreateResponse createResponse = submitStorageCreateRequest(createStorageRequest);
+    return metacard;
+  }
 
-                for (Metacard childMetacard : createResponse.getCreatedMetacards()) {
-                  LOGGER.trace("created catalog content with id={}", childMetacard.getId());
+  /**
+   * The caller deletes the temp file when this action returns, so move the content to a file that
+   * is owned by the catalog ingest queue.
+   */
+  private File takeChunkFile(File tempFile) throws RolloverActionException {
+    try {
+      File chunkFile =
+          File.createTempFile(
+              CHUNK_FILE_PREFIX, CHUNK_FILE_SUFFIX, tempFile.getAbsoluteFile().getParentFile());
+      Files.move(tempFile, chunkFile);
+      return chunkFile;
+    } catch (IOException e) {
+      throw new RolloverActionException(
+          String.format("unable to move video chunk for catalog ingest: tempFile=%s", tempFile), e);
+    }
+  }
 
-                  linkChildToParent(childMetacard);
+  private void deleteChunkFile(File chunkFile) {
+    if (!chunkFile.delete()) {
+      LOGGER.debug("unable to delete video chunk file: filename={}", chunkFile);
+    }
+  }
 
-                  updateParentWithChildMetadata(childMetacard);
-                }
+  /** Runs on the catalog ingest queue. */
+  private void ingestChunk(
+      Subject subject, MetacardImpl metacard, String fileName, File chunkFile) {
+    try {
+      subject.execute(
+          () -> {
+            ContentItem contentItem =
+                createContentItem(metacard, fileName, Files.asByteSource(chunkFile));
 
-                isParentDirty.set(true);
+            CreateStorageRequest createStorageRequest = createStorageRequest(contentItem);
 
-                return metacard;
-              });
-        });
+            CreateResponse createResponse = submitStorageCreateRequest(createStorageRequest);
+
+            for (Metacard childMetacard : createResponse.getCreatedMetacards()) {
+              LOGGER.trace("created catalog content with id={}", childMetacard.getId());
+
+              linkChildToParent(childMetacard);
+            }
+
+            applyChildMetadataToParent(createResponse.getCreatedMetacards());
+
+            return null;
+          });
+    } finally {
+      deleteChunkFile(chunkFile);
+    }
   }
 
   private String generateFilename() {
     return filenameGenerator.generateFilename(filenameTemplate);
   }
 
-  private void updateParentWithChildMetadata(Metacard childMetacard) {
-    if (context.getParentMetacard().isPresent()) {
-      Metacard parentMetacard = context.getParentMetacard().get();
-      parentMetacardUpdater.update(parentMetacard, childMetacard, context);
-      UpdateRequest updateRequest = createUpdateRequest(parentMetacard.getId(), parentMetacard);
-      submitParentUpdateRequest(updateRequest);
-    }
+  /**
+   * Update the in-memory parent metacard with the child metadata. The parent is stored in the
+   * catalog by {@link #updateParent()} once the queued chunks have been processed.
+   */
+  private void applyChildMetadataToParent(List<Metacard> childMetacards) {
+    context.modifyParentOrChild(
+        isParentDirty -> {
+          context
+              .getParentMetacard()
+              .ifPresent(
+                  parentMetacard ->
+                      childMetacards.forEach(
+                          childMetacard ->
+                              parentMetacardUpdater.update(
+                                  parentMetacard, childMetacard, context)));
+
+          isParentDirty.set(true);
+
+          return null;
+        });
   }
 
-  private void submitParentUpdateRequest(UpdateRequest updateRequest) {
-    if (context.getParentMetacard().isPresent()) {
-      catalogUpdateRetry.submitUpdateRequestWithRetry(
-          catalogFramework,
-          updateRequest,
-          context.getUdpStreamProcessor().getMetacardUpdateInitialDelay(),
-          INITIAL_RETRY_WAIT_MILLISECONDS,
-          MAX_RETRY_MILLISECONDS,
-          update -> {
-            LOGGER.debug(
-                "updated parent metacard: newMetacard={}", update.getNewMetacard().getId());
-            context.setParentMetacard(update.getNewMetacard());
-          });
+  /**
+   * Runs on the catalog ingest queue after the queued chunks have been processed. A parent update
+   * is not sent until the previous one has finished, so an older copy of the parent can not
+   * replace a newer one while it waits to be retried.
+   */
+  private void updateParent() {
+    Subject subject = context.getUdpStreamProcessor().getSubject();
+
+    if (subject == null) {
+      LOGGER.debug("no security subject available, cannot update parent metacard");
+      return;
     }
+
+    parentUpdate =
+        parentUpdate
+            .handle((result, throwable) -> null)
+            .thenCompose(ignored -> subject.execute(() -> submitParentUpdate()));
+
+    context.getCatalogIngestQueue().track(parentUpdate);
+  }
+
+  private CompletableFuture<Void> submitParentUpdate() {
+    return context.modifyParentOrChild(
+        isParentDirty ->
+            context
+                .getParentMetacard()
+                .map(
+                    parentMetacard -> {
+                      parentMetacardUpdater.flush(parentMetacard, context);
+                      return submitParentUpdateRequest(
+                          createUpdateRequest(parentMetacard.getId(), parentMetacard));
+                    })
+                .orElseGet(() -> CompletableFuture.completedFuture(null)));
+  }
+
+  private CompletableFuture<Void> submitParentUpdateRequest(UpdateRequest updateRequest) {
+    return catalogUpdateRetry.submitUpdateRequestWithRetry(
+        catalogFramework,
+        updateRequest,
+        context.getUdpStreamProcessor().getMetacardUpdateInitialDelay(),
+        INITIAL_RETRY_WAIT_MILLISECONDS,
+        MAX_RETRY_MILLISECONDS,
+        update -> {
+          LOGGER.debug("updated parent metacard: newMetacard={}", update.getNewMetacard().getId());
+          context.setParentMetacard(update.getNewMetacard());
+        });
   }
 
-  private void submitChildUpdateRequest(UpdateRequest updateRequest) {
-    catalogUpdateRetry.submitUpdateRequestWithRetry(
+  private CompletableFuture<Void> submitChildUpdateRequest(UpdateRequest updateRequest) {
+    return catalogUpdateRetry.submitUpdateRequestWithRetry(
         catalogFramework,
         updateRequest,
         context.getUdpStreamProcessor().getMetacardUpdateInitialDelay(),
@@ -213,7 +320,7 @@ public class CatalogRolloverAction extends BaseRolloverAction {
 
     UpdateRequest updateChild = createUpdateRequest(childMetacard.getId(), childMetacard);
 
-    submitChildUpdateRequest(updateChild);
+    context.getCatalogIngestQueue().track(submitChildUpdateRequest(updateChild));
   }
 
   private void setDerivedAttribute(Metacard childMetacard) {
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import org.junit.After;
+import org.junit.Test;
+
+public class UdpEventLoopGroupTest {
+
+  private UdpEventLoopGroup udpEventLoopGroup;
+
+  @After
+  public void teardown() {
+    if (udpEventLoopGroup != null) {
+      udpEventLoopGroup.shutdown();
+    }
+  }
+
+  @Test
+  public void testDefaultThreadCount() {
+    udpEventLoopGroup = new UdpEventLoopGroup();
+    assertThat(udpEventLoopGroup.getThreadCount(), is(Runtime.getRuntime().availableProcessors()));
+    assertThat(udpEventLoopGroup.isNativeTransport(), is(false));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeThreadCount() {
+    new UdpEventLoopGroup(-1, false);
+  }
+
+  @Test
+  public void testEventLoopsAreShared() {
+    udpEventLoopGroup = new UdpEventLoopGroup(2, false);
+
+    EventLoopGroup eventLoopGroup = udpEventLoopGroup.getUnicastEventLoopGroup();
+
+    assertThat(udpEventLoopGroup.getUnicastEventLoopGroup(), is(sameInstance(eventLoopGroup)));
+    assertThat(udpEventLoopGroup.getMulticastEventLoopGroup(), is(sameInstance(eventLoopGroup)));
+    assertThat(udpEventLoopGroup.getUnicastChannelClass(), is(equalTo(NioDatagramChannel.class)));
+  }
+
+  @Test
+  public void testShutdown() {
+    udpEventLoopGroup = new UdpEventLoopGroup(1, false);
+
+    EventLoopGroup eventLoopGroup = udpEventLoopGroup.getUnicastEventLoopGroup();
+
+    udpEventLoopGroup.shutdown();
+
+    assertThat(eventLoopGroup.isShutdown(), is(true));
+    assertThat(udpEventLoopGroup.getUnicastEventLoopGroup(), is(not(sameInstance(eventLoopGroup))));
+  }
+}
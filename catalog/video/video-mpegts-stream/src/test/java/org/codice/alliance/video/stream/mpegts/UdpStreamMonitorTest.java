@@ -15,6 +15,7 @@ package org.codice.alliance.video.stream.mpegts;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
@@ -27,6 +28,7 @@ import org.codice.alliance.video.stream.mpegts.netty.UdpStreamProcessor;
 import org.codice.alliance.video.stream.mpegts.rollover.RolloverCondition;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 
 public class UdpStreamMonitorTest {
 
@@ -58,6 +60,11 @@ public class UdpStreamMonitorTest {
     udpStreamMonitor.setElapsedTimeRolloverCondition(UdpStreamMonitor.ELAPSED_TIME_MIN - 10);
   }
 
+  @Test(expected = NullPointerException.class)
+  public void testSetUdpEventLoopGroupNullArg() {
+    udpStreamMonitor.setUdpEventLoopGroup(null);
+  }
+
   @Test
   public void testSetStartImmediately() {
     assertThat(udpStreamMonitor.getStartImmediately(), is(false));
@@ -200,4 +207,12 @@ public class UdpStreamMonitorTest {
     udpStreamMonitor.setFilenameGenerator(filenameGenerator);
     verify(udpStreamProcessor).setFilenameGenerator(filenameGenerator);
   }
+
+  @Test
+  public void testDestroyShutsDownProcessorBeforeDestroyingIt() {
+    udpStreamMonitor.destroy(0);
+    InOrder inOrder = inOrder(udpStreamProcessor);
+    inOrder.verify(udpStreamProcessor).shutdown();
+    inOrder.verify(udpStreamProcessor).destroy();
+  }
 }
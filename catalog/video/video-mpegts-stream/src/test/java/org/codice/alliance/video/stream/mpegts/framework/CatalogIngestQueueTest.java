@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.framework;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CatalogIngestQueueTest {
+
+  private CatalogIngestQueue catalogIngestQueue;
+
+  @Before
+  public void setup() {
+    catalogIngestQueue = new CatalogIngestQueue(2);
+  }
+
+  @After
+  public void teardown() {
+    catalogIngestQueue.shutdown();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroCapacity() {
+    new CatalogIngestQueue(0);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testSubmitNullArg() {
+    catalogIngestQueue.submit(null);
+  }
+
+  @Test
+  public void testChunksProcessedInOrderAndDrainTaskRunOnce() throws InterruptedException {
+    List<Integer> processed = new CopyOnWriteArrayList<>();
+    AtomicInteger drainCount = new AtomicInteger();
+    CountDownLatch released = new CountDownLatch(1);
+
+    catalogIngestQueue.setDrainTask(drainCount::incrementAndGet);
+
+    catalogIngestQueue.submit(
+        () -> {
+          awaitQuietly(released);
+          processed.add(1);
+        });
+    catalogIngestQueue.submit(() -> processed.add(2));
+    catalogIngestQueue.submit(() -> processed.add(3));
+
+    released.countDown();
+    catalogIngestQueue.awaitIdle();
+
+    assertThat(processed, contains(1, 2, 3));
+    assertThat(drainCount.get(), is(1));
+    assertThat(catalogIngestQueue.getPendingCount(), is(0));
+  }
+
+  @Test
+  public void testSubmitBlocksWhenFull() throws InterruptedException {
+    CountDownLatch released = new CountDownLatch(1);
+    CountDownLatch fourthSubmitted = new CountDownLatch(1);
+
+    catalogIngestQueue.submit(() -> awaitQuietly(released));
+    catalogIngestQueue.submit(() -> {});
+    catalogIngestQueue.submit(() -> {});
+
+    Thread producer =
+        new Thread(
+            () -> {
+              catalogIngestQueue.submit(() -> {});
+              fourthSubmitted.countDown();
+            });
+    producer.start();
+
+    assertThat(fourthSubmitted.await(200, TimeUnit.MILLISECONDS), is(false));
+
+    released.countDown();
+
+    assertThat(fourthSubmitted.await(10, TimeUnit.SECONDS), is(true));
+    catalogIngestQueue.awaitIdle();
+    producer.join();
+  }
+
+  @Test
+  public void testFailedChunkDoesNotStopQueue() throws InterruptedException {
+    AtomicInteger drainCount = new AtomicInteger();
+    catalogIngestQueue.setDrainTask(drainCount::incrementAndGet);
+
+    catalogIngestQueue.submit(
+        () -> {
+          throw new RuntimeException("catalog unavailable");
+        });
+    catalogIngestQueue.awaitIdle();
+
+    assertThat(drainCount.get(), is(1));
+  }
+
+  @Test(expected = RejectedExecutionException.class)
+  public void testSubmitAfterShutdown() {
+    catalogIngestQueue.shutdown();
+    try {
+      catalogIngestQueue.submit(() -> {});
+    } finally {
+      assertThat(catalogIngestQueue.getPendingCount(), is(0));
+    }
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
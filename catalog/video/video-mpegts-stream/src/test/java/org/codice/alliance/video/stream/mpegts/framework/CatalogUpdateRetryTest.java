@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.framework;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ddf.catalog.CatalogFramework;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.operation.Update;
+import ddf.catalog.operation.UpdateRequest;
+import ddf.catalog.operation.UpdateResponse;
+import ddf.catalog.source.IngestException;
+import ddf.catalog.source.SourceUnavailableException;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CatalogUpdateRetryTest {
+
+  private static final long TIMEOUT_SECONDS = 10;
+
+  private ScheduledExecutorService scheduler;
+
+  private CatalogUpdateMetrics metrics;
+
+  private CatalogUpdateRetry catalogUpdateRetry;
+
+  private CatalogFramework catalogFramework;
+
+  private UpdateRequest updateRequest;
+
+  private UpdateResponse updateResponse;
+
+  private Update update;
+
+  @Before
+  public void setup() {
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    metrics = new CatalogUpdateMetrics();
+    catalogUpdateRetry = new CatalogUpdateRetry(scheduler, metrics);
+    catalogFramework = mock(CatalogFramework.class);
+    updateRequest = mock(UpdateRequest.class);
+    updateResponse = mock(UpdateResponse.class);
+    update = mock(Update.class);
+    when(update.getNewMetacard()).thenReturn(mock(Metacard.class));
+    when(updateResponse.getUpdatedMetacards()).thenReturn(Collections.singletonList(update));
+  }
+
+  @After
+  public void teardown() {
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void testRetryUntilSuccess()
+      throws SourceUnavailableException, IngestException, InterruptedException,
+          ExecutionException, TimeoutException {
+    when(catalogFramework.update(any(UpdateRequest.class)))
+        .thenThrow(IngestException.class)
+        .thenThrow(SourceUnavailableException.class)
+        .thenReturn(updateResponse);
+
+    Consumer<Update> updateConsumer = mock(Consumer.class);
+
+    submit(0, updateConsumer).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+    verify(catalogFramework, times(3)).update(updateRequest);
+    verify(updateConsumer).accept(update);
+
+    assertThat(metrics.getUpdateCount(), is(1L));
+    assertThat(metrics.getAttemptCount(), is(3L));
+    assertThat(metrics.getFailedAttemptCount(), is(2L));
+    assertThat(metrics.getSuccessCount(), is(1L));
+    assertThat(metrics.getFailureCount(), is(0L));
+    assertThat(metrics.getInProgressCount(), is(0L));
+  }
+
+  @Test
+  public void testFailureIsNotRetried()
+      throws SourceUnavailableException, IngestException, InterruptedException, TimeoutException {
+    when(catalogFramework.update(any(UpdateRequest.class)))
+        .thenThrow(new IllegalStateException("not retried"));
+
+    try {
+      submit(0, u -> {}).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      fail("expected the update to fail");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+    }
+
+    verify(catalogFramework).update(updateRequest);
+
+    assertThat(metrics.getAttemptCount(), is(1L));
+    assertThat(metrics.getFailureCount(), is(1L));
+    assertThat(metrics.getSuccessCount(), is(0L));
+  }
+
+  /** Test that the caller is not blocked while the update waits for the initial delay. */
+  @Test
+  public void testInitialDelayDoesNotBlockCaller()
+      throws SourceUnavailableException, IngestException {
+    when(catalogFramework.update(any(UpdateRequest.class))).thenReturn(updateResponse);
+
+    long start = System.nanoTime();
+
+    CompletableFuture<Void> future = submit(60, u -> {});
+
+    assertThat(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS), is(true));
+    assertThat(future.isDone(), is(false));
+    assertThat(metrics.getInProgressCount(), is(1L));
+
+    verify(catalogFramework, times(0)).update(any(UpdateRequest.class));
+  }
+
+  @Test
+  public void testCancelStopsRetries()
+      throws SourceUnavailableException, IngestException, InterruptedException {
+    when(catalogFramework.update(any(UpdateRequest.class))).thenThrow(IngestException.class);
+
+    CompletableFuture<Void> future =
+        catalogUpdateRetry.submitUpdateRequestWithRetry(
+            catalogFramework, updateRequest, 0, 100, 100, u -> {});
+
+    future.cancel(false);
+
+    scheduler.shutdown();
+    scheduler.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+    verify(catalogFramework, times((int) metrics.getAttemptCount()))
+        .update(any(UpdateRequest.class));
+    assertThat(metrics.getAttemptCount() <= 1, is(true));
+  }
+
+  @Test
+  public void testMetricsMbean() throws Exception {
+    when(catalogFramework.update(any(UpdateRequest.class))).thenReturn(updateResponse);
+
+    submit(0, u -> {}).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+    MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName objectName =
+        new ObjectName(CatalogUpdateMetrics.class.getName() + ":service=video");
+
+    metrics.registerMbean();
+    try {
+      assertThat(mBeanServer.getAttribute(objectName, "UpdateCount"), is(1L));
+      assertThat(mBeanServer.getAttribute(objectName, "SuccessCount"), is(1L));
+    } finally {
+      metrics.destroy();
+    }
+
+    assertThat(mBeanServer.isRegistered(objectName), is(false));
+  }
+
+  /** Test that destroy stops the scheduler that the retry created, so later updates fail. */
+  @Test
+  public void testDestroyShutsDownOwnedScheduler() throws Exception {
+    CatalogUpdateRetry ownedCatalogUpdateRetry = new CatalogUpdateRetry();
+
+    ownedCatalogUpdateRetry.destroy();
+
+    CompletableFuture<Void> future =
+        ownedCatalogUpdateRetry.submitUpdateRequestWithRetry(
+            catalogFramework, updateRequest, 0, 10, 20, u -> {});
+
+    try {
+      future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      fail("expected the update to be rejected");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(RejectedExecutionException.class));
+    }
+
+    verify(catalogFramework, times(0)).update(any(UpdateRequest.class));
+    assertThat(ownedCatalogUpdateRetry.getMetrics().getFailureCount(), is(1L));
+  }
+
+  /** Test that destroy leaves a scheduler that was passed in running. */
+  @Test
+  public void testDestroyKeepsSuppliedScheduler() {
+    catalogUpdateRetry.destroy();
+
+    assertThat(scheduler.isShutdown(), is(false));
+  }
+
+  private CompletableFuture<Void> submit(long initialSleepSeconds, Consumer<Update> consumer) {
+    return catalogUpdateRetry.submitUpdateRequestWithRetry(
+        catalogFramework, updateRequest, initialSleepSeconds, 10, 20, consumer);
+  }
+}
@@ -13,12 +13,18 @@
  */
 package org.codice.alliance.video.stream.mpegts.metacard;
 
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKTReader;
 import com.vividsolutions.jts.io.WKTWriter;
@@ -26,6 +32,7 @@ import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
 import org.codice.alliance.libs.klv.GeometryOperator;
 import org.codice.alliance.video.stream.mpegts.Context;
+import org.codice.alliance.video.stream.mpegts.netty.UdpStreamProcessor;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -71,10 +78,14 @@ public class LineStringMetacardUpdaterTest {
     when(parentMetacard.getAttribute(attrName)).thenReturn(parentAttr);
     when(childMetacard.getAttribute(attrName)).thenReturn(childAttr);
 
-    Context context = mock(Context.class);
+    Context context = new Context(mock(UdpStreamProcessor.class));
 
     lineStringMetacardUpdater.update(parentMetacard, childMetacard, context);
 
+    verify(parentMetacard, never()).setAttribute(any());
+
+    lineStringMetacardUpdater.flush(parentMetacard, context);
+
     ArgumentCaptor<Attribute> argumentCaptor = ArgumentCaptor.forClass(Attribute.class);
 
     verify(parentMetacard).setAttribute(argumentCaptor.capture());
@@ -92,9 +103,10 @@ public class LineStringMetacardUpdaterTest {
 
     when(childMetacard.getAttribute(attrName)).thenReturn(childAttr);
 
-    Context context = mock(Context.class);
+    Context context = new Context(mock(UdpStreamProcessor.class));
 
     lineStringMetacardUpdater.update(parentMetacard, childMetacard, context);
+    lineStringMetacardUpdater.flush(parentMetacard, context);
 
     ArgumentCaptor<Attribute> argumentCaptor = ArgumentCaptor.forClass(Attribute.class);
 
@@ -103,6 +115,115 @@ public class LineStringMetacardUpdaterTest {
     assertThat(argumentCaptor.getValue().getValue(), is(childWkt));
   }
 
+  /**
+   * Test that the parent linestring is accumulated across many children without being written,
+   * and that the number of coordinates stays bounded.
+   */
+  @Test
+  public void testManyChildrenAccumulated() throws ParseException {
+
+    when(parentAttr.getValue()).thenReturn("LINESTRING(0 0, 0 1)");
+    when(parentMetacard.getAttribute(attrName)).thenReturn(parentAttr);
+    when(childMetacard.getAttribute(attrName)).thenReturn(childAttr);
+
+    Context context = new Context(mock(UdpStreamProcessor.class));
+
+    int childCount = LineStringMetacardUpdater.MAX_COORDINATE_COUNT * 2;
+    for (int i = 1; i <= childCount; i++) {
+      when(childAttr.getValue()).thenReturn(String.format("LINESTRING(%d 0, %d 1)", i, i));
+      lineStringMetacardUpdater.update(parentMetacard, childMetacard, context);
+    }
+
+    verify(parentMetacard, never()).setAttribute(any());
+
+    lineStringMetacardUpdater.flush(parentMetacard, context);
+
+    ArgumentCaptor<Attribute> argumentCaptor = ArgumentCaptor.forClass(Attribute.class);
+
+    verify(parentMetacard).setAttribute(argumentCaptor.capture());
+
+    Geometry geometry = new WKTReader().read((String) argumentCaptor.getValue().getValue());
+
+    assertThat(
+        geometry.getNumPoints(),
+        is(both(greaterThanOrEqualTo(LineStringMetacardUpdater.MAX_COORDINATE_COUNT))
+            .and(lessThan(LineStringMetacardUpdater.MAX_COORDINATE_COUNT * 2))));
+    assertThat(geometry.getCoordinates()[0].x, is(0.0));
+  }
+
+  /**
+   * Test that a new parent metacard, such as the one created when the stream is restarted, does not
+   * inherit the linestring accumulated for the previous parent.
+   */
+  @Test
+  public void testNewParentDoesNotInheritTrack() throws ParseException {
+
+    when(parentMetacard.getId()).thenReturn("parent1");
+    when(childAttr.getValue()).thenReturn("LINESTRING(0 0, 1 1)");
+    when(childMetacard.getAttribute(attrName)).thenReturn(childAttr);
+
+    Context context = new Context(mock(UdpStreamProcessor.class));
+    context.setParentMetacard(parentMetacard);
+
+    lineStringMetacardUpdater.update(parentMetacard, childMetacard, context);
+    lineStringMetacardUpdater.flush(parentMetacard, context);
+
+    Metacard newParentMetacard = mock(Metacard.class);
+    when(newParentMetacard.getId()).thenReturn("parent2");
+    context.setParentMetacard(newParentMetacard);
+
+    String childWkt = normalize("LINESTRING(2 2, 3 3)");
+    when(childAttr.getValue()).thenReturn(childWkt);
+
+    lineStringMetacardUpdater.update(newParentMetacard, childMetacard, context);
+    lineStringMetacardUpdater.flush(newParentMetacard, context);
+
+    ArgumentCaptor<Attribute> argumentCaptor = ArgumentCaptor.forClass(Attribute.class);
+
+    verify(newParentMetacard).setAttribute(argumentCaptor.capture());
+
+    assertThat(argumentCaptor.getValue().getValue(), is(childWkt));
+  }
+
+  /** Test that updating the current parent metacard keeps the accumulated linestring. */
+  @Test
+  public void testUpdatedParentKeepsTrack() throws ParseException {
+
+    when(parentMetacard.getId()).thenReturn("parent1");
+    when(childMetacard.getAttribute(attrName)).thenReturn(childAttr);
+
+    Context context = new Context(mock(UdpStreamProcessor.class));
+    context.setParentMetacard(parentMetacard);
+
+    when(childAttr.getValue()).thenReturn("LINESTRING(0 0, 1 1)");
+    lineStringMetacardUpdater.update(parentMetacard, childMetacard, context);
+    lineStringMetacardUpdater.flush(parentMetacard, context);
+
+    Metacard updatedParentMetacard = mock(Metacard.class);
+    when(updatedParentMetacard.getId()).thenReturn("parent1");
+    context.setParentMetacard(updatedParentMetacard);
+
+    when(childAttr.getValue()).thenReturn("LINESTRING(2 2, 3 3)");
+    lineStringMetacardUpdater.update(updatedParentMetacard, childMetacard, context);
+    lineStringMetacardUpdater.flush(updatedParentMetacard, context);
+
+    ArgumentCaptor<Attribute> argumentCaptor = ArgumentCaptor.forClass(Attribute.class);
+
+    verify(updatedParentMetacard).setAttribute(argumentCaptor.capture());
+
+    assertThat(
+        argumentCaptor.getValue().getValue(), is(normalize("LINESTRING(0 0, 1 1, 2 2, 3 3)")));
+  }
+
+  @Test
+  public void testFlushWithoutUpdate() {
+    Context context = new Context(mock(UdpStreamProcessor.class));
+
+    lineStringMetacardUpdater.flush(parentMetacard, context);
+
+    verify(parentMetacard, never()).setAttribute(any());
+  }
+
   private String normalize(String wkt) throws ParseException {
     return new WKTWriter().write(new WKTReader().read(wkt).norm());
   }
@@ -17,9 +17,16 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.Metacard;
 import org.codice.alliance.libs.klv.GeometryOperator;
+import org.codice.alliance.video.stream.mpegts.Context;
+import org.codice.alliance.video.stream.mpegts.netty.UdpStreamProcessor;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 public class LocationMetacardUpdaterTest {
 
@@ -46,4 +53,38 @@ public class LocationMetacardUpdaterTest {
     assertThat(updater.getPreUnionGeometryOperator(), is(preUnionGeometryOperator));
     assertThat(updater.getPostUnionGeometryOperator(), is(postUnionGeometryOperator));
   }
+
+  /**
+   * Test that a new parent metacard, such as the one created when the stream is restarted, does not
+   * inherit the location accumulated for the previous parent.
+   */
+  @Test
+  public void testNewParentDoesNotInheritLocation() {
+    LocationMetacardUpdater updater = new LocationMetacardUpdater();
+    Context context = new Context(mock(UdpStreamProcessor.class));
+
+    Metacard parentMetacard = mock(Metacard.class);
+    when(parentMetacard.getId()).thenReturn("parent1");
+    context.setParentMetacard(parentMetacard);
+
+    Metacard childMetacard = mock(Metacard.class);
+    when(childMetacard.getLocation()).thenReturn("POLYGON ((0 0, 1 0, 1 1, 0 1, 0 0))");
+    updater.update(parentMetacard, childMetacard, context);
+    when(childMetacard.getLocation()).thenReturn("POLYGON ((1 0, 2 0, 2 1, 1 1, 1 0))");
+    updater.update(parentMetacard, childMetacard, context);
+    updater.flush(parentMetacard, context);
+
+    Metacard newParentMetacard = mock(Metacard.class);
+    when(newParentMetacard.getId()).thenReturn("parent2");
+    context.setParentMetacard(newParentMetacard);
+
+    String childWkt = "POLYGON ((10 10, 11 10, 11 11, 10 11, 10 10))";
+    when(childMetacard.getLocation()).thenReturn(childWkt);
+    updater.update(newParentMetacard, childMetacard, context);
+    updater.flush(newParentMetacard, context);
+
+    ArgumentCaptor<Attribute> argumentCaptor = ArgumentCaptor.forClass(Attribute.class);
+    verify(newParentMetacard).setAttribute(argumentCaptor.capture());
+    assertThat(argumentCaptor.getValue().getValue(), is(childWkt));
+  }
 }
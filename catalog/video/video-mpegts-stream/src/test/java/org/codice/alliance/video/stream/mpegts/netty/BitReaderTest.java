@@ -14,16 +14,26 @@
 package org.codice.alliance.video.stream.mpegts.netty;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeThat;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import java.io.EOFException;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class BitReaderTest {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(BitReaderTest.class);
+
+  private static final String BENCHMARK_PAYLOAD_BYTES_PROPERTY = "video.benchmark.payloadBytes";
+
   @Test
   public void testReadBit() throws EOFException {
     ByteBuf byteBuf = Unpooled.wrappedBuffer(new byte[] {(byte) 0b10111010});
@@ -193,4 +203,165 @@ public class BitReaderTest {
     Optional<Long> start = bitReader.findStart();
     assertThat(start.isPresent(), is(false));
   }
+
+  @Test
+  public void testReadBitsAcrossWords() throws EOFException {
+    ByteBuf byteBuf =
+        Unpooled.wrappedBuffer(new byte[] {0x12, 0x34, 0x56, 0x78, (byte) 0x9a, (byte) 0xbc});
+    BitReader bitReader = new BitReader(byteBuf);
+    assertThat(bitReader.readBits(4), is(0x1L));
+    assertThat(bitReader.readBits(32), is(0x23456789L));
+    assertThat(bitReader.readableBits(), is(12L));
+    assertThat(bitReader.readBits(12), is(0xabcL));
+  }
+
+  @Test
+  public void testReadBits32() throws EOFException {
+    ByteBuf byteBuf =
+        Unpooled.wrappedBuffer(new byte[] {(byte) 0xff, (byte) 0xfe, (byte) 0xfd, (byte) 0xfc});
+    BitReader bitReader = new BitReader(byteBuf);
+    assertThat(bitReader.readBits(32), is(0xfffefdfcL));
+  }
+
+  @Test
+  public void testReadBitsEOFDoesNotConsume() throws EOFException {
+    ByteBuf byteBuf = Unpooled.wrappedBuffer(new byte[] {(byte) 0b10111010});
+    BitReader bitReader = new BitReader(byteBuf);
+    try {
+      bitReader.readBits(9);
+    } catch (EOFException e) {
+      assertThat(bitReader.readableBits(), is(8L));
+      return;
+    }
+    throw new AssertionError("expected EOFException");
+  }
+
+  @Test(expected = EOFException.class)
+  public void testSkipBitsEOF() throws EOFException {
+    ByteBuf byteBuf = Unpooled.wrappedBuffer(new byte[] {0, 0});
+    BitReader bitReader = new BitReader(byteBuf);
+    bitReader.skipBits(24);
+  }
+
+  @Test
+  public void testIsByteBoundary() throws EOFException {
+    ByteBuf byteBuf = Unpooled.wrappedBuffer(new byte[] {0, 0, 0, 0, 0});
+    BitReader bitReader = new BitReader(byteBuf);
+    assertThat(bitReader.isByteBoundary(), is(true));
+    bitReader.readBits(3);
+    assertThat(bitReader.isByteBoundary(), is(false));
+    bitReader.readBits(5);
+    assertThat(bitReader.isByteBoundary(), is(true));
+  }
+
+  @Test
+  public void testNextStartCodes() {
+    ByteBuf byteBuf =
+        Unpooled.wrappedBuffer(new byte[] {5, 0, 0, 1, (byte) 0xb3, 7, 0, 0, 0, 1, 0, 9, 0, 0, 1});
+    BitReader bitReader = new BitReader(byteBuf);
+    assertThat(bitReader.nextStartCode(), is(0xb3));
+    assertThat(bitReader.nextStartCode(), is(0));
+    assertThat(bitReader.nextStartCode(), is(BitReader.NO_START_CODE));
+  }
+
+  @Test
+  public void testNextStartCodeAfterReadingBits() throws EOFException {
+    ByteBuf byteBuf = Unpooled.wrappedBuffer(new byte[] {(byte) 0xff, 0, 0, 1, 2, 3, 4, 5});
+    BitReader bitReader = new BitReader(byteBuf);
+    assertThat(bitReader.readBits(3), is(0b111L));
+    assertThat(bitReader.nextStartCode(), is(2));
+    assertThat(bitReader.readBits(8), is(3L));
+    assertThat(bitReader.readableBits(), is(16L));
+  }
+
+  @Test
+  public void testNextStartCodeInPrefix() {
+    ByteBuf byteBuf = Unpooled.wrappedBuffer(new byte[] {0, 0, 1, 0, 0, 1, 0});
+    BitReader bitReader = new BitReader(byteBuf);
+    assertThat(bitReader.nextStartCode(), is(0));
+    assertThat(bitReader.nextStartCode(), is(BitReader.NO_START_CODE));
+  }
+
+  @Test
+  public void testNextStartCodeMatchesByteScan() throws Exception {
+    byte[] payload = createVideoPayload(64 * 1024);
+
+    BitReader bitReader = new BitReader(Unpooled.wrappedBuffer(payload));
+    int alignedScanCount = 0;
+    while (bitReader.nextStartCode() != BitReader.NO_START_CODE) {
+      alignedScanCount++;
+    }
+
+    assertThat(alignedScanCount, is(countStartCodesPerByte(payload)));
+  }
+
+  /**
+   * Compare the byte-aligned start code scan with a byte-at-a-time scan over a payload that looks
+   * like MPEG-2 video. The benchmark only runs when the {@value #BENCHMARK_PAYLOAD_BYTES_PROPERTY}
+   * system property is set to the size of the payload, for example {@code
+   * -Dvideo.benchmark.payloadBytes=4194304}.
+   */
+  @Test
+  public void testStartCodeScanThroughput() throws Exception {
+    Integer payloadBytes = Integer.getInteger(BENCHMARK_PAYLOAD_BYTES_PROPERTY);
+    assumeThat(payloadBytes, notNullValue());
+
+    byte[] payload = createVideoPayload(payloadBytes);
+
+    long start = System.nanoTime();
+    int byteScanCount = countStartCodesPerByte(payload);
+    long byteScanElapsed = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    BitReader bitReader = new BitReader(Unpooled.wrappedBuffer(payload));
+    int alignedScanCount = 0;
+    while (bitReader.nextStartCode() != BitReader.NO_START_CODE) {
+      alignedScanCount++;
+    }
+    long alignedScanElapsed = System.nanoTime() - start;
+
+    assertThat(alignedScanCount, is(byteScanCount));
+
+    LOGGER.info(
+        "scanned mpeg-2 payload for start codes: bytes={} byteScanMBPerSecond={} alignedScanMBPerSecond={}",
+        payload.length,
+        payload.length * TimeUnit.SECONDS.toNanos(1) / byteScanElapsed / (1024 * 1024),
+        payload.length * TimeUnit.SECONDS.toNanos(1) / alignedScanElapsed / (1024 * 1024));
+  }
+
+  /** Mostly non-zero bytes with a picture start code every few kilobytes. */
+  private static byte[] createVideoPayload(int size) {
+    byte[] payload = new byte[size];
+    new Random(0).nextBytes(payload);
+    for (int i = 0; i < payload.length; i++) {
+      if (payload[i] == 0) {
+        payload[i] = 1;
+      }
+    }
+    for (int i = 0; i + 3 < payload.length; i += 4096) {
+      payload[i] = 0;
+      payload[i + 1] = 0;
+      payload[i + 2] = 1;
+      payload[i + 3] = 0;
+    }
+    return payload;
+  }
+
+  /** Count the start codes (0x00 0x00 0x01 0xXX) by looking at one byte at a time. */
+  private static int countStartCodesPerByte(byte[] payload) {
+    int count = 0;
+    int zeros = 0;
+    for (int i = 0; i < payload.length; i++) {
+      if (payload[i] == 0) {
+        zeros++;
+      } else {
+        if (payload[i] == 1 && zeros >= 2 && i + 1 < payload.length) {
+          count++;
+          i++;
+        }
+        zeros = 0;
+      }
+    }
+    return count;
+  }
 }
@@ -13,11 +13,15 @@
  */
 package org.codice.alliance.video.stream.mpegts.netty;
 
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -25,7 +29,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Optional;
+import org.codice.alliance.video.stream.mpegts.OutputStreamFactory;
 import org.codice.alliance.video.stream.mpegts.filename.TempFileGenerator;
 import org.codice.alliance.video.stream.mpegts.rollover.RolloverCondition;
 import org.junit.Before;
@@ -87,10 +93,136 @@ public class PacketBufferTest {
    */
   @Test
   public void testWriteWithOnlyUnknownFrames() throws IOException {
+    packetBuffer.setOutputStreamFactory((file, append) -> os);
     byte[] payload = new byte[] {0x01, 0x02};
     packetBuffer.setMaxIncompleteFrameBytes(1);
     packetBuffer.write(payload);
-    verify(outputStream).write(payload);
+    assertThat(os.toByteArray(), is(payload));
+  }
+
+  /**
+   * Several framesets flushed into the same temp file are appended to a single output stream, which
+   * is closed before the file is handed to the caller.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testOutputStreamOpenedOncePerRotation() throws IOException {
+
+    OutputStreamFactory outputStreamFactory = mock(OutputStreamFactory.class);
+    when(outputStreamFactory.create(any(), anyBoolean())).thenReturn(outputStream);
+    packetBuffer.setOutputStreamFactory(outputStreamFactory);
+
+    completeVideoSequence(
+        new byte[] {0x01, 0x02, 0x03, 0x01, 0x02, 0x03, 0x01, 0x02, 0x03, 0x01, 0x02, 0x03});
+    completeVideoSequence(
+        new byte[] {0x01, 0x02, 0x03, 0x01, 0x02, 0x03, 0x01, 0x02, 0x03, 0x01, 0x02, 0x03});
+
+    verify(outputStreamFactory, times(1)).create(any(), anyBoolean());
+    verify(outputStream, never()).close();
+
+    Optional<File> file = packetBuffer.rotate(rolloverCondition).getFile();
+    assertThat(file.isPresent(), is(true));
+
+    verify(outputStream).close();
+  }
+
+  /**
+   * Write enough framesets that the packet ring wraps around and has to grow, and verify that the
+   * flushed data is identical to the written data.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testRingWrapAndGrowth() throws IOException {
+
+    packetBuffer.setOutputStreamFactory((file, append) -> os);
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+    int packetSize = 188;
+    int packetsPerFrame = 100;
+    byte value = 0;
+
+    // the first frameset is larger than the initial ring capacity
+    for (int frameset = 0; frameset < 30; frameset++) {
+      int framesPerFrameset = frameset == 0 ? 60 : 10;
+      for (int frame = 0; frame < framesPerFrameset; frame++) {
+        for (int packet = 0; packet < packetsPerFrame; packet++) {
+          byte[] rawPacket = new byte[packetSize];
+          Arrays.fill(rawPacket, value++);
+          packetBuffer.write(rawPacket);
+          expected.write(rawPacket);
+        }
+        if (frame == 0) {
+          idr();
+        } else {
+          nonidr();
+        }
+      }
+    }
+
+    Optional<File> file = packetBuffer.flushAndRotate().getFile();
+    assertThat(file.isPresent(), is(true));
+
+    assertThat(os.toByteArray(), is(expected.toByteArray()));
+  }
+
+  /**
+   * A frameset that cannot be written stays buffered and is written by the next flush, so no data is
+   * lost or written twice.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testFailedFlushKeepsFrameset() throws IOException {
+
+    OutputStream failsOnce =
+        new OutputStream() {
+          private boolean failed = false;
+
+          @Override
+          public void write(int b) {
+            os.write(b);
+          }
+
+          @Override
+          public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (!failed) {
+              failed = true;
+              throw new IOException("unable to write");
+            }
+            os.write(bytes, offset, length);
+          }
+        };
+    packetBuffer.setOutputStreamFactory((file, append) -> failsOnce);
+
+    completeVideoSequence(
+        new byte[] {0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B, 0x0C});
+
+    assertThat(os.toByteArray(), is(new byte[] {}));
+
+    Optional<File> file = packetBuffer.flushAndRotate().getFile();
+    assertThat(file.isPresent(), is(true));
+
+    assertThat(
+        os.toByteArray(),
+        is(new byte[] {0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B, 0x0C}));
+  }
+
+  /** The ring is not allocated until data is written and is released by a reset. */
+  @Test
+  public void testRingAllocatedByFirstWriteAndReleasedByReset() {
+
+    assertThat(packetBuffer.getRingCapacity(), is(0));
+
+    writePacket((byte) 0x01);
+
+    assertThat(packetBuffer.getRingCapacity(), is(greaterThan(0)));
+
+    packetBuffer.reset();
+
+    assertThat(packetBuffer.getRingCapacity(), is(0));
   }
 
   /**
@@ -117,6 +249,9 @@ public class PacketBufferTest {
     assertThat(
         os.toByteArray(),
         is(new byte[] {0x01, 0x02, 0x03, 0x01, 0x02, 0x03, 0x01, 0x02, 0x03, 0x01, 0x02, 0x03}));
+
+    // the idle stream does not keep its ring
+    assertThat(packetBuffer.getRingCapacity(), is(0));
   }
 
   /** A full frameset has been written, verify that only the compelete frameset has been flushed */
@@ -14,25 +14,49 @@
 package org.codice.alliance.video.stream.mpegts.netty;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
 
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.channel.socket.DatagramPacket;
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.ArrayUtils;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.taktik.mpegts.MTSPacket;
-import org.taktik.mpegts.sources.ResettableMTSSource;
 
 public class RawUdpDataToMTSPacketDecoderTest {
 
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(RawUdpDataToMTSPacketDecoderTest.class);
+
+  private static final String BENCHMARK_PACKETS_PROPERTY = "mpegts.benchmark.packetsPerStream";
+
+  /** Number of MPEG-TS packets in a typical 1316 byte UDP datagram. */
+  private static final int PACKETS_PER_DATAGRAM = 7;
+
   @Test
   public void test() throws Exception {
 
@@ -60,13 +84,11 @@ public class RawUdpDataToMTSPacketDecoderTest {
     RawUdpDataToMTSPacketDecoder.MTSParser mtsParser =
         mock(RawUdpDataToMTSPacketDecoder.MTSParser.class);
 
-    ResettableMTSSource resettable = mock(ResettableMTSSource.class);
-
-    Mockito.when(mtsParser.parse(Mockito.any())).thenReturn(resettable);
-
     MTSPacket mtsPacket = mock(MTSPacket.class);
 
-    Mockito.when(resettable.nextPacket()).thenThrow(RuntimeException.class).thenReturn(mtsPacket);
+    Mockito.when(mtsParser.parse(Mockito.any()))
+        .thenThrow(RuntimeException.class)
+        .thenReturn(mtsPacket);
 
     int packetCount = 2;
 
@@ -88,6 +110,228 @@ public class RawUdpDataToMTSPacketDecoderTest {
     assertThat(outputList, hasSize(packetCount - 1));
   }
 
+  @Test
+  public void testPacketParsedFromReceiveBuffer() throws Exception {
+
+    int pid = 0x1011;
+    int continuityCounter = 5;
+
+    byte[] bytes = new byte[RawUdpDataToMTSPacketDecoder.TS_PACKET_SIZE];
+    bytes[0] = RawUdpDataToMTSPacketDecoder.TS_SYNC;
+    bytes[1] = (byte) (0x40 | (pid >> 8));
+    bytes[2] = (byte) pid;
+    bytes[3] = (byte) (0x10 | continuityCounter);
+    for (int i = 4; i < bytes.length; i++) {
+      bytes[i] = (byte) i;
+    }
+
+    PacketBuffer packetBuffer = mock(PacketBuffer.class);
+
+    EmbeddedChannel channel =
+        new EmbeddedChannel(
+            new RawUdpDataToMTSPacketDecoder(packetBuffer, mock(UdpStreamProcessor.class)));
+
+    toDatagrams(bytes).forEach(channel::writeInbound);
+
+    List<Object> outputList = NettyUtility.read(channel);
+
+    assertThat(outputList, hasSize(1));
+
+    MTSPacket packet = (MTSPacket) outputList.get(0);
+
+    assertThat(packet.getPid(), is(pid));
+    assertThat(packet.isPayloadUnitStartIndicator(), is(true));
+    assertThat(packet.getContinuityCounter(), is(continuityCounter));
+    assertThat(packet.isContainsPayload(), is(true));
+
+    ByteBuffer payload = packet.getPayload();
+    assertThat(payload.remaining(), is(bytes.length - 4));
+    assertThat(payload.get(0), is(bytes[4]));
+
+    verify(packetBuffer).write(ByteBuffer.wrap(bytes));
+  }
+
+  /**
+   * Each decoder parses its packet while waiting for the decoders of the other streams to reach the
+   * same point. If decoders shared a lock, only one stream could be inside the parser at a time,
+   * the barrier would time out and the packets would be discarded.
+   */
+  @Test
+  public void testStreamsDecodeConcurrently() throws Exception {
+
+    int streamCount = 4;
+
+    CyclicBarrier barrier = new CyclicBarrier(streamCount);
+
+    RawUdpDataToMTSPacketDecoder.MTSParser mtsParser =
+        rawPacket -> {
+          try {
+            barrier.await(10, TimeUnit.SECONDS);
+          } catch (Exception e) {
+            throw new IOException("streams were not decoded concurrently", e);
+          }
+          return new MTSPacket(rawPacket);
+        };
+
+    List<Integer> packetCounts = decodeStreams(streamCount, 1, mtsParser);
+
+    for (Integer packetCount : packetCounts) {
+      assertThat(packetCount, is(1));
+    }
+  }
+
+  /**
+   * One decoder is stopped inside its parser while another decoder decodes a stream. If decoders
+   * shared a lock, the second stream could not be decoded until the first was released.
+   */
+  @Test
+  public void testBlockedStreamDoesNotBlockOtherStreams() throws Exception {
+
+    CountDownLatch blockedStreamParsing = new CountDownLatch(1);
+    CountDownLatch releaseBlockedStream = new CountDownLatch(1);
+
+    RawUdpDataToMTSPacketDecoder.MTSParser blockingParser =
+        rawPacket -> {
+          blockedStreamParsing.countDown();
+          try {
+            releaseBlockedStream.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while blocked", e);
+          }
+          return new MTSPacket(rawPacket);
+        };
+
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    try {
+      Future<Integer> blockedStream =
+          executorService.submit(() -> decodeStream(createDatagrams(1), blockingParser));
+
+      assertThat(blockedStreamParsing.await(10, TimeUnit.SECONDS), is(true));
+
+      Future<Integer> otherStream =
+          executorService.submit(() -> decodeStream(createDatagrams(10), MTSPacket::new));
+
+      assertThat(otherStream.get(10, TimeUnit.SECONDS), is(10));
+      assertThat(blockedStream.isDone(), is(false));
+
+      releaseBlockedStream.countDown();
+
+      assertThat(blockedStream.get(10, TimeUnit.SECONDS), is(1));
+    } finally {
+      releaseBlockedStream.countDown();
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Decodes the same amount of data per stream with an increasing number of concurrent streams and
+   * reports the aggregate packets per second. With per-stream decode state the aggregate rate
+   * scales with the number of streams up to the number of available cores. The benchmark only runs
+   * when the {@value #BENCHMARK_PACKETS_PROPERTY} system property is set to the number of packets
+   * in each stream, for example {@code -Dmpegts.benchmark.packetsPerStream=20000}.
+   */
+  @Test
+  public void testMultiStreamThroughput() throws Exception {
+
+    Integer packetsPerStream = Integer.getInteger(BENCHMARK_PACKETS_PROPERTY);
+    assumeThat(packetsPerStream, notNullValue());
+
+    for (int streamCount : new int[] {1, 2, 4, 8}) {
+
+      long start = System.nanoTime();
+
+      List<Integer> packetCounts = decodeStreams(streamCount, packetsPerStream, MTSPacket::new);
+
+      long elapsed = System.nanoTime() - start;
+
+      for (Integer packetCount : packetCounts) {
+        assertThat(packetCount, is(packetsPerStream));
+      }
+
+      LOGGER.info(
+          "decoded mpeg-ts packets: streams={} packetsPerSecond={}",
+          streamCount,
+          (long) streamCount * packetsPerStream * TimeUnit.SECONDS.toNanos(1) / elapsed);
+    }
+  }
+
+  /**
+   * Decode a number of streams in parallel, one thread and one decoder per stream.
+   *
+   * @param streamCount number of streams
+   * @param packetsPerStream number of packets sent on each stream
+   * @param mtsParser the parser used by each decoder
+   * @return the number of packets decoded for each stream
+   */
+  private List<Integer> decodeStreams(
+      int streamCount, int packetsPerStream, RawUdpDataToMTSPacketDecoder.MTSParser mtsParser)
+      throws Exception {
+
+    List<DatagramPacket> template = createDatagrams(packetsPerStream);
+
+    ExecutorService executorService = Executors.newFixedThreadPool(streamCount);
+    try {
+      List<Callable<Integer>> streams = new ArrayList<>(streamCount);
+      for (int i = 0; i < streamCount; i++) {
+        streams.add(() -> decodeStream(template, mtsParser));
+      }
+
+      List<Integer> packetCounts = new ArrayList<>(streamCount);
+      for (Future<Integer> future : executorService.invokeAll(streams)) {
+        packetCounts.add(future.get());
+      }
+      return packetCounts;
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Decode a stream with a new decoder.
+   *
+   * @param datagrams the datagrams of the stream, which are not consumed
+   * @param mtsParser the parser used by the decoder
+   * @return the number of packets decoded
+   */
+  private int decodeStream(
+      List<DatagramPacket> datagrams, RawUdpDataToMTSPacketDecoder.MTSParser mtsParser) {
+
+    RawUdpDataToMTSPacketDecoder decoder =
+        new RawUdpDataToMTSPacketDecoder(
+            mock(PacketBuffer.class, withSettings().stubOnly()), mock(UdpStreamProcessor.class));
+    decoder.setMtsParser(mtsParser);
+    EmbeddedChannel channel = new EmbeddedChannel(decoder);
+    int count = 0;
+    for (DatagramPacket datagramPacket : datagrams) {
+      channel.writeInbound(datagramPacket.duplicate().retain());
+      count += NettyUtility.read(channel).size();
+    }
+    channel.finish();
+    return count;
+  }
+
+  /**
+   * Create datagrams that each carry {@link #PACKETS_PER_DATAGRAM} fake MPEG-TS packets.
+   *
+   * @param packetCount number of packets
+   * @return list of datagrams
+   */
+  private List<DatagramPacket> createDatagrams(int packetCount) throws UnknownHostException {
+
+    InetSocketAddress sender = new InetSocketAddress(InetAddress.getLocalHost(), 50000);
+
+    List<DatagramPacket> datagrams = new ArrayList<>();
+
+    for (int i = 0; i < packetCount; i += PACKETS_PER_DATAGRAM) {
+      int count = Math.min(PACKETS_PER_DATAGRAM, packetCount - i);
+      datagrams.add(
+          new DatagramPacket(Unpooled.wrappedBuffer(flatten(createTsPackets(count))), null, sender));
+    }
+
+    return datagrams;
+  }
+
   /**
    * Create a list of fake MPEG-TS packets.
    *
@@ -13,8 +13,10 @@
  */
 package org.codice.alliance.video.stream.mpegts.netty;
 
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -26,9 +28,14 @@ import java.net.URI;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.codice.alliance.video.stream.mpegts.Context;
 import org.codice.alliance.video.stream.mpegts.SimpleSubject;
 import org.codice.alliance.video.stream.mpegts.StreamMonitor;
 import org.codice.alliance.video.stream.mpegts.filename.FilenameGenerator;
+import org.codice.alliance.video.stream.mpegts.framework.CatalogIngestQueue;
 import org.codice.alliance.video.stream.mpegts.metacard.MetacardUpdater;
 import org.codice.alliance.video.stream.mpegts.plugins.StreamEndPlugin;
 import org.codice.alliance.video.stream.mpegts.plugins.StreamShutdownPlugin;
@@ -89,4 +96,39 @@ public class UdpStreamProcessorTest {
 
     verify(streamEndPlugin).streamEnded(any());
   }
+
+  @Test
+  public void testDestroyWaitsForQueuedChunksAndStopsTheQueue() {
+    AtomicReference<Context> contextReference = new AtomicReference<>();
+    UdpStreamProcessor udpStreamProcessor = new UdpStreamProcessor(mock(StreamMonitor.class));
+    udpStreamProcessor.setStreamCreationPlugin(contextReference::set);
+    udpStreamProcessor.setStreamShutdownPlugin(mock(StreamShutdownPlugin.class));
+    udpStreamProcessor.setStreamCreationSubject(new SimpleSubject());
+    udpStreamProcessor.init();
+
+    CatalogIngestQueue catalogIngestQueue = contextReference.get().getCatalogIngestQueue();
+    AtomicBoolean isChunkIngested = new AtomicBoolean(false);
+    catalogIngestQueue.submit(
+        () -> {
+          try {
+            Thread.sleep(500);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          isChunkIngested.set(true);
+        });
+
+    udpStreamProcessor.shutdown();
+    udpStreamProcessor.destroy();
+
+    assertThat(isChunkIngested.get(), is(true));
+    assertThat(catalogIngestQueue.getPendingCount(), is(0));
+
+    try {
+      catalogIngestQueue.submit(() -> {});
+      fail("expected the catalog ingest queue to reject chunks after destroy");
+    } catch (RejectedExecutionException e) {
+      assertThat(catalogIngestQueue.getPendingCount(), is(0));
+    }
+  }
 }
@@ -21,6 +21,7 @@ import static org.mockito.Mockito.when;
 import ddf.catalog.CatalogFramework;
 import org.codice.alliance.video.stream.mpegts.Context;
 import org.codice.alliance.video.stream.mpegts.filename.FilenameGenerator;
+import org.codice.alliance.video.stream.mpegts.framework.CatalogUpdateRetry;
 import org.codice.alliance.video.stream.mpegts.metacard.MetacardUpdater;
 import org.codice.alliance.video.stream.mpegts.netty.UdpStreamProcessor;
 import org.codice.ddf.platform.util.uuidgenerator.UuidGenerator;
@@ -44,7 +45,8 @@ public class RolloverStreamCreationPluginTest {
     when(uuidGenerator.generateUuid()).thenReturn("anId");
     when(udpStreamProcessor.getUuidGenerator()).thenReturn(uuidGenerator);
 
-    RolloverStreamCreationPlugin rolloverStreamCreationPlugin = new RolloverStreamCreationPlugin();
+    RolloverStreamCreationPlugin rolloverStreamCreationPlugin =
+        new RolloverStreamCreationPlugin(mock(CatalogUpdateRetry.class));
 
     rolloverStreamCreationPlugin.onCreate(context);
 
@@ -19,6 +19,7 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import org.codice.alliance.video.stream.mpegts.framework.CatalogUpdateRetry;
 import org.junit.Test;
 
 public class UpdateParentFactoryTest {
@@ -28,7 +29,7 @@ public class UpdateParentFactoryTest {
     UpdateParentFactory.Factory factory = mock(UpdateParentFactory.Factory.class);
     UpdateParent.UpdateField updateField = mock(UpdateParent.UpdateField.class);
     when(factory.build()).thenReturn(updateField);
-    UpdateParentFactory updateParentFactory = new UpdateParentFactory(factory);
+    UpdateParentFactory updateParentFactory = new UpdateParentFactory(factory, mock(CatalogUpdateRetry.class));
     FindChildrenStreamEndPlugin.Handler handler = updateParentFactory.build();
     assertThat(handler, is(instanceOf(UpdateParent.class)));
   }
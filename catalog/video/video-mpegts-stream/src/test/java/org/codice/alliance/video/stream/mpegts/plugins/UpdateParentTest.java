@@ -17,6 +17,8 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -29,20 +31,37 @@ import ddf.catalog.source.IngestException;
 import ddf.catalog.source.SourceUnavailableException;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.codice.alliance.video.stream.mpegts.Context;
+import org.codice.alliance.video.stream.mpegts.framework.CatalogIngestQueue;
+import org.codice.alliance.video.stream.mpegts.framework.CatalogUpdateRetry;
 import org.codice.alliance.video.stream.mpegts.netty.UdpStreamProcessor;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
 public class UpdateParentTest {
 
+  private CatalogUpdateRetry catalogUpdateRetry;
+
+  @Before
+  public void setup() {
+    catalogUpdateRetry = new CatalogUpdateRetry();
+  }
+
+  @After
+  public void teardown() {
+    catalogUpdateRetry.destroy();
+  }
+
   /** Test that #handle calls the UpdateField object */
   @Test
   public void testHandle() {
 
     UpdateParent.UpdateField updateField = mock(UpdateParent.UpdateField.class);
 
-    UpdateParent updateParent = new UpdateParent(updateField);
+    UpdateParent updateParent = new UpdateParent(updateField, catalogUpdateRetry);
 
     Context context = mock(Context.class);
 
@@ -60,15 +79,18 @@ public class UpdateParentTest {
 
     UpdateParent.UpdateField updateField = mock(UpdateParent.UpdateField.class);
 
-    UpdateParent updateParent = new UpdateParent(updateField);
+    UpdateParent updateParent = new UpdateParent(updateField, catalogUpdateRetry);
 
     UdpStreamProcessor udpStreamProcessor = mock(UdpStreamProcessor.class);
     CatalogFramework catalogFramework = mock(CatalogFramework.class);
     when(udpStreamProcessor.getCatalogFramework()).thenReturn(catalogFramework);
     when(udpStreamProcessor.getMetacardUpdateInitialDelay()).thenReturn(1L);
 
+    CatalogIngestQueue catalogIngestQueue = new CatalogIngestQueue();
+
     Context context = mock(Context.class);
     when(context.getUdpStreamProcessor()).thenReturn(udpStreamProcessor);
+    when(context.getCatalogIngestQueue()).thenReturn(catalogIngestQueue);
 
     Metacard parent = mock(Metacard.class);
 
@@ -85,11 +107,50 @@ public class UpdateParentTest {
 
     ArgumentCaptor<UpdateRequest> captor = ArgumentCaptor.forClass(UpdateRequest.class);
 
-    verify(catalogFramework).update(captor.capture());
+    verify(catalogFramework, timeout(TimeUnit.SECONDS.toMillis(10))).update(captor.capture());
 
     assertThat(captor.getValue().getUpdates().get(0).getValue(), is(parent));
   }
 
+  /** Test that the parent update is tracked until it completes, including its retries */
+  @Test
+  public void testEndTracksParentUpdate() throws Exception {
+
+    UpdateParent.UpdateField updateField = mock(UpdateParent.UpdateField.class);
+
+    UpdateParent updateParent = new UpdateParent(updateField, catalogUpdateRetry);
+
+    UdpStreamProcessor udpStreamProcessor = mock(UdpStreamProcessor.class);
+    CatalogFramework catalogFramework = mock(CatalogFramework.class);
+    when(udpStreamProcessor.getCatalogFramework()).thenReturn(catalogFramework);
+    when(udpStreamProcessor.getMetacardUpdateInitialDelay()).thenReturn(0L);
+
+    CatalogIngestQueue catalogIngestQueue = new CatalogIngestQueue();
+
+    Context context = mock(Context.class);
+    when(context.getUdpStreamProcessor()).thenReturn(udpStreamProcessor);
+    when(context.getCatalogIngestQueue()).thenReturn(catalogIngestQueue);
+
+    Metacard parent = mock(Metacard.class);
+
+    UpdateResponse updateResponse = mock(UpdateResponse.class);
+    Update update = mock(Update.class);
+    when(update.getNewMetacard()).thenReturn(parent);
+    when(updateResponse.getUpdatedMetacards()).thenReturn(Collections.singletonList(update));
+
+    when(catalogFramework.update(any(UpdateRequest.class)))
+        .thenThrow(new SourceUnavailableException())
+        .thenReturn(updateResponse);
+
+    updateParent.end(context, parent);
+
+    catalogIngestQueue.awaitIdle();
+
+    verify(catalogFramework, times(2)).update(any(UpdateRequest.class));
+    verify(context).setParentMetacard(parent);
+    assertThat(catalogIngestQueue.getTrackedCount(), is(0));
+  }
+
   @Test(expected = IllegalStateException.class)
   public void testCallUpdateAfterEnd() {
 
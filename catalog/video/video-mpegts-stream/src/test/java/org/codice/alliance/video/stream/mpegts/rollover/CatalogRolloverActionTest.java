@@ -42,12 +42,14 @@ import ddf.catalog.source.IngestException;
 import ddf.catalog.source.SourceUnavailableException;
 import ddf.security.Subject;
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
 import java.util.stream.Collectors;
 import org.codice.alliance.libs.klv.AttributeNameConstants;
 import org.codice.alliance.libs.klv.GeometryOperator;
@@ -57,6 +59,7 @@ import org.codice.alliance.libs.klv.SimplifyGeometryFunction;
 import org.codice.alliance.video.stream.mpegts.Context;
 import org.codice.alliance.video.stream.mpegts.SimpleSubject;
 import org.codice.alliance.video.stream.mpegts.filename.FilenameGenerator;
+import org.codice.alliance.video.stream.mpegts.framework.CatalogUpdateRetry;
 import org.codice.alliance.video.stream.mpegts.metacard.FrameCenterMetacardUpdater;
 import org.codice.alliance.video.stream.mpegts.metacard.ListMetacardUpdater;
 import org.codice.alliance.video.stream.mpegts.metacard.LocationMetacardUpdater;
@@ -67,6 +70,7 @@ import org.codice.alliance.video.stream.mpegts.netty.StreamProcessor;
 import org.codice.alliance.video.stream.mpegts.netty.UdpStreamProcessor;
 import org.codice.ddf.platform.util.uuidgenerator.UuidGenerator;
 import org.codice.ddf.security.common.Security;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -93,15 +97,19 @@ public class CatalogRolloverActionTest {
 
   private String childWkt;
 
+  private Context context;
+
+  private CatalogUpdateRetry catalogUpdateRetry;
+
   @Before
-  public void setup() throws SourceUnavailableException, IngestException {
+  public void setup() throws SourceUnavailableException, IngestException, IOException {
     FilenameGenerator filenameGenerator = mock(FilenameGenerator.class);
     String filenameTemplate = "filenameTemplate";
     StreamProcessor streamProcessor = mock(StreamProcessor.class);
     when(streamProcessor.getMetacardUpdateInitialDelay()).thenReturn(1L);
     catalogFramework = mock(CatalogFramework.class);
     MetacardType metacardType = mock(MetacardType.class);
-    tempFile = new File("someTempFile");
+    tempFile = createTempFile();
 
     URI uri = URI.create("udp://127.0.0.1:10000");
     String title = "theTitleString";
@@ -115,7 +123,7 @@ public class CatalogRolloverActionTest {
     UdpStreamProcessor udpStreamProcessor = mock(UdpStreamProcessor.class);
     when(udpStreamProcessor.getSubject()).thenReturn(new SimpleSubject());
 
-    Context context = new Context(udpStreamProcessor);
+    context = new Context(udpStreamProcessor);
 
     when(udpStreamProcessor.getMetacardTypeList())
         .thenReturn(Collections.singletonList(metacardType));
@@ -132,6 +140,8 @@ public class CatalogRolloverActionTest {
     UuidGenerator uuidGenerator = mock(UuidGenerator.class);
     when(uuidGenerator.generateUuid()).thenReturn("anId");
 
+    catalogUpdateRetry = new CatalogUpdateRetry();
+
     catalogRolloverAction =
         new CatalogRolloverAction(
             filenameGenerator,
@@ -146,7 +156,8 @@ public class CatalogRolloverActionTest {
                     new TemporalEndMetacardUpdater(),
                     new ModifiedDateMetacardUpdater(),
                     new FrameCenterMetacardUpdater(postUnionGeometryOperator))),
-            uuidGenerator);
+            uuidGenerator,
+            catalogUpdateRetry);
 
     createdParentMetacard = mock(Metacard.class);
     when(createdParentMetacard.getMetacardType()).thenReturn(metacardType);
@@ -193,6 +204,11 @@ public class CatalogRolloverActionTest {
         .thenReturn(new AttributeImpl(AttributeNameConstants.TEMPORAL_END, TEMPORAL_END_DATE));
   }
 
+  @After
+  public void teardown() {
+    catalogUpdateRetry.destroy();
+  }
+
   /**
    * Test that the parent update succeeded after an initial failure. Confirm that the parent has the
    * proper location, which was a part of the update.
@@ -203,7 +219,8 @@ public class CatalogRolloverActionTest {
    */
   @Test
   public void testRetry()
-      throws RolloverActionException, SourceUnavailableException, IngestException {
+      throws RolloverActionException, SourceUnavailableException, IngestException,
+          InterruptedException {
 
     when(catalogFramework.update(any(UpdateRequest.class)))
         .thenThrow(IngestException.class)
@@ -211,6 +228,7 @@ public class CatalogRolloverActionTest {
         .thenReturn(parentUpdateResponse);
 
     catalogRolloverAction.doAction(tempFile);
+    context.getCatalogIngestQueue().awaitIdle();
 
     ArgumentCaptor<UpdateRequest> argumentCaptor = ArgumentCaptor.forClass(UpdateRequest.class);
 
@@ -232,9 +250,11 @@ public class CatalogRolloverActionTest {
 
   @Test
   public void testTemporalStart()
-      throws RolloverActionException, SourceUnavailableException, IngestException {
+      throws RolloverActionException, SourceUnavailableException, IngestException,
+          InterruptedException {
 
     catalogRolloverAction.doAction(tempFile);
+    context.getCatalogIngestQueue().awaitIdle();
 
     ArgumentCaptor<UpdateRequest> argumentCaptor = ArgumentCaptor.forClass(UpdateRequest.class);
 
@@ -256,9 +276,11 @@ public class CatalogRolloverActionTest {
 
   @Test
   public void testTemporalEnd()
-      throws RolloverActionException, SourceUnavailableException, IngestException {
+      throws RolloverActionException, SourceUnavailableException, IngestException,
+          InterruptedException {
 
     catalogRolloverAction.doAction(tempFile);
+    context.getCatalogIngestQueue().awaitIdle();
 
     ArgumentCaptor<UpdateRequest> argumentCaptor = ArgumentCaptor.forClass(UpdateRequest.class);
 
@@ -280,13 +302,15 @@ public class CatalogRolloverActionTest {
 
   @Test
   public void testLocationUnion()
-      throws RolloverActionException, SourceUnavailableException, IngestException, ParseException {
+      throws RolloverActionException, SourceUnavailableException, IngestException, ParseException,
+          InterruptedException {
 
     String parentWkt = "POLYGON (( 0 0, 1 0, 1 1, 0 1, 0 0 ))";
 
     when(createdParentMetacard.getLocation()).thenReturn(parentWkt);
 
     catalogRolloverAction.doAction(tempFile);
+    context.getCatalogIngestQueue().awaitIdle();
 
     ArgumentCaptor<Attribute> attributeCaptor = ArgumentCaptor.forClass(Attribute.class);
     verify(createdParentMetacard, atLeastOnce()).setAttribute(attributeCaptor.capture());
@@ -310,4 +334,78 @@ public class CatalogRolloverActionTest {
 
     assertThat(wktWriter.write(wktReader.read(actualWkt).norm()), is(unionWkt));
   }
+
+  /**
+   * Test that the chunks queued while the catalog is busy are stored and linked individually, but
+   * the parent is only updated once.
+   */
+  @Test
+  public void testParentUpdatesCoalesced()
+      throws RolloverActionException, SourceUnavailableException, IngestException, IOException,
+          InterruptedException {
+
+    CountDownLatch createStarted = new CountDownLatch(1);
+    CountDownLatch catalogAvailable = new CountDownLatch(1);
+    CreateResponse storageCreateResponse = mock(CreateResponse.class);
+    when(storageCreateResponse.getCreatedMetacards())
+        .thenReturn(Collections.singletonList(createdChildMetacard));
+    when(catalogFramework.create(any(CreateStorageRequest.class)))
+        .thenAnswer(
+            invocationOnMock -> {
+              createStarted.countDown();
+              catalogAvailable.await();
+              return storageCreateResponse;
+            });
+
+    List<File> tempFiles = Arrays.asList(tempFile, createTempFile(), createTempFile());
+
+    catalogRolloverAction.doAction(tempFiles.get(0));
+    createStarted.await();
+    catalogRolloverAction.doAction(tempFiles.get(1));
+    catalogRolloverAction.doAction(tempFiles.get(2));
+
+    assertThat(context.getCatalogIngestQueue().getPendingCount(), is(3));
+
+    catalogAvailable.countDown();
+    context.getCatalogIngestQueue().awaitIdle();
+
+    verify(catalogFramework, times(3)).create(any(CreateStorageRequest.class));
+
+    ArgumentCaptor<UpdateRequest> argumentCaptor = ArgumentCaptor.forClass(UpdateRequest.class);
+    verify(catalogFramework, times(4)).update(argumentCaptor.capture());
+
+    List<UpdateRequest> parentUpdateRequests =
+        argumentCaptor
+            .getAllValues()
+            .stream()
+            .filter(
+                updateRequest ->
+                    updateRequest.getUpdates().get(0).getValue() == createdParentMetacard)
+            .collect(Collectors.toList());
+
+    assertThat(parentUpdateRequests, hasSize(1));
+
+    for (File file : tempFiles) {
+      assertThat(file.exists(), is(false));
+    }
+  }
+
+  /** Test that the video chunk is moved so the caller can delete the temp file right away. */
+  @Test
+  public void testTempFileHandedOff() throws RolloverActionException, InterruptedException {
+
+    catalogRolloverAction.doAction(tempFile);
+
+    assertThat(tempFile.exists(), is(false));
+
+    context.getCatalogIngestQueue().awaitIdle();
+
+    verify(catalogFramework).create(any(CreateStorageRequest.class));
+  }
+
+  private File createTempFile() throws IOException {
+    File file = File.createTempFile("catalogRolloverActionTest", ".ts");
+    file.deleteOnExit();
+    return file;
+  }
 }
@@ -25,29 +25,38 @@ import ddf.catalog.data.types.Media;
 import ddf.catalog.data.types.constants.core.DataType;
 import ddf.catalog.transform.CatalogTransformerException;
 import ddf.catalog.transform.InputTransformer;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.codice.alliance.libs.klv.AttributeNameConstants;
 import org.codice.alliance.libs.klv.BaseKlvProcessorVisitor;
 import org.codice.alliance.libs.klv.KlvHandler;
 import org.codice.alliance.libs.klv.KlvHandlerFactory;
+import org.codice.alliance.libs.klv.KlvHandlerPool;
 import org.codice.alliance.libs.klv.KlvProcessor;
 import org.codice.alliance.libs.klv.SecurityClassificationKlvProcessor;
-import org.codice.alliance.libs.klv.Stanag4609ParseException;
-import org.codice.alliance.libs.klv.Stanag4609Parser;
+import org.codice.alliance.libs.klv.Stanag4609PacketParser;
 import org.codice.alliance.libs.klv.Stanag4609Processor;
 import org.codice.alliance.libs.klv.StanagParserFactory;
 import org.codice.alliance.libs.mpegts.MpegStreamType;
 import org.codice.alliance.libs.mpegts.PESPacket;
+import org.codice.alliance.libs.mpegts.PESPacketOutputStream;
 import org.codice.alliance.libs.mpegts.TSStream;
-import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
-import org.codice.ddf.platform.util.TemporaryFileBackedOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,13 +72,19 @@ public class MpegTsInputTransformer implements InputTransformer {
 
   private static final String CLASSIFICATION_MUST_BE_NON_NULL = "classification must be non-null";
 
+  /** The stream types of the elementary streams that may carry STANAG 4609 KLV metadata. */
+  private static final Set<MpegStreamType> METADATA_STREAM_TYPES =
+      Collections.unmodifiableSet(
+          EnumSet.of(MpegStreamType.PRIVATE_DATA, MpegStreamType.META_PES));
+
   private final InputTransformer innerTransformer;
 
   private final List<MetacardType> metacardTypes;
 
   private final Stanag4609Processor stanag4609Processor;
 
-  private final KlvHandlerFactory klvHandlerFactory;
+  /** The handlers are reset and reused by later transforms instead of being built every time. */
+  private final KlvHandlerPool klvHandlerPool;
 
   private final StanagParserFactory stanagParserFactory;
 
@@ -119,7 +134,7 @@ public class MpegTsInputTransformer implements InputTransformer {
     this.innerTransformer = inputTransformer;
     this.metacardTypes = metacardTypes;
     this.stanag4609Processor = stanag4609Processor;
-    this.klvHandlerFactory = klvHandlerFactory;
+    this.klvHandlerPool = new KlvHandlerPool(klvHandlerFactory);
     this.stanagParserFactory = stanagParserFactory;
     this.defaultKlvHandler = defaultKlvHandler;
     this.klvProcessor = klvProcessor;
@@ -185,109 +200,214 @@ public class MpegTsInputTransformer implements InputTransformer {
         });
   }
 
+  /**
+   * Reads the transport stream once. The inner transformer reads the content data while a copy of
+   * the bytes is demultiplexed, so the media encodings and the STANAG 4609 metadata are collected
+   * at the same time. Each KLV metadata packet is passed to the KLV handlers as soon as it is
+   * decoded, so the decoded packets are not kept in memory. Any bytes that the inner transformer
+   * does not read are demultiplexed afterwards.
+   *
+   * <p>When the content is a local file, the inner transformer reads the file stream directly and
+   * the transport stream is then demultiplexed from the memory-mapped file instead of being copied
+   * through the tee.
+   */
   @Override
   public Metacard transform(InputStream inputStream, final String id)
       throws IOException, CatalogTransformerException {
 
-    try (TemporaryFileBackedOutputStream fileBackedOutputStream =
-        new TemporaryFileBackedOutputStream()) {
+    MetacardType metacardType = findMetacardType(id);
+
+    try (KlvHandlerPool.Lease lease = klvHandlerPool.acquire()) {
+      return transform(inputStream, id, metacardType, lease.getHandlers());
+    }
+  }
+
+  private Metacard transform(
+      InputStream inputStream,
+      String id,
+      MetacardType metacardType,
+      Map<String, KlvHandler> handlers)
+      throws IOException, CatalogTransformerException {
+
+    // only the fields that have a handler are decoded
+    Stanag4609PacketParser stanag4609Parser =
+        stanagParserFactory.createPacketParser(
+            (packetId, decodedKLVMetadataPacket) ->
+                stanag4609Processor.handle(handlers, defaultKlvHandler, decodedKLVMetadataPacket),
+            handlers.keySet());
+
+    Set<MpegStreamType> streamTypes = new LinkedHashSet<>();
+
+    Consumer<PESPacket> pesPacketConsumer =
+        pesPacket -> handlePesPacket(pesPacket, streamTypes, stanag4609Parser);
+
+    long filePosition = findFilePosition(inputStream);
+
+    MetacardImpl metacard =
+        filePosition >= 0
+            ? transformFile(
+                (FileInputStream) inputStream, filePosition, id, metacardType, pesPacketConsumer)
+            : transformStream(inputStream, id, metacardType, pesPacketConsumer);
+
+    extractStanag4609Metadata(metacard, handlers);
+
+    extractMediaEncodings(metacard, streamTypes);
+
+    metacard.setAttribute(Core.DATATYPE, DATA_TYPE);
+
+    return metacard;
+  }
+
+  /** @return the position of the local file that the stream reads, or -1 if it is not a file */
+  private static long findFilePosition(InputStream inputStream) {
+    if (!(inputStream instanceof FileInputStream)) {
+      return -1;
+    }
+
+    try {
+      return ((FileInputStream) inputStream).getChannel().position();
+    } catch (IOException e) {
+      LOGGER.debug("unable to get the position of the file, demultiplexing through a copy", e);
+      return -1;
+    }
+  }
+
+  private MetacardImpl transformFile(
+      FileInputStream fileInputStream,
+      long position,
+      String id,
+      MetacardType metacardType,
+      Consumer<PESPacket> pesPacketConsumer)
+      throws IOException, CatalogTransformerException {
+
+    MetacardImpl metacard =
+        extractInnerTransformerMetadata(
+            id, metacardType, new CloseShieldInputStream(fileInputStream));
+
+    TSStream.demultiplex(fileInputStream.getChannel(), position, pesPacketConsumer);
+
+    return metacard;
+  }
+
+  private MetacardImpl transformStream(
+      InputStream inputStream,
+      String id,
+      MetacardType metacardType,
+      Consumer<PESPacket> pesPacketConsumer)
+      throws IOException, CatalogTransformerException {
+
+    PESPacketOutputStream pesPacketOutputStream = new PESPacketOutputStream(pesPacketConsumer);
+
+    InputStream teeInputStream =
+        new MarkNotSupportedInputStream(new TeeInputStream(inputStream, pesPacketOutputStream));
 
-      populateFileBackedOutputStream(inputStream, fileBackedOutputStream);
+    MetacardImpl metacard =
+        extractInnerTransformerMetadata(
+            id, metacardType, new CloseShieldInputStream(teeInputStream));
 
-      MetacardImpl metacard = extractInnerTransformerMetadata(id, fileBackedOutputStream);
+    readRemainingBytes(teeInputStream);
 
-      extractStanag4609Metadata(metacard, fileBackedOutputStream);
+    pesPacketOutputStream.close();
+
+    return metacard;
+  }
 
-      extractMediaEncodings(metacard, fileBackedOutputStream);
+  private void handlePesPacket(
+      PESPacket pesPacket,
+      Set<MpegStreamType> streamTypes,
+      Stanag4609PacketParser stanag4609Parser) {
 
-      metacard.setAttribute(Core.DATATYPE, DATA_TYPE);
+    streamTypes.add(pesPacket.getStreamType());
 
-      return metacard;
+    if (METADATA_STREAM_TYPES.contains(pesPacket.getStreamType())) {
+      stanag4609Parser.accept(pesPacket.getPacketId(), pesPacket.getPayload());
     }
   }
 
-  private void extractMediaEncodings(Metacard metacard, TemporaryFileBackedOutputStream fbos)
-      throws IOException {
+  private void extractMediaEncodings(Metacard metacard, Set<MpegStreamType> streamTypes) {
 
     List<Serializable> serializables =
-        TSStream.from(fbos.asByteSource())
-            .map(PESPacket::getStreamType)
-            .distinct()
-            .map(streamTypeToString)
-            .collect(Collectors.<Serializable>toList());
+        streamTypes.stream().map(streamTypeToString).collect(Collectors.<Serializable>toList());
 
     metacard.setAttribute(new AttributeImpl(AttributeNameConstants.MEDIA_ENCODING, serializables));
   }
 
-  private void populateFileBackedOutputStream(
-      InputStream inputStream, TemporaryFileBackedOutputStream fbos)
-      throws CatalogTransformerException {
+  private void readRemainingBytes(InputStream inputStream) throws CatalogTransformerException {
     try {
-      int c = IOUtils.copy(inputStream, fbos);
-      LOGGER.debug("copied {} bytes from input stream to file backed output stream", c);
+      long c = IOUtils.copyLarge(inputStream, NullOutputStream.NULL_OUTPUT_STREAM);
+      LOGGER.debug("read {} bytes not read by the inner transformer", c);
     } catch (IOException e) {
       throw new CatalogTransformerException("Could not copy bytes of content message.", e);
     }
   }
 
+  private MetacardType findMetacardType(String id) throws CatalogTransformerException {
+    return metacardTypes
+        .stream()
+        .findFirst()
+        .orElseThrow(
+            () -> new CatalogTransformerException("no matching metacard type found! id = " + id));
+  }
+
   /**
    * Call the inner transformer with the content data and return a metacard based on {@link
    * #metacardTypes} that is populated by the inner transformer and with the content type set to
    * {@link #CONTENT_TYPE}.
    *
    * @param id metacard identifier
-   * @param fileBackedOutputStream used to provide a byte source
+   * @param metacardType the type of the returned metacard
+   * @param inputStream the content data
    * @return metacard
    * @throws IOException
    * @throws CatalogTransformerException
    */
   private MetacardImpl extractInnerTransformerMetadata(
-      String id, TemporaryFileBackedOutputStream fileBackedOutputStream)
+      String id, MetacardType metacardType, InputStream inputStream)
       throws IOException, CatalogTransformerException {
 
-    try (InputStream inputStream = fileBackedOutputStream.asByteSource().openStream()) {
+    Metacard innerMetacard = innerTransformer.transform(inputStream, id);
 
-      MetacardType metacardType =
-          metacardTypes
-              .stream()
-              .findFirst()
-              .orElseThrow(
-                  () ->
-                      new CatalogTransformerException(
-                          "no matching metacard type found! id = " + id));
+    MetacardImpl metacard = new MetacardImpl(innerMetacard, metacardType);
 
-      Metacard innerMetacard = innerTransformer.transform(inputStream, id);
+    metacard.setAttribute(Media.TYPE, CONTENT_TYPE);
+    metacard.setContentTypeName(CONTENT_TYPE);
 
-      MetacardImpl metacard = new MetacardImpl(innerMetacard, metacardType);
+    return metacard;
+  }
 
-      metacard.setAttribute(Media.TYPE, CONTENT_TYPE);
-      metacard.setContentTypeName(CONTENT_TYPE);
+  private void extractStanag4609Metadata(MetacardImpl metacard, Map<String, KlvHandler> handlers) {
 
-      return metacard;
-    }
-  }
+    KlvProcessor.Configuration klvProcessConfiguration = new KlvProcessor.Configuration();
+    klvProcessConfiguration.set(KlvProcessor.Configuration.SUBSAMPLE_COUNT, subsampleCount);
+    klvProcessConfiguration.getGeometryOperatorContext().setDistanceTolerance(distanceTolerance);
 
-  private void extractStanag4609Metadata(
-      MetacardImpl metacard, TemporaryFileBackedOutputStream fbos)
-      throws IOException, CatalogTransformerException {
+    klvProcessor.process(handlers, metacard, klvProcessConfiguration);
+  }
 
-    Stanag4609Parser stanag4609Parser = stanagParserFactory.createParser(fbos.asByteSource());
+  /**
+   * Every byte read through the tee is demultiplexed, so bytes that are read again after a {@link
+   * InputStream#reset()} would be demultiplexed twice. Readers that need to look ahead, such as
+   * content type detection, must buffer the bytes themselves.
+   */
+  private static class MarkNotSupportedInputStream extends ProxyInputStream {
 
-    Map<Integer, List<DecodedKLVMetadataPacket>> decodedMetadata;
-    try {
-      decodedMetadata = stanag4609Parser.parse();
-    } catch (Stanag4609ParseException e) {
-      throw new CatalogTransformerException("failed to extract STANAG 4609 metadata", e);
+    private MarkNotSupportedInputStream(InputStream inputStream) {
+      super(inputStream);
     }
 
-    Map<String, KlvHandler> handlers = klvHandlerFactory.createStanag4609Handlers();
-
-    stanag4609Processor.handle(handlers, defaultKlvHandler, decodedMetadata);
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
 
-    KlvProcessor.Configuration klvProcessConfiguration = new KlvProcessor.Configuration();
-    klvProcessConfiguration.set(KlvProcessor.Configuration.SUBSAMPLE_COUNT, subsampleCount);
-    klvProcessConfiguration.getGeometryOperatorContext().setDistanceTolerance(distanceTolerance);
+    @Override
+    public synchronized void mark(int readlimit) {
+      // mark is not supported
+    }
 
-    klvProcessor.process(handlers, metacard, klvProcessConfiguration);
+    @Override
+    public synchronized void reset() throws IOException {
+      throw new IOException("mark/reset not supported");
+    }
   }
 }
@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.video;
+
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Generates an MPEG-TS with one program that carries an H.264 video stream and an asynchronous
+ * STANAG 4609 KLV metadata stream. Each video frame is preceded by one KLV packet. The stream is
+ * generated as it is read, so it can be much larger than the available memory.
+ */
+class GeneratedTransportStream extends InputStream {
+
+  static final int VIDEO_PACKET_ID = 0x101;
+
+  static final int KLV_PACKET_ID = 0x102;
+
+  private static final int PROGRAM_MAP_TABLE_PACKET_ID = 0x100;
+
+  private static final int PACKET_SIZE = 188;
+
+  private static final int VIDEO_PACKETS_PER_FRAME = 40;
+
+  private static final int PACKETS_PER_FRAME = VIDEO_PACKETS_PER_FRAME + 1;
+
+  private static final int TABLE_PACKET_COUNT = 2;
+
+  private static final byte[] PROGRAM_ASSOCIATION_TABLE = {
+    0x00, (byte) 0xB0, 0x0D, 0x00, 0x01, (byte) 0xC1, 0x00, 0x00, 0x00, 0x01, (byte) 0xE1, 0x00
+  };
+
+  private static final byte[] PROGRAM_MAP_TABLE = {
+    0x02, (byte) 0xB0, 0x17, 0x00, 0x01, (byte) 0xC1, 0x00, 0x00, (byte) 0xE1, 0x01, (byte) 0xF0,
+    0x00, 0x1B, (byte) 0xE1, 0x01, (byte) 0xF0, 0x00, 0x06, (byte) 0xE1, 0x02, (byte) 0xF0, 0x00
+  };
+
+  private static final byte[] UAS_DATALINK_LOCAL_SET_KEY = {
+    0x06, 0x0E, 0x2B, 0x34, 0x02, 0x0B, 0x01, 0x01, 0x0E, 0x01, 0x03, 0x01, 0x01, 0x00, 0x00, 0x00
+  };
+
+  private final long packetCount;
+
+  private final byte[] packet = new byte[PACKET_SIZE];
+
+  private final int[] continuityCounters = new int[0x2000];
+
+  private long packetIndex = 0;
+
+  private int position = PACKET_SIZE;
+
+  /** @param size approximate number of bytes in the stream */
+  GeneratedTransportStream(long size) {
+    packetCount = Math.max(TABLE_PACKET_COUNT, size / PACKET_SIZE);
+  }
+
+  /** @return the number of bytes in the stream */
+  long getSize() {
+    return packetCount * PACKET_SIZE;
+  }
+
+  /** @return the number of KLV metadata packets in the stream */
+  long getKlvPacketCount() {
+    return (packetCount - TABLE_PACKET_COUNT + PACKETS_PER_FRAME - 1) / PACKETS_PER_FRAME;
+  }
+
+  @Override
+  public int read() {
+    byte[] b = new byte[1];
+    return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] bytes, int offset, int length) {
+    if (length == 0) {
+      return 0;
+    }
+
+    int count = 0;
+    while (count < length) {
+      if (position == PACKET_SIZE) {
+        if (packetIndex == packetCount) {
+          break;
+        }
+        createPacket(packetIndex++);
+        position = 0;
+      }
+
+      int n = Math.min(length - count, PACKET_SIZE - position);
+      System.arraycopy(packet, position, bytes, offset + count, n);
+      position += n;
+      count += n;
+    }
+
+    return count == 0 ? -1 : count;
+  }
+
+  private void createPacket(long index) {
+    if (index == 0) {
+      createTablePacket(0, PROGRAM_ASSOCIATION_TABLE);
+    } else if (index == 1) {
+      createTablePacket(PROGRAM_MAP_TABLE_PACKET_ID, PROGRAM_MAP_TABLE);
+    } else {
+      long frame = (index - TABLE_PACKET_COUNT) / PACKETS_PER_FRAME;
+      int packetInFrame = (int) ((index - TABLE_PACKET_COUNT) % PACKETS_PER_FRAME);
+      if (packetInFrame == 0) {
+        createKlvPacket(frame);
+      } else {
+        createVideoPacket(packetInFrame == 1);
+      }
+    }
+  }
+
+  private int writeHeader(int packetId, boolean isStart) {
+    Arrays.fill(packet, (byte) 0xFF);
+    packet[0] = 0x47;
+    packet[1] = (byte) ((isStart ? 0x40 : 0x00) | (packetId >> 8));
+    packet[2] = (byte) packetId;
+    packet[3] = (byte) (0x10 | (continuityCounters[packetId]++ & 0x0F));
+    return 4;
+  }
+
+  private void createTablePacket(int packetId, byte[] section) {
+    int offset = writeHeader(packetId, true);
+    packet[offset++] = 0x00;
+    System.arraycopy(section, 0, packet, offset, section.length);
+    offset += section.length;
+    writeInt(offset, crc32(section));
+  }
+
+  private void createVideoPacket(boolean isStart) {
+    int offset = writeHeader(VIDEO_PACKET_ID, isStart);
+    if (isStart) {
+      byte[] pesHeader = {0x00, 0x00, 0x01, (byte) 0xE0, 0x00, 0x00, (byte) 0x80, 0x00, 0x00};
+      System.arraycopy(pesHeader, 0, packet, offset, pesHeader.length);
+      offset += pesHeader.length;
+    }
+    Arrays.fill(packet, offset, PACKET_SIZE, (byte) 0xAB);
+  }
+
+  private void createKlvPacket(long timestamp) {
+    byte[] klv = new byte[UAS_DATALINK_LOCAL_SET_KEY.length + 15];
+    System.arraycopy(UAS_DATALINK_LOCAL_SET_KEY, 0, klv, 0, UAS_DATALINK_LOCAL_SET_KEY.length);
+    int k = UAS_DATALINK_LOCAL_SET_KEY.length;
+    klv[k++] = 14;
+    klv[k++] = 2;
+    klv[k++] = 8;
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      klv[k++] = (byte) (timestamp >> shift);
+    }
+    klv[k++] = 1;
+    klv[k++] = 2;
+    short checksum = 0;
+    for (int i = 0; i < klv.length - 2; i++) {
+      checksum += (klv[i] & 0xFF) << (8 * ((i + 1) % 2));
+    }
+    klv[k++] = (byte) (checksum >> 8);
+    klv[k] = (byte) checksum;
+
+    int pesLength = 8 + klv.length;
+    byte[] pesHeader = {
+      0x00,
+      0x00,
+      0x01,
+      (byte) 0xBD,
+      (byte) (pesLength >> 8),
+      (byte) pesLength,
+      (byte) 0x84,
+      (byte) 0x80,
+      0x05,
+      0x21,
+      0x00,
+      0x01,
+      0x00,
+      0x01
+    };
+
+    int offset = writeHeader(KLV_PACKET_ID, true);
+    System.arraycopy(pesHeader, 0, packet, offset, pesHeader.length);
+    offset += pesHeader.length;
+    System.arraycopy(klv, 0, packet, offset, klv.length);
+  }
+
+  private void writeInt(int offset, int value) {
+    packet[offset] = (byte) (value >> 24);
+    packet[offset + 1] = (byte) (value >> 16);
+    packet[offset + 2] = (byte) (value >> 8);
+    packet[offset + 3] = (byte) value;
+  }
+
+  /** The CRC-32 used by MPEG-2 sections (polynomial 0x04C11DB7, not reflected). */
+  private static int crc32(byte[] bytes) {
+    int crc = 0xFFFFFFFF;
+    for (byte b : bytes) {
+      crc ^= (b & 0xFF) << 24;
+      for (int bit = 0; bit < 8; bit++) {
+        crc = (crc & 0x80000000) != 0 ? (crc << 1) ^ 0x04C11DB7 : crc << 1;
+      }
+    }
+    return crc;
+  }
+}
@@ -14,14 +14,19 @@
 package org.codice.alliance.transformer.video;
 
 import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.MetacardType;
@@ -31,26 +36,56 @@ import ddf.catalog.data.types.Core;
 import ddf.catalog.data.types.Media;
 import ddf.catalog.transform.CatalogTransformerException;
 import ddf.catalog.transform.InputTransformer;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.codice.alliance.catalog.core.internal.api.classification.SecurityClassificationService;
+import org.codice.alliance.libs.klv.AttributeNameConstants;
 import org.codice.alliance.libs.klv.KlvHandler;
 import org.codice.alliance.libs.klv.KlvHandlerFactory;
 import org.codice.alliance.libs.klv.KlvProcessor;
 import org.codice.alliance.libs.klv.SecurityClassificationKlvProcessor;
-import org.codice.alliance.libs.klv.Stanag4609ParseException;
+import org.codice.alliance.libs.klv.Stanag4609PacketParser;
 import org.codice.alliance.libs.klv.Stanag4609Processor;
 import org.codice.alliance.libs.klv.StanagParserFactory;
+import org.codice.alliance.libs.klv.StanagParserFactoryImpl;
+import org.codice.alliance.libs.mpegts.MpegStreamType;
+import org.codice.alliance.libs.mpegts.PESPacket;
+import org.codice.alliance.libs.mpegts.TSStream;
+import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
 import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.codice.ddf.libs.klv.KlvContext;
+import org.codice.ddf.libs.klv.data.set.KlvLocalSet;
+import org.codice.ddf.platform.util.TemporaryFileBackedOutputStream;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class MpegTsInputTransformerTest {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(MpegTsInputTransformerTest.class);
+
+  private static final String BENCHMARK_MEGABYTES_PROPERTY = "mpegts.benchmark.megabytes";
+
   private static final String CLASSIFICATION = "foo";
 
   private static final Double DISTANCE_TOLERANCE = 0.0001;
@@ -63,7 +98,7 @@ public class MpegTsInputTransformerTest {
 
   private KlvHandler defaultKlvHandler;
 
-  private Stanag4609TransportStreamParser streamParser;
+  private Stanag4609PacketParser stanag4609Parser;
 
   private MetacardImpl metacard;
 
@@ -73,27 +108,21 @@ public class MpegTsInputTransformerTest {
 
   private KlvProcessor klvProcessor;
 
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Before
   public void setup() throws IOException, CatalogTransformerException {
     metacardTypes = Collections.singletonList(mock(MetacardType.class));
     stanag4609Processor = mock(Stanag4609Processor.class);
     klvHandlerFactory = mock(KlvHandlerFactory.class);
     defaultKlvHandler = mock(KlvHandler.class);
-    streamParser = mock(Stanag4609TransportStreamParser.class);
+    stanag4609Parser = mock(Stanag4609PacketParser.class);
     metacard = new MetacardImpl();
     inputTransformer = mock(InputTransformer.class);
     stanagParserFactory = mock(StanagParserFactory.class);
     klvProcessor = mock(KlvProcessor.class);
     when(inputTransformer.transform(any(), any())).thenReturn(metacard);
-    when(stanagParserFactory.createParser(any()))
-        .thenReturn(
-            () -> {
-              try {
-                return streamParser.parse();
-              } catch (Exception e) {
-                throw new Stanag4609ParseException(e);
-              }
-            });
+    when(stanagParserFactory.createPacketParser(any(), any())).thenReturn(stanag4609Parser);
   }
 
   @Test
@@ -165,8 +194,6 @@ public class MpegTsInputTransformerTest {
     metacard.setContentTypeName("some/thing");
     metacard.setMetadata("the metadata");
 
-    when(streamParser.parse()).thenReturn(Collections.emptyMap());
-
     MpegTsInputTransformer t =
         new MpegTsInputTransformer(
             inputTransformer,
@@ -215,27 +242,6 @@ public class MpegTsInputTransformerTest {
     }
   }
 
-  @Test(expected = CatalogTransformerException.class)
-  public void testStanagParseError() throws Exception {
-
-    when(streamParser.parse()).thenThrow(new RuntimeException());
-
-    MpegTsInputTransformer t =
-        new MpegTsInputTransformer(
-            inputTransformer,
-            metacardTypes,
-            stanag4609Processor,
-            klvHandlerFactory,
-            defaultKlvHandler,
-            stanagParserFactory,
-            klvProcessor,
-            DISTANCE_TOLERANCE);
-
-    try (InputStream inputStream = new ByteArrayInputStream(new byte[] {})) {
-      t.transform(inputStream);
-    }
-  }
-
   @Test(expected = CatalogTransformerException.class)
   public void testInputStreamReadError() throws Exception {
 
@@ -274,6 +280,255 @@ public class MpegTsInputTransformerTest {
     assertThat(t.getDistanceTolerance(), closeTo(value, 0.1));
   }
 
+  @Test
+  public void testSinglePassExtraction() throws Exception {
+
+    GeneratedTransportStream transportStream = new GeneratedTransportStream(1024 * 1024);
+
+    AtomicLong innerTransformerBytes = new AtomicLong();
+    when(inputTransformer.transform(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              innerTransformerBytes.set(readAll((InputStream) invocation.getArguments()[0]));
+              return metacard;
+            });
+
+    Metacard finalMetacard = createSinglePassTransformer().transform(transportStream);
+
+    assertThat(innerTransformerBytes.get(), is(transportStream.getSize()));
+    assertSinglePassResult(finalMetacard, transportStream);
+  }
+
+  @Test
+  public void testSinglePassExtractionWhenInnerTransformerReadsNothing() throws Exception {
+
+    GeneratedTransportStream transportStream = new GeneratedTransportStream(1024 * 1024);
+
+    Metacard finalMetacard = createSinglePassTransformer().transform(transportStream);
+
+    assertSinglePassResult(finalMetacard, transportStream);
+  }
+
+  @Test
+  public void testMarkAndResetDoNotDemultiplexBytesTwice() throws Exception {
+
+    GeneratedTransportStream transportStream = new GeneratedTransportStream(1024 * 1024);
+
+    AtomicLong innerTransformerBytes = new AtomicLong();
+    when(inputTransformer.transform(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              InputStream inputStream = (InputStream) invocation.getArguments()[0];
+              // detect the content type the way Tika does, buffering only when it has to
+              InputStream detectStream =
+                  inputStream.markSupported() ? inputStream : new BufferedInputStream(inputStream);
+              detectStream.mark(64 * 1024);
+              IOUtils.skipFully(detectStream, 64 * 1024);
+              detectStream.reset();
+              innerTransformerBytes.set(readAll(detectStream));
+              return metacard;
+            });
+
+    Metacard finalMetacard =
+        createSinglePassTransformer().transform(new BufferedInputStream(transportStream));
+
+    assertThat(innerTransformerBytes.get(), is(transportStream.getSize()));
+    assertSinglePassResult(finalMetacard, transportStream);
+  }
+
+  @Test
+  public void testLocalFileIsDemultiplexedFromItsPosition() throws Exception {
+
+    GeneratedTransportStream transportStream = new GeneratedTransportStream(1024 * 1024);
+
+    // the packets before the position of the file stream are not part of the content
+    byte[] prefix = IOUtils.toByteArray(new GeneratedTransportStream(64 * 1024));
+    File file = temporaryFolder.newFile();
+    try (OutputStream outputStream = new FileOutputStream(file)) {
+      outputStream.write(prefix);
+      IOUtils.copyLarge(transportStream, outputStream);
+    }
+
+    AtomicLong innerTransformerBytes = new AtomicLong();
+    when(inputTransformer.transform(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              innerTransformerBytes.set(readAll((InputStream) invocation.getArguments()[0]));
+              return metacard;
+            });
+
+    Metacard finalMetacard;
+    try (FileInputStream fileInputStream = new FileInputStream(file)) {
+      IOUtils.skipFully(fileInputStream, prefix.length);
+      finalMetacard = createSinglePassTransformer().transform(fileInputStream);
+    }
+
+    assertThat(innerTransformerBytes.get(), is(transportStream.getSize()));
+    assertSinglePassResult(finalMetacard, transportStream);
+  }
+
+  @Test
+  public void testSinglePassMatchesThreePass() throws Exception {
+
+    long size = 4 * 1024 * 1024;
+
+    ThreePassResult threePassResult = transformThreePass(new GeneratedTransportStream(size));
+
+    GeneratedTransportStream singlePassStream = new GeneratedTransportStream(size);
+    Metacard finalMetacard = createSinglePassTransformer().transform(singlePassStream);
+
+    assertSinglePassResult(finalMetacard, singlePassStream);
+    assertThat(threePassResult.klvPacketCount, is(singlePassStream.getKlvPacketCount()));
+    assertThat(
+        finalMetacard.getAttribute(AttributeNameConstants.MEDIA_ENCODING).getValues(),
+        containsInAnyOrder(threePassResult.mediaEncodings.toArray()));
+  }
+
+  /**
+   * Transforms a generated transport stream twice. The first run uses the previous approach, which
+   * copied the stream to a temporary file and read it back for the inner transformer, the STANAG
+   * 4609 parser and the media encodings. The second run uses the single pass transformer. The
+   * throughput of each run is logged. The benchmark only runs when the {@value
+   * #BENCHMARK_MEGABYTES_PROPERTY} system property is set to the size of the stream, for example
+   * {@code -Dmpegts.benchmark.megabytes=256}.
+   */
+  @Test
+  public void testIngestThroughput() throws Exception {
+
+    Long megabytes = Long.getLong(BENCHMARK_MEGABYTES_PROPERTY);
+    assumeThat(megabytes, notNullValue());
+    long size = megabytes << 20;
+
+    when(inputTransformer.transform(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              readAll((InputStream) invocation.getArguments()[0]);
+              return metacard;
+            });
+
+    GeneratedTransportStream threePassStream = new GeneratedTransportStream(size);
+    long start = System.nanoTime();
+    ThreePassResult threePassResult = transformThreePass(threePassStream);
+    long threePassElapsed = System.nanoTime() - start;
+
+    // the decoded packets are counted instead of being recorded by a mock
+    AtomicLong singlePassKlvCount = new AtomicLong();
+    Stanag4609Processor countingProcessor =
+        mock(Stanag4609Processor.class, withSettings().stubOnly());
+    doAnswer(invocation -> singlePassKlvCount.incrementAndGet())
+        .when(countingProcessor)
+        .handle(any(), any(), any(DecodedKLVMetadataPacket.class));
+
+    GeneratedTransportStream singlePassStream = new GeneratedTransportStream(size);
+    start = System.nanoTime();
+    createSinglePassTransformer(countingProcessor).transform(singlePassStream);
+    long singlePassElapsed = System.nanoTime() - start;
+
+    assertThat(singlePassKlvCount.get(), is(threePassResult.klvPacketCount));
+
+    LOGGER.info(
+        "mpeg-ts ingest: megabytes={} klvPackets={} threePassMBps={} singlePassMBps={}",
+        megabytes,
+        threePassResult.klvPacketCount,
+        megabytesPerSecond(threePassStream.getSize(), threePassElapsed),
+        megabytesPerSecond(singlePassStream.getSize(), singlePassElapsed));
+  }
+
+  private MpegTsInputTransformer createSinglePassTransformer() {
+    return createSinglePassTransformer(stanag4609Processor);
+  }
+
+  private MpegTsInputTransformer createSinglePassTransformer(Stanag4609Processor processor) {
+    return new MpegTsInputTransformer(
+        inputTransformer,
+        metacardTypes,
+        processor,
+        klvHandlerFactory,
+        defaultKlvHandler,
+        new StanagParserFactoryImpl(),
+        klvProcessor,
+        DISTANCE_TOLERANCE);
+  }
+
+  private void assertSinglePassResult(
+      Metacard finalMetacard, GeneratedTransportStream transportStream) {
+
+    assertThat(
+        finalMetacard.getAttribute(AttributeNameConstants.MEDIA_ENCODING).getValues(),
+        containsInAnyOrder(
+            MpegStreamType.VIDEO_H264.toString(), MpegStreamType.PRIVATE_DATA.toString()));
+
+    ArgumentCaptor<DecodedKLVMetadataPacket> decodedPackets =
+        ArgumentCaptor.forClass(DecodedKLVMetadataPacket.class);
+    verify(stanag4609Processor, times((int) transportStream.getKlvPacketCount()))
+        .handle(any(), any(), decodedPackets.capture());
+    verify(klvProcessor).process(any(), any(), any());
+
+    DecodedKLVMetadataPacket lastPacket =
+        decodedPackets.getAllValues().get(decodedPackets.getAllValues().size() - 1);
+    assertThat(
+        (Long) getLocalSetValue(lastPacket, Stanag4609TransportStreamParser.TIMESTAMP),
+        is(transportStream.getKlvPacketCount() - 1));
+  }
+
+  private Object getLocalSetValue(DecodedKLVMetadataPacket packet, String name) {
+    KlvContext localSetContext =
+        ((KlvLocalSet)
+                packet
+                    .getDecodedKLV()
+                    .getDataElementByName(Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET))
+            .getValue();
+    return localSetContext.getDataElementByName(name).getValue();
+  }
+
+  /** The transformation before the single pass transformer, without the KLV handlers. */
+  private ThreePassResult transformThreePass(InputStream inputStream) throws Exception {
+    try (TemporaryFileBackedOutputStream fileBackedOutputStream =
+        new TemporaryFileBackedOutputStream()) {
+
+      IOUtils.copyLarge(inputStream, fileBackedOutputStream);
+
+      try (InputStream innerInputStream = fileBackedOutputStream.asByteSource().openStream()) {
+        inputTransformer.transform(innerInputStream, null);
+      }
+
+      Map<Integer, List<DecodedKLVMetadataPacket>> decodedStreams =
+          new StanagParserFactoryImpl()
+              .createParser(fileBackedOutputStream.asByteSource())
+              .parse();
+
+      ThreePassResult result = new ThreePassResult();
+
+      try (Stream<PESPacket> pesPackets = TSStream.from(fileBackedOutputStream.asByteSource())) {
+        result.mediaEncodings =
+            pesPackets
+                .map(PESPacket::getStreamType)
+                .distinct()
+                .map(MpegStreamType::toString)
+                .collect(Collectors.toList());
+      }
+
+      result.klvPacketCount = decodedStreams.values().stream().mapToLong(List::size).sum();
+
+      return result;
+    }
+  }
+
+  private static class ThreePassResult {
+
+    private long klvPacketCount;
+
+    private List<String> mediaEncodings;
+  }
+
+  private static long readAll(InputStream inputStream) throws IOException {
+    return IOUtils.copyLarge(inputStream, NullOutputStream.NULL_OUTPUT_STREAM);
+  }
+
+  private static long megabytesPerSecond(long bytes, long elapsedNanos) {
+    return (bytes >> 20) * TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsedNanos);
+  }
+
   private void assertSecurityClassificationCode(Consumer<MpegTsInputTransformer> c, short code) {
     SecurityClassificationKlvProcessor processor =
         spy(
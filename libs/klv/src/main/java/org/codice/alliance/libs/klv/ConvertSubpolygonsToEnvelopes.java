@@ -14,6 +14,7 @@
 package org.codice.alliance.libs.klv;
 
 import com.vividsolutions.jts.geom.Geometry;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import javax.annotation.concurrent.ThreadSafe;
 import org.slf4j.Logger;
@@ -37,10 +38,11 @@ public class ConvertSubpolygonsToEnvelopes implements GeometryOperator {
     LOGGER.trace("Converting geometry: {}", geometry);
 
     Geometry envelopePolygons =
-        IntStream.range(0, geometry.getNumGeometries())
-            .mapToObj(geometry::getGeometryN)
-            .map(Geometry::getEnvelope)
-            .reduce(Geometry::union)
+        GeometryUtility.union(
+                IntStream.range(0, geometry.getNumGeometries())
+                    .mapToObj(geometry::getGeometryN)
+                    .map(Geometry::getEnvelope)
+                    .collect(Collectors.toList()))
             .orElse(geometry);
 
     LOGGER.trace(
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A growable list of primitive doubles. The KLV handlers keep one of these per field so that the
+ * values are not boxed while a video chunk is being decoded.
+ */
+@NotThreadSafe
+class DoubleList {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private double[] values = new double[INITIAL_CAPACITY];
+
+  private int size = 0;
+
+  void add(double value) {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, size * 2);
+    }
+    values[size++] = value;
+  }
+
+  double get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+    }
+    return values[index];
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** @param newSize must be &gt;=0, the list is unchanged if it is not larger than newSize */
+  void truncate(int newSize) {
+    isTrue(newSize >= 0, "newSize must be >=0");
+    size = Math.min(size, newSize);
+  }
+
+  /**
+   * Remove the values from {@code fromIndex} (inclusive) to {@code toIndex} (exclusive). The
+   * values after {@code toIndex} are shifted down.
+   */
+  void removeRange(int fromIndex, int toIndex) {
+    if (fromIndex < 0 || fromIndex > toIndex || toIndex > size) {
+      throw new IndexOutOfBoundsException(
+          "fromIndex=" + fromIndex + " toIndex=" + toIndex + " size=" + size);
+    }
+    System.arraycopy(values, toIndex, values, fromIndex, size - toIndex);
+    size -= toIndex - fromIndex;
+  }
+
+  /**
+   * Keep {@code subsampleCount} evenly spaced values, using the same indices as {@link
+   * BaseKlvHandler#subsample}.
+   *
+   * @param subsampleCount number of values to keep
+   * @param size the number of values the indices are based on
+   * @return a new list
+   */
+  DoubleList subsample(int subsampleCount, int size) {
+    final DoubleList out = new DoubleList();
+    for (int i = 0; i < subsampleCount; i++) {
+      out.add(get(i * size / subsampleCount));
+    }
+    return out;
+  }
+
+  /** @return the size of the smallest list, or 0 if there are no lists */
+  static int getMinimumSize(Collection<DoubleList> lists) {
+    return lists.stream().mapToInt(DoubleList::size).min().orElse(0);
+  }
+
+  /** @return a read-only view of the list, which reflects later changes */
+  List<Double> asList() {
+    return new AbstractList<Double>() {
+      @Override
+      public Double get(int index) {
+        return DoubleList.this.get(index);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+}
@@ -16,7 +16,7 @@ package org.codice.alliance.libs.klv;
 import static org.apache.commons.lang3.Validate.notNull;
 
 import com.google.common.collect.ImmutableList;
-import ddf.catalog.data.Attribute;
+import com.vividsolutions.jts.geom.CoordinateSequence;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.impl.AttributeImpl;
 import java.util.List;
@@ -90,10 +90,13 @@ public class FrameCenterKlvProcessor implements KlvProcessor {
   }
 
   private void doProcess(
-      Attribute attribute, Metacard metacard, GeometryOperator.Context geometryOperatorContext) {
+      CoordinateSequence coordinates,
+      Metacard metacard,
+      GeometryOperator.Context geometryOperatorContext) {
 
     String wkt =
-        GeometryUtility.attributeToLineString(attribute, geometryOperator, geometryOperatorContext);
+        GeometryUtility.coordinatesToLineString(
+            coordinates, geometryOperator, geometryOperatorContext);
 
     setAttribute(metacard, wkt);
   }
@@ -116,11 +119,13 @@ public class FrameCenterKlvProcessor implements KlvProcessor {
             handler ->
                 handler
                     .asSubsampledHandler(subsampleCount)
-                    .asAttribute()
+                    .asCoordinateSequence()
                     .ifPresent(
-                        attribute ->
+                        coordinates ->
                             doProcess(
-                                attribute, metacard, configuration.getGeometryOperatorContext())));
+                                coordinates,
+                                metacard,
+                                configuration.getGeometryOperatorContext())));
   }
 
   /** All handlers are found if the number of handlers is the same as the number of field names. */
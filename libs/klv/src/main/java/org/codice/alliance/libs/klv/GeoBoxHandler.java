@@ -13,8 +13,16 @@
  */
 package org.codice.alliance.libs.klv;
 
+import static org.apache.commons.lang3.Validate.notNull;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequence;
 import ddf.catalog.data.Attribute;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,12 +34,18 @@ import org.slf4j.LoggerFactory;
 
 /**
  * This handler expects four latitude-longitude pairs. It generates a WKT polygon for each four-pair
- * set.
+ * set. The values are stored as primitive doubles, and {@link #asPolygons(GeometryFactory)} builds
+ * the polygons directly for callers that work with geometries.
  */
 public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(GeoBoxHandler.class);
 
+  private static final int DIMENSION = 2;
+
+  /** Four corners plus the first corner again to close the ring. */
+  private static final int RING_SIZE = 5;
+
   private String latitude1;
 
   private String longitude1;
@@ -48,7 +62,7 @@ public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
 
   private String longitude4;
 
-  private Map<String, List<Double>> map = new HashMap<>();
+  private Map<String, DoubleList> map = new HashMap<>();
 
   /**
    * @param attributeName the name of the metacard attribute being generated
@@ -118,8 +132,11 @@ public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
     return longitude4;
   }
 
+  /** @return a read-only view of the values of each field */
   public Map<String, List<Double>> getRawGeoData() {
-    return map;
+    Map<String, List<Double>> rawGeoData = new HashMap<>();
+    map.forEach((fieldName, values) -> rawGeoData.put(fieldName, values.asList()));
+    return rawGeoData;
   }
 
   @Override
@@ -148,13 +165,58 @@ public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
     return asAttribute(polygonsWkts);
   }
 
+  /**
+   * The coordinates are rounded with {@link GeometryUtility#roundCoordinate(double)} so the
+   * polygons match the ones generated by {@link #asAttribute()}.
+   *
+   * @param geometryFactory must be non-null
+   * @return a polygon for each four-pair set
+   */
+  public List<Geometry> asPolygons(GeometryFactory geometryFactory) {
+    notNull(geometryFactory, "geometryFactory must be non-null");
+
+    DoubleList[] corners = {
+      map.get(longitude1),
+      map.get(latitude1),
+      map.get(longitude2),
+      map.get(latitude2),
+      map.get(longitude3),
+      map.get(latitude3),
+      map.get(longitude4),
+      map.get(latitude4)
+    };
+
+    if (Arrays.asList(corners).contains(null)) {
+      return Collections.emptyList();
+    }
+
+    int minimumListSize = getMinimumListSize();
+
+    List<Geometry> polygons = new ArrayList<>(minimumListSize);
+
+    for (int i = 0; i < minimumListSize; i++) {
+      double[] ring = new double[RING_SIZE * DIMENSION];
+      for (int j = 0; j < corners.length; j++) {
+        ring[j] = GeometryUtility.roundCoordinate(corners[j].get(i));
+      }
+      ring[ring.length - 2] = ring[0];
+      ring[ring.length - 1] = ring[1];
+
+      LinearRing shell =
+          geometryFactory.createLinearRing(new PackedCoordinateSequence.Double(ring, DIMENSION));
+      polygons.add(geometryFactory.createPolygon(shell, null));
+    }
+
+    return polygons;
+  }
+
   public GeoBoxHandler asSubsampledHandler(int subsampleCount) {
 
-    if (getRawGeoData().isEmpty()) {
+    if (map.isEmpty()) {
       return this;
     }
 
-    int size = getRawGeoData().get(getLatitude1()).size();
+    int size = map.get(getLatitude1()).size();
 
     if (size <= subsampleCount) {
       return this;
@@ -172,7 +234,8 @@ public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
             getLatitude4(),
             getLongitude4());
 
-    subsample(getRawGeoData(), subsampleCount, size, out::accept);
+    map.forEach(
+        (fieldName, values) -> out.map.put(fieldName, values.subsample(subsampleCount, size)));
 
     return out;
   }
@@ -183,13 +246,7 @@ public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
 
     int minListSize = getMinimumListSize();
 
-    map.keySet()
-        .forEach(
-            key ->
-                map.computeIfPresent(
-                    key,
-                    (fieldName, list) ->
-                        list.size() > minListSize ? list.subList(0, minListSize) : list));
+    map.values().forEach(values -> values.truncate(minListSize));
   }
 
   @Override
@@ -210,12 +267,11 @@ public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
     map.clear();
   }
 
-  public void accept(String name, Double value) {
-    map.putIfAbsent(name, new ArrayList<>());
-    map.get(name).add(value);
+  public void accept(String name, double value) {
+    map.computeIfAbsent(name, fieldName -> new DoubleList()).add(value);
   }
 
   private int getMinimumListSize() {
-    return getMinimumListSize(map.values());
+    return DoubleList.getMinimumSize(map.values());
   }
 }
@@ -14,11 +14,14 @@
 package org.codice.alliance.libs.klv;
 
 import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateSequence;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.impl.CoordinateArraySequence;
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKTReader;
 import com.vividsolutions.jts.io.WKTWriter;
+import com.vividsolutions.jts.operation.union.UnaryUnionOp;
 import ddf.catalog.data.Attribute;
 import java.util.List;
 import java.util.Optional;
@@ -33,6 +36,25 @@ public class GeometryUtility {
 
   private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
 
+  /** Coordinates are kept to six decimal places, the precision of the handler WKT. */
+  private static final double COORDINATE_SCALE = 1e6;
+
+  /**
+   * Round a coordinate to the six decimal places that {@link GeoBoxHandler} and {@link
+   * LatitudeLongitudeHandler} use when they generate WKT. Values that are not finite are returned
+   * unchanged.
+   */
+  static double roundCoordinate(double value) {
+    if (!Double.isFinite(value)) {
+      return value;
+    }
+    return Math.round(value * COORDINATE_SCALE) / COORDINATE_SCALE;
+  }
+
+  static GeometryFactory getGeometryFactory() {
+    return GEOMETRY_FACTORY;
+  }
+
   /**
    * Create the union of multi-valued attribute that contains WKT. If the union cannot be computed,
    * then this method returns {@link Optional#empty()}
@@ -75,22 +97,68 @@ public class GeometryUtility {
       BiFunction<Geometry, GeometryOperator.Context, Geometry> postUnionGeometryOperator,
       BiFunction<Geometry, GeometryOperator.Context, Geometry> preUnionGeometryOperator,
       GeometryOperator.Context geometryOperatorContext) {
-    return attribute
-        .getValues()
-        .stream()
-        .filter(String.class::isInstance)
-        .map(String.class::cast)
-        .map(wkt -> wktToGeometry(wkt, wktReader))
-        .filter(Optional::isPresent)
-        .map(Optional::get)
-        .map(geometry -> preUnionGeometryOperator.apply(geometry, geometryOperatorContext))
-        .reduce(Geometry::union)
+    return createUnionOfGeometries(
+        wktWriter,
+        attribute
+            .getValues()
+            .stream()
+            .filter(String.class::isInstance)
+            .map(String.class::cast)
+            .map(wkt -> wktToGeometry(wkt, wktReader))
+            .filter(Optional::isPresent)
+            .map(Optional::get)
+            .collect(Collectors.toList()),
+        postUnionGeometryOperator,
+        preUnionGeometryOperator,
+        geometryOperatorContext);
+  }
+
+  /**
+   * Create the union of a list of geometries and convert it to WKT. If the union cannot be
+   * computed, then this method returns {@link Optional#empty()}
+   *
+   * @param wktWriter non-null
+   * @param geometries non-null
+   * @param postUnionGeometryOperator non-null, transform the geometry (e.g. simplify or normalize)
+   * @param preUnionGeometryOperator non-null, transform the geometry just before the union
+   *     operation (e.g. reduce precision)
+   * @return optional wkt string
+   */
+  public static Optional<String> createUnionOfGeometries(
+      WKTWriter wktWriter,
+      List<Geometry> geometries,
+      BiFunction<Geometry, GeometryOperator.Context, Geometry> postUnionGeometryOperator,
+      BiFunction<Geometry, GeometryOperator.Context, Geometry> preUnionGeometryOperator,
+      GeometryOperator.Context geometryOperatorContext) {
+    return union(
+            geometries
+                .stream()
+                .map(geometry -> preUnionGeometryOperator.apply(geometry, geometryOperatorContext))
+                .collect(Collectors.toList()))
         .map(geometry -> postUnionGeometryOperator.apply(geometry, geometryOperatorContext))
         .map(geo -> !geo.isValid() ? geo.convexHull() : geo)
         .filter(Geometry::isValid)
         .map(wktWriter::write);
   }
 
+  /**
+   * Create the union of a list of geometries with a cascaded union, which is much faster than
+   * merging the geometries one at a time when there are many overlapping geometries.
+   *
+   * @param geometries non-null
+   * @return the union, the geometry itself if the list contains one geometry, or {@link
+   *     Optional#empty()} if the list is empty
+   */
+  public static Optional<Geometry> union(List<Geometry> geometries) {
+    if (geometries.isEmpty()) {
+      return Optional.empty();
+    }
+    if (geometries.size() == 1) {
+      return Optional.of(geometries.get(0));
+    }
+    return Optional.ofNullable(UnaryUnionOp.union(geometries));
+  }
+
   public static Optional<Geometry> wktToGeometry(String wkt, WKTReader wktReader) {
     try {
       return Optional.of(wktReader.read(wkt));
@@ -119,6 +187,25 @@ public class GeometryUtility {
 
     Coordinate[] coordinates = listToArray(convertWktToCoordinates(points));
 
+    return coordinatesToLineString(
+        new CoordinateArraySequence(coordinates), geometryOperator, geometryOperatorContext);
+  }
+
+  /**
+   * Convert a sequence of coordinates into a WKT. If the sequence contains more than one
+   * coordinate, then this method will return a WKT LineString. If the sequence contains one
+   * coordinate, then this method will return a WKT Point. Otherwise, it will return "LINESTRING
+   * EMPTY".
+   *
+   * @param coordinates non-null
+   * @param geometryOperator applied to final geometry before being converted to WKT string
+   * @return a WKT LineString or Point
+   */
+  public static String coordinatesToLineString(
+      CoordinateSequence coordinates,
+      GeometryOperator geometryOperator,
+      GeometryOperator.Context geometryOperatorContext) {
+
     Geometry geometry = convertCoordinatesToGeometry(coordinates);
 
     return convertGeometryToWkt(geometryOperator.apply(geometry, geometryOperatorContext));
@@ -148,9 +235,9 @@ public class GeometryUtility {
     return coordinateList.toArray(new Coordinate[coordinateList.size()]);
   }
 
-  private static Geometry convertCoordinatesToGeometry(Coordinate[] coordinates) {
-    if (coordinates.length == 1) {
-      return GEOMETRY_FACTORY.createPoint(coordinates[0]);
+  private static Geometry convertCoordinatesToGeometry(CoordinateSequence coordinates) {
+    if (coordinates.size() == 1) {
+      return GEOMETRY_FACTORY.createPoint(coordinates);
     } else {
       return GEOMETRY_FACTORY.createLineString(coordinates);
     }
@@ -16,5 +16,12 @@ package org.codice.alliance.libs.klv;
 import java.util.Map;
 
 public interface KlvHandlerFactory {
+
+  /**
+   * Create a new set of handlers. The handlers keep the values they accept, so a set of handlers
+   * must not be used by more than one caller at a time. See {@link KlvHandlerPool}.
+   *
+   * @return map of STANAG 4609 field names to handlers
+   */
   Map<String, KlvHandler> createStanag4609Handlers();
 }
@@ -13,8 +13,12 @@
  */
 package org.codice.alliance.libs.klv;
 
+import static org.apache.commons.lang3.Validate.isTrue;
+
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import javax.annotation.Nullable;
 import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
 import org.codice.ddf.libs.klv.data.numerical.KlvIntegerEncodedFloatingPoint;
 import org.codice.ddf.libs.klv.data.numerical.KlvUnsignedByte;
@@ -23,6 +27,30 @@ import org.codice.ddf.libs.klv.data.text.KlvString;
 
 public class KlvHandlerFactoryImpl implements KlvHandlerFactory {
 
+  private Double frameCenterDistanceTolerance;
+
+  /**
+   * @param frameCenterDistanceTolerance the frame center points are simplified as they arrive so
+   *     that every point that is dropped is within this distance (in degrees) of the frame center
+   *     line, may be null to keep every point, must be non-negative
+   */
+  public void setFrameCenterDistanceTolerance(@Nullable Double frameCenterDistanceTolerance) {
+    if (frameCenterDistanceTolerance != null) {
+      isTrue(frameCenterDistanceTolerance >= 0, "frameCenterDistanceTolerance must be >=0");
+    }
+    this.frameCenterDistanceTolerance = frameCenterDistanceTolerance;
+  }
+
+  public Double getFrameCenterDistanceTolerance() {
+    return frameCenterDistanceTolerance;
+  }
+
+  /**
+   * The field names that share a location (the corners, frame center, etc) are mapped to the same
+   * handler instance.
+   *
+   * @return an unmodifiable map of STANAG 4609 field names to new handlers
+   */
   @Override
   public Map<String, KlvHandler> createStanag4609Handlers() {
     final Map<String, KlvHandler> handlers = new HashMap<>();
@@ -174,7 +202,8 @@ public class KlvHandlerFactoryImpl implements KlvHandlerFactory {
         new LatitudeLongitudeHandler(
             AttributeNameConstants.FRAME_CENTER,
             Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE,
-            Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE);
+            Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE,
+            frameCenterDistanceTolerance);
     handlers.put(Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE, frameCenter);
     handlers.put(Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE, frameCenter);
 
@@ -208,6 +237,6 @@ public class KlvHandlerFactoryImpl implements KlvHandlerFactory {
         new ListOfBasicKlvDataTypesHandler<>(
             AttributeNameConstants.RELEASING_INSTRUCTIONS, KlvString.class));
 
-    return handlers;
+    return Collections.unmodifiableMap(handlers);
   }
 }
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Reuses the STANAG 4609 handlers created by a {@link KlvHandlerFactory}. Building the handlers is
+ * done once for each caller that needs them at the same time instead of once per transform. When a
+ * {@link Lease} is closed, every handler is reset and the handlers are returned to the pool.
+ *
+ * <pre>{@code
+ * try (KlvHandlerPool.Lease lease = klvHandlerPool.acquire()) {
+ *   Map<String, KlvHandler> handlers = lease.getHandlers();
+ *   ...
+ * }
+ * }</pre>
+ */
+@ThreadSafe
+public class KlvHandlerPool {
+
+  private final KlvHandlerFactory klvHandlerFactory;
+
+  private final Deque<Lease> available = new ConcurrentLinkedDeque<>();
+
+  /** @param klvHandlerFactory must be non-null */
+  public KlvHandlerPool(KlvHandlerFactory klvHandlerFactory) {
+    notNull(klvHandlerFactory, "klvHandlerFactory must be non-null");
+    this.klvHandlerFactory = klvHandlerFactory;
+  }
+
+  /**
+   * Get a set of handlers that are in their initial state. The handlers must not be used after the
+   * lease has been closed.
+   *
+   * @return the lease, which must be closed
+   */
+  public Lease acquire() {
+    Lease lease = available.pollFirst();
+    if (lease == null) {
+      lease = new Lease(klvHandlerFactory.createStanag4609Handlers());
+    }
+    lease.closed = false;
+    return lease;
+  }
+
+  /** @return number of handler sets waiting to be reused */
+  public int getAvailableCount() {
+    return available.size();
+  }
+
+  private void release(Lease lease) {
+    available.offerFirst(lease);
+  }
+
+  /** A set of handlers that is used by one caller until it is closed. */
+  public final class Lease implements AutoCloseable {
+
+    private final Map<String, KlvHandler> handlers;
+
+    /** Several field names share a handler (e.g. the corners), so each one is only reset once. */
+    private final List<KlvHandler> distinctHandlers;
+
+    private boolean closed = false;
+
+    private Lease(Map<String, KlvHandler> handlers) {
+      this.handlers = Collections.unmodifiableMap(handlers);
+
+      Set<KlvHandler> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+      distinct.addAll(handlers.values());
+      this.distinctHandlers = new ArrayList<>(distinct);
+    }
+
+    /** @return an unmodifiable map of the STANAG 4609 field names to their handlers */
+    public Map<String, KlvHandler> getHandlers() {
+      return handlers;
+    }
+
+    /** Reset the handlers and return them to the pool. Closing a lease again has no effect. */
+    @Override
+    public void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      distinctHandlers.forEach(KlvHandler::reset);
+      release(this);
+    }
+  }
+}
@@ -13,33 +13,67 @@
  */
 package org.codice.alliance.libs.klv;
 
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequence;
 import ddf.catalog.data.Attribute;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import javax.annotation.Nullable;
 import org.codice.ddf.libs.klv.KlvDataElement;
 import org.codice.ddf.libs.klv.data.numerical.KlvIntegerEncodedFloatingPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** This handler expects pairs of latitude and longitude values. It generates WKT Points. */
+/**
+ * This handler expects pairs of latitude and longitude values. It generates WKT Points. The values
+ * are stored as primitive doubles, and {@link #asCoordinateSequence()} returns them as a single
+ * {@link CoordinateSequence} for callers that build a geometry from all of the points.
+ *
+ * <p>If the handler is created with a distance tolerance, the points are simplified as they arrive
+ * with a {@link StreamingLineSimplifier}, so only the vertices that are needed to stay within the
+ * tolerance are kept.
+ */
 public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(LatitudeLongitudeHandler.class);
 
-  private Map<String, List<Double>> map = new HashMap<>();
+  private static final int DIMENSION = 2;
+
+  private Map<String, DoubleList> map = new HashMap<>();
 
   private String latitudeFieldName;
 
   private String longitudeFieldName;
 
+  /** Null if the points are not simplified. */
+  private final StreamingLineSimplifier simplifier;
+
   public LatitudeLongitudeHandler(
       String attributeName, String latitudeFieldName, String longitudeFieldName) {
+    this(attributeName, latitudeFieldName, longitudeFieldName, null);
+  }
+
+  /**
+   * @param distanceTolerance the points are simplified as they arrive so that every point that is
+   *     dropped is within this distance (in degrees) of the remaining points, may be null to keep
+   *     every point, must be non-negative
+   */
+  public LatitudeLongitudeHandler(
+      String attributeName,
+      String latitudeFieldName,
+      String longitudeFieldName,
+      @Nullable Double distanceTolerance) {
     super(attributeName);
     this.latitudeFieldName = latitudeFieldName;
     this.longitudeFieldName = longitudeFieldName;
+    this.simplifier =
+        distanceTolerance == null
+            ? null
+            : new StreamingLineSimplifier(
+                distanceTolerance, StreamingLineSimplifier.DEFAULT_MAXIMUM_WINDOW_SIZE);
   }
 
   public String getLongitudeFieldName() {
@@ -50,8 +84,11 @@ public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmabl
     return latitudeFieldName;
   }
 
+  /** @return a read-only view of the values of each field */
   public Map<String, List<Double>> getRawGeoData() {
-    return map;
+    Map<String, List<Double>> rawGeoData = new HashMap<>();
+    map.forEach((fieldName, values) -> rawGeoData.put(fieldName, values.asList()));
+    return rawGeoData;
   }
 
   @Override
@@ -71,13 +108,44 @@ public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmabl
     return asAttribute(pairs);
   }
 
+  /**
+   * The coordinates are rounded with {@link GeometryUtility#roundCoordinate(double)} so they match
+   * the points generated by {@link #asAttribute()}.
+   *
+   * @return the longitude-latitude pairs, or empty if there are none
+   */
+  public Optional<CoordinateSequence> asCoordinateSequence() {
+
+    DoubleList longitudes = map.get(longitudeFieldName);
+    DoubleList latitudes = map.get(latitudeFieldName);
+
+    if (longitudes == null || latitudes == null) {
+      return Optional.empty();
+    }
+
+    int minimumListSize = getMinimumListSize();
+
+    if (minimumListSize == 0) {
+      return Optional.empty();
+    }
+
+    double[] coordinates = new double[minimumListSize * DIMENSION];
+
+    for (int i = 0; i < minimumListSize; i++) {
+      coordinates[i * DIMENSION] = GeometryUtility.roundCoordinate(longitudes.get(i));
+      coordinates[i * DIMENSION + 1] = GeometryUtility.roundCoordinate(latitudes.get(i));
+    }
+
+    return Optional.of(new PackedCoordinateSequence.Double(coordinates, DIMENSION));
+  }
+
   public LatitudeLongitudeHandler asSubsampledHandler(int subsampleCount) {
 
-    if (getRawGeoData().isEmpty()) {
+    if (map.isEmpty()) {
       return this;
     }
 
-    int size = getRawGeoData().get(getLatitudeFieldName()).size();
+    int size = map.get(getLatitudeFieldName()).size();
 
     if (size <= subsampleCount) {
       return this;
@@ -87,7 +155,8 @@ public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmabl
         new LatitudeLongitudeHandler(
             getAttributeName(), getLatitudeFieldName(), getLongitudeFieldName());
 
-    subsample(getRawGeoData(), subsampleCount, size, out::accept);
+    map.forEach(
+        (fieldName, values) -> out.map.put(fieldName, values.subsample(subsampleCount, size)));
 
     return out;
   }
@@ -97,13 +166,7 @@ public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmabl
   public void trim() {
     int minListSize = getMinimumListSize();
 
-    map.keySet()
-        .forEach(
-            key ->
-                map.computeIfPresent(
-                    key,
-                    (fieldName, list) ->
-                        list.size() > minListSize ? list.subList(0, minListSize) : list));
+    map.values().forEach(values -> values.truncate(minListSize));
   }
 
   @Override
@@ -115,22 +178,43 @@ public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmabl
           klvDataElement);
       return;
     }
-    map.putIfAbsent(klvDataElement.getName(), new ArrayList<>());
-    map.get(klvDataElement.getName())
-        .add(((KlvIntegerEncodedFloatingPoint) klvDataElement).getValue());
+    accept(klvDataElement.getName(), ((KlvIntegerEncodedFloatingPoint) klvDataElement).getValue());
   }
 
   @Override
   public void reset() {
     map.clear();
+    if (simplifier != null) {
+      simplifier.reset();
+    }
+  }
+
+  public void accept(String name, double value) {
+    DoubleList values = map.computeIfAbsent(name, fieldName -> new DoubleList());
+
+    if (simplifier == null) {
+      values.add(value);
+      return;
+    }
+
+    int pairCount = getMinimumListSize();
+    values.add(value);
+
+    if (getMinimumListSize() > pairCount) {
+      simplify(pairCount + 1);
+    }
   }
 
-  public void accept(String name, Double value) {
-    map.putIfAbsent(name, new ArrayList<>());
-    map.get(name).add(value);
+  private void simplify(int pairCount) {
+    DoubleList longitudes = map.get(longitudeFieldName);
+    DoubleList latitudes = map.get(latitudeFieldName);
+
+    if (longitudes != null && latitudes != null) {
+      simplifier.accept(longitudes, latitudes, pairCount);
+    }
   }
 
   private int getMinimumListSize() {
-    return getMinimumListSize(map.values());
+    return DoubleList.getMinimumSize(map.values());
   }
 }
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import java.util.Arrays;
+import java.util.Optional;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Concatenates the coordinates of a sequence of geometries into a single linestring. The number of
+ * coordinates that are kept is bounded: when the buffer reaches twice the maximum size, every other
+ * coordinate is dropped and only every second coordinate is kept from then on. The result is an
+ * evenly spaced sample of the whole track that holds between {@code maxSize} and {@code 2*maxSize}
+ * coordinates.
+ */
+@NotThreadSafe
+public class LinestringGeometryAccumulator {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final int maxSize;
+
+  private Coordinate[] coordinates;
+
+  private int size = 0;
+
+  private int stride = 1;
+
+  private long offeredCount = 0;
+
+  /** @param maxSize minimum number of coordinates kept before subsampling starts, must be &gt;1 */
+  public LinestringGeometryAccumulator(int maxSize) {
+    isTrue(maxSize > 1, "maxSize must be >1");
+    this.maxSize = maxSize;
+    this.coordinates = new Coordinate[Math.min(INITIAL_CAPACITY, maxSize * 2)];
+  }
+
+  /** @param geometry must be non-null */
+  public void add(Geometry geometry) {
+    notNull(geometry, "geometry must be non-null");
+    for (Coordinate coordinate : geometry.getCoordinates()) {
+      add(coordinate);
+    }
+  }
+
+  private void add(Coordinate coordinate) {
+    if (offeredCount++ % stride != 0) {
+      return;
+    }
+
+    if (size == coordinates.length) {
+      coordinates = Arrays.copyOf(coordinates, Math.min(size * 2, maxSize * 2));
+    }
+
+    coordinates[size++] = coordinate;
+
+    if (size == maxSize * 2) {
+      subsample();
+    }
+  }
+
+  private void subsample() {
+    for (int i = 0; i < maxSize; i++) {
+      coordinates[i] = coordinates[i * 2];
+    }
+    Arrays.fill(coordinates, maxSize, size, null);
+    size = maxSize;
+    stride *= 2;
+  }
+
+  public int getCoordinateCount() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @param geometryFactory must be non-null
+   * @return a linestring, a point if only one coordinate has been added, or empty if nothing has
+   *     been added
+   */
+  public Optional<Geometry> getGeometry(GeometryFactory geometryFactory) {
+    notNull(geometryFactory, "geometryFactory must be non-null");
+    if (size == 0) {
+      return Optional.empty();
+    }
+    if (size == 1) {
+      return Optional.of(geometryFactory.createPoint(coordinates[0]));
+    }
+    return Optional.of(geometryFactory.createLineString(Arrays.copyOf(coordinates, size)));
+  }
+}
@@ -15,12 +15,13 @@ package org.codice.alliance.libs.klv;
 
 import static org.apache.commons.lang3.Validate.notNull;
 
-import com.vividsolutions.jts.io.WKTReader;
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.io.WKTWriter;
-import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.impl.AttributeImpl;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -106,15 +107,12 @@ public class LocationKlvProcessor implements KlvProcessor {
       Integer subsampleCount,
       GeometryOperator.Context geometryOperatorContext) {
     find(handlers, AttributeNameConstants.FRAME_CENTER, LatitudeLongitudeHandler.class)
-        .ifPresent(
+        .flatMap(
             frameCenterHandler ->
-                frameCenterHandler
-                    .asSubsampledHandler(subsampleCount)
-                    .asAttribute()
-                    .ifPresent(
-                        attribute ->
-                            setLocationFromFrameCenter(
-                                metacard, attribute, geometryOperatorContext)));
+                frameCenterHandler.asSubsampledHandler(subsampleCount).asCoordinateSequence())
+        .ifPresent(
+            coordinates ->
+                setLocationFromFrameCenter(metacard, coordinates, geometryOperatorContext));
   }
 
   private boolean isLocationNotSet(Metacard metacard) {
@@ -127,26 +125,21 @@ public class LocationKlvProcessor implements KlvProcessor {
       Integer subsampleCount,
       GeometryOperator.Context geometryOperatorContext) {
     find(handlers, AttributeNameConstants.CORNER, GeoBoxHandler.class)
-        .ifPresent(
+        .map(
             cornerHandler ->
                 cornerHandler
                     .asSubsampledHandler(subsampleCount)
-                    .asAttribute()
-                    .ifPresent(
-                        attribute ->
-                            setLocationFromAttribute(
-                                metacard, attribute, geometryOperatorContext)));
+                    .asPolygons(GeometryUtility.getGeometryFactory()))
+        .filter(polygons -> !polygons.isEmpty())
+        .ifPresent(
+            polygons -> setLocationFromPolygons(metacard, polygons, geometryOperatorContext));
   }
 
-  private void setLocationFromAttribute(
-      Metacard metacard, Attribute attribute, GeometryOperator.Context geometryOperatorContext) {
-    WKTReader wktReader = new WKTReader();
-    WKTWriter wktWriter = new WKTWriter();
-
-    GeometryUtility.createUnionOfGeometryAttribute(
-            wktReader,
-            wktWriter,
-            attribute,
+  private void setLocationFromPolygons(
+      Metacard metacard, List<Geometry> polygons, GeometryOperator.Context geometryOperatorContext) {
+    GeometryUtility.createUnionOfGeometries(
+            new WKTWriter(),
+            polygons,
             postUnionGeometryOperator,
             preUnionGeometryOperator,
             geometryOperatorContext)
@@ -158,11 +151,13 @@ public class LocationKlvProcessor implements KlvProcessor {
    * string.
    */
   private void setLocationFromFrameCenter(
-      Metacard metacard, Attribute attribute, GeometryOperator.Context geometryOperatorContext) {
+      Metacard metacard,
+      CoordinateSequence coordinates,
+      GeometryOperator.Context geometryOperatorContext) {
 
     String wkt =
-        GeometryUtility.attributeToLineString(
-            attribute,
+        GeometryUtility.coordinatesToLineString(
+            coordinates,
             new GeometryOperatorList(
                 Arrays.asList(preUnionGeometryOperator, postUnionGeometryOperator)),
             geometryOperatorContext);
@@ -0,0 +1,33 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+/**
+ * Decodes the STANAG 4609 metadata of transport streams that the caller demultiplexes itself, so
+ * the metadata can be extracted in the same pass over the transport stream as other information.
+ * The caller passes each complete PES packet of a metadata stream to {@link #accept(int, byte[])}
+ * as it is read, and each decoded packet is passed on to the callback given to {@link
+ * StanagParserFactory#createPacketParser(java.util.function.BiConsumer)}.
+ */
+public interface Stanag4609PacketParser {
+
+  /**
+   * Decode the KLV metadata in a PES packet and pass it to the callback. Packets that cannot be
+   * decoded are skipped.
+   *
+   * @param packetId the packet ID of the metadata stream
+   * @param pesPacketBytes the PES packet, including the PES header, must be non-null
+   */
+  void accept(int packetId, byte[] pesPacketBytes);
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.function.BiConsumer;
+import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
+import org.codice.alliance.libs.stanag4609.PESUtilities;
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.codice.ddf.libs.klv.KlvContext;
+import org.codice.ddf.libs.klv.KlvDecoder;
+import org.codice.ddf.libs.klv.KlvDecodingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decodes the PES packets of the metadata streams with the same KLV context and the same error
+ * handling as {@link Stanag4609TransportStreamParser}. As with {@link
+ * Stanag4609TransportStreamParser#parse(BiConsumer)}, an exception thrown by the callback is logged
+ * and the packet is skipped.
+ */
+public class Stanag4609PacketParserImpl implements Stanag4609PacketParser {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(Stanag4609PacketParserImpl.class);
+
+  private final KlvDecoder decoder;
+
+  private final BiConsumer<Integer, DecodedKLVMetadataPacket> callback;
+
+  /**
+   * @param callback called with the packet ID of the metadata stream and each decoded packet, must
+   *     be non-null
+   */
+  public Stanag4609PacketParserImpl(BiConsumer<Integer, DecodedKLVMetadataPacket> callback) {
+    this(callback, Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT);
+  }
+
+  /**
+   * @param callback called with the packet ID of the metadata stream and each decoded packet, must
+   *     be non-null
+   * @param klvContext the fields to decode, see {@link
+   *     Stanag4609TransportStreamParser#createUasDatalinkLocalSetContext}, must be non-null
+   */
+  public Stanag4609PacketParserImpl(
+      BiConsumer<Integer, DecodedKLVMetadataPacket> callback, KlvContext klvContext) {
+    notNull(callback, "callback must be non-null");
+    notNull(klvContext, "klvContext must be non-null");
+    this.callback = callback;
+    this.decoder = new KlvDecoder(klvContext);
+  }
+
+  @Override
+  public void accept(int packetId, byte[] pesPacketBytes) {
+    notNull(pesPacketBytes, "pesPacketBytes must be non-null");
+
+    try {
+      final DecodedKLVMetadataPacket decodedKLVMetadataPacket =
+          PESUtilities.handlePESPacketBytes(pesPacketBytes, decoder);
+      if (decodedKLVMetadataPacket != null) {
+        callback.accept(packetId, decodedKLVMetadataPacket);
+      }
+    } catch (KlvDecodingException e) {
+      LOGGER.debug("The KLV could not be decoded.", e);
+    } catch (RuntimeException e) {
+      LOGGER.debug("An error occurred while handling the metadata packet bytes.", e);
+    }
+  }
+}
@@ -22,7 +22,8 @@ import org.codice.ddf.libs.klv.data.set.KlvLocalSet;
 
 /**
  * Handle the various KLV data elements/structures that returned by the STANAG 4609 parser. The main
- * entry point is {@link #handle(Map, KlvHandler, Map)}.
+ * entry points are {@link #handle(Map, KlvHandler, Map)} and, for packets that are handled as they
+ * are parsed, {@link #handle(Map, KlvHandler, DecodedKLVMetadataPacket)}.
  */
 public interface Stanag4609Processor {
   void handle(
@@ -30,6 +31,11 @@ public interface Stanag4609Processor {
       KlvHandler defaultHander,
       Map<Integer, List<DecodedKLVMetadataPacket>> stanagMetadata);
 
+  void handle(
+      Map<String, KlvHandler> handlers,
+      KlvHandler defaultHandler,
+      DecodedKLVMetadataPacket decodedKLVMetadataPacket);
+
   void handle(
       Map<String, KlvHandler> handlers,
       KlvHandler defaultHandler,
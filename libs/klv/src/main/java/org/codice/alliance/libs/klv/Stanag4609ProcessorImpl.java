@@ -31,7 +31,7 @@ public class Stanag4609ProcessorImpl implements Stanag4609Processor {
 
   /**
    * Iterate through the STANAG 4609 metadata and pass each {@link DecodedKLVMetadataPacket} to
-   * {@link #handle(Map, KlvHandler, KlvContext, Map)}.
+   * {@link #handle(Map, KlvHandler, DecodedKLVMetadataPacket)}.
    *
    * @param handlers map of klv handers
    * @param stanagMetadata list of klv metadata packets
@@ -47,14 +47,28 @@ public class Stanag4609ProcessorImpl implements Stanag4609Processor {
         .stream()
         .flatMap(List::stream)
         .forEach(
-            decodedKLVMetadataPacket -> {
-              Map<String, KlvDataElement> dataElements = new HashMap<>();
+            decodedKLVMetadataPacket -> handle(handlers, defaultHander, decodedKLVMetadataPacket));
+  }
+
+  /**
+   * Pass the {@link KlvContext} of a single {@link DecodedKLVMetadataPacket} to {@link
+   * #handle(Map, KlvHandler, KlvContext, Map)} and then post-process the packet. Packets can be
+   * passed to this method as they are parsed, so they do not need to be collected first.
+   *
+   * @param handlers map of klv handers
+   * @param decodedKLVMetadataPacket klv metadata packet
+   */
+  @Override
+  public void handle(
+      Map<String, KlvHandler> handlers,
+      KlvHandler defaultHandler,
+      DecodedKLVMetadataPacket decodedKLVMetadataPacket) {
+
+    Map<String, KlvDataElement> dataElements = new HashMap<>();
 
-              handle(
-                  handlers, defaultHander, decodedKLVMetadataPacket.getDecodedKLV(), dataElements);
+    handle(handlers, defaultHandler, decodedKLVMetadataPacket.getDecodedKLV(), dataElements);
 
-              postProcessor.postProcess(dataElements, handlers);
-            });
+    postProcessor.postProcess(dataElements, handlers);
   }
 
   /**
@@ -14,8 +14,35 @@
 package org.codice.alliance.libs.klv;
 
 import com.google.common.io.ByteSource;
+import java.util.Collection;
+import java.util.function.BiConsumer;
+import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
 
 public interface StanagParserFactory {
 
   Stanag4609Parser createParser(ByteSource byteSource);
+
+  /**
+   * Create a parser that is passed the PES packets of the metadata streams by a caller that is
+   * already reading the transport stream.
+   *
+   * @param callback called with the packet ID of the metadata stream and the decoded packet as
+   *     soon as each packet is decoded, must be non-null
+   * @return a new parser for each transport stream
+   */
+  Stanag4609PacketParser createPacketParser(
+      BiConsumer<Integer, DecodedKLVMetadataPacket> callback);
+
+  /**
+   * Create a parser like {@link #createPacketParser(BiConsumer)} that only decodes the given fields
+   * of the UAS Datalink Local Set. The other fields are skipped without being decoded.
+   *
+   * @param callback called with the packet ID of the metadata stream and the decoded packet as
+   *     soon as each packet is decoded, must be non-null
+   * @param fieldNames the names of the fields that are used by the caller, such as the keys of
+   *     {@link KlvHandlerFactory#createStanag4609Handlers()}, must be non-null
+   * @return a new parser for each transport stream
+   */
+  Stanag4609PacketParser createPacketParser(
+      BiConsumer<Integer, DecodedKLVMetadataPacket> callback, Collection<String> fieldNames);
 }
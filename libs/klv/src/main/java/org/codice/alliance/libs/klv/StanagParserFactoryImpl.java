@@ -13,15 +13,31 @@
  */
 package org.codice.alliance.libs.klv;
 
+import static org.apache.commons.lang3.Validate.notNull;
+
 import com.google.common.io.ByteSource;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
 import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.codice.ddf.libs.klv.KlvContext;
 
 /**
  * This factory returns a {@link Stanag4609Parser} that uses {@link
- * Stanag4609TransportStreamParser}.
+ * Stanag4609TransportStreamParser} or a {@link Stanag4609PacketParserImpl}.
  */
 public class StanagParserFactoryImpl implements StanagParserFactory {
 
+  /**
+   * The KLV contexts are only read while decoding, so a context is created once for each set of
+   * field names and shared by the parsers.
+   */
+  private final Map<Set<String>, KlvContext> klvContexts = new ConcurrentHashMap<>();
+
   @Override
   public Stanag4609Parser createParser(ByteSource byteSource) {
     return () -> {
@@ -32,4 +48,21 @@ public class StanagParserFactoryImpl implements StanagParserFactory {
       }
     };
   }
+
+  @Override
+  public Stanag4609PacketParser createPacketParser(
+      BiConsumer<Integer, DecodedKLVMetadataPacket> callback) {
+    return new Stanag4609PacketParserImpl(callback);
+  }
+
+  @Override
+  public Stanag4609PacketParser createPacketParser(
+      BiConsumer<Integer, DecodedKLVMetadataPacket> callback, Collection<String> fieldNames) {
+    notNull(fieldNames, "fieldNames must be non-null");
+    KlvContext klvContext =
+        klvContexts.computeIfAbsent(
+            new HashSet<>(fieldNames),
+            Stanag4609TransportStreamParser::createUasDatalinkLocalSetContext);
+    return new Stanag4609PacketParserImpl(callback, klvContext);
+  }
 }
@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Simplifies a line while its points are still arriving. This is the opening-window form of
+ * Douglas-Peucker: the last vertex that was kept is the anchor, and the newest point is the end of
+ * a candidate segment. As long as every point between them is within the distance tolerance of
+ * that segment, those points are dropped from the line. When a new point would put one of them out
+ * of tolerance, the previous point is kept as a vertex and becomes the new anchor.
+ *
+ * <p>Every dropped point is within the distance tolerance of the simplified line, so straight
+ * flight legs collapse to a few vertices while turns keep the vertices they need. The dropped
+ * points since the anchor are kept here until the next vertex is found, and there are at most
+ * {@code maximumWindowSize} of them, which bounds the memory and the work done for each point.
+ *
+ * <p>The line itself is stored by the caller in two {@link DoubleList}s and only ever contains the
+ * vertices and the newest point.
+ */
+@NotThreadSafe
+class StreamingLineSimplifier {
+
+  static final int DEFAULT_MAXIMUM_WINDOW_SIZE = 256;
+
+  private final double distanceTolerance;
+
+  private final int maximumWindowSize;
+
+  /** Index of the last vertex that was kept. */
+  private int anchor = 0;
+
+  /** The points that were dropped since the anchor. */
+  private final DoubleList windowXs = new DoubleList();
+
+  private final DoubleList windowYs = new DoubleList();
+
+  /**
+   * @param distanceTolerance maximum distance of a dropped point from the simplified line, in the
+   *     units of the coordinates, must be &gt;=0
+   * @param maximumWindowSize maximum number of points dropped between two vertices, must be &gt;0
+   */
+  StreamingLineSimplifier(double distanceTolerance, int maximumWindowSize) {
+    isTrue(distanceTolerance >= 0, "distanceTolerance must be >=0");
+    isTrue(maximumWindowSize > 0, "maximumWindowSize must be >0");
+    this.distanceTolerance = distanceTolerance;
+    this.maximumWindowSize = maximumWindowSize;
+  }
+
+  /**
+   * Called after a point has been added to the end of the line. Values at or beyond {@code
+   * pointCount} (e.g. a latitude that is waiting for its longitude) are shifted down if a point is
+   * dropped.
+   *
+   * @param xs the x coordinates
+   * @param ys the y coordinates
+   * @param pointCount the number of complete points, the newest point is {@code pointCount - 1}
+   * @return the number of complete points after simplification
+   */
+  int accept(DoubleList xs, DoubleList ys, int pointCount) {
+    final int last = pointCount - 1;
+    final int previous = last - 1;
+
+    if (previous <= anchor) {
+      return pointCount;
+    }
+
+    if (windowXs.size() < maximumWindowSize && isWithinTolerance(xs, ys, previous, last)) {
+      windowXs.add(xs.get(previous));
+      windowYs.add(ys.get(previous));
+      xs.removeRange(previous, last);
+      ys.removeRange(previous, last);
+      return pointCount - 1;
+    }
+
+    anchor = previous;
+    windowXs.truncate(0);
+    windowYs.truncate(0);
+    return pointCount;
+  }
+
+  /** Start a new line. */
+  void reset() {
+    anchor = 0;
+    windowXs.truncate(0);
+    windowYs.truncate(0);
+  }
+
+  /**
+   * @return true if the previous point and the points dropped since the anchor are within the
+   *     distance tolerance of the segment from the anchor to the newest point
+   */
+  private boolean isWithinTolerance(DoubleList xs, DoubleList ys, int previous, int last) {
+    final double toleranceSquared = distanceTolerance * distanceTolerance;
+    final double x1 = xs.get(anchor);
+    final double y1 = ys.get(anchor);
+    final double x2 = xs.get(last);
+    final double y2 = ys.get(last);
+
+    if (distanceToSegmentSquared(xs.get(previous), ys.get(previous), x1, y1, x2, y2)
+        > toleranceSquared) {
+      return false;
+    }
+
+    for (int i = 0; i < windowXs.size(); i++) {
+      if (distanceToSegmentSquared(windowXs.get(i), windowYs.get(i), x1, y1, x2, y2)
+          > toleranceSquared) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static double distanceToSegmentSquared(
+      double x, double y, double x1, double y1, double x2, double y2) {
+    final double dx = x2 - x1;
+    final double dy = y2 - y1;
+    final double lengthSquared = dx * dx + dy * dy;
+
+    double t = 0;
+    if (lengthSquared > 0) {
+      t = Math.max(0, Math.min(1, ((x - x1) * dx + (y - y1) * dy) / lengthSquared));
+    }
+
+    final double px = x - (x1 + t * dx);
+    final double py = y - (y1 + t * dy);
+    return px * px + py * py;
+  }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.operation.union.UnaryUnionOp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Maintains the union of a growing set of geometries. Added geometries are buffered and merged in
+ * batches with a cascaded union, so adding a geometry does not require the accumulated geometry to
+ * be re-read or re-unioned. The compaction operator (e.g. simplification) is applied to the result
+ * of each batch, which keeps the size of the accumulated geometry bounded.
+ */
+@NotThreadSafe
+public class UnionGeometryAccumulator {
+
+  public static final int DEFAULT_BATCH_SIZE = 32;
+
+  private final GeometryOperator compactionGeometryOperator;
+
+  private final int batchSize;
+
+  private final List<Geometry> pendingGeometries = new ArrayList<>();
+
+  private Geometry geometry;
+
+  /** @param compactionGeometryOperator must be non-null */
+  public UnionGeometryAccumulator(GeometryOperator compactionGeometryOperator) {
+    this(compactionGeometryOperator, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * @param compactionGeometryOperator applied to the union of each batch, must be non-null
+   * @param batchSize number of geometries to buffer before they are merged, must be &gt;0
+   */
+  public UnionGeometryAccumulator(GeometryOperator compactionGeometryOperator, int batchSize) {
+    notNull(compactionGeometryOperator, "compactionGeometryOperator must be non-null");
+    isTrue(batchSize > 0, "batchSize must be >0");
+    this.compactionGeometryOperator = compactionGeometryOperator;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * @param geometry must be non-null
+   * @param context must be non-null
+   */
+  public void add(Geometry geometry, GeometryOperator.Context context) {
+    notNull(geometry, "geometry must be non-null");
+    pendingGeometries.add(geometry);
+    if (pendingGeometries.size() >= batchSize) {
+      merge(context);
+    }
+  }
+
+  public boolean isEmpty() {
+    return geometry == null && pendingGeometries.isEmpty();
+  }
+
+  /**
+   * @param context must be non-null
+   * @return the union of every geometry added so far, or empty if nothing has been added
+   */
+  public Optional<Geometry> getGeometry(GeometryOperator.Context context) {
+    if (!pendingGeometries.isEmpty()) {
+      merge(context);
+    }
+    return Optional.ofNullable(geometry);
+  }
+
+  private void merge(GeometryOperator.Context context) {
+    if (geometry != null) {
+      pendingGeometries.add(geometry);
+    }
+    geometry = compactionGeometryOperator.apply(UnaryUnionOp.union(pendingGeometries), context);
+    pendingGeometries.clear();
+  }
+}
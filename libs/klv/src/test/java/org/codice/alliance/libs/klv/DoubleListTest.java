@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class DoubleListTest {
+
+  @Test
+  public void testAddBeyondInitialCapacity() {
+    DoubleList doubleList = new DoubleList();
+    for (int i = 0; i < 100; i++) {
+      doubleList.add(i);
+    }
+
+    assertThat(doubleList.size(), is(100));
+    assertThat(doubleList.get(0), is(0.0));
+    assertThat(doubleList.get(99), is(99.0));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testGetOutOfBounds() {
+    DoubleList doubleList = new DoubleList();
+    doubleList.add(1);
+    doubleList.get(1);
+  }
+
+  @Test
+  public void testTruncate() {
+    DoubleList doubleList = create(1, 2, 3);
+
+    doubleList.truncate(5);
+    assertThat(doubleList.size(), is(3));
+
+    doubleList.truncate(1);
+    assertThat(doubleList.asList(), contains(1.0));
+  }
+
+  @Test
+  public void testSubsample() {
+    DoubleList doubleList = create(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+
+    assertThat(
+        doubleList.subsample(5, doubleList.size()).asList(), contains(0.0, 2.0, 4.0, 6.0, 8.0));
+  }
+
+  @Test
+  public void testRemoveRange() {
+    DoubleList doubleList = create(0, 1, 2, 3, 4);
+
+    doubleList.removeRange(1, 3);
+
+    assertThat(doubleList.asList(), contains(0.0, 3.0, 4.0));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testRemoveRangeOutOfBounds() {
+    create(0, 1).removeRange(1, 3);
+  }
+
+  @Test
+  public void testGetMinimumSize() {
+    assertThat(DoubleList.getMinimumSize(Arrays.asList(create(1, 2), create(1))), is(1));
+    assertThat(DoubleList.getMinimumSize(Collections.emptyList()), is(0));
+  }
+
+  @Test
+  public void testAsListReflectsChanges() {
+    DoubleList doubleList = create(1);
+    List<Double> list = doubleList.asList();
+
+    doubleList.add(2);
+
+    assertThat(list, contains(1.0, 2.0));
+  }
+
+  private DoubleList create(double... values) {
+    DoubleList doubleList = new DoubleList();
+    for (double value : values) {
+      doubleList.add(value);
+    }
+    return doubleList;
+  }
+}
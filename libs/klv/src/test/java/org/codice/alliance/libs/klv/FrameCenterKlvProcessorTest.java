@@ -19,26 +19,18 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
 
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKTReader;
 import com.vividsolutions.jts.io.WKTWriter;
-import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.impl.MetacardImpl;
 import ddf.catalog.data.types.Media;
-import java.io.Serializable;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.Mockito;
 
 public class FrameCenterKlvProcessorTest {
 
@@ -46,16 +38,17 @@ public class FrameCenterKlvProcessorTest {
 
   private Map<String, KlvHandler> handlerMap;
 
-  private Attribute attribute;
+  private LatitudeLongitudeHandler klvHandler;
 
   @Before
   public void setup() {
     frameCenterKlvProcessor = new FrameCenterKlvProcessor();
-    attribute = mock(Attribute.class);
 
-    LatitudeLongitudeHandler klvHandler = mock(LatitudeLongitudeHandler.class);
-    when(klvHandler.asAttribute()).thenReturn(Optional.of(attribute));
-    when(klvHandler.asSubsampledHandler(Mockito.anyInt())).thenCallRealMethod();
+    klvHandler =
+        new LatitudeLongitudeHandler(
+            AttributeNameConstants.FRAME_CENTER,
+            Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE,
+            Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE);
 
     handlerMap = new HashMap<>();
     handlerMap.put(Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE, klvHandler);
@@ -70,7 +63,7 @@ public class FrameCenterKlvProcessorTest {
   @Test
   public void testMissingSubsampleConfiguration() {
 
-    when(attribute.getValues()).thenReturn(Arrays.asList("POINT(0 0)", "POINT(1 1)", "POINT(2 2)"));
+    addPoints(0, 0, 1, 1, 2, 2);
 
     Metacard metacard = mock(Metacard.class);
 
@@ -90,7 +83,7 @@ public class FrameCenterKlvProcessorTest {
   @Test
   public void testMinSubsampleConfiguration() {
 
-    when(attribute.getValues()).thenReturn(Arrays.asList("POINT(0 0)", "POINT(1 1)", "POINT(2 2)"));
+    addPoints(0, 0, 1, 1, 2, 2);
 
     Metacard metacard = mock(Metacard.class);
 
@@ -106,19 +99,37 @@ public class FrameCenterKlvProcessorTest {
 
   @Test
   public void testMultipleCoordinates() throws ParseException {
-    verifyFrameCenter(
-        Arrays.asList("POINT(0 0)", "POINT(1 1)", "POINT(2 2)"), "LINESTRING(0 0, 1 1, 2 2)");
+    addPoints(0, 0, 1, 1, 2, 2);
+    verifyFrameCenter("LINESTRING(0 0, 1 1, 2 2)");
   }
 
   @Test
   public void testOneCoordinate() throws ParseException {
-    verifyFrameCenter(Collections.singletonList("POINT(1 2)"), "POINT(1 2)");
+    addPoints(1, 2);
+    verifyFrameCenter("POINT(1 2)");
   }
 
-  private void verifyFrameCenter(List<Serializable> coordinates, String frameCenterWkt)
-      throws ParseException {
-    when(attribute.getValues()).thenReturn(coordinates);
+  @Test
+  public void testNoCoordinates() {
+    Metacard metacard = mock(Metacard.class);
+
+    KlvProcessor.Configuration configuration = new KlvProcessor.Configuration();
+    configuration.set(KlvProcessor.Configuration.SUBSAMPLE_COUNT, 100);
+
+    frameCenterKlvProcessor.process(handlerMap, metacard, configuration);
+
+    verify(metacard, times(0)).setAttribute(any());
+  }
+
+  /** @param lonLats longitude-latitude pairs */
+  private void addPoints(double... lonLats) {
+    for (int i = 0; i < lonLats.length; i += 2) {
+      klvHandler.accept(Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE, lonLats[i]);
+      klvHandler.accept(Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE, lonLats[i + 1]);
+    }
+  }
 
+  private void verifyFrameCenter(String frameCenterWkt) throws ParseException {
     Metacard metacard = new MetacardImpl();
 
     KlvProcessor.Configuration configuration = new KlvProcessor.Configuration();
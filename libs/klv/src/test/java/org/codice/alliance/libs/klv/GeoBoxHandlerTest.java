@@ -19,6 +19,9 @@ import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.io.WKTReader;
 import java.util.List;
 import java.util.Map;
 import org.codice.ddf.libs.klv.KlvDecodingException;
@@ -269,4 +272,37 @@ public class GeoBoxHandlerTest {
   private void assertThatCount(Map<String, List<Double>> rawData, String name, int count) {
     assertThat(rawData.get(name), hasSize(count));
   }
+  @Test
+  public void testAsPolygons() throws Exception {
+
+    geoBoxHandler.accept(LAT1, 1);
+    geoBoxHandler.accept(LON1, 2);
+    geoBoxHandler.accept(LAT2, 3);
+    geoBoxHandler.accept(LON2, 4);
+    geoBoxHandler.accept(LAT3, 5);
+    geoBoxHandler.accept(LON3, 6);
+    geoBoxHandler.accept(LAT4, 7);
+    geoBoxHandler.accept(LON4, 8);
+
+    // this set is incomplete and is not converted to a polygon
+    geoBoxHandler.accept(LAT1, 9);
+
+    List<Geometry> polygons = geoBoxHandler.asPolygons(new GeometryFactory());
+
+    assertThat(polygons, hasSize(1));
+
+    Geometry expected =
+        new WKTReader().read((String) geoBoxHandler.asAttribute().get().getValues().get(0));
+
+    assertThat(polygons.get(0).equalsExact(expected), is(true));
+  }
+
+  @Test
+  public void testAsPolygonsWithMissingField() {
+
+    geoBoxHandler.accept(LAT1, 1);
+    geoBoxHandler.accept(LON1, 2);
+
+    assertThat(geoBoxHandler.asPolygons(new GeometryFactory()), hasSize(0));
+  }
 }
@@ -13,25 +13,46 @@
  */
 package org.codice.alliance.libs.klv;
 
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeThat;
 
+import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequence;
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKTReader;
 import com.vividsolutions.jts.io.WKTWriter;
 import ddf.catalog.data.Attribute;
 import ddf.catalog.data.impl.AttributeImpl;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class GeometryUtilityTest {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(GeometryUtilityTest.class);
+
   private static final String FIELD = "field";
 
+  private static final String BENCHMARK_FOOTPRINTS_PROPERTY = "klv.benchmark.footprints";
+
+  /** Merging the footprints one at a time is only timed up to this many footprints. */
+  private static final String BENCHMARK_PAIRWISE_FOOTPRINTS_PROPERTY =
+      "klv.benchmark.pairwise.footprints";
+
+  private static final int DEFAULT_BENCHMARK_PAIRWISE_FOOTPRINTS = 1000;
+
   private WKTReader wktReader;
 
   private WKTWriter wktWriter;
@@ -216,4 +237,194 @@ public class GeometryUtilityTest {
 
     assertThat(lineString, is("LINESTRING EMPTY"));
   }
+  @Test
+  public void testCreateUnionOfGeometries() throws ParseException {
+
+    Optional<String> optionalWkt =
+        GeometryUtility.createUnionOfGeometries(
+            wktWriter,
+            Arrays.asList(
+                wktReader.read("POLYGON (( 0 0, 10 0, 10 10, 0 10, 0 0))"),
+                wktReader.read("POLYGON (( 5 5, 15 5, 15 15, 5 15, 5 5))")),
+            GeometryOperator.IDENTITY,
+            GeometryOperator.IDENTITY,
+            new GeometryOperator.Context());
+
+    Geometry actual = wktReader.read(optionalWkt.get()).norm();
+    Geometry expected =
+        wktReader.read("POLYGON (( 0 0, 10 0, 10 5, 15 5, 15 15, 5 15, 5 10, 0 10, 0 0 ))").norm();
+
+    assertThat(actual.equalsExact(expected), is(true));
+  }
+
+  @Test
+  public void testCreateUnionOfNoGeometries() {
+
+    Optional<String> optionalWkt =
+        GeometryUtility.createUnionOfGeometries(
+            wktWriter,
+            Collections.emptyList(),
+            GeometryOperator.IDENTITY,
+            GeometryOperator.IDENTITY,
+            new GeometryOperator.Context());
+
+    assertThat(optionalWkt.isPresent(), is(false));
+  }
+
+  @Test
+  public void testCoordinatesToLineString() {
+
+    String lineString =
+        GeometryUtility.coordinatesToLineString(
+            new PackedCoordinateSequence.Double(new double[] {0, 0, 10, 10}, 2),
+            GeometryOperator.IDENTITY,
+            new GeometryOperator.Context());
+
+    assertThat(lineString, is("LINESTRING (0 0, 10 10)"));
+  }
+
+  @Test
+  public void testCoordinatesToLineStringWithOneCoordinate() {
+
+    String lineString =
+        GeometryUtility.coordinatesToLineString(
+            new PackedCoordinateSequence.Double(new double[] {1, 2}, 2),
+            GeometryOperator.IDENTITY,
+            new GeometryOperator.Context());
+
+    assertThat(lineString, is("POINT (1 2)"));
+  }
+
+  @Test
+  public void testCoordinatesToLineStringWithNoCoordinates() {
+
+    String lineString =
+        GeometryUtility.coordinatesToLineString(
+            new PackedCoordinateSequence.Double(new double[0], 2),
+            GeometryOperator.IDENTITY,
+            new GeometryOperator.Context());
+
+    assertThat(lineString, is("LINESTRING EMPTY"));
+  }
+
+  @Test
+  public void testRoundCoordinate() {
+    assertThat(GeometryUtility.roundCoordinate(-112.12345649), is(-112.123456));
+    assertThat(GeometryUtility.roundCoordinate(33.0000006), is(33.000001));
+    assertThat(Double.isNaN(GeometryUtility.roundCoordinate(Double.NaN)), is(true));
+  }
+
+  @Test
+  public void testUnion() throws ParseException {
+
+    Geometry actual =
+        GeometryUtility.union(
+                Arrays.asList(
+                    wktReader.read("POLYGON (( 0 0, 10 0, 10 10, 0 10, 0 0))"),
+                    wktReader.read("POLYGON (( 5 5, 15 5, 15 15, 5 15, 5 5))"),
+                    wktReader.read("POLYGON (( 20 20, 30 20, 30 30, 20 30, 20 20))")))
+            .get();
+
+    Geometry expected =
+        wktReader.read(
+            "MULTIPOLYGON ((( 0 0, 10 0, 10 5, 15 5, 15 15, 5 15, 5 10, 0 10, 0 0 )), "
+                + "(( 20 20, 30 20, 30 30, 20 30, 20 20 )))");
+
+    assertThat(actual.equalsTopo(expected), is(true));
+  }
+
+  @Test
+  public void testUnionOfOneGeometry() throws ParseException {
+    Geometry geometry = wktReader.read("POLYGON (( 0 0, 10 0, 10 10, 0 10, 0 0))");
+    assertThat(GeometryUtility.union(Collections.singletonList(geometry)).get(), is(geometry));
+  }
+
+  @Test
+  public void testUnionOfNoGeometries() {
+    assertThat(GeometryUtility.union(Collections.emptyList()).isPresent(), is(false));
+  }
+
+  @Test
+  public void testUnionOfTrackMatchesPairwiseUnion() {
+    List<Geometry> footprints = createFootprints(1000);
+
+    Geometry cascaded = GeometryUtility.union(footprints).get();
+    Geometry pairwise = footprints.stream().reduce(Geometry::union).get();
+
+    assertThat(cascaded.isValid(), is(true));
+    assertThat(cascaded.getArea(), closeTo(pairwise.getArea(), pairwise.getArea() * 1e-6));
+  }
+
+  /**
+   * Log the time to union a track of overlapping frame footprints. The benchmark only runs when the
+   * {@value #BENCHMARK_FOOTPRINTS_PROPERTY} system property is set to the footprint counts (comma
+   * separated), for example {@code -Dklv.benchmark.footprints=1000,10000,50000}. The pairwise union
+   * that was used before is timed for comparison up to {@value
+   * #BENCHMARK_PAIRWISE_FOOTPRINTS_PROPERTY} footprints because it is quadratic.
+   */
+  @Test
+  public void testUnionThroughput() {
+
+    String footprintCounts = System.getProperty(BENCHMARK_FOOTPRINTS_PROPERTY);
+    assumeThat(footprintCounts, notNullValue());
+
+    int maxPairwiseCount =
+        Integer.getInteger(
+            BENCHMARK_PAIRWISE_FOOTPRINTS_PROPERTY, DEFAULT_BENCHMARK_PAIRWISE_FOOTPRINTS);
+
+    String[] counts = footprintCounts.split(",");
+
+    for (String count : counts) {
+      List<Geometry> footprints = createFootprints(Integer.parseInt(count.trim()));
+
+      long start = System.nanoTime();
+      Geometry cascaded = GeometryUtility.union(footprints).get();
+      long cascadedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+      String pairwiseMillis = "skipped";
+      if (footprints.size() <= maxPairwiseCount) {
+        start = System.nanoTime();
+        Geometry pairwise = footprints.stream().reduce(Geometry::union).get();
+        pairwiseMillis = Long.toString(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        assertThat(cascaded.getArea(), closeTo(pairwise.getArea(), pairwise.getArea() * 1e-6));
+      }
+
+      LOGGER.info(
+          "geometry union: footprints={} cascadedMillis={} pairwiseMillis={}",
+          footprints.size(),
+          cascadedMillis,
+          pairwiseMillis);
+
+      assertThat(cascaded.isValid(), is(true));
+    }
+  }
+
+  /**
+   * Create the footprints of a sensor that sweeps back and forth across a flight path. Each
+   * footprint is a rotated quadrilateral that overlaps the footprints of the neighbouring frames.
+   */
+  private List<Geometry> createFootprints(int count) {
+    GeometryFactory geometryFactory = new GeometryFactory();
+    List<Geometry> footprints = new ArrayList<>(count);
+
+    for (int i = 0; i < count; i++) {
+      double centerX = i * 0.0005;
+      double centerY = Math.sin(i / 200.0) * 0.01;
+      double angle = i * 0.01;
+      double cos = Math.cos(angle) * 0.002;
+      double sin = Math.sin(angle) * 0.002;
+
+      Coordinate[] ring = new Coordinate[5];
+      ring[0] = new Coordinate(centerX + cos - sin, centerY + sin + cos);
+      ring[1] = new Coordinate(centerX - cos - sin, centerY - sin + cos);
+      ring[2] = new Coordinate(centerX - cos + sin, centerY - sin - cos);
+      ring[3] = new Coordinate(centerX + cos + sin, centerY + sin - cos);
+      ring[4] = ring[0];
+
+      footprints.add(geometryFactory.createPolygon(ring));
+    }
+
+    return footprints;
+  }
 }
@@ -13,10 +13,12 @@
  */
 package org.codice.alliance.libs.klv;
 
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
 import java.util.Map;
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
 import org.junit.Test;
 
 public class KlvHandlerFactoryImplTest {
@@ -30,4 +32,18 @@ public class KlvHandlerFactoryImplTest {
 
     assertThat(handlers.isEmpty(), is(false));
   }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testHandlersAreUnmodifiable() {
+    new KlvHandlerFactoryImpl().createStanag4609Handlers().clear();
+  }
+
+  @Test
+  public void testCornerFieldsShareHandler() {
+    Map<String, KlvHandler> handlers = new KlvHandlerFactoryImpl().createStanag4609Handlers();
+
+    assertThat(
+        handlers.get(Stanag4609TransportStreamParser.CORNER_LATITUDE_1),
+        sameInstance(handlers.get(Stanag4609TransportStreamParser.CORNER_LONGITUDE_4)));
+  }
 }
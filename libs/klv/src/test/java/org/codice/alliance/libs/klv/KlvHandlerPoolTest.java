@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KlvHandlerPoolTest {
+
+  private KlvHandlerFactory klvHandlerFactory;
+
+  private KlvHandler sharedHandler;
+
+  private KlvHandlerPool klvHandlerPool;
+
+  @Before
+  public void setup() {
+    sharedHandler = mock(KlvHandler.class);
+    klvHandlerFactory = mock(KlvHandlerFactory.class);
+    when(klvHandlerFactory.createStanag4609Handlers())
+        .thenAnswer(
+            invocationOnMock -> {
+              Map<String, KlvHandler> handlers = new HashMap<>();
+              handlers.put("a", sharedHandler);
+              handlers.put("b", sharedHandler);
+              return handlers;
+            });
+    klvHandlerPool = new KlvHandlerPool(klvHandlerFactory);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullFactory() {
+    new KlvHandlerPool(null);
+  }
+
+  @Test
+  public void testHandlersAreReused() {
+    Map<String, KlvHandler> first;
+    try (KlvHandlerPool.Lease lease = klvHandlerPool.acquire()) {
+      first = lease.getHandlers();
+    }
+
+    try (KlvHandlerPool.Lease lease = klvHandlerPool.acquire()) {
+      assertThat(lease.getHandlers(), sameInstance(first));
+    }
+
+    verify(klvHandlerFactory, times(1)).createStanag4609Handlers();
+    assertThat(klvHandlerPool.getAvailableCount(), is(1));
+  }
+
+  @Test
+  public void testConcurrentLeasesUseDifferentHandlers() {
+    try (KlvHandlerPool.Lease lease1 = klvHandlerPool.acquire();
+        KlvHandlerPool.Lease lease2 = klvHandlerPool.acquire()) {
+      assertThat(lease1.getHandlers(), not(sameInstance(lease2.getHandlers())));
+    }
+
+    verify(klvHandlerFactory, times(2)).createStanag4609Handlers();
+    assertThat(klvHandlerPool.getAvailableCount(), is(2));
+  }
+
+  @Test
+  public void testSharedHandlerIsResetOnce() {
+    KlvHandlerPool.Lease lease = klvHandlerPool.acquire();
+    lease.close();
+    lease.close();
+
+    verify(sharedHandler, times(1)).reset();
+    assertThat(klvHandlerPool.getAvailableCount(), is(1));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testHandlersAreUnmodifiable() {
+    try (KlvHandlerPool.Lease lease = klvHandlerPool.acquire()) {
+      lease.getHandlers().clear();
+    }
+  }
+}
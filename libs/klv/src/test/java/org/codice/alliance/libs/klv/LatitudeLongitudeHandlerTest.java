@@ -19,6 +19,7 @@ import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 
+import com.vividsolutions.jts.geom.CoordinateSequence;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -176,4 +177,87 @@ public class LatitudeLongitudeHandlerTest {
   private void assertThatCount(Map<String, List<Double>> rawData, String name, int count) {
     assertThat(rawData.get(name), hasSize(count));
   }
+  @Test
+  public void testAsCoordinateSequence() {
+
+    klvHandler.accept(LAT, 33.1234567);
+    klvHandler.accept(LON, -112.0);
+    klvHandler.accept(LAT, 34.0);
+    klvHandler.accept(LON, -113.0);
+
+    // this value does not have a matching longitude
+    klvHandler.accept(LAT, 35.0);
+
+    CoordinateSequence coordinates = klvHandler.asCoordinateSequence().get();
+
+    assertThat(coordinates.size(), is(2));
+    assertThat(coordinates.getX(0), is(-112.0));
+    assertThat(coordinates.getY(0), is(33.123457));
+    assertThat(coordinates.getX(1), is(-113.0));
+    assertThat(coordinates.getY(1), is(34.0));
+  }
+
+  @Test
+  public void testAsCoordinateSequenceWithMissingField() {
+    klvHandler.accept(LAT, 33.0);
+    assertThat(klvHandler.asCoordinateSequence().isPresent(), is(false));
+  }
+
+  @Test
+  public void testAsCoordinateSequenceEmpty() {
+    assertThat(klvHandler.asCoordinateSequence().isPresent(), is(false));
+  }
+
+  @Test
+  public void testSimplifyStraightLine() {
+    LatitudeLongitudeHandler handler = new LatitudeLongitudeHandler("field", LAT, LON, 0.001);
+
+    for (int i = 0; i <= 100; i++) {
+      handler.accept(LAT, 10.0);
+      handler.accept(LON, i * 0.01);
+    }
+
+    CoordinateSequence coordinates = handler.asCoordinateSequence().get();
+
+    assertThat(coordinates.size(), is(2));
+    assertThat(coordinates.getX(0), is(0.0));
+    assertThat(coordinates.getX(1), is(1.0));
+  }
+
+  @Test
+  public void testSimplifyKeepsTurn() {
+    LatitudeLongitudeHandler handler = new LatitudeLongitudeHandler("field", LAT, LON, 0.001);
+
+    for (int i = 0; i <= 10; i++) {
+      handler.accept(LON, i * 0.1);
+      handler.accept(LAT, 0.0);
+    }
+    for (int i = 1; i <= 10; i++) {
+      handler.accept(LON, 1.0);
+      handler.accept(LAT, i * 0.1);
+    }
+
+    CoordinateSequence coordinates = handler.asCoordinateSequence().get();
+
+    assertThat(coordinates.size(), is(3));
+    assertThat(coordinates.getX(1), is(1.0));
+    assertThat(coordinates.getY(1), is(0.0));
+  }
+
+  @Test
+  public void testResetSimplifiedHandler() {
+    LatitudeLongitudeHandler handler = new LatitudeLongitudeHandler("field", LAT, LON, 0.001);
+
+    for (int i = 0; i < 10; i++) {
+      handler.accept(LAT, 0.0);
+      handler.accept(LON, i * 0.1);
+    }
+
+    handler.reset();
+
+    handler.accept(LAT, 1.0);
+    handler.accept(LON, 2.0);
+
+    assertThat(handler.asCoordinateSequence().get().size(), is(1));
+  }
 }
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+import org.junit.Test;
+
+public class LinestringGeometryAccumulatorTest {
+
+  private final GeometryFactory geometryFactory = new GeometryFactory();
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaxSizeTooSmall() {
+    new LinestringGeometryAccumulator(1);
+  }
+
+  @Test
+  public void testEmpty() {
+    LinestringGeometryAccumulator accumulator = new LinestringGeometryAccumulator(10);
+
+    assertThat(accumulator.isEmpty(), is(true));
+    assertThat(accumulator.getGeometry(geometryFactory).isPresent(), is(false));
+  }
+
+  @Test
+  public void testConcatenate() throws ParseException {
+    WKTReader wktReader = new WKTReader();
+    LinestringGeometryAccumulator accumulator = new LinestringGeometryAccumulator(10);
+
+    accumulator.add(wktReader.read("LINESTRING (30 10, 10 30, 40 40)"));
+    accumulator.add(wktReader.read("LINESTRING (50 50, 60 60)"));
+
+    assertThat(
+        accumulator.getGeometry(geometryFactory).get(),
+        is(wktReader.read("LINESTRING (30 10, 10 30, 40 40, 50 50, 60 60)")));
+  }
+
+  @Test
+  public void testSinglePoint() throws ParseException {
+    LinestringGeometryAccumulator accumulator = new LinestringGeometryAccumulator(10);
+
+    accumulator.add(new WKTReader().read("POINT (1 2)"));
+
+    assertThat(accumulator.getGeometry(geometryFactory).get(), instanceOf(Point.class));
+  }
+
+  /** Test that the coordinates are subsampled evenly and stay between maxSize and 2*maxSize. */
+  @Test
+  public void testSubsample() {
+    int maxSize = 100;
+    LinestringGeometryAccumulator accumulator = new LinestringGeometryAccumulator(maxSize);
+
+    int count = maxSize * 7;
+    for (int i = 0; i < count; i++) {
+      accumulator.add(geometryFactory.createPoint(new Coordinate(i, 0)));
+      assertThat(accumulator.getCoordinateCount() < maxSize * 2, is(true));
+    }
+
+    Geometry geometry = accumulator.getGeometry(geometryFactory).get();
+
+    assertThat(geometry, instanceOf(LineString.class));
+    assertThat(geometry.getNumPoints() >= maxSize, is(true));
+
+    Coordinate[] coordinates = geometry.getCoordinates();
+    double spacing = coordinates[1].x - coordinates[0].x;
+    assertThat(coordinates[0].x, is(0.0));
+    for (int i = 1; i < coordinates.length; i++) {
+      assertThat(coordinates[i].x - coordinates[i - 1].x, is(spacing));
+    }
+  }
+}
@@ -16,14 +16,16 @@ package org.codice.alliance.libs.klv;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import ddf.catalog.data.Attribute;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequence;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.impl.MetacardImpl;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -53,7 +55,7 @@ public class LocationKlvProcessorTest {
   private GeometryOperator geometryFunction;
 
   @Before
-  public void setup() {
+  public void setup() throws ParseException {
     wkt = "POLYGON ((0 0, 5 0, 5 5, 0 5, 0 0))";
     wktLineString = "LINESTRING (0 0, 5 5, 10 10)";
     geometryFunction = GeometryOperator.IDENTITY;
@@ -61,16 +63,12 @@ public class LocationKlvProcessorTest {
     geoBoxHandler = mock(GeoBoxHandler.class);
     latLonHandler = mock(LatitudeLongitudeHandler.class);
 
-    Attribute attribute = mock(Attribute.class);
-
-    when(attribute.getValues()).thenReturn(Collections.singletonList(wkt));
-    when(geoBoxHandler.asAttribute()).thenReturn(Optional.of(attribute));
+    when(geoBoxHandler.asPolygons(any()))
+        .thenReturn(Collections.singletonList(new WKTReader().read(wkt)));
     when(geoBoxHandler.getAttributeName()).thenReturn(AttributeNameConstants.CORNER);
     when(geoBoxHandler.asSubsampledHandler(Mockito.anyInt())).thenReturn(geoBoxHandler);
 
-    attribute = mock(Attribute.class);
-    when(attribute.getValues()).thenReturn(Collections.emptyList());
-    when(latLonHandler.asAttribute()).thenReturn(Optional.of(attribute));
+    when(latLonHandler.asCoordinateSequence()).thenReturn(Optional.empty());
     when(latLonHandler.getAttributeName()).thenReturn(AttributeNameConstants.FRAME_CENTER);
     when(latLonHandler.asSubsampledHandler(Mockito.anyInt())).thenReturn(latLonHandler);
 
@@ -119,17 +117,11 @@ public class LocationKlvProcessorTest {
   public void testProcessFrameCenter() {
     klvConfiguration.set(KlvProcessor.Configuration.SUBSAMPLE_COUNT, 50);
 
-    Attribute attribute = mock(Attribute.class);
-
-    when(attribute.getValues()).thenReturn(Collections.emptyList());
-    when(geoBoxHandler.asAttribute()).thenReturn(Optional.of(attribute));
-    when(geoBoxHandler.getAttributeName()).thenReturn(AttributeNameConstants.CORNER);
+    when(geoBoxHandler.asPolygons(any())).thenReturn(Collections.emptyList());
 
-    attribute = mock(Attribute.class);
-    when(attribute.getValues())
-        .thenReturn(Arrays.asList("POINT(0 0)", "POINT(5 5)", "POINT(10 10)"));
-    when(latLonHandler.asAttribute()).thenReturn(Optional.of(attribute));
-    when(latLonHandler.getAttributeName()).thenReturn(AttributeNameConstants.FRAME_CENTER);
+    when(latLonHandler.asCoordinateSequence())
+        .thenReturn(
+            Optional.of(new PackedCoordinateSequence.Double(new double[] {0, 0, 5, 5, 10, 10}, 2)));
 
     locationKlvProcessor.process(handlers, metacard, klvConfiguration);
 
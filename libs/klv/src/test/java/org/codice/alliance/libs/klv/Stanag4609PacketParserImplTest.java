@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.junit.Before;
+import org.junit.Test;
+
+public class Stanag4609PacketParserImplTest {
+
+  private static final int PACKET_ID = 497;
+
+  private static final byte[] SYNCHRONOUS_METADATA_PACKET = {
+    0x00, 0x00, 0x01, (byte) 0xFC, 0x00, 0x22, (byte) 0x85, (byte) 0x80, 0x05, 0x27, 0x19, 0x2B,
+    0x33, (byte) 0x91, 0x01, 0x01, 0x01, 0x00, 0x15, 0x06, 0x0E, 0x2B, 0x34, 0x02, 0x0B, 0x01, 0x01,
+    0x0E, 0x01, 0x03, 0x01, 0x01, 0x00, 0x00, 0x00, 0x04, 0x01, 0x02, 0x4C, 0x51
+  };
+
+  private List<DecodedKLVMetadataPacket> decodedPackets;
+
+  private Stanag4609PacketParserImpl parser;
+
+  @Before
+  public void setup() {
+    decodedPackets = new ArrayList<>();
+    parser =
+        new Stanag4609PacketParserImpl(
+            (packetId, decodedKLVMetadataPacket) -> {
+              assertThat(packetId, is(PACKET_ID));
+              decodedPackets.add(decodedKLVMetadataPacket);
+            });
+  }
+
+  @Test
+  public void testAccept() {
+
+    parser.accept(PACKET_ID, SYNCHRONOUS_METADATA_PACKET);
+
+    assertThat(decodedPackets, hasSize(1));
+    assertThat(decodedPackets.get(0).getPresentationTimestamp(), is(3326777800L));
+
+    parser.accept(PACKET_ID, SYNCHRONOUS_METADATA_PACKET);
+
+    assertThat(decodedPackets, hasSize(2));
+  }
+
+  @Test
+  public void testCallbackErrorSkipsPacket() {
+
+    Stanag4609PacketParserImpl failingParser =
+        new Stanag4609PacketParserImpl(
+            (packetId, decodedKLVMetadataPacket) -> {
+              throw new IllegalStateException();
+            });
+
+    failingParser.accept(PACKET_ID, SYNCHRONOUS_METADATA_PACKET);
+  }
+
+  @Test
+  public void testInvalidPacketsAreSkipped() {
+
+    byte[] wrongChecksum = SYNCHRONOUS_METADATA_PACKET.clone();
+    wrongChecksum[wrongChecksum.length - 1]++;
+
+    parser.accept(PACKET_ID, wrongChecksum);
+    parser.accept(PACKET_ID, new byte[] {0x00, 0x00, 0x01});
+    parser.accept(PACKET_ID, new byte[] {0x00, 0x00, 0x01, (byte) 0xE0, 0x00, 0x03, (byte) 0x80});
+
+    assertThat(decodedPackets, is(empty()));
+  }
+
+  @Test
+  public void testAcceptWithFieldSubset() {
+
+    Stanag4609PacketParserImpl checksumOnlyParser =
+        new Stanag4609PacketParserImpl(
+            (packetId, decodedKLVMetadataPacket) -> decodedPackets.add(decodedKLVMetadataPacket),
+            Stanag4609TransportStreamParser.createUasDatalinkLocalSetContext(
+                Collections.emptySet()));
+
+    checksumOnlyParser.accept(PACKET_ID, SYNCHRONOUS_METADATA_PACKET);
+
+    assertThat(decodedPackets, hasSize(1));
+  }
+}
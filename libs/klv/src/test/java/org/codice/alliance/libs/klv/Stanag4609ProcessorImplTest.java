@@ -152,4 +152,26 @@ public class Stanag4609ProcessorImplTest {
 
     verify(klvHandler, atLeastOnce()).accept(klvIntegerEncodedFloatingPoint);
   }
+
+  @Test
+  public void testHandleWithDecodedPacket() throws KlvDecodingException {
+
+    DecodedKLVMetadataPacket packet = mock(DecodedKLVMetadataPacket.class);
+    when(packet.getDecodedKLV())
+        .thenReturn(
+            new KlvContext(
+                Klv.KeyLength.OneByte,
+                Klv.LengthEncoding.OneByte,
+                Collections.singleton(klvIntegerEncodedFloatingPoint)));
+
+    PostProcessor postProcessor = mock(PostProcessor.class);
+    Map<String, KlvHandler> handlers = Collections.singletonMap(FIELD_NAME, klvHandler);
+
+    new Stanag4609ProcessorImpl(postProcessor).handle(handlers, defaultKlvHandler, packet);
+
+    verify(klvHandler).accept(klvIntegerEncodedFloatingPoint);
+    verify(postProcessor)
+        .postProcess(
+            Collections.singletonMap(FIELD_NAME, klvIntegerEncodedFloatingPoint), handlers);
+  }
 }
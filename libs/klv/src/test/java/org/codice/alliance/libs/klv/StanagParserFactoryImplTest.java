@@ -18,6 +18,8 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 
 import com.google.common.io.ByteSource;
+import java.util.Collections;
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
 import org.junit.Test;
 
 public class StanagParserFactoryImplTest {
@@ -29,4 +31,24 @@ public class StanagParserFactoryImplTest {
 
     assertThat(stanagParserFactory.createParser(mock(ByteSource.class)), notNullValue());
   }
+
+  @Test
+  public void testCreatePacketParser() {
+
+    StanagParserFactoryImpl stanagParserFactory = new StanagParserFactoryImpl();
+
+    assertThat(stanagParserFactory.createPacketParser((packetId, packet) -> {}), notNullValue());
+  }
+
+  @Test
+  public void testCreatePacketParserForFields() {
+
+    StanagParserFactoryImpl stanagParserFactory = new StanagParserFactoryImpl();
+
+    assertThat(
+        stanagParserFactory.createPacketParser(
+            (packetId, packet) -> {},
+            Collections.singleton(Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE)),
+        notNullValue());
+  }
 }
@@ -0,0 +1,234 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class StreamingLineSimplifierTest {
+
+  private static final double TOLERANCE = 0.0001;
+
+  /** About 1 meter of GPS noise, in degrees. */
+  private static final double NOISE = 0.00001;
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeTolerance() {
+    new StreamingLineSimplifier(-1, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroWindowSize() {
+    new StreamingLineSimplifier(1, 0);
+  }
+
+  /** A survey pattern of long straight legs joined by tight turns. */
+  @Test
+  public void testLawnmowerFlightPath() {
+    FlightPath flightPath = new FlightPath();
+    Random random = new Random(1);
+    double x = -112.0;
+    double y = 33.0;
+
+    for (int leg = 0; leg < 10; leg++) {
+      double direction = leg % 2 == 0 ? 1 : -1;
+      for (int i = 0; i < 1000; i++) {
+        x += direction * 0.00005;
+        flightPath.add(x + noise(random), y + noise(random));
+      }
+      for (int i = 0; i < 20; i++) {
+        y += 0.00005;
+        flightPath.add(x + noise(random), y + noise(random));
+      }
+    }
+
+    Simplified simplified = flightPath.simplify(TOLERANCE);
+
+    simplified.assertWithinTolerance(TOLERANCE);
+    assertThat(simplified.size(), lessThan(flightPath.size() / 50));
+  }
+
+  /** An orbit around a target, which has no straight segments. */
+  @Test
+  public void testOrbitFlightPath() {
+    FlightPath flightPath = new FlightPath();
+    double radius = 0.01;
+
+    for (int i = 0; i < 3600; i++) {
+      double angle = Math.toRadians(i / 10.0);
+      flightPath.add(-112.0 + radius * Math.cos(angle), 33.0 + radius * Math.sin(angle));
+    }
+
+    Simplified simplified = flightPath.simplify(TOLERANCE);
+
+    simplified.assertWithinTolerance(TOLERANCE);
+    assertThat(simplified.size(), lessThan(flightPath.size() / 10));
+  }
+
+  /** The vertices at the turns of a straight-legged path must be kept exactly. */
+  @Test
+  public void testTurnsAreKept() {
+    FlightPath flightPath = new FlightPath();
+    for (int i = 0; i <= 100; i++) {
+      flightPath.add(i, 0);
+    }
+    for (int i = 1; i <= 100; i++) {
+      flightPath.add(100, i);
+    }
+
+    Simplified simplified = flightPath.simplify(TOLERANCE);
+
+    assertThat(simplified.size(), is(3));
+    assertThat(simplified.xs.get(1), is(100.0));
+    assertThat(simplified.ys.get(1), is(0.0));
+  }
+
+  @Test
+  public void testMaximumWindowSize() {
+    FlightPath flightPath = new FlightPath();
+    for (int i = 0; i < 1000; i++) {
+      flightPath.add(i, 0);
+    }
+
+    Simplified simplified = flightPath.simplify(TOLERANCE, 9);
+
+    simplified.assertWithinTolerance(TOLERANCE);
+    assertThat(simplified.size(), is(101));
+  }
+
+  @Test
+  public void testValuesAfterPointCountAreKept() {
+    DoubleList xs = new DoubleList();
+    DoubleList ys = new DoubleList();
+    StreamingLineSimplifier simplifier = new StreamingLineSimplifier(TOLERANCE, 10);
+
+    for (int i = 0; i < 2; i++) {
+      xs.add(i);
+      ys.add(0);
+      simplifier.accept(xs, ys, ys.size());
+    }
+
+    xs.add(2);
+    ys.add(0);
+    // an x value that is waiting for its y value
+    xs.add(5);
+
+    assertThat(simplifier.accept(xs, ys, 3), is(2));
+    assertThat(xs.asList(), contains(0.0, 2.0, 5.0));
+    assertThat(ys.asList(), contains(0.0, 0.0));
+  }
+
+  @Test
+  public void testReset() {
+    DoubleList xs = new DoubleList();
+    DoubleList ys = new DoubleList();
+    StreamingLineSimplifier simplifier = new StreamingLineSimplifier(TOLERANCE, 10);
+
+    for (int i = 0; i < 3; i++) {
+      xs.add(i);
+      ys.add(i);
+      simplifier.accept(xs, ys, xs.size());
+    }
+
+    simplifier.reset();
+    xs.truncate(0);
+    ys.truncate(0);
+
+    xs.add(10);
+    ys.add(0);
+    assertThat(simplifier.accept(xs, ys, 1), is(1));
+  }
+
+  private static double noise(Random random) {
+    return (random.nextDouble() * 2 - 1) * NOISE;
+  }
+
+  private static class FlightPath {
+
+    private final DoubleList xs = new DoubleList();
+
+    private final DoubleList ys = new DoubleList();
+
+    void add(double x, double y) {
+      xs.add(x);
+      ys.add(y);
+    }
+
+    int size() {
+      return xs.size();
+    }
+
+    Simplified simplify(double tolerance) {
+      return simplify(tolerance, StreamingLineSimplifier.DEFAULT_MAXIMUM_WINDOW_SIZE);
+    }
+
+    Simplified simplify(double tolerance, int maximumWindowSize) {
+      StreamingLineSimplifier simplifier = new StreamingLineSimplifier(tolerance, maximumWindowSize);
+      Simplified simplified = new Simplified(this);
+      for (int i = 0; i < size(); i++) {
+        simplified.xs.add(xs.get(i));
+        simplified.ys.add(ys.get(i));
+        simplifier.accept(simplified.xs, simplified.ys, simplified.xs.size());
+      }
+      return simplified;
+    }
+  }
+
+  private static class Simplified {
+
+    private final FlightPath original;
+
+    private final DoubleList xs = new DoubleList();
+
+    private final DoubleList ys = new DoubleList();
+
+    Simplified(FlightPath original) {
+      this.original = original;
+    }
+
+    int size() {
+      return xs.size();
+    }
+
+    /** Every point of the original path must be within the tolerance of the simplified line. */
+    void assertWithinTolerance(double tolerance) {
+      assertThat(xs.get(0), is(original.xs.get(0)));
+      assertThat(xs.get(size() - 1), is(original.xs.get(original.size() - 1)));
+
+      for (int i = 0; i < original.size(); i++) {
+        assertThat(
+            Math.sqrt(distanceSquared(original.xs.get(i), original.ys.get(i))),
+            lessThanOrEqualTo(tolerance));
+      }
+    }
+
+    private double distanceSquared(double x, double y) {
+      double minimum = Double.MAX_VALUE;
+      for (int i = 1; i < size(); i++) {
+        minimum =
+            Math.min(
+                minimum,
+                StreamingLineSimplifier.distanceToSegmentSquared(
+                    x, y, xs.get(i - 1), ys.get(i - 1), xs.get(i), ys.get(i)));
+      }
+      return minimum;
+    }
+  }
+}
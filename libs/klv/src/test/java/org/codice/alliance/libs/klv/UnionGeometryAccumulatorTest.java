@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+import org.junit.Test;
+
+public class UnionGeometryAccumulatorTest {
+
+  private final WKTReader wktReader = new WKTReader();
+
+  private final GeometryOperator.Context context = new GeometryOperator.Context();
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroBatchSize() {
+    new UnionGeometryAccumulator(GeometryOperator.IDENTITY, 0);
+  }
+
+  @Test
+  public void testEmpty() {
+    UnionGeometryAccumulator accumulator = new UnionGeometryAccumulator(GeometryOperator.IDENTITY);
+
+    assertThat(accumulator.isEmpty(), is(true));
+    assertThat(accumulator.getGeometry(context).isPresent(), is(false));
+  }
+
+  @Test
+  public void testUnion() throws ParseException {
+    UnionGeometryAccumulator accumulator =
+        new UnionGeometryAccumulator(GeometryOperator.IDENTITY, 2);
+
+    accumulator.add(wktReader.read("POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0))"), context);
+    accumulator.add(wktReader.read("POLYGON ((10 0, 20 0, 20 10, 10 10, 10 0))"), context);
+    accumulator.add(wktReader.read("POLYGON ((20 0, 30 0, 30 10, 20 10, 20 0))"), context);
+
+    Geometry expected = wktReader.read("POLYGON ((0 0, 30 0, 30 10, 0 10, 0 0))");
+
+    Geometry actual = accumulator.getGeometry(context).get();
+
+    assertThat(actual.equalsTopo(expected), is(true));
+  }
+
+  /** Test that the compaction operator is applied once per batch, not once per geometry. */
+  @Test
+  public void testCompactionPerBatch() throws ParseException {
+    GeometryOperator compaction = mock(GeometryOperator.class);
+    when(compaction.apply(any(), any())).thenAnswer(invocation -> invocation.getArguments()[0]);
+
+    UnionGeometryAccumulator accumulator = new UnionGeometryAccumulator(compaction, 4);
+
+    for (int i = 0; i < 8; i++) {
+      accumulator.add(
+          wktReader.read(
+              String.format("POLYGON ((%d 0, %d 0, %d 1, %d 1, %d 0))", i, i + 1, i + 1, i, i)),
+          context);
+    }
+
+    verify(compaction, times(2)).apply(any(), any());
+
+    accumulator.getGeometry(context);
+
+    verify(compaction, times(2)).apply(any(), any());
+    assertThat(
+        accumulator
+            .getGeometry(context)
+            .get()
+            .equalsTopo(wktReader.read("POLYGON ((0 0, 8 0, 8 1, 0 1, 0 0))")),
+        is(true));
+  }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.mpegts;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.taktik.mpegts.MTSPacket;
+
+/**
+ * Reads the MPEG-TS packets of a local file directly from memory-mapped regions of the file. Each
+ * packet is a view of the mapped region instead of a copy, so the operating system's page cache
+ * supplies the bytes and recorded files of several gigabytes can be scanned without streaming them
+ * through intermediate buffers.
+ *
+ * <p>The file is mapped one region at a time so that files larger than the addressable size of a
+ * buffer can be read. Bytes that are not part of an MPEG-TS packet are skipped until the next sync
+ * byte, and a partial packet at the end of the file is ignored.
+ */
+class MappedMTSSource implements PESPacketIterator.MTSPacketSource {
+
+  /** About 12 MB, a whole number of packets. */
+  static final int DEFAULT_REGION_SIZE = Constants.TS_PACKET_SIZE * 64 * 1024;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MappedMTSSource.class);
+
+  private static final byte SYNC_BYTE = 0x47;
+
+  private final FileChannel channel;
+
+  private final boolean closeChannel;
+
+  private final long size;
+
+  private final int regionSize;
+
+  private MappedByteBuffer region;
+
+  private long regionStart;
+
+  /** @param path must be non-null */
+  MappedMTSSource(Path path) throws IOException {
+    this(path, DEFAULT_REGION_SIZE);
+  }
+
+  /**
+   * @param path must be non-null
+   * @param regionSize number of bytes mapped at a time, must be &gt;= {@link
+   *     Constants#TS_PACKET_SIZE}
+   */
+  MappedMTSSource(Path path, int regionSize) throws IOException {
+    this(open(path, regionSize), 0, regionSize, true);
+  }
+
+  /**
+   * Read the packets of a file that is already open, starting at the given position. The channel
+   * is not closed when the source is closed.
+   *
+   * @param channel must be non-null
+   * @param position the first byte to read, must be non-negative
+   * @param regionSize number of bytes mapped at a time, must be &gt;= {@link
+   *     Constants#TS_PACKET_SIZE}
+   */
+  MappedMTSSource(FileChannel channel, long position, int regionSize) throws IOException {
+    this(channel, position, regionSize, false);
+  }
+
+  private MappedMTSSource(FileChannel channel, long position, int regionSize, boolean closeChannel)
+      throws IOException {
+    notNull(channel, "channel must be non-null");
+    isTrue(position >= 0, "position must be non-negative");
+    validateRegionSize(regionSize);
+    this.channel = channel;
+    this.closeChannel = closeChannel;
+    this.regionSize = regionSize;
+    this.regionStart = position;
+    this.size = channel.size();
+  }
+
+  /** The arguments are checked before the file is opened so that a bad call does not leak it. */
+  private static FileChannel open(Path path, int regionSize) throws IOException {
+    notNull(path, "path must be non-null");
+    validateRegionSize(regionSize);
+    return FileChannel.open(path, StandardOpenOption.READ);
+  }
+
+  private static void validateRegionSize(int regionSize) {
+    isTrue(
+        regionSize >= Constants.TS_PACKET_SIZE,
+        "regionSize must be >=" + Constants.TS_PACKET_SIZE);
+  }
+
+  /** @return the next packet, or null at the end of the file */
+  @Override
+  public MTSPacket nextPacket() throws IOException {
+    long skipped = 0;
+    try {
+      while (mapPacket()) {
+        int position = region.position();
+        if (region.get(position) == SYNC_BYTE) {
+          ByteBuffer packet = region.slice();
+          packet.limit(Constants.TS_PACKET_SIZE);
+          region.position(position + Constants.TS_PACKET_SIZE);
+          return new MTSPacket(packet);
+        }
+        region.position(position + 1);
+        skipped++;
+      }
+      return null;
+    } finally {
+      if (skipped > 0) {
+        LOGGER.debug("skipped {} bytes looking for the start of an mpeg-ts packet", skipped);
+      }
+    }
+  }
+
+  /**
+   * Make sure that the current region holds at least one packet, mapping the next region of the
+   * file if needed.
+   *
+   * @return false if there are not enough bytes left in the file for a packet
+   */
+  private boolean mapPacket() throws IOException {
+    if (region != null && region.remaining() >= Constants.TS_PACKET_SIZE) {
+      return true;
+    }
+
+    long position = region == null ? regionStart : regionStart + region.position();
+    if (size - position < Constants.TS_PACKET_SIZE) {
+      return false;
+    }
+
+    regionStart = position;
+    region =
+        channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(regionSize, size - position));
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    region = null;
+    if (closeChannel) {
+      channel.close();
+    }
+  }
+}
@@ -27,4 +27,13 @@ public interface MpegTsDecoder {
    * @throws IOException
    */
   void read(MTSPacket mtsPacket, Consumer<PESPacket> callback) throws IOException;
+
+  /**
+   * Complete the PESPackets that are still being read. Call this at the end of the stream so that
+   * the last PESPacket of each elementary stream is not lost, because it would otherwise only be
+   * completed by the start of the next PESPacket.
+   *
+   * @param callback must be non-null
+   */
+  void flush(Consumer<PESPacket> callback);
 }
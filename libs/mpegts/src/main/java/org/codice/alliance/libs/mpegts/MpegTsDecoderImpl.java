@@ -17,12 +17,12 @@ import static org.apache.commons.lang3.Validate.notNull;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
-import org.apache.commons.lang3.ArrayUtils;
 import org.jcodec.containers.mps.psi.PMTSection;
 import org.taktik.mpegts.MTSPacket;
 import org.taktik.mpegts.PATSection;
@@ -35,7 +35,7 @@ public class MpegTsDecoderImpl implements MpegTsDecoder {
 
   private final Map<Integer, PMTSection.PMTStream> programElementaryStreams = new HashMap<>();
 
-  private final Map<Integer, byte[]> currentPacketBytesByStream = new HashMap<>();
+  private final Map<Integer, PayloadBuffer> payloadBuffersByStream = new HashMap<>();
 
   private PATSectionParser patSectionParser = PATSection::parse;
 
@@ -62,27 +62,45 @@ public class MpegTsDecoderImpl implements MpegTsDecoder {
     }
   }
 
+  @Override
+  public void flush(Consumer<PESPacket> callback) {
+    notNull(callback, "callback must be non-null");
+
+    payloadBuffersByStream.forEach(
+        (pid, payloadBuffer) -> {
+          if (payloadBuffer.isStarted()) {
+            callback.accept(
+                new PESPacket(
+                    payloadBuffer.toByteArray(),
+                    MpegStreamType.lookup(programElementaryStreams.get(pid).getStreamType()),
+                    pid));
+            payloadBuffer.reset();
+          }
+        });
+  }
+
   private void handleElementaryStream(MTSPacket mtsPacket, int pid, Consumer<PESPacket> callback) {
     if (mtsPacket.isContainsPayload()) {
       final PMTSection.PMTStream stream = programElementaryStreams.get(pid);
 
-      final byte[] currentPacketBytes = currentPacketBytesByStream.get(pid);
+      final PayloadBuffer payloadBuffer =
+          payloadBuffersByStream.computeIfAbsent(pid, key -> new PayloadBuffer());
 
       final boolean startingNewPacket = mtsPacket.isPayloadUnitStartIndicator();
-      final boolean currentPacketToHandle = currentPacketBytes != null;
+      final boolean currentPacketToHandle = payloadBuffer.isStarted();
       final boolean reachedEndOfCurrentPacket = startingNewPacket && currentPacketToHandle;
 
-      final byte[] payloadBytes = getByteBufferAsBytes(mtsPacket.getPayload());
-
       if (reachedEndOfCurrentPacket) {
         callback.accept(
-            new PESPacket(currentPacketBytes, MpegStreamType.lookup(stream.getStreamType()), pid));
-        currentPacketBytesByStream.put(pid, payloadBytes);
-      } else if (startingNewPacket) {
-        currentPacketBytesByStream.put(pid, payloadBytes);
+            new PESPacket(
+                payloadBuffer.toByteArray(), MpegStreamType.lookup(stream.getStreamType()), pid));
+      }
+
+      if (startingNewPacket) {
+        payloadBuffer.start();
+        payloadBuffer.append(mtsPacket.getPayload());
       } else if (currentPacketToHandle) {
-        final byte[] concatenatedPacket = ArrayUtils.addAll(currentPacketBytes, payloadBytes);
-        currentPacketBytesByStream.put(pid, concatenatedPacket);
+        payloadBuffer.append(mtsPacket.getPayload());
       }
     }
   }
@@ -130,12 +148,6 @@ public class MpegTsDecoderImpl implements MpegTsDecoder {
     }
   }
 
-  private byte[] getByteBufferAsBytes(final ByteBuffer buffer) {
-    final byte[] bytes = new byte[buffer.remaining()];
-    buffer.get(bytes);
-    return bytes;
-  }
-
   public void setPatSectionParser(PATSectionParser patSectionParser) {
     this.patSectionParser = patSectionParser;
   }
@@ -151,4 +163,54 @@ public class MpegTsDecoderImpl implements MpegTsDecoder {
   public interface PMTSectionParser {
     PMTSection parse(ByteBuffer payload);
   }
+
+  /**
+   * Accumulates the payload of the PES packet currently being read on a single PID. The backing
+   * array grows geometrically and is reused for every PES packet on the PID, so appending a TS
+   * payload costs time proportional to the payload size rather than to the PES packet size.
+   */
+  static class PayloadBuffer {
+
+    private static final int INITIAL_CAPACITY = 4096;
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+
+    private int size = 0;
+
+    private boolean started = false;
+
+    /** Discard any accumulated payload and begin a new PES packet. */
+    void start() {
+      size = 0;
+      started = true;
+    }
+
+    /** Discard any accumulated payload and wait for the start of the next PES packet. */
+    void reset() {
+      size = 0;
+      started = false;
+    }
+
+    boolean isStarted() {
+      return started;
+    }
+
+    void append(ByteBuffer payload) {
+      final int length = payload.remaining();
+      if (size + length > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+      }
+      payload.get(bytes, size, length);
+      size += length;
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(bytes, size);
+    }
+
+    /** @return the length of the backing array */
+    int capacity() {
+      return bytes.length;
+    }
+  }
 }
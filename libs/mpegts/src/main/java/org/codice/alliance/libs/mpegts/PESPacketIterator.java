@@ -13,8 +13,14 @@
  */
 package org.codice.alliance.libs.mpegts;
 
+import static org.apache.commons.lang3.Validate.notNull;
+
 import com.google.common.io.ByteSource;
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import org.slf4j.Logger;
@@ -26,42 +32,62 @@ import org.taktik.mpegts.sources.ResettableMTSSource;
 /**
  * Iterate through the PESPackets contained in an MPEG-TS. Note: this does not return the incomplete
  * packets at the end of the stream.
+ *
+ * <p>Local files should be read with {@link #PESPacketIterator(Path)}, which iterates over the
+ * memory-mapped file instead of copying each packet through a stream. The iterator should be closed
+ * when it is no longer needed so that the underlying file is released.
  */
-public class PESPacketIterator implements Iterator<PESPacket> {
+public class PESPacketIterator implements Iterator<PESPacket>, Closeable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(PESPacketIterator.class);
 
-  private PESPacket nextPesPacket;
+  private final Deque<PESPacket> pesPackets = new ArrayDeque<>();
 
-  private ResettableMTSSource source;
+  private final MTSPacketSource source;
 
-  private MpegTsDecoder mpegTsDecoder = new MpegTsDecoderImpl();
+  private final MpegTsDecoder mpegTsDecoder;
 
   public PESPacketIterator(ByteSource byteSource) throws IOException {
-    source = MTSSources.from(byteSource);
+    this(new ResettableMTSPacketSource(MTSSources.from(byteSource)), new MpegTsDecoderImpl());
   }
 
-  private void setPesPacket(PESPacket pesPacket) {
-    nextPesPacket = pesPacket;
+  /**
+   * Iterate through the PESPackets of a local file by mapping the file into memory.
+   *
+   * @param path must be non-null
+   * @throws IOException if the file cannot be opened
+   */
+  public PESPacketIterator(Path path) throws IOException {
+    this(new MappedMTSSource(path), new MpegTsDecoderImpl());
+  }
+
+  /**
+   * @param source must be non-null
+   * @param mpegTsDecoder must be non-null
+   */
+  PESPacketIterator(MTSPacketSource source, MpegTsDecoder mpegTsDecoder) {
+    notNull(source, "source must be non-null");
+    notNull(mpegTsDecoder, "mpegTsDecoder must be non-null");
+    this.source = source;
+    this.mpegTsDecoder = mpegTsDecoder;
   }
 
   @Override
   public boolean hasNext() {
-    if (nextPesPacket != null) {
+    if (!pesPackets.isEmpty()) {
       return true;
     }
 
     try {
       MTSPacket mtsPacket;
-      while (nextPesPacket == null && (mtsPacket = source.nextPacket()) != null) {
-        mpegTsDecoder.read(mtsPacket, this::setPesPacket);
+      while (pesPackets.isEmpty() && (mtsPacket = source.nextPacket()) != null) {
+        mpegTsDecoder.read(mtsPacket, pesPackets::add);
       }
     } catch (Exception e) {
       LOGGER.debug("unable to get next PESPacket", e);
-      return false;
     }
 
-    return nextPesPacket != null;
+    return !pesPackets.isEmpty();
   }
 
   @Override
@@ -69,8 +95,41 @@ public class PESPacketIterator implements Iterator<PESPacket> {
     if (!hasNext()) {
       throw new NoSuchElementException();
     }
-    PESPacket tmp = nextPesPacket;
-    nextPesPacket = null;
-    return tmp;
+    return pesPackets.remove();
+  }
+
+  @Override
+  public void close() throws IOException {
+    source.close();
+  }
+
+  /** Supplies the MPEG-TS packets that are decoded into PESPackets. */
+  interface MTSPacketSource extends Closeable {
+
+    /** @return the next packet, or null at the end of the stream */
+    MTSPacket nextPacket() throws Exception;
+  }
+
+  private static class ResettableMTSPacketSource implements MTSPacketSource {
+
+    private final ResettableMTSSource source;
+
+    private ResettableMTSPacketSource(ResettableMTSSource source) {
+      this.source = source;
+    }
+
+    @Override
+    public MTSPacket nextPacket() throws Exception {
+      return source.nextPacket();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        source.close();
+      } catch (Exception e) {
+        throw new IOException("unable to close the mpeg-ts source", e);
+      }
+    }
   }
 }
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.mpegts;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.taktik.mpegts.MTSPacket;
+
+/**
+ * Demultiplexes the MPEG-TS bytes written to it and passes each PESPacket to a callback as soon as
+ * it is complete. This allows the PESPackets to be extracted while the bytes are being copied
+ * somewhere else, for example with a {@code TeeInputStream}, instead of reading the transport
+ * stream a second time.
+ *
+ * <p>Bytes that are not part of an MPEG-TS packet are skipped until the next sync byte. If the
+ * transport stream cannot be decoded, the remaining bytes are ignored, which matches the behavior
+ * of {@link PESPacketIterator}. Writing to this stream never fails because of the content of the
+ * transport stream. Closing the stream completes the last PESPacket of each elementary stream.
+ */
+public class PESPacketOutputStream extends OutputStream {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PESPacketOutputStream.class);
+
+  private static final byte SYNC_BYTE = 0x47;
+
+  private final MpegTsDecoder mpegTsDecoder;
+
+  private final Consumer<PESPacket> callback;
+
+  private final byte[] packet = new byte[Constants.TS_PACKET_SIZE];
+
+  private int packetSize = 0;
+
+  private boolean failed = false;
+
+  private boolean closed = false;
+
+  /** @param callback called for each PESPacket, must be non-null */
+  public PESPacketOutputStream(Consumer<PESPacket> callback) {
+    this(new MpegTsDecoderImpl(), callback);
+  }
+
+  /**
+   * @param mpegTsDecoder must be non-null
+   * @param callback called for each PESPacket, must be non-null
+   */
+  public PESPacketOutputStream(MpegTsDecoder mpegTsDecoder, Consumer<PESPacket> callback) {
+    notNull(mpegTsDecoder, "mpegTsDecoder must be non-null");
+    notNull(callback, "callback must be non-null");
+    this.mpegTsDecoder = mpegTsDecoder;
+    this.callback = callback;
+  }
+
+  @Override
+  public void write(int b) {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) {
+    if (failed || closed) {
+      return;
+    }
+
+    int position = offset;
+    final int end = offset + length;
+
+    while (position < end) {
+      if (packetSize == 0) {
+        position = findSyncByte(bytes, position, end);
+        if (position == end) {
+          return;
+        }
+      }
+
+      final int count = Math.min(packet.length - packetSize, end - position);
+      System.arraycopy(bytes, position, packet, packetSize, count);
+      packetSize += count;
+      position += count;
+
+      if (packetSize == packet.length) {
+        packetSize = 0;
+        decodePacket();
+        if (failed) {
+          return;
+        }
+      }
+    }
+  }
+
+  private int findSyncByte(byte[] bytes, int start, int end) {
+    int position = start;
+    while (position < end && bytes[position] != SYNC_BYTE) {
+      position++;
+    }
+    if (position > start) {
+      LOGGER.debug("skipped {} bytes looking for the start of an mpeg-ts packet", position - start);
+    }
+    return position;
+  }
+
+  /**
+   * The decoder copies whatever it keeps from the packet before returning, so the packet array is
+   * reused for the next packet.
+   */
+  private void decodePacket() {
+    try {
+      mpegTsDecoder.read(new MTSPacket(ByteBuffer.wrap(packet)), callback);
+    } catch (Exception e) {
+      LOGGER.debug("unable to decode the mpeg-ts, ignoring the rest of the stream", e);
+      failed = true;
+    }
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+
+    if (!failed) {
+      try {
+        mpegTsDecoder.flush(callback);
+      } catch (RuntimeException e) {
+        LOGGER.debug("unable to complete the last PESPackets", e);
+      }
+    }
+  }
+}
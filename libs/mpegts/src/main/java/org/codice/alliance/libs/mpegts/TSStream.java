@@ -17,15 +17,25 @@ import static org.apache.commons.lang3.Validate.notNull;
 
 import com.google.common.io.ByteSource;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.taktik.mpegts.MTSPacket;
 
 public class TSStream {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(TSStream.class);
+
   /**
-   * Create a stream of PESPackets from a byte source.
+   * Create a stream of PESPackets from a byte source. Closing the stream closes the underlying
+   * source.
    *
    * @param byteSource must be non-null
    * @return stream of PESPackets
@@ -33,9 +43,78 @@ public class TSStream {
    */
   public static Stream<PESPacket> from(ByteSource byteSource) throws IOException {
     notNull(byteSource, "byteSource must be non-null");
+    return from(new PESPacketIterator(byteSource));
+  }
+
+  /**
+   * Create a stream of PESPackets from a local file. The packets are read directly from the
+   * memory-mapped file, which is much faster than reading a large recording through a byte source.
+   * The stream must be closed to release the file.
+   *
+   * @param path must be non-null
+   * @return stream of PESPackets
+   * @throws IOException if the file cannot be opened
+   */
+  public static Stream<PESPacket> from(Path path) throws IOException {
+    notNull(path, "path must be non-null");
+    return from(new PESPacketIterator(path));
+  }
+
+  /**
+   * Demultiplex an open local file from the given position to the end of the file, reading the
+   * packets directly from the memory-mapped file. Like {@link PESPacketOutputStream}, the last
+   * incomplete PESPacket of each elementary stream is also passed to the callback, and the rest of
+   * the file is ignored if it cannot be decoded. The channel is not closed and its position is not
+   * changed.
+   *
+   * @param channel must be non-null
+   * @param position the first byte to read, must be non-negative
+   * @param callback must be non-null
+   * @throws IOException if the file cannot be mapped
+   */
+  public static void demultiplex(FileChannel channel, long position, Consumer<PESPacket> callback)
+      throws IOException {
+    notNull(callback, "callback must be non-null");
+
+    try (MappedMTSSource source =
+        new MappedMTSSource(channel, position, MappedMTSSource.DEFAULT_REGION_SIZE)) {
+      demultiplex(source, new MpegTsDecoderImpl(), callback);
+    }
+  }
+
+  static void demultiplex(
+      MappedMTSSource source, MpegTsDecoder mpegTsDecoder, Consumer<PESPacket> callback)
+      throws IOException {
+    MTSPacket mtsPacket;
+    while ((mtsPacket = source.nextPacket()) != null) {
+      try {
+        mpegTsDecoder.read(mtsPacket, callback);
+      } catch (IOException | RuntimeException e) {
+        LOGGER.debug("unable to decode the mpeg-ts, ignoring the rest of the file", e);
+        return;
+      }
+    }
+
+    try {
+      mpegTsDecoder.flush(callback);
+    } catch (RuntimeException e) {
+      LOGGER.debug("unable to complete the last PESPackets", e);
+    }
+  }
+
+  private static Stream<PESPacket> from(PESPacketIterator iterator) {
     return StreamSupport.stream(
-        Spliterators.spliteratorUnknownSize(
-            new PESPacketIterator(byteSource), Spliterator.ORDERED | Spliterator.NONNULL),
-        false);
+            Spliterators.spliteratorUnknownSize(
+                iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+            false)
+        .onClose(() -> close(iterator));
+  }
+
+  private static void close(PESPacketIterator iterator) {
+    try {
+      iterator.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 }
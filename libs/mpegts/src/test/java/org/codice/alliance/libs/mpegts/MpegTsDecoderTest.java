@@ -16,26 +16,44 @@ package org.codice.alliance.libs.mpegts;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 import org.jcodec.containers.mps.MTSUtils;
 import org.jcodec.containers.mps.psi.PMTSection;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.taktik.mpegts.MTSPacket;
 import org.taktik.mpegts.PATSection;
 
 public class MpegTsDecoderTest {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(MpegTsDecoderTest.class);
+
+  private static final String BENCHMARK_MEGABYTES_PROPERTY = "mpegts.benchmark.reassemblyMegabytes";
+
+  private static final int TS_HEADER_SIZE = 4;
+
+  private static final int PROGRAM_MAP_TABLE_ID = 1;
+
+  private static final int VIDEO_PACKET_ID = 0x100;
+
   @Test
   public void testRead() {
 
@@ -117,6 +135,174 @@ public class MpegTsDecoderTest {
         is(new byte[] {expectedByte1, expectedByte2, expectedByte3, expectedByte4}));
   }
 
+  /**
+   * Reassembly must be linear in the PES packet size. The backing array of the payload buffer grows
+   * geometrically, so the bytes copied when it grows are fewer than twice the bytes appended,
+   * whatever the size of the PES packet.
+   */
+  @Test
+  public void testPayloadBufferCopiesAreLinearInPacketSize() {
+
+    int payloadSize = Constants.TS_PACKET_SIZE - TS_HEADER_SIZE;
+
+    for (int pesSize : new int[] {16 * 1024, 128 * 1024, 1024 * 1024}) {
+      MpegTsDecoderImpl.PayloadBuffer payloadBuffer = new MpegTsDecoderImpl.PayloadBuffer();
+
+      for (int pes = 0; pes < 2; pes++) {
+        long copiedBytes = 0;
+        int appendedBytes = 0;
+
+        payloadBuffer.start();
+        while (appendedBytes < pesSize) {
+          int capacity = payloadBuffer.capacity();
+          payloadBuffer.append(ByteBuffer.wrap(new byte[payloadSize]));
+          if (payloadBuffer.capacity() != capacity) {
+            // growing copies the bytes that were already appended
+            copiedBytes += appendedBytes;
+          }
+          appendedBytes += payloadSize;
+        }
+
+        assertThat(payloadBuffer.toByteArray().length, is(appendedBytes));
+        if (pes == 0) {
+          assertThat(copiedBytes, is(lessThan(2L * appendedBytes)));
+        } else {
+          // the backing array is reused for the next PES packet on the same PID
+          assertThat(copiedBytes, is(0L));
+        }
+      }
+    }
+  }
+
+  /**
+   * Reassembles generated transport streams whose PES packets range from 16 KB to 1 MB and compares
+   * the cost per payload byte, which must not grow with the PES packet size. The benchmark only runs
+   * when the {@value #BENCHMARK_MEGABYTES_PROPERTY} system property is set to the size of each
+   * stream in megabytes, for example {@code -Dmpegts.benchmark.reassemblyMegabytes=8}.
+   */
+  @Test
+  public void testReassemblyCostPerByteIsConstant() throws IOException {
+
+    Integer streamMegabytes = Integer.getInteger(BENCHMARK_MEGABYTES_PROPERTY);
+    assumeThat(streamMegabytes, notNullValue());
+
+    int streamBytes = streamMegabytes * 1024 * 1024;
+
+    int[] pesSizes = {16 * 1024, 128 * 1024, 1024 * 1024};
+
+    double[] nanosPerByte = new double[pesSizes.length];
+
+    for (int i = 0; i < pesSizes.length; i++) {
+      List<byte[]> stream =
+          createTransportStream(pesSizes[i], Math.max(streamBytes / pesSizes[i], 1));
+
+      nanosPerByte[i] = Double.MAX_VALUE;
+      for (int run = 0; run < 5; run++) {
+        AtomicLong payloadBytes = new AtomicLong();
+        long start = System.nanoTime();
+        decodeTransportStream(
+            stream, pesPacket -> payloadBytes.addAndGet(pesPacket.getPayload().length));
+        long elapsed = System.nanoTime() - start;
+        nanosPerByte[i] = Math.min(nanosPerByte[i], (double) elapsed / payloadBytes.get());
+      }
+
+      LOGGER.info(
+          "reassembled PES packets: pesSize={} nanosPerByte={}", pesSizes[i], nanosPerByte[i]);
+    }
+
+    assertThat(nanosPerByte[pesSizes.length - 1], is(lessThan(nanosPerByte[0] * 8)));
+  }
+
+  @Test
+  public void testFlush() throws IOException {
+
+    int payloadSize = Constants.TS_PACKET_SIZE - TS_HEADER_SIZE;
+
+    MpegTsDecoderImpl decoder = createDecoder();
+
+    List<PESPacket> pesPackets = new ArrayList<>();
+    for (byte[] rawPacket : createTransportStream(payloadSize * 2, 1)) {
+      decoder.read(new MTSPacket(ByteBuffer.wrap(rawPacket)), pesPackets::add);
+    }
+
+    assertThat(pesPackets, hasSize(1));
+
+    decoder.flush(pesPackets::add);
+
+    assertThat(pesPackets, hasSize(2));
+    assertThat(pesPackets.get(1).getPacketId(), is(VIDEO_PACKET_ID));
+    assertThat(pesPackets.get(1).getPayload().length, is(payloadSize));
+
+    decoder.flush(pesPackets::add);
+
+    assertThat(pesPackets, hasSize(2));
+  }
+
+  private void decodeTransportStream(
+      List<byte[]> stream, Consumer<PESPacket> callback) throws IOException {
+
+    MpegTsDecoderImpl decoder = createDecoder();
+
+    for (byte[] rawPacket : stream) {
+      decoder.read(new MTSPacket(ByteBuffer.wrap(rawPacket)), callback);
+    }
+  }
+
+  private MpegTsDecoderImpl createDecoder() {
+
+    PATSection patSection = mock(PATSection.class);
+    when(patSection.getPrograms()).thenReturn(Collections.singletonMap(1, PROGRAM_MAP_TABLE_ID));
+
+    PMTSection.PMTStream pmtStream = mock(PMTSection.PMTStream.class);
+    when(pmtStream.getStreamType()).thenReturn(MTSUtils.StreamType.VIDEO_H264);
+    when(pmtStream.getPid()).thenReturn(VIDEO_PACKET_ID);
+
+    PMTSection pmtSection = mock(PMTSection.class);
+    when(pmtSection.getStreams()).thenReturn(new PMTSection.PMTStream[] {pmtStream});
+
+    MpegTsDecoderImpl decoder = new MpegTsDecoderImpl();
+    decoder.setPatSectionParser(payload -> patSection);
+    decoder.setPmtSectionParser(payload -> pmtSection);
+
+    return decoder;
+  }
+
+  /**
+   * Generate the raw packets of a transport stream that carries a single video PID.
+   *
+   * @param pesSize number of payload bytes in each PES packet
+   * @param pesCount number of PES packets, a final start packet is added to flush the last one
+   * @return list of raw MPEG-TS packets
+   */
+  private List<byte[]> createTransportStream(int pesSize, int pesCount) {
+
+    int payloadSize = Constants.TS_PACKET_SIZE - TS_HEADER_SIZE;
+
+    List<byte[]> stream = new ArrayList<>();
+
+    stream.add(createRawPacket(Constants.PROGRAM_ASSOCIATION_TABLE_PID, true, 0));
+    stream.add(createRawPacket(PROGRAM_MAP_TABLE_ID, true, 0));
+
+    int continuityCounter = 0;
+    for (int pes = 0; pes < pesCount; pes++) {
+      for (int offset = 0; offset < pesSize; offset += payloadSize) {
+        stream.add(createRawPacket(VIDEO_PACKET_ID, offset == 0, continuityCounter++));
+      }
+    }
+    stream.add(createRawPacket(VIDEO_PACKET_ID, true, continuityCounter));
+
+    return stream;
+  }
+
+  private byte[] createRawPacket(int pid, boolean isStart, int continuityCounter) {
+    byte[] bytes = new byte[Constants.TS_PACKET_SIZE];
+    bytes[0] = 0x47;
+    bytes[1] = (byte) ((isStart ? 0x40 : 0x00) | (pid >> 8));
+    bytes[2] = (byte) pid;
+    bytes[3] = (byte) (0x10 | (continuityCounter & 0x0F));
+    return bytes;
+  }
+
   private MTSPacket createElementary(boolean isStart, int pid, byte data) {
     MTSPacket elementaryStreamPacket = mock(MTSPacket.class);
     when(elementaryStreamPacket.getPid()).thenReturn(pid);
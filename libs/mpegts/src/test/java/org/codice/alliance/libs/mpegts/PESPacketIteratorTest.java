@@ -0,0 +1,299 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.mpegts;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.io.ByteSource;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.taktik.mpegts.MTSPacket;
+import org.taktik.mpegts.sources.MTSSources;
+import org.taktik.mpegts.sources.ResettableMTSSource;
+
+public class PESPacketIteratorTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PESPacketIteratorTest.class);
+
+  /** The number of packets in the file used to compare the scan throughput. */
+  private static final String BENCHMARK_PACKETS_PROPERTY = "mpegts.benchmark.packets";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testMappedSourceReadsPackets() throws IOException {
+    Path path = writeFile(createStream(1, 2, 3));
+
+    try (MappedMTSSource source = new MappedMTSSource(path)) {
+      assertThat(readPacketIds(source), contains(1, 2, 3));
+    }
+  }
+
+  @Test
+  public void testMappedSourceAcrossRegions() throws IOException {
+    Path path = writeFile(createStream(1, 2, 3, 4, 5));
+
+    try (MappedMTSSource source = new MappedMTSSource(path, Constants.TS_PACKET_SIZE + 50)) {
+      assertThat(readPacketIds(source), contains(1, 2, 3, 4, 5));
+    }
+  }
+
+  @Test
+  public void testMappedSourceSkipsBytesBeforeSyncByte() throws IOException {
+    byte[] packets = createStream(1, 2);
+    byte[] bytes = new byte[packets.length + 20];
+    System.arraycopy(packets, 0, bytes, 7, Constants.TS_PACKET_SIZE);
+    System.arraycopy(
+        packets,
+        Constants.TS_PACKET_SIZE,
+        bytes,
+        20 + Constants.TS_PACKET_SIZE,
+        Constants.TS_PACKET_SIZE);
+    Path path = writeFile(bytes);
+
+    try (MappedMTSSource source = new MappedMTSSource(path, Constants.TS_PACKET_SIZE)) {
+      assertThat(readPacketIds(source), contains(1, 2));
+    }
+  }
+
+  @Test
+  public void testMappedSourceIgnoresPartialPacket() throws IOException {
+    byte[] packets = createStream(1, 2);
+    byte[] bytes = new byte[packets.length - 1];
+    System.arraycopy(packets, 0, bytes, 0, bytes.length);
+    Path path = writeFile(bytes);
+
+    try (MappedMTSSource source = new MappedMTSSource(path)) {
+      assertThat(readPacketIds(source), contains(1));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMappedSourceRegionSmallerThanPacket() throws IOException {
+    new MappedMTSSource(writeFile(new byte[0]), Constants.TS_PACKET_SIZE - 1);
+  }
+
+  @Test
+  public void testMappedSourceStartsAtChannelPosition() throws IOException {
+    Path path = writeFile(createStream(1, 2, 3));
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      try (MappedMTSSource source =
+          new MappedMTSSource(channel, Constants.TS_PACKET_SIZE, Constants.TS_PACKET_SIZE)) {
+        assertThat(readPacketIds(source), contains(2, 3));
+      }
+      assertThat(channel.isOpen(), is(true));
+    }
+  }
+
+  @Test
+  public void testDemultiplexCompletesLastPackets() throws IOException {
+    Path path = writeFile(createStream(1, 2));
+    MpegTsDecoder mpegTsDecoder = mock(MpegTsDecoder.class);
+    List<Integer> packetIds = new ArrayList<>();
+    doAnswer(
+            invocation -> {
+              packetIds.add(((MTSPacket) invocation.getArguments()[0]).getPid());
+              return null;
+            })
+        .when(mpegTsDecoder)
+        .read(any(), any());
+    @SuppressWarnings("unchecked")
+    Consumer<PESPacket> callback = mock(Consumer.class);
+
+    try (MappedMTSSource source = new MappedMTSSource(path)) {
+      TSStream.demultiplex(source, mpegTsDecoder, callback);
+    }
+
+    assertThat(packetIds, contains(1, 2));
+    verify(mpegTsDecoder).flush(callback);
+  }
+
+  @Test
+  public void testDemultiplexStopsOnDecodeError() throws IOException {
+    Path path = writeFile(createStream(1, 2));
+    MpegTsDecoder mpegTsDecoder = mock(MpegTsDecoder.class);
+    doThrow(new IOException()).when(mpegTsDecoder).read(any(), any());
+    @SuppressWarnings("unchecked")
+    Consumer<PESPacket> callback = mock(Consumer.class);
+
+    try (MappedMTSSource source = new MappedMTSSource(path)) {
+      TSStream.demultiplex(source, mpegTsDecoder, callback);
+    }
+
+    verify(mpegTsDecoder).read(any(), any());
+    verify(mpegTsDecoder, never()).flush(any());
+  }
+
+  @Test
+  public void testIteratorReturnsEveryCompletedPacket() throws Exception {
+    PESPacket first = mock(PESPacket.class);
+    PESPacket second = mock(PESPacket.class);
+    PESPacketIterator.MTSPacketSource source = mock(PESPacketIterator.MTSPacketSource.class);
+    when(source.nextPacket()).thenReturn(createPacket(), (MTSPacket) null);
+    MpegTsDecoder mpegTsDecoder = mock(MpegTsDecoder.class);
+    doAnswer(
+            invocation -> {
+              @SuppressWarnings("unchecked")
+              Consumer<PESPacket> callback = (Consumer<PESPacket>) invocation.getArguments()[1];
+              callback.accept(first);
+              callback.accept(second);
+              return null;
+            })
+        .when(mpegTsDecoder)
+        .read(any(), any());
+
+    List<PESPacket> pesPackets = new ArrayList<>();
+    new PESPacketIterator(source, mpegTsDecoder).forEachRemaining(pesPackets::add);
+
+    assertThat(pesPackets, contains(first, second));
+  }
+
+  @Test
+  public void testIteratorStopsOnDecodeError() throws Exception {
+    PESPacketIterator.MTSPacketSource source = mock(PESPacketIterator.MTSPacketSource.class);
+    when(source.nextPacket()).thenReturn(createPacket());
+    MpegTsDecoder mpegTsDecoder = mock(MpegTsDecoder.class);
+    doThrow(new IOException()).when(mpegTsDecoder).read(any(), any());
+
+    assertThat(new PESPacketIterator(source, mpegTsDecoder).hasNext(), is(false));
+  }
+
+  @Test
+  public void testCloseClosesSource() throws IOException {
+    PESPacketIterator.MTSPacketSource source = mock(PESPacketIterator.MTSPacketSource.class);
+
+    new PESPacketIterator(source, mock(MpegTsDecoder.class)).close();
+
+    verify(source).close();
+  }
+
+  @Test
+  public void testStreamFromEmptySource() throws IOException {
+    try (Stream<PESPacket> stream = TSStream.from(ByteSource.empty())) {
+      assertThat(stream.count(), is(0L));
+    }
+  }
+
+  @Test
+  public void testStreamFromEmptyFile() throws IOException {
+    try (Stream<PESPacket> stream = TSStream.from(writeFile(new byte[0]))) {
+      assertThat(stream.count(), is(0L));
+    }
+  }
+
+  /**
+   * Compare scanning a recorded file through a byte source with scanning the memory-mapped file.
+   * The benchmark only runs when the {@value #BENCHMARK_PACKETS_PROPERTY} system property is set
+   * to the number of packets in the file, for example {@code
+   * -Dmpegts.benchmark.packets=100000}.
+   */
+  @Test
+  public void testMappedScanThroughput() throws Exception {
+    Integer benchmarkPackets = Integer.getInteger(BENCHMARK_PACKETS_PROPERTY);
+    assumeThat(benchmarkPackets, notNullValue());
+
+    int[] packetIds = new int[benchmarkPackets];
+    for (int i = 0; i < packetIds.length; i++) {
+      packetIds[i] = i % 8;
+    }
+    Path path = writeFile(createStream(packetIds));
+
+    long start = System.nanoTime();
+    int byteSourceCount = 0;
+    ResettableMTSSource byteSource = MTSSources.from(Files.asByteSource(path.toFile()));
+    try {
+      while (byteSource.nextPacket() != null) {
+        byteSourceCount++;
+      }
+    } finally {
+      byteSource.close();
+    }
+    long byteSourceNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    int mappedCount = 0;
+    try (MappedMTSSource mappedSource = new MappedMTSSource(path)) {
+      while (mappedSource.nextPacket() != null) {
+        mappedCount++;
+      }
+    }
+    long mappedNanos = System.nanoTime() - start;
+
+    LOGGER.info(
+        "scanned {} mpeg-ts packets: byte source {} ms, memory-mapped {} ms",
+        benchmarkPackets,
+        byteSourceNanos / 1_000_000,
+        mappedNanos / 1_000_000);
+
+    assertThat(byteSourceCount, is(benchmarkPackets));
+    assertThat(mappedCount, is(benchmarkPackets));
+  }
+
+  private List<Integer> readPacketIds(MappedMTSSource source) throws IOException {
+    List<Integer> packetIds = new ArrayList<>();
+    MTSPacket packet;
+    while ((packet = source.nextPacket()) != null) {
+      packetIds.add(packet.getPid());
+    }
+    return packetIds;
+  }
+
+  private Path writeFile(byte[] bytes) throws IOException {
+    File file = temporaryFolder.newFile();
+    Files.write(bytes, file);
+    return file.toPath();
+  }
+
+  private MTSPacket createPacket() {
+    return new MTSPacket(ByteBuffer.wrap(createStream(1)));
+  }
+
+  private byte[] createStream(int... packetIds) {
+    byte[] stream = new byte[packetIds.length * Constants.TS_PACKET_SIZE];
+    for (int i = 0; i < packetIds.length; i++) {
+      int offset = i * Constants.TS_PACKET_SIZE;
+      stream[offset] = 0x47;
+      stream[offset + 1] = (byte) (packetIds[i] >> 8);
+      stream[offset + 2] = (byte) packetIds[i];
+      stream[offset + 3] = 0x10;
+    }
+    return stream;
+  }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.mpegts;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.Before;
+import org.junit.Test;
+import org.taktik.mpegts.MTSPacket;
+
+public class PESPacketOutputStreamTest {
+
+  private MpegTsDecoder mpegTsDecoder;
+
+  private Consumer<PESPacket> callback;
+
+  private List<Integer> packetIds;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setup() throws IOException {
+    mpegTsDecoder = mock(MpegTsDecoder.class);
+    callback = mock(Consumer.class);
+    packetIds = new ArrayList<>();
+    doAnswer(
+            invocation -> {
+              packetIds.add(((MTSPacket) invocation.getArguments()[0]).getPid());
+              return null;
+            })
+        .when(mpegTsDecoder)
+        .read(any(), any());
+  }
+
+  @Test
+  public void testPacketsSplitAcrossWrites() throws IOException {
+
+    byte[] stream = createStream(1, 2, 3);
+
+    PESPacketOutputStream outputStream = new PESPacketOutputStream(mpegTsDecoder, callback);
+    for (int offset = 0; offset < stream.length; offset += 100) {
+      outputStream.write(stream, offset, Math.min(100, stream.length - offset));
+    }
+
+    assertThat(packetIds, contains(1, 2, 3));
+  }
+
+  @Test
+  public void testSingleByteWrites() throws IOException {
+
+    PESPacketOutputStream outputStream = new PESPacketOutputStream(mpegTsDecoder, callback);
+    for (byte b : createStream(1, 2)) {
+      outputStream.write(b);
+    }
+
+    assertThat(packetIds, contains(1, 2));
+  }
+
+  @Test
+  public void testBytesBeforeSyncByteAreSkipped() throws IOException {
+
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    stream.write(new byte[] {0x00, 0x01, 0x02});
+    stream.write(createStream(1, 2));
+
+    PESPacketOutputStream outputStream = new PESPacketOutputStream(mpegTsDecoder, callback);
+    outputStream.write(stream.toByteArray());
+
+    assertThat(packetIds, contains(1, 2));
+  }
+
+  @Test
+  public void testIncompletePacketIsNotDecoded() throws IOException {
+
+    byte[] stream = createStream(1, 2);
+
+    PESPacketOutputStream outputStream = new PESPacketOutputStream(mpegTsDecoder, callback);
+    outputStream.write(stream, 0, stream.length - 1);
+
+    assertThat(packetIds, contains(1));
+  }
+
+  @Test
+  public void testCloseFlushesDecoder() throws IOException {
+
+    PESPacketOutputStream outputStream = new PESPacketOutputStream(mpegTsDecoder, callback);
+    outputStream.write(createStream(1));
+    outputStream.close();
+    outputStream.close();
+    outputStream.write(createStream(2));
+
+    verify(mpegTsDecoder, times(1)).flush(callback);
+    assertThat(packetIds, contains(1));
+  }
+
+  @Test
+  public void testDecodingErrorIgnoresRestOfStream() throws IOException {
+
+    doThrow(new IOException()).when(mpegTsDecoder).read(any(), any());
+
+    PESPacketOutputStream outputStream = new PESPacketOutputStream(mpegTsDecoder, callback);
+    outputStream.write(createStream(1, 2, 3));
+    outputStream.close();
+
+    verify(mpegTsDecoder, times(1)).read(any(), any());
+    verify(mpegTsDecoder, never()).flush(any());
+    assertThat(packetIds, is(empty()));
+  }
+
+  private byte[] createStream(int... packetIds) {
+    byte[] stream = new byte[packetIds.length * Constants.TS_PACKET_SIZE];
+    for (int i = 0; i < packetIds.length; i++) {
+      int offset = i * Constants.TS_PACKET_SIZE;
+      stream[offset] = 0x47;
+      stream[offset + 1] = (byte) (packetIds[i] >> 8);
+      stream[offset + 2] = (byte) packetIds[i];
+      stream[offset + 3] = 0x10;
+    }
+    return stream;
+  }
+}
@@ -44,7 +44,8 @@ abstract class AbstractMetadataPacket {
     this.decoder = decoder;
   }
 
-  private boolean validateChecksum(final KlvContext klvContext, final byte[] klvBytes)
+  private boolean validateChecksum(
+      final KlvContext klvContext, final int klvOffset, final int klvLength)
       throws KlvDecodingException {
     if (!klvContext.hasDataElement(Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET)) {
       throw new KlvDecodingException("KLV did not contain the UAS Datalink Local Set");
@@ -62,45 +63,94 @@ abstract class AbstractMetadataPacket {
                   localSetContext.getDataElementByName(Stanag4609TransportStreamParser.CHECKSUM))
               .getValue();
 
-      short calculatedChecksum = 0;
       // Checksum is calculated by a 16-bit sum from the beginning of the KLV set to the 1-byte
       // checksum length (the checksum value is 2 bytes, which is why we subtract 2).
-      for (int i = 0; i < klvBytes.length - 2; ++i) {
-        calculatedChecksum += (klvBytes[i] & 0xFF) << (8 * ((i + 1) % 2));
-      }
-
-      return (calculatedChecksum & 0xFFFF) == packetChecksum;
+      return calculateChecksum(pesPacketBytes, klvOffset, klvLength - 2) == packetChecksum;
     }
 
     throw new KlvDecodingException(
         "Decoded KLV packet didn't contain checksum (which is required).");
   }
 
-  protected final byte[] getPESPacketPayload() {
+  /**
+   * Calculate the UAS Datalink Local Set checksum, which is the 16-bit sum of the big-endian words
+   * in the range. If the range has an odd length, the last byte is the high byte of a word.
+   *
+   * @param bytes the bytes to sum
+   * @param offset index of the first byte
+   * @param length number of bytes to sum
+   * @return the checksum in the range [0, 0xFFFF]
+   */
+  static int calculateChecksum(final byte[] bytes, final int offset, final int length) {
+    final int end = offset + length;
+    int checksum = 0;
+    int i = offset;
 
-    if (this.pesPacketBytes.length < BASE_PES_PACKET_HEADER_LENGTH) {
-      return null;
+    for (; i < end - 1; i += 2) {
+      checksum += ((bytes[i] & 0xFF) << 8) | (bytes[i + 1] & 0xFF);
     }
 
-    int additionalHeaderBytes = Byte.toUnsignedInt(pesPacketBytes[PES_HEADER_LENGTH_INDEX]);
+    if (i < end) {
+      checksum += (bytes[i] & 0xFF) << 8;
+    }
 
-    int payloadLength = pesHeader.length - 3 - additionalHeaderBytes;
-    int headerLength = BASE_PES_PACKET_HEADER_LENGTH + additionalHeaderBytes;
+    return checksum & 0xFFFF;
+  }
 
-    final int payloadEnd = Math.min(pesPacketBytes.length, headerLength + payloadLength);
-    return Arrays.copyOfRange(pesPacketBytes, headerLength, payloadEnd);
+  /** @return index of the first byte of the PES packet payload, otherwise -1 */
+  protected final int getPESPacketPayloadOffset() {
+    if (pesPacketBytes.length < BASE_PES_PACKET_HEADER_LENGTH) {
+      return -1;
+    }
+
+    return BASE_PES_PACKET_HEADER_LENGTH
+        + Byte.toUnsignedInt(pesPacketBytes[PES_HEADER_LENGTH_INDEX]);
   }
 
-  /** @return klv payload bytes, otherwise null */
-  protected abstract byte[] getKLVBytes();
+  /** @return number of bytes in the PES packet payload, 0 if there is no payload */
+  protected final int getPESPacketPayloadLength() {
+    final int payloadOffset = getPESPacketPayloadOffset();
+
+    if (payloadOffset < 0) {
+      return 0;
+    }
+
+    final int additionalHeaderBytes = payloadOffset - BASE_PES_PACKET_HEADER_LENGTH;
+    final int payloadLength = pesHeader.length - 3 - additionalHeaderBytes;
+    final int payloadEnd = Math.min(pesPacketBytes.length, payloadOffset + payloadLength);
+    return Math.max(0, payloadEnd - payloadOffset);
+  }
+
+  /** @return the PES packet, which must not be modified */
+  protected final byte[] getPESPacketBytes() {
+    return pesPacketBytes;
+  }
+
+  /** @return index of the first KLV byte in the PES packet, only valid if the length is &gt;0 */
+  protected abstract int getKLVOffset();
+
+  /** @return number of KLV bytes in the PES packet, 0 if there are none */
+  protected abstract int getKLVLength();
+
+  /**
+   * The KLV decoder only accepts a whole array, so the KLV bytes are copied unless they already
+   * fill the PES packet. The checksum is calculated on the PES packet itself.
+   */
+  private byte[] getKLVBytes(final int klvOffset, final int klvLength) {
+    if (klvOffset == 0 && klvLength == pesPacketBytes.length) {
+      return pesPacketBytes;
+    }
+    return Arrays.copyOfRange(pesPacketBytes, klvOffset, klvOffset + klvLength);
+  }
 
   final DecodedKLVMetadataPacket decodeKLV() throws KlvDecodingException {
-    final byte[] klvBytes = getKLVBytes();
+    final int klvLength = getKLVLength();
 
-    if (klvBytes != null && klvBytes.length > 0) {
-      final KlvContext decodedKLV = decoder.decode(klvBytes);
+    if (klvLength > 0) {
+      final int klvOffset = getKLVOffset();
+      final KlvContext decodedKLV = decoder.decode(getKLVBytes(klvOffset, klvLength));
 
-      if (validateChecksum(decodedKLV, klvBytes)) {
+      if (validateChecksum(decodedKLV, klvOffset, klvLength)) {
         return new DecodedKLVMetadataPacket(pesHeader.pts, decodedKLV);
       } else {
         throw new KlvDecodingException("KLV packet checksum does not match.");
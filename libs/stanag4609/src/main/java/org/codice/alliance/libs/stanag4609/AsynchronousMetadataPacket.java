@@ -24,7 +24,12 @@ class AsynchronousMetadataPacket extends AbstractMetadataPacket {
   }
 
   @Override
-  protected byte[] getKLVBytes() {
-    return getPESPacketPayload();
+  protected int getKLVOffset() {
+    return getPESPacketPayloadOffset();
+  }
+
+  @Override
+  protected int getKLVLength() {
+    return getPESPacketPayloadLength();
   }
 }
@@ -18,11 +18,15 @@ import static org.codice.ddf.libs.klv.data.Klv.LengthEncoding;
 
 import com.google.common.io.ByteSource;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 import org.codice.ddf.libs.klv.KlvContext;
 import org.codice.ddf.libs.klv.KlvDecoder;
 import org.codice.ddf.libs.klv.KlvDecodingException;
@@ -151,15 +155,27 @@ public class Stanag4609TransportStreamParser {
   private static final long MAX_UNSIGNED_INT = (1L << 32) - 1;
 
   static {
+    UAS_DATALINK_LOCAL_SET_CONTEXT.addDataElement(createUasDatalinkLocalSet(fieldName -> true));
+  }
+
+  /**
+   * Creates a KLV context that only decodes the given fields of the UAS Datalink Local Set. The KLV
+   * decoder skips the tags that are not in the context by their length, so fields that nobody uses
+   * are not decoded. The {@link #CHECKSUM} is always decoded because it is needed to validate the
+   * packet. The security local set is only decoded if at least one of its fields is requested.
+   *
+   * @param fieldNames the names of the fields to decode, e.g. {@link #FRAME_CENTER_LATITUDE}
+   * @return a new KLV context that can be used in place of {@link #UAS_DATALINK_LOCAL_SET_CONTEXT}
+   */
+  public static KlvContext createUasDatalinkLocalSetContext(final Collection<String> fieldNames) {
+    final Set<String> decodedFieldNames = new HashSet<>(fieldNames);
+    final KlvContext klvContext = new KlvContext(KeyLength.SixteenBytes, LengthEncoding.BER);
+    klvContext.addDataElement(createUasDatalinkLocalSet(decodedFieldNames::contains));
+    return klvContext;
+  }
+
+  private static KlvLocalSet createUasDatalinkLocalSet(final Predicate<String> isDecoded) {
     final KlvContext localSetContext = new KlvContext(KeyLength.OneByte, LengthEncoding.BER);
-    final KlvLocalSet outerSet =
-        new KlvLocalSet(
-            new byte[] {
-              0x06, 0x0E, 0x2B, 0x34, 0x02, 0x0B, 0x01, 0x01, 0x0E, 0x01, 0x03, 0x01, 0x01, 0x00,
-              0x00, 0x00
-            },
-            UAS_DATALINK_LOCAL_SET,
-            localSetContext);
 
     localSetContext.addDataElement(new KlvUnsignedShort(new byte[] {1}, CHECKSUM));
     localSetContext.addDataElement(new KlvLong(new byte[] {2}, TIMESTAMP));
@@ -389,10 +405,37 @@ public class Stanag4609TransportStreamParser {
     securityLocalSetContext.addDataElement(
         new KlvEncodingDetectedString(new byte[] {13}, OBJECT_COUNTRY_CODES));
 
-    localSetContext.addDataElement(
-        new KlvLocalSet(new byte[] {48}, SECURITY_LOCAL_METADATA_SET, securityLocalSetContext));
+    final KlvContext decodedSecurityLocalSetContext =
+        filterDataElements(securityLocalSetContext, isDecoded);
+
+    final KlvContext decodedLocalSetContext =
+        filterDataElements(localSetContext, isDecoded.or(CHECKSUM::equals));
+
+    if (!decodedSecurityLocalSetContext.getDataElements().isEmpty()) {
+      decodedLocalSetContext.addDataElement(
+          new KlvLocalSet(
+              new byte[] {48}, SECURITY_LOCAL_METADATA_SET, decodedSecurityLocalSetContext));
+    }
+
+    return new KlvLocalSet(
+        new byte[] {
+          0x06, 0x0E, 0x2B, 0x34, 0x02, 0x0B, 0x01, 0x01, 0x0E, 0x01, 0x03, 0x01, 0x01, 0x00, 0x00,
+          0x00
+        },
+        UAS_DATALINK_LOCAL_SET,
+        decodedLocalSetContext);
+  }
 
-    UAS_DATALINK_LOCAL_SET_CONTEXT.addDataElement(outerSet);
+  private static KlvContext filterDataElements(
+      final KlvContext klvContext, final Predicate<String> isDecoded) {
+    final KlvContext filteredContext = new KlvContext(KeyLength.OneByte, LengthEncoding.BER);
+    klvContext
+        .getDataElements()
+        .values()
+        .stream()
+        .filter(dataElement -> isDecoded.test(dataElement.getName()))
+        .forEach(filteredContext::addDataElement);
+    return filteredContext;
   }
 
   private final MpegTransportStreamMetadataExtractor extractor;
@@ -406,8 +449,19 @@ public class Stanag4609TransportStreamParser {
    * @param byteSource the {@code ByteSource} providing the transport stream bytes
    */
   public Stanag4609TransportStreamParser(final ByteSource byteSource) {
+    this(byteSource, UAS_DATALINK_LOCAL_SET_CONTEXT);
+  }
+
+  /**
+   * Constructs a {@code Stanag4609TransportStreamParser} that only decodes the fields in the given
+   * KLV context, see {@link #createUasDatalinkLocalSetContext(Collection)}.
+   *
+   * @param byteSource the {@code ByteSource} providing the transport stream bytes
+   * @param klvContext the fields to decode
+   */
+  public Stanag4609TransportStreamParser(final ByteSource byteSource, final KlvContext klvContext) {
     extractor = new MpegTransportStreamMetadataExtractor(byteSource);
-    decoder = new KlvDecoder(UAS_DATALINK_LOCAL_SET_CONTEXT);
+    decoder = new KlvDecoder(klvContext);
   }
 
   /**
@@ -13,7 +13,6 @@
  */
 package org.codice.alliance.libs.stanag4609;
 
-import java.util.Arrays;
 import org.codice.ddf.libs.klv.KlvDecoder;
 import org.jcodec.containers.mps.MPSDemuxer.PESPacket;
 
@@ -27,26 +26,23 @@ class SynchronousMetadataPacket extends AbstractMetadataPacket {
   }
 
   @Override
-  protected byte[] getKLVBytes() {
-
-    final byte[] metadataAccessUnit = getPESPacketPayload();
-
-    if (metadataAccessUnit == null) {
-      return null;
-    }
+  protected int getKLVOffset() {
+    return getPESPacketPayloadOffset() + METADATA_ACCESS_UNIT_HEADER_LENGTH;
+  }
 
-    if (metadataAccessUnit.length > METADATA_ACCESS_UNIT_HEADER_LENGTH) {
-      return getKLVPayloadFromMetadataAccessUnit(metadataAccessUnit);
+  @Override
+  protected int getKLVLength() {
+    final int metadataAccessUnitLength = getPESPacketPayloadLength();
+
+    if (metadataAccessUnitLength > METADATA_ACCESS_UNIT_HEADER_LENGTH) {
+      final byte[] pesPacketBytes = getPESPacketBytes();
+      final int metadataAccessUnitOffset = getPESPacketPayloadOffset();
+      final int payloadLength =
+          ((pesPacketBytes[metadataAccessUnitOffset + 3] & 0xFF) << 8)
+              | (pesPacketBytes[metadataAccessUnitOffset + 4] & 0xFF);
+      return Math.min(metadataAccessUnitLength - METADATA_ACCESS_UNIT_HEADER_LENGTH, payloadLength);
     }
 
-    return null;
-  }
-
-  private byte[] getKLVPayloadFromMetadataAccessUnit(final byte[] metadataAccessUnit) {
-    final int payloadLength =
-        ((metadataAccessUnit[3] & 0xFF) << 8) | (metadataAccessUnit[4] & 0xFF);
-    final int payloadEnd =
-        Math.min(metadataAccessUnit.length, METADATA_ACCESS_UNIT_HEADER_LENGTH + payloadLength);
-    return Arrays.copyOfRange(metadataAccessUnit, METADATA_ACCESS_UNIT_HEADER_LENGTH, payloadEnd);
+    return 0;
   }
 }
@@ -16,10 +16,14 @@ package org.codice.alliance.libs.stanag4609;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.lessThan;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeThat;
 
 import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.function.Supplier;
 import org.codice.ddf.libs.klv.KlvContext;
 import org.codice.ddf.libs.klv.KlvDataElement;
 import org.codice.ddf.libs.klv.KlvDecoder;
@@ -29,9 +33,93 @@ import org.codice.ddf.libs.klv.data.set.KlvLocalSet;
 import org.jcodec.containers.mps.MPSDemuxer;
 import org.jcodec.containers.mps.MPSUtils;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class MetadataPacketTest {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(MetadataPacketTest.class);
+
+  private static final String BENCHMARK_PACKETS_PROPERTY = "stanag4609.benchmark.packets";
+
+  private static final byte[] SYNCHRONOUS_PES_PACKET =
+      new byte[] {
+        0x00,
+        0x00,
+        0x01,
+        (byte) 0xFC,
+        0x00,
+        0x22,
+        (byte) 0x85,
+        (byte) 0x80,
+        0x05,
+        0x27,
+        0x19,
+        0x2B,
+        0x33,
+        (byte) 0x91,
+        0x01,
+        0x01,
+        0x01,
+        0x00,
+        0x15,
+        0x06,
+        0x0E,
+        0x2B,
+        0x34,
+        0x02,
+        0x0B,
+        0x01,
+        0x01,
+        0x0E,
+        0x01,
+        0x03,
+        0x01,
+        0x01,
+        0x00,
+        0x00,
+        0x00,
+        0x04,
+        0x01,
+        0x02,
+        0x4C,
+        0x51
+      };
+
+  private static final byte[] ASYNCHRONOUS_PES_PACKET =
+      new byte[] {
+        0x00,
+        0x00,
+        0x01,
+        (byte) 0xBD,
+        0x00,
+        0x18,
+        (byte) 0x85,
+        (byte) 0x00,
+        0x00,
+        0x06,
+        0x0E,
+        0x2B,
+        0x34,
+        0x02,
+        0x0B,
+        0x01,
+        0x01,
+        0x0E,
+        0x01,
+        0x03,
+        0x01,
+        0x01,
+        0x00,
+        0x00,
+        0x00,
+        0x04,
+        0x01,
+        0x02,
+        0x4C,
+        0x51
+      };
+
   /**
    * The binary data in this test was captured from a data stream where the PES header contains an
    * optional timestamp.
@@ -338,54 +426,10 @@ public class MetadataPacketTest {
 
   @Test
   public void testSynchronousMetadataPacket() throws Exception {
-    final byte[] pesPacketBytes =
-        new byte[] {
-          0x00,
-          0x00,
-          0x01,
-          (byte) 0xFC,
-          0x00,
-          0x22,
-          (byte) 0x85,
-          (byte) 0x80,
-          0x05,
-          0x27,
-          0x19,
-          0x2B,
-          0x33,
-          (byte) 0x91,
-          0x01,
-          0x01,
-          0x01,
-          0x00,
-          0x15,
-          0x06,
-          0x0E,
-          0x2B,
-          0x34,
-          0x02,
-          0x0B,
-          0x01,
-          0x01,
-          0x0E,
-          0x01,
-          0x03,
-          0x01,
-          0x01,
-          0x00,
-          0x00,
-          0x00,
-          0x04,
-          0x01,
-          0x02,
-          0x4C,
-          0x51
-        };
-
     final SynchronousMetadataPacket packet =
         new SynchronousMetadataPacket(
-            pesPacketBytes,
-            MPSUtils.readPESHeader(ByteBuffer.wrap(pesPacketBytes), 0),
+            SYNCHRONOUS_PES_PACKET,
+            MPSUtils.readPESHeader(ByteBuffer.wrap(SYNCHRONOUS_PES_PACKET), 0),
             new KlvDecoder(Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT));
     final DecodedKLVMetadataPacket decodedPacket = packet.decodeKLV();
 
@@ -429,44 +473,10 @@ public class MetadataPacketTest {
 
   @Test
   public void testAsynchronousMetadataPacket() throws Exception {
-    final byte[] pesPacketBytes =
-        new byte[] {
-          0x00,
-          0x00,
-          0x01,
-          (byte) 0xBD,
-          0x00,
-          0x18,
-          (byte) 0x85,
-          (byte) 0x00,
-          0x00,
-          0x06,
-          0x0E,
-          0x2B,
-          0x34,
-          0x02,
-          0x0B,
-          0x01,
-          0x01,
-          0x0E,
-          0x01,
-          0x03,
-          0x01,
-          0x01,
-          0x00,
-          0x00,
-          0x00,
-          0x04,
-          0x01,
-          0x02,
-          0x4C,
-          0x51
-        };
-
     final AsynchronousMetadataPacket packet =
         new AsynchronousMetadataPacket(
-            pesPacketBytes,
-            MPSUtils.readPESHeader(ByteBuffer.wrap(pesPacketBytes), 0),
+            ASYNCHRONOUS_PES_PACKET,
+            MPSUtils.readPESHeader(ByteBuffer.wrap(ASYNCHRONOUS_PES_PACKET), 0),
             new KlvDecoder(Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT));
     final DecodedKLVMetadataPacket decodedPacket = packet.decodeKLV();
     verifyDecodedKLV(decodedPacket);
@@ -474,6 +484,100 @@ public class MetadataPacketTest {
     assertThat(decodedPacket.getPresentationTimestamp(), is(lessThan(0L)));
   }
 
+  @Test
+  public void testSynchronousMetadataPacketKLVRange() {
+    final SynchronousMetadataPacket packet =
+        new SynchronousMetadataPacket(
+            SYNCHRONOUS_PES_PACKET,
+            MPSUtils.readPESHeader(ByteBuffer.wrap(SYNCHRONOUS_PES_PACKET), 0),
+            new KlvDecoder(Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT));
+
+    assertThat(packet.getKLVOffset(), is(19));
+    assertThat(packet.getKLVLength(), is(21));
+    assertThat(
+        AbstractMetadataPacket.calculateChecksum(
+            SYNCHRONOUS_PES_PACKET, packet.getKLVOffset(), packet.getKLVLength() - 2),
+        is(19537));
+  }
+
+  /** Compare the word-at-a-time checksum with the per-byte definition from the standard. */
+  @Test
+  public void testCalculateChecksum() {
+    final Random random = new Random(0);
+    final byte[] bytes = new byte[1024];
+    random.nextBytes(bytes);
+
+    for (int offset = 0; offset < 4; offset++) {
+      for (int length = 0; length < bytes.length - offset; length += 1 + random.nextInt(64)) {
+        assertThat(
+            AbstractMetadataPacket.calculateChecksum(bytes, offset, length),
+            is(calculateChecksumPerByte(bytes, offset, length)));
+      }
+    }
+  }
+
+  private static int calculateChecksumPerByte(byte[] bytes, int offset, int length) {
+    short checksum = 0;
+    for (int i = 0; i < length; ++i) {
+      checksum += (bytes[offset + i] & 0xFF) << (8 * ((i + 1) % 2));
+    }
+    return checksum & 0xFFFF;
+  }
+
+  /**
+   * Log the number of packets per second that can be checksummed and decoded. The benchmark only
+   * runs when the {@value #BENCHMARK_PACKETS_PROPERTY} system property is set to the number of
+   * packets, for example {@code -Dstanag4609.benchmark.packets=200000}.
+   */
+  @Test
+  public void testDecodeThroughput() throws Exception {
+    final Integer packetCount = Integer.getInteger(BENCHMARK_PACKETS_PROPERTY);
+    assumeThat(packetCount, notNullValue());
+    final KlvDecoder decoder =
+        new KlvDecoder(Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT);
+    final MPSDemuxer.PESPacket synchronousHeader =
+        MPSUtils.readPESHeader(ByteBuffer.wrap(SYNCHRONOUS_PES_PACKET), 0);
+    final MPSDemuxer.PESPacket asynchronousHeader =
+        MPSUtils.readPESHeader(ByteBuffer.wrap(ASYNCHRONOUS_PES_PACKET), 0);
+
+    final double synchronousPacketsPerSecond =
+        measureDecodeThroughput(
+            packetCount,
+            () ->
+                new SynchronousMetadataPacket(SYNCHRONOUS_PES_PACKET, synchronousHeader, decoder));
+    final double asynchronousPacketsPerSecond =
+        measureDecodeThroughput(
+            packetCount,
+            () ->
+                new AsynchronousMetadataPacket(
+                    ASYNCHRONOUS_PES_PACKET, asynchronousHeader, decoder));
+
+    LOGGER.info(
+        "klv decode: packets={} synchronousPacketsPerSecond={} asynchronousPacketsPerSecond={}",
+        packetCount,
+        Math.round(synchronousPacketsPerSecond),
+        Math.round(asynchronousPacketsPerSecond));
+
+    assertThat(synchronousPacketsPerSecond, is(greaterThan(0.0)));
+    assertThat(asynchronousPacketsPerSecond, is(greaterThan(0.0)));
+  }
+
+  private double measureDecodeThroughput(int packetCount, Supplier<AbstractMetadataPacket> packets)
+      throws KlvDecodingException {
+    // warm up before timing
+    for (int i = 0; i < packetCount / 10; i++) {
+      packets.get().decodeKLV();
+    }
+
+    final long start = System.nanoTime();
+    for (int i = 0; i < packetCount; i++) {
+      assertThat(packets.get().decodeKLV(), notNullValue());
+    }
+    final long elapsed = Math.max(1, System.nanoTime() - start);
+
+    return packetCount / (elapsed / 1e9);
+  }
+
   private void verifyDecodedKLV(final DecodedKLVMetadataPacket decodedPacket) {
     assertThat(decodedPacket, notNullValue());
 
@@ -15,6 +15,7 @@ package org.codice.alliance.libs.stanag4609;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasKey;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.eq;
@@ -24,6 +25,8 @@ import static org.mockito.Mockito.verify;
 
 import com.google.common.io.ByteSource;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -105,6 +108,65 @@ public class Stanag4609TransportStreamParserTest {
     verifyDecodedMetadataPacket(decodedPackets.get(0));
   }
 
+  @Test
+  public void testParseOnlyRequestedFields() throws Exception {
+    final ByteSource byteSource =
+        ByteSource.wrap(
+            IOUtils.toByteArray(getClass().getClassLoader().getResourceAsStream("dayflight.mpg")));
+    final Stanag4609TransportStreamParser parser =
+        new Stanag4609TransportStreamParser(
+            byteSource,
+            Stanag4609TransportStreamParser.createUasDatalinkLocalSetContext(
+                Arrays.asList(
+                    Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE,
+                    Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE,
+                    Stanag4609TransportStreamParser.SECURITY_CLASSIFICATION)));
+
+    final List<DecodedKLVMetadataPacket> decodedPackets = parser.parse().get(497);
+
+    assertThat(decodedPackets.size(), is(1));
+    final KlvContext localSetContext =
+        ((KlvLocalSet)
+                decodedPackets
+                    .get(0)
+                    .getDecodedKLV()
+                    .getDataElementByName(Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET))
+            .getValue();
+    assertThat(
+        localSetContext.getDataElements().keySet(),
+        containsInAnyOrder(
+            Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE,
+            Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE,
+            Stanag4609TransportStreamParser.CHECKSUM));
+  }
+
+  @Test
+  public void testCreateContextWithSecurityField() {
+    final KlvContext klvContext =
+        Stanag4609TransportStreamParser.createUasDatalinkLocalSetContext(
+            Collections.singleton(Stanag4609TransportStreamParser.CAVEATS));
+
+    final KlvContext localSetContext =
+        ((KlvLocalSet)
+                klvContext.getDataElementByName(
+                    Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET))
+            .getValue();
+    assertThat(
+        localSetContext.getDataElements().keySet(),
+        containsInAnyOrder(
+            Stanag4609TransportStreamParser.CHECKSUM,
+            Stanag4609TransportStreamParser.SECURITY_LOCAL_METADATA_SET));
+
+    final KlvContext securityLocalSetContext =
+        ((KlvLocalSet)
+                localSetContext.getDataElementByName(
+                    Stanag4609TransportStreamParser.SECURITY_LOCAL_METADATA_SET))
+            .getValue();
+    assertThat(
+        securityLocalSetContext.getDataElements().keySet(),
+        containsInAnyOrder(Stanag4609TransportStreamParser.CAVEATS));
+  }
+
   private void verifyDecodedMetadataPacket(final DecodedKLVMetadataPacket packet) {
     final KlvContext outerContext = packet.getDecodedKLV();
     assertThat(outerContext.getDataElements().size(), is(1));